@@ -28,6 +28,8 @@ import org.springframework.stereotype.Component;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
@@ -62,6 +64,14 @@ public class DataManagerClientImpl implements DataManager {
         return dataService.getCount(context);
     }
 
+    @Override
+    public List<List<Entity>> loadBatch(Collection<? extends LoadContext<?>> contexts) {
+        if (contexts.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return dataService.loadBatch(new ArrayList<>(contexts));
+    }
+
     @Override
     public <E extends Entity> E reload(E entity, String viewName) {
         Objects.requireNonNull(viewName, "viewName is null");
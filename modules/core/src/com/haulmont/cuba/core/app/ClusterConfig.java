@@ -66,4 +66,48 @@ public interface ClusterConfig extends Config {
     @Property("cuba.cluster.messageSendingQueueCapacity")
     @DefaultInt(Integer.MAX_VALUE)
     int getClusterMessageSendingQueueCapacity();
+
+    /**
+     * @return whether to write cluster messages having a registered {@link ClusterMessageCodec} by the codec instead
+     * of the standard serialization. Nodes of platform versions without codecs cannot read such messages, so enable
+     * it only when all nodes of the cluster are upgraded. Messages written by codecs are received regardless of
+     * this setting.
+     */
+    @Property("cuba.cluster.messageCodecs")
+    @DefaultBoolean(false)
+    boolean getMessageCodecs();
+
+    /**
+     * @return whether to send the state to a node joining the cluster in the streaming format, which does not keep
+     * the whole state in memory. Nodes of platform versions without streaming state transfer cannot read this format
+     * and start with an empty state, so enable it only when all nodes of the cluster are upgraded. The state is
+     * received in both formats regardless of this setting.
+     */
+    @Property("cuba.cluster.stateStreaming")
+    @DefaultBoolean(false)
+    boolean getStateStreaming();
+
+    /**
+     * @return whether to compress the state sent to a node joining the cluster. Applies only if
+     * {@link #getStateStreaming()} is enabled.
+     */
+    @Property("cuba.cluster.stateCompression")
+    @DefaultBoolean(false)
+    boolean getStateCompression();
+
+    /**
+     * @return time in milliseconds during which entity cache change sets are collected and then sent to the cluster
+     * in a single message. 0 means that each change set is sent in a separate message immediately.
+     */
+    @Property("cuba.cluster.entityCacheBatchInterval")
+    @DefaultLong(0)
+    long getEntityCacheBatchInterval();
+
+    /**
+     * @return maximum number of entity cache change sets in a single cluster message. When the limit is reached,
+     * the batch is sent before the end of {@link #getEntityCacheBatchInterval()}.
+     */
+    @Property("cuba.cluster.entityCacheBatchMaxSize")
+    @DefaultInt(1000)
+    int getEntityCacheBatchMaxSize();
 }
@@ -16,6 +16,12 @@
  */
 package com.haulmont.cuba.core.app;
 
+import com.google.common.io.ByteStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 /**
  * Interface to be implemented by middleware cluster listeners. A cluster listener receives messages from other nodes
  * in the cluster.
@@ -50,4 +56,35 @@ public interface ClusterListener<T> {
      * @param state byte array containing the state
      */
     void setState(byte[] state);
+
+    /**
+     * Write state of this cluster node directly to the state transfer stream.
+     *
+     * <p>Listeners having a large state should override this method together with {@link #setState(InputStream)}
+     * to avoid building the whole state in memory. The default implementation writes the result of
+     * {@link #getState()}.</p>
+     *
+     * @param output stream to write the state to. The stream must not be closed by the listener.
+     */
+    default void getState(OutputStream output) throws IOException {
+        byte[] state = getState();
+        if (state != null && state.length > 0) {
+            output.write(state);
+        }
+    }
+
+    /**
+     * Read state of this cluster node written by {@link #getState(OutputStream)} on other active node.
+     *
+     * <p>The default implementation reads the whole stream and passes it to {@link #setState(byte[])} if it is not
+     * empty.</p>
+     *
+     * @param input stream containing the state of this listener only
+     */
+    default void setState(InputStream input) throws IOException {
+        byte[] state = ByteStreams.toByteArray(input);
+        if (state.length > 0) {
+            setState(state);
+        }
+    }
 }
@@ -17,6 +17,8 @@
 package com.haulmont.cuba.core.app;
 
 import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.cuba.core.global.Events;
@@ -47,7 +49,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 /**
  * Standard implementation of middleware clustering based on JGroups.
@@ -77,8 +84,28 @@ public class ClusterManager implements ClusterManagerAPI {
 
     protected Map<String, MessageStat> messagesStat = new ConcurrentHashMap<>();
 
+    protected Map<Class, CodecRegistration> codecsByClass = new ConcurrentHashMap<>();
+
+    protected Map<Integer, CodecRegistration> codecsByTypeId = new ConcurrentHashMap<>();
+
     protected static final String STATE_MAGIC = "CUBA_STATE";
 
+    protected static final String STATE_STREAM_MAGIC = "CUBA_STATE_STREAM";
+
+    protected static final int STATE_CHUNK_SIZE = 8192;
+
+    /**
+     * Starts messages written by a registered codec. Java serialization output always starts with a different
+     * stream header. Other serialization implementations give no such guarantee, so a serialized message starting
+     * with these bytes followed by a registered type id would be decoded incorrectly; this is considered unlikely.
+     */
+    protected static final int CODEC_MAGIC = 0xCBA0C0DE;
+
+    /**
+     * Each N-th message written by a codec is also serialized in the standard way to estimate saved bytes.
+     */
+    protected static final int SAVED_BYTES_SAMPLE_RATE = 100;
+
     public JChannel getChannel() {
         return channel;
     }
@@ -135,16 +162,21 @@ public class ClusterManager implements ClusterManagerAPI {
         StopWatch sw = new Slf4JStopWatch(String.format("sendClusterMessage(%s)", message.getClass().getSimpleName()));
         try {
             byte[] bytes;
+            long encodeStart = System.nanoTime();
             try {
-                bytes = SerializationSupport.serialize(message);
+                bytes = encode(message);
             } catch (Exception e) {
                 log.error("Cluster message serialization error", e);
                 throw new RuntimeException("Cluster message serialization error", e);
             }
+            long encodeTime = System.nanoTime() - encodeStart;
             log.debug("Sending message: {}: {} ({} bytes)", message.getClass(), message, bytes.length);
             MessageStat stat = messagesStat.get(message.getClass().getName());
             if (stat != null) {
-                stat.updateSent(bytes.length);
+                stat.updateSent(bytes.length, encodeTime);
+                if (isCodecUsed(message) && stat.isSavedBytesSampleRequired()) {
+                    stat.updateSavedBytes(SerializationSupport.serialize(message).length - bytes.length);
+                }
             }
             Message msg = new Message()
                     .setBuffer(bytes);
@@ -189,6 +221,67 @@ public class ClusterManager implements ClusterManagerAPI {
         messagesStat.remove(className);
     }
 
+    @Override
+    public synchronized <T extends Serializable> void registerCodec(int typeId, Class<T> messageClass,
+                                                                    ClusterMessageCodec<T> codec) {
+        Preconditions.checkNotNullArgument(messageClass, "Message class is null");
+        Preconditions.checkNotNullArgument(codec, "Codec is null");
+
+        CodecRegistration existing = codecsByTypeId.get(typeId);
+        if (existing != null && existing.messageClass != messageClass) {
+            throw new IllegalStateException(String.format("Codec type id %s is already registered for %s",
+                    typeId, existing.messageClass.getName()));
+        }
+        CodecRegistration registration = new CodecRegistration(typeId, messageClass, codec);
+        CodecRegistration previous = codecsByClass.put(messageClass, registration);
+        if (previous != null) {
+            codecsByTypeId.remove(previous.typeId);
+        }
+        codecsByTypeId.put(typeId, registration);
+    }
+
+    /**
+     * @return true if the message is written by a registered codec
+     * @see ClusterConfig#getMessageCodecs()
+     */
+    protected boolean isCodecUsed(Serializable message) {
+        return clusterConfig.getMessageCodecs() && codecsByClass.containsKey(message.getClass());
+    }
+
+    /**
+     * Converts the message to bytes using a registered codec if codecs are enabled, otherwise using the standard
+     * serialization.
+     */
+    @SuppressWarnings("unchecked")
+    protected byte[] encode(Serializable message) throws IOException {
+        CodecRegistration registration = clusterConfig.getMessageCodecs() ? codecsByClass.get(message.getClass()) : null;
+        if (registration == null) {
+            return SerializationSupport.serialize(message);
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bos)) {
+            out.writeInt(CODEC_MAGIC);
+            out.writeInt(registration.typeId);
+            registration.codec.encode(message, out);
+        }
+        return bos.toByteArray();
+    }
+
+    protected Serializable decode(byte[] bytes) throws IOException {
+        if (bytes.length >= 8 && (bytes[0] & 0xFF) == CODEC_MAGIC >>> 24) {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            if (in.readInt() == CODEC_MAGIC) {
+                int typeId = in.readInt();
+                CodecRegistration registration = codecsByTypeId.get(typeId);
+                if (registration == null) {
+                    throw new IllegalStateException("No codec registered for type id " + typeId);
+                }
+                return registration.codec.decode(in);
+            }
+        }
+        return (Serializable) SerializationSupport.deserialize(bytes);
+    }
+
 
 
     @Override
@@ -321,16 +414,18 @@ public class ClusterManager implements ClusterManagerAPI {
     public String printSharedStateStat() {
         StringBuilder clusterStateStat = new StringBuilder();
         for (Map.Entry<String, ClusterListener> entry : listeners.entrySet()) {
-            byte[] data;
+            CountingOutputStream out = new CountingOutputStream(ByteStreams.nullOutputStream());
             StopWatch sw = new StopWatch();
             try {
-                data = entry.getValue().getState();
+                entry.getValue().getState(out);
+            } catch (IOException e) {
+                log.error("Error getting state of {}", entry.getKey(), e);
             } finally {
                 sw.stop();
             }
             clusterStateStat
                     .append(String.format("State: %s, size: %s bytes, serialize time: %s ms\n",
-                            entry.getKey(), data != null ? data.length : -1, sw.getElapsedTime()));
+                            entry.getKey(), out.getCount(), sw.getElapsedTime()));
         }
         return clusterStateStat.toString();
     }
@@ -342,9 +437,13 @@ public class ClusterManager implements ClusterManagerAPI {
             MessageStat stat = entry.getValue();
             if (stat != null) {
                 messagesStats
-                        .append(String.format("Class: %s; received: %s, %s bytes; sent: %s, %s bytes\n",
+                        .append(String.format("Class: %s; received: %s, %s bytes, decode time: %s ms; " +
+                                        "sent: %s, %s bytes, encode time: %s ms; saved: %s bytes\n",
                                 entry.getKey(), stat.getReceivedMessages(), stat.getReceivedBytes(),
-                                stat.getSentMessages(), stat.getSentBytes()));
+                                TimeUnit.NANOSECONDS.toMillis(stat.getDecodeTime()),
+                                stat.getSentMessages(), stat.getSentBytes(),
+                                TimeUnit.NANOSECONDS.toMillis(stat.getEncodeTime()),
+                                stat.getSavedBytes()));
             }
         }
         return messagesStats.toString();
@@ -390,6 +489,16 @@ public class ClusterManager implements ClusterManagerAPI {
         return 0;
     }
 
+    @Override
+    public long getSavedBytes(String className) {
+        Preconditions.checkNotNullArgument(className, "Message class is null");
+        MessageStat stat = messagesStat.get(className);
+        if (stat != null) {
+            return stat.getSavedBytes();
+        }
+        return 0;
+    }
+
     protected class ClusterReceiver implements Receiver {
 
         @Override
@@ -403,18 +512,20 @@ public class ClusterManager implements ClusterManagerAPI {
             String simpleClassName = null;
             try {
                 Serializable data;
+                long decodeStart = System.nanoTime();
                 try {
-                    data = (Serializable) SerializationSupport.deserialize(bytes);
+                    data = decode(bytes);
                 } catch (Exception e) {
                     log.error("Cluster message deserialization error", e);
                     throw new RuntimeException("Cluster message deserialization error", e);
                 }
+                long decodeTime = System.nanoTime() - decodeStart;
                 String className = data.getClass().getName();
                 simpleClassName = data.getClass().getSimpleName();
                 log.debug("Received message: {}: {} ({} bytes)", data.getClass(), data, bytes.length);
                 MessageStat stat = messagesStat.get(className);
                 if (stat != null) {
-                    stat.updateReceived(bytes.length);
+                    stat.updateReceived(bytes.length, decodeTime);
                 }
                 @SuppressWarnings("unchecked")
                 ClusterListener<Serializable> listener = listeners.get(className);
@@ -434,14 +545,75 @@ public class ClusterManager implements ClusterManagerAPI {
 
         @Override
         public void getState(OutputStream output) {
+            if (clusterConfig.getStateStreaming()) {
+                sendStateStream(output);
+            } else {
+                sendState(output);
+            }
+        }
+
+        protected void sendStateStream(OutputStream output) {
+            log.debug("Sending state");
+            boolean compress = clusterConfig.getStateCompression();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output, STATE_CHUNK_SIZE))) {
+                out.writeUTF(STATE_STREAM_MAGIC);
+                out.writeBoolean(compress);
+                for (Map.Entry<String, ClusterListener> entry : listeners.entrySet()) {
+                    out.writeBoolean(true);
+                    out.writeUTF(entry.getKey());
+
+                    StateOutputStream stateOut = new StateOutputStream(out);
+                    Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+                    DeflaterOutputStream deflaterOut = deflater != null ? new DeflaterOutputStream(stateOut, deflater) : null;
+                    CountingOutputStream countingOut = new CountingOutputStream(deflaterOut != null ? deflaterOut : stateOut);
+
+                    StopWatch sw = new Slf4JStopWatch();
+                    try {
+                        entry.getValue().getState(countingOut);
+                    } catch (RuntimeException | IOException e) {
+                        log.error("Error getting state of {}", entry.getKey(), e);
+                    } finally {
+                        try {
+                            if (deflaterOut != null) {
+                                deflaterOut.finish();
+                            }
+                        } finally {
+                            if (deflater != null) {
+                                deflater.end();
+                            }
+                        }
+                        stateOut.finish();
+                        sw.stop(String.format("getClusterState(%s)", entry.getKey()),
+                                String.format("%s bytes, %s bytes sent", countingOut.getCount(), stateOut.getCount()));
+                    }
+                    log.debug("Sent state: {} ({} bytes, {} bytes sent)",
+                            entry.getKey(), countingOut.getCount(), stateOut.getCount());
+                }
+                out.writeBoolean(false);
+            } catch (RuntimeException | IOException e) {
+                log.error("Error sending state", e);
+            }
+        }
+
+        @Override
+        public void suspect(Address suspected_mbr) {
+            log.info("Suspected member: {}", suspected_mbr);
+        }
+
+        /**
+         * Sends the state in the format supported by all nodes, keeping the state of each listener in memory.
+         */
+        protected void sendState(OutputStream output) {
             log.debug("Sending state");
             try (DataOutputStream out = new DataOutputStream(output)) {
                 Map<String, byte[]> state = new HashMap<>();
                 for (Map.Entry<String, ClusterListener> entry : listeners.entrySet()) {
-                    byte[] data;
+                    byte[] data = null;
                     StopWatch sw = new Slf4JStopWatch(String.format("getClusterState(%s)", entry.getKey()));
                     try {
                         data = entry.getValue().getState();
+                    } catch (RuntimeException e) {
+                        log.error("Error getting state of {}", entry.getKey(), e);
                     } finally {
                         sw.stop();
                     }
@@ -465,51 +637,83 @@ public class ClusterManager implements ClusterManagerAPI {
             }
         }
 
-        @Override
-        public void suspect(Address suspected_mbr) {
-            log.info("Suspected member: {}", suspected_mbr);
-        }
-
         @Override
         public void setState(InputStream input) {
             log.debug("Receiving state");
 
-            try (DataInputStream in = new DataInputStream(input)) {
-                if (input.available() == 0)
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(input, STATE_CHUNK_SIZE))) {
+                String magic;
+                try {
+                    magic = in.readUTF();
+                } catch (EOFException e) {
+                    log.debug("Empty state received");
                     return;
-
-                String magic = in.readUTF();
-                if (!STATE_MAGIC.equals(magic)) {
+                }
+                if (STATE_STREAM_MAGIC.equals(magic)) {
+                    receiveStateStream(in);
+                } else if (STATE_MAGIC.equals(magic)) {
+                    receiveState(in);
+                } else {
                     log.debug("Invalid magic in state received");
                     return;
                 }
-                int count = in.readInt();
-                for (int i = 0; i < count; i++) {
-                    String name = in.readUTF();
-                    int len = in.readInt();
-                    StopWatch sw = new Slf4JStopWatch(String.format("setClusterState(%s)", name));
-                    try {
-                        log.debug("Receiving state: {} ({} bytes)", name, len);
-                        byte[] data = new byte[len];
-                        int c = in.read(data);
-                        if (c != len) {
-                            log.error("Error receiving state: invalid data length");
-                            return;
-                        }
-                        ClusterListener listener = listeners.get(name);
-                        if (listener != null) {
-                            listener.setState(data);
-                        }
-                    } finally {
-                        sw.stop();
-                    }
-                }
                 log.debug("State received");
             } catch (Exception e) {
                 log.error("Error receiving state", e);
             }
         }
 
+        protected void receiveStateStream(DataInputStream in) throws IOException {
+            boolean compressed = in.readBoolean();
+            while (in.readBoolean()) {
+                String name = in.readUTF();
+                StateInputStream stateIn = new StateInputStream(in);
+                Inflater inflater = compressed ? new Inflater() : null;
+                InputStream listenerIn = inflater != null ? new InflaterInputStream(stateIn, inflater) : stateIn;
+
+                StopWatch sw = new Slf4JStopWatch();
+                try {
+                    ClusterListener listener = listeners.get(name);
+                    if (listener != null) {
+                        listener.setState(listenerIn);
+                    }
+                } catch (RuntimeException | IOException e) {
+                    log.error("Error receiving state of {}", name, e);
+                } finally {
+                    if (inflater != null) {
+                        inflater.end();
+                    }
+                    stateIn.skipRemaining();
+                    sw.stop(String.format("setClusterState(%s)", name),
+                            String.format("%s bytes received", stateIn.getCount()));
+                }
+                log.debug("Received state: {} ({} bytes received)", name, stateIn.getCount());
+            }
+        }
+
+        /**
+         * Reads the state sent by nodes that do not support streaming state transfer.
+         */
+        protected void receiveState(DataInputStream in) throws IOException {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                int len = in.readInt();
+                StopWatch sw = new Slf4JStopWatch(String.format("setClusterState(%s)", name));
+                try {
+                    log.debug("Receiving state: {} ({} bytes)", name, len);
+                    byte[] data = new byte[len];
+                    in.readFully(data);
+                    ClusterListener listener = listeners.get(name);
+                    if (listener != null) {
+                        listener.setState(data);
+                    }
+                } finally {
+                    sw.stop();
+                }
+            }
+        }
+
         @Override
         public void block() {
         }
@@ -519,6 +723,157 @@ public class ClusterManager implements ClusterManagerAPI {
         }
     }
 
+    /**
+     * Writes the state of a single listener to the state transfer stream as a sequence of length-prefixed chunks
+     * terminated by an empty chunk. Closing the stream does not close the underlying stream.
+     */
+    protected static class StateOutputStream extends OutputStream {
+        protected final DataOutputStream out;
+        protected final byte[] buffer = new byte[STATE_CHUNK_SIZE];
+        protected int position;
+        protected long count;
+        protected boolean finished;
+
+        public StateOutputStream(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (position == buffer.length) {
+                writeChunk();
+            }
+            buffer[position++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (position == buffer.length) {
+                    writeChunk();
+                }
+                int n = Math.min(len, buffer.length - position);
+                System.arraycopy(b, off, buffer, position, n);
+                position += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        protected void writeChunk() throws IOException {
+            if (finished) {
+                throw new IOException("State stream is finished");
+            }
+            if (position > 0) {
+                out.writeInt(position);
+                out.write(buffer, 0, position);
+                count += position;
+                position = 0;
+            }
+        }
+
+        /**
+         * Writes buffered data and the terminating chunk.
+         */
+        public void finish() throws IOException {
+            if (!finished) {
+                writeChunk();
+                out.writeInt(0);
+                finished = true;
+            }
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Reads the state of a single listener written by {@link StateOutputStream}. Returns end of stream on the
+     * terminating chunk. Closing the stream does not close the underlying stream.
+     */
+    protected static class StateInputStream extends InputStream {
+        protected final DataInputStream in;
+        protected int remaining;
+        protected long count;
+        protected boolean finished;
+
+        public StateInputStream(DataInputStream in) {
+            this.in = in;
+        }
+
+        protected boolean nextChunk() throws IOException {
+            while (remaining == 0 && !finished) {
+                remaining = in.readInt();
+                if (remaining == 0) {
+                    finished = true;
+                } else if (remaining < 0) {
+                    throw new IOException("Invalid state chunk length: " + remaining);
+                }
+            }
+            return !finished;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!nextChunk()) {
+                return -1;
+            }
+            int b = in.read();
+            if (b == -1) {
+                throw new EOFException("Unexpected end of state stream");
+            }
+            remaining--;
+            count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!nextChunk()) {
+                return -1;
+            }
+            int n = in.read(b, off, Math.min(len, remaining));
+            if (n == -1) {
+                throw new EOFException("Unexpected end of state stream");
+            }
+            remaining -= n;
+            count += n;
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return finished ? 0 : Math.min(remaining, in.available());
+        }
+
+        /**
+         * Skips the data not read by the listener up to the terminating chunk.
+         */
+        public void skipRemaining() throws IOException {
+            while (nextChunk()) {
+                ByteStreams.skipFully(in, remaining);
+                count += remaining;
+                remaining = 0;
+            }
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
     protected class SendMessageRunnable implements Runnable {
         protected Serializable message;
 
@@ -532,20 +887,69 @@ public class ClusterManager implements ClusterManagerAPI {
         }
     }
 
+    protected static class CodecRegistration {
+        protected final int typeId;
+        protected final Class messageClass;
+        protected final ClusterMessageCodec codec;
+
+        public CodecRegistration(int typeId, Class messageClass, ClusterMessageCodec codec) {
+            this.typeId = typeId;
+            this.messageClass = messageClass;
+            this.codec = codec;
+        }
+    }
+
     protected static class MessageStat {
         protected LongAdder sentBytes = new LongAdder();
         protected LongAdder receivedBytes = new LongAdder();
         protected LongAdder receivedMessages = new LongAdder();
         protected LongAdder sentMessages = new LongAdder();
+        protected LongAdder encodeTime = new LongAdder();
+        protected LongAdder decodeTime = new LongAdder();
+        protected AtomicLong encodedMessages = new AtomicLong();
+        protected LongAdder savedBytesSamples = new LongAdder();
+        protected LongAdder sampledSavedBytes = new LongAdder();
 
-        public void updateReceived(int bytes) {
+        public void updateReceived(int bytes, long decodeNanos) {
             receivedMessages.increment();
             receivedBytes.add(bytes);
+            decodeTime.add(decodeNanos);
         }
 
-        public void updateSent(int bytes) {
+        public void updateSent(int bytes, long encodeNanos) {
             sentMessages.increment();
             sentBytes.add(bytes);
+            encodeTime.add(encodeNanos);
+        }
+
+        /**
+         * Invoked for each message written by a codec.
+         *
+         * @return true if the message should be serialized in the standard way to estimate saved bytes
+         */
+        public boolean isSavedBytesSampleRequired() {
+            return encodedMessages.getAndIncrement() % SAVED_BYTES_SAMPLE_RATE == 0;
+        }
+
+        public void updateSavedBytes(int bytes) {
+            savedBytesSamples.increment();
+            sampledSavedBytes.add(bytes);
+        }
+
+        /**
+         * @return saved bytes extrapolated from the sampled messages to all messages written by a codec
+         */
+        public long getSavedBytes() {
+            long samples = savedBytesSamples.longValue();
+            return samples == 0 ? 0 : sampledSavedBytes.longValue() * encodedMessages.get() / samples;
+        }
+
+        public long getEncodeTime() {
+            return encodeTime.longValue();
+        }
+
+        public long getDecodeTime() {
+            return decodeTime.longValue();
         }
 
         public long getSentBytes() {
@@ -25,6 +25,26 @@ public interface ClusterManagerAPI {
 
     String NAME = "cuba_ClusterManager";
 
+    /*
+     * Type ids of platform message codecs, see registerCodec(). The ids are written to messages, so they must never
+     * be changed or reused.
+     */
+
+    int CONFIG_STORAGE_INVALIDATE_CODEC_ID = 1;
+
+    int DYNAMIC_ATTRIBUTES_RELOAD_CODEC_ID = 2;
+
+    int SCHEDULING_SET_ACTIVE_CODEC_ID = 3;
+
+    int USER_SESSIONS_TOUCH_CODEC_ID = 4;
+
+    int USER_SESSIONS_REQUEST_CODEC_ID = 5;
+
+    /**
+     * Minimal type id of codecs registered by applications and add-ons.
+     */
+    int MIN_APPLICATION_CODEC_ID = 1000;
+
     /**
      * Send a message to all active cluster nodes.
      *
@@ -69,6 +89,19 @@ public interface ClusterManagerAPI {
      */
     void removeListener(Class messageClass, ClusterListener listener);
 
+    /**
+     * Register a compact binary codec for messages of the given class. Messages having a codec are written by it
+     * instead of the standard serialization.
+     * <p>
+     * The type id identifies the codec in sent messages, so it must be the same for the message class on all
+     * cluster nodes. Ids below {@link #MIN_APPLICATION_CODEC_ID} are reserved for the platform.
+     *
+     * @param typeId       stable id of the message type
+     * @param messageClass the class of messages
+     * @param codec        codec instance
+     */
+    <T extends Serializable> void registerCodec(int typeId, Class<T> messageClass, ClusterMessageCodec<T> codec);
+
     /**
      * Inform whether the current node is currently the master node in the cluster. A middleware cluster always
      * elects one of its members as master, usually it is the oldest one.
@@ -151,4 +184,12 @@ public interface ClusterManagerAPI {
      * @return size in bytes
      */
     long getReceivedBytes(String className);
+
+    /**
+     * Get estimated count of bytes saved by sending messages of specified {@code className} with a registered codec
+     * instead of the standard serialization
+     *
+     * @return size in bytes
+     */
+    long getSavedBytes(String className);
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.function.Supplier;
+
+/**
+ * Compact binary representation of cluster messages of a particular class.
+ * <p>
+ * Messages of classes having a registered codec are written by the codec instead of
+ * {@link com.haulmont.cuba.core.sys.serialization.SerializationSupport}, which avoids writing class descriptors
+ * for frequent small messages.
+ *
+ * @param <T> message class
+ * @see ClusterManagerAPI#registerCodec(int, Class, ClusterMessageCodec)
+ */
+public interface ClusterMessageCodec<T extends Serializable> {
+
+    /**
+     * Writes the message state.
+     */
+    void encode(T message, DataOutput out) throws IOException;
+
+    /**
+     * Reads the message written by {@link #encode(Serializable, DataOutput)}.
+     */
+    T decode(DataInput in) throws IOException;
+
+    /**
+     * Creates a codec for messages without state.
+     *
+     * @param factory creates a message instance on the receiving node
+     */
+    static <T extends Serializable> ClusterMessageCodec<T> empty(Supplier<T> factory) {
+        return new ClusterMessageCodec<T>() {
+            @Override
+            public void encode(T message, DataOutput out) {
+            }
+
+            @Override
+            public T decode(DataInput in) {
+                return factory.get();
+            }
+        };
+    }
+}
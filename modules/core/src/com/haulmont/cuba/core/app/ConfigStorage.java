@@ -71,6 +71,7 @@ public class ConfigStorage implements ConfigStorageAPI {
                 internalClearCache();
             }
         });
+        clusterManager.registerCodec(ClusterManagerAPI.CONFIG_STORAGE_INVALIDATE_CODEC_ID, InvalidateCacheMsg.class, ClusterMessageCodec.empty(InvalidateCacheMsg::new));
     }
     
     @Override
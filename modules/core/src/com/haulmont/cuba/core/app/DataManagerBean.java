@@ -17,21 +17,26 @@
 
 package com.haulmont.cuba.core.app;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
+import com.haulmont.cuba.core.Persistence;
 import com.haulmont.cuba.core.entity.*;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.global.validation.EntityValidationException;
+import com.haulmont.cuba.core.sys.SecurityContextAwareRunnable;
 import com.haulmont.cuba.security.app.EntityLogAPI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
 import java.util.*;
+import java.util.concurrent.*;
 
 @Component(DataManager.NAME)
 public class DataManagerBean implements DataManager {
@@ -59,6 +64,11 @@ public class DataManagerBean implements DataManager {
     @Inject
     protected BeanValidation beanValidation;
 
+    @Inject
+    protected Persistence persistence;
+
+    protected volatile ThreadPoolExecutor batchLoadExecutor;
+
     @Nullable
     @Override
     public <E extends Entity> E load(LoadContext<E> context) {
@@ -87,6 +97,91 @@ public class DataManagerBean implements DataManager {
         return storage.getCount(context);
     }
 
+    @Override
+    public List<List<Entity>> loadBatch(Collection<? extends LoadContext<?>> contexts) {
+        int threads = serverConfig.getDataManagerBatchLoadThreads();
+        // contexts joining the current transaction must be executed in the calling thread
+        if (threads <= 1 || contexts.size() < 2 || persistence.isInTransaction()) {
+            List<List<Entity>> result = new ArrayList<>(contexts.size());
+            for (LoadContext<?> context : contexts) {
+                result.add(loadBatchItem(context));
+            }
+            return result;
+        }
+
+        ExecutorService executor = getBatchLoadExecutor(threads);
+        List<FutureTask<List<Entity>>> tasks = new ArrayList<>(contexts.size());
+        for (LoadContext<?> context : contexts) {
+            FutureTask<List<Entity>> task = new FutureTask<>(() -> loadBatchItem(context));
+            executor.execute(new SecurityContextAwareRunnable(task));
+            tasks.add(task);
+        }
+
+        List<List<Entity>> result = new ArrayList<>(tasks.size());
+        try {
+            for (FutureTask<List<Entity>> task : tasks) {
+                result.add(task.get());
+            }
+        } catch (InterruptedException e) {
+            tasks.forEach(task -> task.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while loading a batch of entities", e);
+        } catch (ExecutionException e) {
+            tasks.forEach(task -> task.cancel(true));
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException("Error loading a batch of entities", cause);
+        }
+        return result;
+    }
+
+    protected List<Entity> loadBatchItem(LoadContext<?> context) {
+        if (context.getId() != null) {
+            Entity entity = load(context);
+            return entity != null ? Collections.singletonList(entity) : Collections.emptyList();
+        }
+        //noinspection unchecked
+        return (List<Entity>) loadList(context);
+    }
+
+    /**
+     * Returns the pool executing batch load contexts. The pool is created on the first parallel batch and resized
+     * if the {@code cuba.dataManager.batchLoadThreads} property value is changed later.
+     */
+    protected ExecutorService getBatchLoadExecutor(int threads) {
+        ThreadPoolExecutor executor = batchLoadExecutor;
+        if (executor == null || executor.getMaximumPoolSize() != threads) {
+            synchronized (this) {
+                executor = batchLoadExecutor;
+                if (executor == null) {
+                    executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                            new LinkedBlockingQueue<>(),
+                            new ThreadFactoryBuilder().setNameFormat("DataManagerBatchLoader-%d").setDaemon(true).build());
+                    batchLoadExecutor = executor;
+                } else if (threads > executor.getMaximumPoolSize()) {
+                    executor.setMaximumPoolSize(threads);
+                    executor.setCorePoolSize(threads);
+                } else if (threads < executor.getMaximumPoolSize()) {
+                    executor.setCorePoolSize(threads);
+                    executor.setMaximumPoolSize(threads);
+                }
+            }
+        }
+        return executor;
+    }
+
+    @PreDestroy
+    protected void stopBatchLoadExecutor() {
+        if (batchLoadExecutor != null) {
+            batchLoadExecutor.shutdownNow();
+        }
+    }
+
     @Override
     public <E extends Entity> E reload(E entity, String viewName) {
         Objects.requireNonNull(viewName, "viewName is null");
@@ -398,6 +493,14 @@ public class DataManagerBean implements DataManager {
             return dataManager.loadList(context);
         }
 
+        @Override
+        public List<List<Entity>> loadBatch(Collection<? extends LoadContext<?>> contexts) {
+            for (LoadContext<?> context : contexts) {
+                context.setAuthorizationRequired(true);
+            }
+            return dataManager.loadBatch(contexts);
+        }
+
         @Override
         public List<KeyValueEntity> loadValues(ValueLoadContext context) {
             context.setAuthorizationRequired(true);
@@ -60,6 +60,14 @@ public class DataServiceBean implements DataService {
         return dataManager.getCount(context);
     }
 
+    @Override
+    public List<List<Entity>> loadBatch(List<LoadContext<?>> contexts) {
+        for (LoadContext<?> context : contexts) {
+            context.setAuthorizationRequired(true);
+        }
+        return dataManager.loadBatch(contexts);
+    }
+
     @Override
     public List<KeyValueEntity> loadValues(ValueLoadContext context) {
         context.setAuthorizationRequired(true);
@@ -237,12 +237,9 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
 
     @Override
     public byte[] getState() {
-        List<LockInfo> list = new ArrayList<>(locks.values());
-
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         try {
-            ObjectOutputStream oos = new ObjectOutputStream(bos);
-            oos.writeObject(list);
+            getState(bos);
         } catch (IOException e) {
             log.error("Error serializing LockInfo list", e);
             return new byte[0];
@@ -250,16 +247,31 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
         return bos.toByteArray();
     }
 
+    @Override
+    public void getState(OutputStream output) throws IOException {
+        List<LockInfo> list = new ArrayList<>(locks.values());
+
+        ObjectOutputStream oos = new ObjectOutputStream(output);
+        oos.writeObject(list);
+        oos.flush();
+    }
+
     @Override
     public void setState(byte[] state) {
         if (state == null || state.length == 0)
             return;
 
+        setState(new ByteArrayInputStream(state));
+    }
+
+    @Override
+    public void setState(InputStream input) {
         List<LockInfo> list;
-        ByteArrayInputStream bis = new ByteArrayInputStream(state);
         try {
-            ObjectInputStream ois = new ObjectInputStream(bis);
+            ObjectInputStream ois = new ObjectInputStream(input);
             list = (List<LockInfo>) ois.readObject();
+        } catch (EOFException e) {
+            return;
         } catch (Exception e) {
             log.error("Error deserializing LockInfo list", e);
             return;
@@ -794,14 +794,18 @@ public class RdbmsStore implements DataStore {
     protected View createRestrictedView(LoadContext<?> context) {
         View view = context.getView() != null ? context.getView() :
                 viewRepository.getView(metadata.getClassNN(context.getMetaClass()), View.BASE);
-        View copy = View.copy(isAuthorizationRequired(context) ? attributeSecurity.createRestrictedView(view) : view);
-        if (context.isLoadPartialEntities()
+        View restrictedView = isAuthorizationRequired(context) ? attributeSecurity.createRestrictedView(view) : view;
+        boolean loadPartialEntities = context.isLoadPartialEntities()
                 && !needToApplyInMemoryReadConstraints(context)
                 && !needToFilterByInMemoryReadConstraints(context)
-                && !needToApplyAttributeAccess(context)) {
-            copy.setLoadPartialEntities(true);
+                && !needToApplyAttributeAccess(context);
+        if (restrictedView.loadPartialEntities() == loadPartialEntities) {
+            return restrictedView;
         }
-        return copy;
+        // the copy shares nested views with the source, only the top level flag differs
+        View copy = new View(restrictedView, restrictedView.getName(), false);
+        copy.setLoadPartialEntities(loadPartialEntities);
+        return restrictedView.isFrozen() ? copy.freeze() : copy;
     }
 
     @SuppressWarnings("unchecked")
@@ -111,6 +111,15 @@ public interface ServerConfig extends Config {
     @DefaultInt(1)
     int getUserSessionTouchTimeoutSec();
 
+    /**
+     * Whether pings of user sessions are sent to the cluster as batched touch messages instead of the whole
+     * sessions. Nodes of older versions ignore touch messages and expire the sessions used on other nodes, so
+     * switch it on only when all nodes of the cluster understand them.
+     */
+    @Property("cuba.userSessionTouchMessages")
+    @DefaultBoolean(false)
+    boolean getUserSessionTouchMessages();
+
     /**
      * @return DB scripts directory.
      * Does not end with "/"
@@ -221,6 +230,15 @@ public interface ServerConfig extends Config {
     @DefaultString("CUBA.Platform")
     String getKeyForSecurityTokenEncryption();
 
+    /**
+     * Whether security tokens are written in the compact binary format. Tokens in both binary and JSON formats are
+     * accepted regardless of this setting, so switch it on only when no middleware node of a version reading only
+     * JSON tokens remains in the cluster.
+     */
+    @Property("cuba.securityToken.binaryFormat")
+    @DefaultBoolean(false)
+    boolean getSecurityTokenBinaryFormat();
+
     /**
      * Indicates that {@code DataManager} should always apply security restrictions on the middleware.
      */
@@ -400,4 +418,40 @@ public interface ServerConfig extends Config {
     @Property("cuba.security.rolesPolicyVersion")
     @DefaultInt(2)
     int getRolesPolicyVersion();
-}
\ No newline at end of file
+
+    /**
+     * @return maximum number of JPQL query strings kept in the cache of transformed queries. 0 disables the cache.
+     * @see com.haulmont.cuba.core.sys.TransformedQueryCache
+     */
+    @Property("cuba.transformedQueryCache.maxSize")
+    @DefaultInt(1000)
+    int getTransformedQueryCacheMaxSize();
+
+    /**
+     * @return maximum number of fetch group descriptions calculated for views and queries kept in the cache.
+     * 0 disables the cache.
+     * @see com.haulmont.cuba.core.sys.FetchGroupManager
+     */
+    @Property("cuba.fetchGroupCache.maxSize")
+    @DefaultInt(1000)
+    int getFetchGroupCacheMaxSize();
+
+    /**
+     * @return whether the results of the previous query used by "apply to selected" filtering are copied to
+     * SYS_QUERY_RESULT by a single INSERT ... SELECT statement instead of loading the identifiers to the middleware
+     * and inserting them in batches. The latter is used anyway if the DBMS does not support such statements.
+     * @see com.haulmont.cuba.core.sys.persistence.DbmsFeatures#supportsInsertFromSelect()
+     */
+    @Property("cuba.queryResults.insertFromSelect")
+    @DefaultBoolean(true)
+    boolean getQueryResultsInsertFromSelect();
+
+    /**
+     * @return number of threads executing load contexts passed to {@code DataManager.loadBatch()} in parallel.
+     * 0 or 1 means that the contexts are executed sequentially in the calling thread.
+     * The thread pool is created on the first parallel batch and resized when the value is changed.
+     */
+    @Property("cuba.dataManager.batchLoadThreads")
+    @DefaultInt(0)
+    int getDataManagerBatchLoadThreads();
+}
@@ -27,6 +27,7 @@ import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.TypedQuery;
 import com.haulmont.cuba.core.app.ClusterListenerAdapter;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.cuba.core.app.ClusterMessageCodec;
 import com.haulmont.cuba.core.entity.*;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.security.entity.EntityOp;
@@ -88,6 +89,7 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
                 doLoadCache(false, false);
             }
         });
+        clusterManager.registerCodec(ClusterManagerAPI.DYNAMIC_ATTRIBUTES_RELOAD_CODEC_ID, ReloadCacheMsg.class, ClusterMessageCodec.empty(ReloadCacheMsg::new));
     }
 
     @Override
@@ -20,20 +20,33 @@ package com.haulmont.cuba.core.app.queryresults;
 import com.haulmont.bali.db.QueryRunner;
 import com.haulmont.cuba.core.*;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.cuba.core.app.JpqlQueryBuilder;
+import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.QueryHolder;
 import com.haulmont.cuba.core.sys.persistence.DbTypeConverter;
+import com.haulmont.cuba.core.sys.persistence.DbmsSpecificFactory;
 import com.haulmont.cuba.security.app.UserSessionsAPI;
 import com.haulmont.cuba.security.global.UserSession;
+import org.eclipse.persistence.internal.databaseaccess.DatabaseCall;
+import org.eclipse.persistence.internal.databaseaccess.DatabasePlatform;
+import org.eclipse.persistence.internal.sessions.AbstractRecord;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.jpa.JpaEntityManager;
+import org.eclipse.persistence.jpa.JpaQuery;
+import org.eclipse.persistence.queries.DatabaseQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 /**
@@ -68,6 +81,11 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
 
     protected static final int INACTIVE_DELETION_MAX = 100000;
 
+    protected final StrategyStat loadAndInsertStat = new StrategyStat("load and insert", true);
+
+    // the select is a part of the insert statement and is not measured separately
+    protected final StrategyStat insertFromSelectStat = new StrategyStat("insert from select", false);
+
     @Override
     public void savePreviousQueryResults(LoadContext loadContext) {
         List<LoadContext.Query> prevQueries = loadContext.getPrevQueries();
@@ -86,34 +104,39 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
         if (resultsAlreadySaved(queryKey, contextQuery))
             return;
 
+        if (isInsertFromSelectApplicable(entityName)) {
+            try {
+                insertFromSelect(loadContext, contextQuery, queryKey);
+                return;
+            } catch (Exception e) {
+                log.warn("Unable to save previous query results by INSERT ... SELECT, loading identifiers instead", e);
+            }
+        }
+        loadAndInsert(loadContext, contextQuery, queryKey);
+    }
+
+    protected boolean isInsertFromSelectApplicable(String entityName) {
+        return configuration.getConfig(ServerConfig.class).getQueryResultsInsertFromSelect()
+                && Stores.isMain(metadata.getTools().getStoreName(metadata.getClassNN(entityName)))
+                && DbmsSpecificFactory.getDbmsFeatures().supportsInsertFromSelect();
+    }
+
+    /**
+     * Loads identifiers of the previous query results to the middleware and inserts them to SYS_QUERY_RESULT
+     * in batches.
+     */
+    protected void loadAndInsert(LoadContext loadContext, LoadContext.Query contextQuery, int queryKey) {
+        long start = System.currentTimeMillis();
         List idList;
         Transaction tx = persistence.createTransaction();
         try {
             EntityManager em = persistence.getEntityManager();
             em.setSoftDeletion(loadContext.isSoftDeletion());
 
-            QueryTransformer transformer = QueryTransformerFactory.createTransformer(contextQuery.getQueryString());
-            transformer.replaceWithSelectId(metadata.getTools().getPrimaryKeyName(metadata.getClassNN(entityName)));
-            transformer.removeOrderBy();
-            String queryString = transformer.getResult();
-
-            JpqlQueryBuilder queryBuilder = AppBeans.get(JpqlQueryBuilder.NAME);
-
-            queryBuilder.setQueryString(queryString)
-                    .setEntityName(entityName)
-                    .setCondition(contextQuery.getCondition())
-                    .setSort(contextQuery.getSort())
-                    .setQueryParameters(contextQuery.getParameters())
-                    .setNoConversionParams(contextQuery.getNoConversionParams());
-
-            if (prevQueries.size() > 1) {
-                queryBuilder.setPreviousResults(userSessionSource.getUserSession().getId(), loadContext.getQueryKey());
-            }
-            Query query = queryBuilder.getQuery(em);
+            Query query = createIdQuery(em, loadContext, contextQuery);
 
             String logMsg = "Load previous query results: " + JpqlQueryBuilder.printQuery(query.getQueryString());
             log.debug(logMsg);
-            long start = System.currentTimeMillis();
 
             idList = query.getResultList();
             tx.commit();
@@ -122,9 +145,153 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
         } finally {
             tx.end();
         }
+        long selectTime = System.currentTimeMillis() - start;
 
+        start = System.currentTimeMillis();
         delete(queryKey);
+        long deleteTime = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
         insert(queryKey, idList);
+        long insertTime = System.currentTimeMillis() - start;
+
+        loadAndInsertStat.update(idList.size(), selectTime, deleteTime, insertTime);
+    }
+
+    /**
+     * Copies the previous query results to SYS_QUERY_RESULT by a single INSERT ... SELECT statement executed in the
+     * database. The JPQL query selecting identifiers is translated to SQL by EclipseLink, its parameter values are
+     * bound as JDBC parameters.
+     * <p>
+     * If the query is a refinement of the results saved under the same key, the new results are inserted under
+     * a random temporary session id first. The session id is restored after deleting the old results.
+     */
+    protected void insertFromSelect(LoadContext loadContext, LoadContext.Query contextQuery, int queryKey)
+            throws SQLException {
+        String entityName = loadContext.getMetaClass();
+        MetaClass metaClass = metadata.getClassNN(entityName);
+        String columnName = getEntityIdColumnName(metadata.getTools().getPrimaryKeyProperty(metaClass).getJavaType());
+
+        DbTypeConverter converter = persistence.getDbTypeConverter();
+        UUID userSessionId = userSessionSource.getUserSession().getId();
+        String userSessionIdStr = converter.getSqlObject(userSessionId).toString();
+        boolean refinement = loadContext.getPrevQueries().size() > 1;
+        // the refinement query reads the old results, so the new ones are staged under a temporary session id
+        String insertSessionIdStr = refinement
+                ? converter.getSqlObject(UUID.randomUUID()).toString()
+                : userSessionIdStr;
+
+        long deleteTime = 0;
+        long insertTime;
+        int count;
+        try (Transaction tx = persistence.createTransaction()) {
+            EntityManager em = persistence.getEntityManager();
+            em.setSoftDeletion(loadContext.isSoftDeletion());
+            Connection connection = em.getConnection();
+            QueryRunner runner = new QueryRunner();
+
+            long start = System.currentTimeMillis();
+            if (!refinement) {
+                runner.update(connection, "delete from SYS_QUERY_RESULT where SESSION_ID = '" + userSessionIdStr
+                        + "' and QUERY_KEY = " + queryKey);
+                deleteTime += System.currentTimeMillis() - start;
+            }
+
+            start = System.currentTimeMillis();
+            count = insertSelectedIds(em, createIdQuery(em, loadContext, contextQuery),
+                    String.format("insert into SYS_QUERY_RESULT (SESSION_ID, QUERY_KEY, %s) select '%s', %s, ids.* from ",
+                            columnName, insertSessionIdStr, queryKey));
+            insertTime = System.currentTimeMillis() - start;
+
+            if (refinement) {
+                start = System.currentTimeMillis();
+                runner.update(connection, "delete from SYS_QUERY_RESULT where SESSION_ID = '" + userSessionIdStr
+                        + "' and QUERY_KEY = " + queryKey);
+                deleteTime += System.currentTimeMillis() - start;
+
+                start = System.currentTimeMillis();
+                runner.update(connection, "update SYS_QUERY_RESULT set SESSION_ID = '" + userSessionIdStr
+                        + "' where SESSION_ID = '" + insertSessionIdStr + "' and QUERY_KEY = " + queryKey);
+                insertTime += System.currentTimeMillis() - start;
+            }
+            tx.commit();
+        }
+        log.debug("Inserted {} query results for {} / {} in {}ms, deleted previous in {}ms",
+                count, userSessionId, queryKey, insertTime, deleteTime);
+
+        insertFromSelectStat.update(count, 0, deleteTime, insertTime);
+    }
+
+    protected Query createIdQuery(EntityManager em, LoadContext loadContext, LoadContext.Query contextQuery) {
+        String entityName = loadContext.getMetaClass();
+
+        QueryTransformer transformer = QueryTransformerFactory.createTransformer(contextQuery.getQueryString());
+        transformer.replaceWithSelectId(metadata.getTools().getPrimaryKeyName(metadata.getClassNN(entityName)));
+        transformer.removeOrderBy();
+        String queryString = transformer.getResult();
+
+        JpqlQueryBuilder queryBuilder = AppBeans.get(JpqlQueryBuilder.NAME);
+
+        queryBuilder.setQueryString(queryString)
+                .setEntityName(entityName)
+                .setCondition(contextQuery.getCondition())
+                .setSort(contextQuery.getSort())
+                .setQueryParameters(contextQuery.getParameters())
+                .setNoConversionParams(contextQuery.getNoConversionParams());
+
+        if (loadContext.getPrevQueries().size() > 1) {
+            queryBuilder.setPreviousResults(userSessionSource.getUserSession().getId(), loadContext.getQueryKey());
+        }
+        return queryBuilder.getQuery(em);
+    }
+
+    /**
+     * Translates the JPQL query to SQL and executes the insert statement selecting from it as from a derived table.
+     * Parameter values of the query are bound by the EclipseLink database platform, as for the query itself.
+     *
+     * @param insertPrefix  beginning of the insert statement, followed by the derived table
+     * @return number of inserted rows
+     */
+    protected int insertSelectedIds(EntityManager em, Query query, String insertPrefix) throws SQLException {
+        JpaQuery jpaQuery = (JpaQuery) query.getDelegate();
+        DatabaseQuery databaseQuery = jpaQuery.getDatabaseQuery();
+        List<Object> values = new ArrayList<>(databaseQuery.getArguments().size());
+        for (String argument : databaseQuery.getArguments()) {
+            values.add(jpaQuery.getParameterValue(argument));
+        }
+        AbstractSession session = (AbstractSession) em.getDelegate().unwrap(JpaEntityManager.class).getActiveSession();
+        AbstractRecord translationRow = databaseQuery.rowFromArguments(values, session);
+        databaseQuery.prepareCall(session, translationRow);
+        if (!(databaseQuery.getCall() instanceof DatabaseCall)) {
+            throw new IllegalStateException("Unable to translate query: " + query.getQueryString());
+        }
+        DatabaseCall call = (DatabaseCall) databaseQuery.getCall().clone();
+        call.setUsesBinding(true);
+        call.translate(translationRow, null, session);
+
+        String sql = insertPrefix + "(" + call.getSQLString() + ") ids";
+        log.debug("Insert previous query results: {}", sql);
+
+        DatabasePlatform platform = session.getPlatform();
+        try (PreparedStatement statement = em.getConnection().prepareStatement(sql)) {
+            List parameters = call.getParameters();
+            for (int i = 0; i < parameters.size(); i++) {
+                platform.setParameterValueInDatabaseCall(parameters.get(i), statement, i + 1, session);
+            }
+            return statement.executeUpdate();
+        }
+    }
+
+    protected String getEntityIdColumnName(Class<?> idClass) {
+        if (String.class.equals(idClass)) {
+            return "STRING_ENTITY_ID";
+        } else if (Long.class.equals(idClass)) {
+            return "LONG_ENTITY_ID";
+        } else if (Integer.class.equals(idClass)) {
+            return "INT_ENTITY_ID";
+        } else {
+            return "ENTITY_ID";
+        }
     }
 
     protected boolean resultsAlreadySaved(Integer queryKey, LoadContext.Query query) {
@@ -166,16 +333,7 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
             EntityManager em = persistence.getEntityManager();
             DbTypeConverter converter = persistence.getDbTypeConverter();
             Object idFromList = idList.get(0);
-            String columnName = null;
-            if (idFromList instanceof String) {
-                columnName = "STRING_ENTITY_ID";
-            } else if (idFromList instanceof Long) {
-                columnName = "LONG_ENTITY_ID";
-            } else if (idFromList instanceof Integer) {
-                columnName = "INT_ENTITY_ID";
-            } else {
-                columnName = "ENTITY_ID";
-            }
+            String columnName = getEntityIdColumnName(idFromList.getClass());
             QueryRunner runner = new QueryRunner();
             try {
                 String userSessionIdStr = converter.getSqlObject(userSessionId).toString(); // assuming that UUID can be passed to query as string in all databases
@@ -288,4 +446,49 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
             throw new RuntimeException("Error deleting query result records", e);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public String printStatistics() {
+        return loadAndInsertStat + "\n" + insertFromSelectStat;
+    }
+
+    /**
+     * Statistics of saving previous query results by one of the strategies.
+     */
+    protected static class StrategyStat {
+
+        protected final String name;
+        protected final boolean separateSelect;
+
+        protected final LongAdder count = new LongAdder();
+        protected final LongAdder rows = new LongAdder();
+        protected final LongAdder selectTime = new LongAdder();
+        protected final LongAdder deleteTime = new LongAdder();
+        protected final LongAdder insertTime = new LongAdder();
+
+        public StrategyStat(String name, boolean separateSelect) {
+            this.name = name;
+            this.separateSelect = separateSelect;
+        }
+
+        public void update(int rows, long selectTime, long deleteTime, long insertTime) {
+            this.count.increment();
+            this.rows.add(rows);
+            this.selectTime.add(selectTime);
+            this.deleteTime.add(deleteTime);
+            this.insertTime.add(insertTime);
+        }
+
+        @Override
+        public String toString() {
+            long count = this.count.sum();
+            String select = separateSelect
+                    ? String.format("selectTime=%dms (avg %dms), ", selectTime.sum(), count > 0 ? selectTime.sum() / count : 0)
+                    : "";
+            return String.format("%s: count=%d, rows=%d, %sdeleteTime=%dms (avg %dms), insertTime=%dms (avg %dms)",
+                    name, count, rows.sum(), select,
+                    deleteTime.sum(), count > 0 ? deleteTime.sum() / count : 0,
+                    insertTime.sum(), count > 0 ? insertTime.sum() / count : 0);
+        }
+    }
+}
@@ -39,4 +39,9 @@ public interface QueryResultsManagerAPI {
     void deleteForCurrentSession();
 
     void deleteForInactiveSessions();
+
+    /**
+     * @return number of calls, rows and insert and delete timings for each strategy of saving previous query results
+     */
+    String printStatistics();
 }
@@ -22,6 +22,7 @@ import com.haulmont.cuba.core.Persistence;
 import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.app.ClusterListenerAdapter;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.cuba.core.app.ClusterMessageCodec;
 import com.haulmont.cuba.core.app.SchedulingService;
 import com.haulmont.cuba.core.app.scheduled.MethodInfo;
 import com.haulmont.cuba.core.entity.ScheduledTask;
@@ -32,6 +33,9 @@ import com.haulmont.cuba.security.entity.User;
 import org.springframework.stereotype.Service;
 
 import javax.inject.Inject;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
@@ -63,6 +67,18 @@ public class SchedulingServiceBean implements SchedulingService {
                 scheduling.setActive(message.active);
             }
         });
+        clusterManager.registerCodec(ClusterManagerAPI.SCHEDULING_SET_ACTIVE_CODEC_ID,
+                SetSchedulingActiveMsg.class, new ClusterMessageCodec<SetSchedulingActiveMsg>() {
+            @Override
+            public void encode(SetSchedulingActiveMsg message, DataOutput out) throws IOException {
+                out.writeBoolean(message.active);
+            }
+
+            @Override
+            public SetSchedulingActiveMsg decode(DataInput in) throws IOException {
+                return new SetSchedulingActiveMsg(in.readBoolean());
+            }
+        });
     }
 
     @Override
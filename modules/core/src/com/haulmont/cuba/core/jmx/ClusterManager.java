@@ -18,6 +18,7 @@
 package com.haulmont.cuba.core.jmx;
 
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -92,6 +93,11 @@ public class ClusterManager implements ClusterManagerMBean {
         return clusterManager.printMessagesStat();
     }
 
+    @Override
+    public String printKryoPoolStat() {
+        return SerializationSupport.getKryoSerialization().printPoolStatistics();
+    }
+
     @Override
     public long getSentMessages(String className) {
         return className == null ? -1 : clusterManager.getSentMessages(className);
@@ -111,4 +117,9 @@ public class ClusterManager implements ClusterManagerMBean {
     public long getReceivedBytes(String className) {
         return className == null ? -1 : clusterManager.getReceivedBytes(className);
     }
+
+    @Override
+    public long getSavedBytes(String className) {
+        return className == null ? -1 : clusterManager.getSavedBytes(className);
+    }
 }
@@ -67,6 +67,9 @@ public interface ClusterManagerMBean {
     @ManagedOperation(description = "Sent/received messages statistics")
     String printMessagesStat();
 
+    @ManagedOperation(description = "Kryo serialization pool statistics")
+    String printKryoPoolStat();
+
     @ManagedOperation(description = "Get sent messages count for specified class")
     long getSentMessages(String className);
 
@@ -78,4 +81,7 @@ public interface ClusterManagerMBean {
 
     @ManagedOperation(description = "Get received bytes for specified class")
     long getReceivedBytes(String className);
+
+    @ManagedOperation(description = "Get estimated bytes saved by the binary codec for specified class")
+    long getSavedBytes(String className);
 }
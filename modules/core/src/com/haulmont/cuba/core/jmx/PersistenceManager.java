@@ -22,6 +22,7 @@ import com.haulmont.cuba.core.*;
 import com.haulmont.cuba.core.app.PersistenceConfig;
 import com.haulmont.cuba.core.app.PersistenceManagerAPI;
 import com.haulmont.cuba.core.app.ServerConfig;
+import com.haulmont.cuba.core.app.queryresults.QueryResultsManagerAPI;
 import com.haulmont.cuba.core.entity.EntityStatistics;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.DbInitializationException;
@@ -60,6 +61,9 @@ public class PersistenceManager implements PersistenceManagerMBean {
     @Inject
     protected PersistenceSecurity security;
 
+    @Inject
+    protected QueryResultsManagerAPI queryResultsManager;
+
     protected PersistenceConfig persistenceConfig;
 
     protected ServerConfig serverConfig;
@@ -134,6 +138,11 @@ public class PersistenceManager implements PersistenceManagerMBean {
         return new ViewRepositoryInfo(metadata).dumpHtml();
     }
 
+    @Override
+    public String printFetchGroupCacheStatistics() {
+        return new ViewRepositoryInfo(metadata).fetchGroupCacheStatistics();
+    }
+
     @Authenticated
     @Override
     public String updateDatabase(String token) {
@@ -335,4 +344,9 @@ public class PersistenceManager implements PersistenceManagerMBean {
             return ExceptionUtils.getStackTrace(e);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public String printQueryResultsStatistics() {
+        return queryResultsManager.printStatistics();
+    }
+}
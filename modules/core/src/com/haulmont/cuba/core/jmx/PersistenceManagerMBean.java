@@ -49,6 +49,9 @@ public interface PersistenceManagerMBean {
     @ManagedOperation(description = "Print list of views with properties from ViewRepository as HTML markup")
     String printViewRepositoryDumpHtml();
 
+    @ManagedOperation(description = "Print size and hit rate of the cache of fetch groups calculated for views")
+    String printFetchGroupCacheStatistics();
+
     /**
      * Start the database update.
      * @param token 'update' string must be passed to avoid accidental invocation
@@ -138,4 +141,11 @@ public interface PersistenceManagerMBean {
      */
     @ManagedOperation(description = "Flush statistics cache. It will be reloaded on a next request")
     String flushStatisticsCache();
+
+    /**
+     * Print statistics of saving previous query results used by "apply to selected" filtering.
+     * @return  operation result
+     */
+    @ManagedOperation(description = "Print statistics of saving previous query results by each strategy")
+    String printQueryResultsStatistics();
 }
@@ -18,10 +18,12 @@ package com.haulmont.cuba.core.jmx;
 
 import com.google.common.base.Strings;
 import com.haulmont.cuba.core.global.UuidProvider;
+import com.haulmont.cuba.core.sys.TransformedQueryCache;
 import com.haulmont.cuba.core.sys.entitycache.QueryCache;
 import com.haulmont.cuba.core.sys.entitycache.QueryCacheManager;
 import com.haulmont.cuba.core.sys.entitycache.QueryKey;
 import com.haulmont.cuba.core.sys.entitycache.QueryResult;
+import com.haulmont.cuba.core.sys.jpql.QueryTreeCache;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
@@ -34,6 +36,10 @@ public class QueryCacheSupport implements QueryCacheSupportMBean {
     protected QueryCache queryCache;
     @Inject
     protected QueryCacheManager queryCacheMgr;
+    @Inject
+    protected QueryTreeCache queryTreeCache;
+    @Inject
+    protected TransformedQueryCache transformedQueryCache;
 
     @Override
     public long getMaxSize() {
@@ -45,6 +51,53 @@ public class QueryCacheSupport implements QueryCacheSupportMBean {
         return queryCache.size();
     }
 
+    @Override
+    public int getParsedQueryCacheMaxSize() {
+        return queryTreeCache.getMaxSize();
+    }
+
+    @Override
+    public long getParsedQueryCacheSize() {
+        return queryTreeCache.size();
+    }
+
+    @Override
+    public long getParsedQueryCacheHitCount() {
+        return queryTreeCache.getHitCount();
+    }
+
+    @Override
+    public long getParsedQueryCacheMissCount() {
+        return queryTreeCache.getMissCount();
+    }
+
+    @Override
+    public String evictParsedQueries() {
+        queryTreeCache.invalidateAll();
+        return "Done";
+    }
+
+    @Override
+    public long getTransformedQueryCacheSize() {
+        return transformedQueryCache.size();
+    }
+
+    @Override
+    public long getTransformedQueryCacheHitCount() {
+        return transformedQueryCache.getHitCount();
+    }
+
+    @Override
+    public long getTransformedQueryCacheMissCount() {
+        return transformedQueryCache.getMissCount();
+    }
+
+    @Override
+    public String evictTransformedQueries() {
+        transformedQueryCache.invalidateAll();
+        return "Done";
+    }
+
     @Override
     public String evictAll() {
         queryCacheMgr.invalidateAll(true);
@@ -27,6 +27,33 @@ public interface QueryCacheSupportMBean {
     @ManagedAttribute(description = "Current number of cached queries")
     long getSize();
 
+    @ManagedAttribute(description = "Maximum number of cached parsed JPQL queries")
+    int getParsedQueryCacheMaxSize();
+
+    @ManagedAttribute(description = "Current number of cached parsed JPQL queries")
+    long getParsedQueryCacheSize();
+
+    @ManagedAttribute(description = "Number of parsed JPQL queries found in the cache")
+    long getParsedQueryCacheHitCount();
+
+    @ManagedAttribute(description = "Number of JPQL queries parsed because they were not found in the cache")
+    long getParsedQueryCacheMissCount();
+
+    @ManagedOperation(description = "Discard all parsed JPQL queries in the cache")
+    String evictParsedQueries();
+
+    @ManagedAttribute(description = "Current number of cached transformed JPQL queries")
+    long getTransformedQueryCacheSize();
+
+    @ManagedAttribute(description = "Number of transformed JPQL queries found in the cache")
+    long getTransformedQueryCacheHitCount();
+
+    @ManagedAttribute(description = "Number of JPQL queries transformed because they were not found in the cache")
+    long getTransformedQueryCacheMissCount();
+
+    @ManagedOperation(description = "Discard all transformed JPQL queries in the cache")
+    String evictTransformedQueries();
+
     @ManagedOperation(description = "Discard all query results in the cache")
     String evictAll();
 
@@ -18,6 +18,7 @@
 package com.haulmont.cuba.core.jmx;
 
 import com.haulmont.cuba.core.app.UniqueNumbersAPI;
+import com.haulmont.cuba.core.sys.NumberIdCache;
 
 import org.springframework.stereotype.Component;
 import javax.inject.Inject;
@@ -28,6 +29,9 @@ public class UniqueNumbers implements UniqueNumbersMBean {
     @Inject
     protected UniqueNumbersAPI uniqueNumbers;
 
+    @Inject
+    protected NumberIdCache numberIdCache;
+
     @Override
     public long getCurrentNumber(String domain) {
         return uniqueNumbers.getCurrentNumber(domain);
@@ -42,4 +46,9 @@ public class UniqueNumbers implements UniqueNumbersMBean {
     public long getNextNumber(String domain) {
         return uniqueNumbers.getNextNumber(domain);
     }
-}
\ No newline at end of file
+
+    @Override
+    public String printNumberIdCacheStat() {
+        return numberIdCache.printStatistics();
+    }
+}
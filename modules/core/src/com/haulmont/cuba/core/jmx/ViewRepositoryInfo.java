@@ -17,10 +17,13 @@
 
 package com.haulmont.cuba.core.jmx;
 
+import com.google.common.cache.CacheStats;
+import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.core.global.Metadata;
 import com.haulmont.cuba.core.global.View;
 import com.haulmont.cuba.core.global.ViewProperty;
 import com.haulmont.cuba.core.sys.AbstractViewRepository;
+import com.haulmont.cuba.core.sys.FetchGroupManager;
 import org.apache.commons.lang3.StringUtils;
 
 public class ViewRepositoryInfo {
@@ -123,4 +126,15 @@ public class ViewRepositoryInfo {
 
         return content.toString();
     }
-}
\ No newline at end of file
+
+    public String fetchGroupCacheStatistics() {
+        FetchGroupManager fetchGroupManager = AppBeans.get(FetchGroupManager.class);
+        CacheStats stats = fetchGroupManager.getCacheStats();
+        if (stats == null) {
+            return "Fetch group cache is disabled";
+        }
+        return String.format("Fetch group cache: size=%d, hitCount=%d, missCount=%d, hitRate=%.2f, evictionCount=%d",
+                fetchGroupManager.getCacheSize(), stats.hitCount(), stats.missCount(), stats.hitRate(),
+                stats.evictionCount());
+    }
+}
@@ -17,11 +17,15 @@
 
 package com.haulmont.cuba.core.sys;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.chile.core.model.MetaPropertyPath;
 import com.haulmont.chile.core.model.Range;
+import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.entity.BaseUuidEntity;
 import com.haulmont.cuba.core.entity.EmbeddableEntity;
 import com.haulmont.cuba.core.entity.Entity;
@@ -39,6 +43,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.ClassUtils;
 
 import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import java.lang.reflect.Method;
 import java.util.*;
@@ -60,6 +65,18 @@ public class FetchGroupManager {
     @Inject
     private ViewRepository viewRepository;
 
+    @Inject
+    private ServerConfig serverConfig;
+
+    @Nullable
+    private Cache<FetchGroupKey, FetchGroupDescription> cache;
+
+    @PostConstruct
+    protected void init() {
+        int maxSize = serverConfig.getFetchGroupCacheMaxSize();
+        cache = maxSize > 0 ? CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().build() : null;
+    }
+
     public void setView(JpaQuery query, String queryString, @Nullable View view, boolean singleResultExpected) {
         Preconditions.checkNotNullArgument(query, "query is null");
         if (view != null) {
@@ -96,7 +113,7 @@ public class FetchGroupManager {
 
         boolean useFetchGroup = attrGroup instanceof FetchGroup;
 
-        FetchGroupDescription description = calculateFetchGroup(queryString, view, singleResultExpected, useFetchGroup);
+        FetchGroupDescription description = getFetchGroup(queryString, view, singleResultExpected, useFetchGroup);
 
         if (attrGroup instanceof FetchGroup)
             ((FetchGroup) attrGroup).setShouldLoadAll(true);
@@ -128,6 +145,65 @@ public class FetchGroupManager {
         }
     }
 
+    /**
+     * Returns a cached description for the same view structure, query and flags, or calculates and caches it.
+     * The returned description is shared and must not be modified.
+     */
+    public FetchGroupDescription getFetchGroup(String queryString,
+                                               View view,
+                                               boolean singleResultExpected,
+                                               boolean useFetchGroup) {
+        if (cache == null) {
+            return calculateFetchGroup(queryString, view, singleResultExpected, useFetchGroup);
+        }
+        // the lookup key may hold a mutable view, it is compared by content and never stored in the cache
+        FetchGroupKey lookupKey = new FetchGroupKey(view, queryString, singleResultExpected, useFetchGroup);
+        FetchGroupDescription description = cache.getIfPresent(lookupKey);
+        if (description == null) {
+            description = calculateFetchGroup(queryString, view, singleResultExpected, useFetchGroup);
+            FetchGroupKey key = view.isFrozen() ? lookupKey
+                    : new FetchGroupKey(getFrozenView(view), queryString, singleResultExpected, useFetchGroup);
+            cache.put(key, description);
+        }
+        return description;
+    }
+
+    /**
+     * Discards all cached descriptions. Invoked when the view repository is reloaded.
+     */
+    public void invalidateCache() {
+        if (cache != null) {
+            log.debug("Invalidate fetch group cache");
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * @return cache statistics or null if the cache is disabled
+     */
+    @Nullable
+    public CacheStats getCacheStats() {
+        return cache != null ? cache.stats() : null;
+    }
+
+    public long getCacheSize() {
+        return cache != null ? cache.size() : 0;
+    }
+
+    /**
+     * The cache is keyed by the view content, see {@link View#getContentHash()}. Views returned by the repository
+     * are frozen and used as is, other views are copied when a new entry is stored to protect the key from later
+     * modifications.
+     */
+    protected View getFrozenView(View view) {
+        if (view.isFrozen()) {
+            return view;
+        }
+        View copy = View.copy(view);
+        copy.setLoadPartialEntities(view.loadPartialEntities());
+        return copy.freeze();
+    }
+
     public FetchGroupDescription calculateFetchGroup(String queryString,
                                                      View view,
                                                      boolean singleResultExpected,
@@ -507,4 +583,39 @@ public class FetchGroupManager {
             return path();
         }
     }
-}
\ No newline at end of file
+
+    protected static class FetchGroupKey {
+        private final View view;
+        private final String queryString;
+        private final boolean singleResultExpected;
+        private final boolean useFetchGroup;
+        private final int hashCode;
+
+        public FetchGroupKey(View view, String queryString, boolean singleResultExpected, boolean useFetchGroup) {
+            this.view = view;
+            this.queryString = queryString;
+            this.singleResultExpected = singleResultExpected;
+            this.useFetchGroup = useFetchGroup;
+            this.hashCode = Objects.hash(view.getContentHash(), queryString, singleResultExpected, useFetchGroup);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            FetchGroupKey that = (FetchGroupKey) o;
+
+            return hashCode == that.hashCode
+                    && singleResultExpected == that.singleResultExpected
+                    && useFetchGroup == that.useFetchGroup
+                    && view.contentEquals(that.view)
+                    && queryString.equals(that.queryString);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
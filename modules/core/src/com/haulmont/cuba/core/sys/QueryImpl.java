@@ -87,6 +87,8 @@ public class QueryImpl<T> implements TypedQuery<T> {
     protected ServerConfig serverConfig;
     @Inject
     protected QueryHintsProcessor hintsProcessor;
+    @Inject
+    protected TransformedQueryCache transformedQueryCache;
 
     protected javax.persistence.EntityManager emDelegate;
     protected JpaQuery query;
@@ -215,7 +217,7 @@ public class QueryImpl<T> implements TypedQuery<T> {
         if (view != null) {
             boolean useFetchGroup = view.loadPartialEntities();
             for (View it : views) {
-                FetchGroupDescription description = fetchGroupMgr.calculateFetchGroup(queryString, it, singleResultExpected, useFetchGroup);
+                FetchGroupDescription description = fetchGroupMgr.getFetchGroup(queryString, it, singleResultExpected, useFetchGroup);
                 if (description.hasBatches()) {
                     useJPQLCache = false;
                     break;
@@ -242,7 +244,73 @@ public class QueryImpl<T> implements TypedQuery<T> {
     }
 
     protected String transformQueryString() {
-        String result = expandMacros(queryString);
+        String expandedQueryString = expandMacros(queryString);
+        if (!transformedQueryCache.isEnabled()) {
+            return transformExpandedQueryString(expandedQueryString);
+        }
+
+        Map<Object, TransformedQueryCache.ParamShape> paramShapes = getParamShapes();
+        TransformedQueryCache.Key key = new TransformedQueryCache.Key(expandedQueryString,
+                firstResult != null && firstResult > 0, paramShapes);
+
+        boolean[] paramsTransformed = {false};
+        TransformedQueryCache.TransformedQuery transformedQuery = transformedQueryCache.get(key, () -> {
+            Set<Object> paramNames = params.stream().map(param -> param.name).collect(Collectors.toSet());
+
+            String result = transformExpandedQueryString(expandedQueryString);
+            paramsTransformed[0] = true;
+
+            for (Param param : params) {
+                paramNames.remove(param.name);
+            }
+            Set<Object> caseInsensitiveParams = paramShapes.entrySet().stream()
+                    .filter(entry -> entry.getValue() == TransformedQueryCache.ParamShape.CASE_INSENSITIVE)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toSet());
+            return new TransformedQueryCache.TransformedQuery(result, paramNames, caseInsensitiveParams);
+        });
+
+        if (!paramsTransformed[0]) {
+            applyParamsTransformation(transformedQuery);
+        }
+        return transformedQuery.getQueryString();
+    }
+
+    protected Map<Object, TransformedQueryCache.ParamShape> getParamShapes() {
+        Map<Object, TransformedQueryCache.ParamShape> shapes = new HashMap<>();
+        for (Param param : params) {
+            TransformedQueryCache.ParamShape shape;
+            if (param.value == null) {
+                shape = TransformedQueryCache.ParamShape.NULL;
+            } else if (param.value instanceof String && ((String) param.value).startsWith("(?i)")) {
+                shape = TransformedQueryCache.ParamShape.CASE_INSENSITIVE;
+            } else if (param.value instanceof Collection && ((Collection) param.value).isEmpty()) {
+                shape = TransformedQueryCache.ParamShape.EMPTY_COLLECTION;
+            } else {
+                shape = TransformedQueryCache.ParamShape.VALUE;
+            }
+            shapes.put(param.name, shape);
+        }
+        return shapes;
+    }
+
+    /**
+     * Applies to the query parameters the same changes as {@link #transformExpandedQueryString(String)} does,
+     * when the transformed query string is taken from the cache.
+     */
+    protected void applyParamsTransformation(TransformedQueryCache.TransformedQuery transformedQuery) {
+        for (Iterator<Param> iterator = params.iterator(); iterator.hasNext(); ) {
+            Param param = iterator.next();
+            if (transformedQuery.getRemovedParams().contains(param.name)) {
+                iterator.remove();
+            } else if (transformedQuery.getCaseInsensitiveParams().contains(param.name)) {
+                param.value = ((String) param.value).substring(4).toLowerCase();
+            }
+        }
+    }
+
+    protected String transformExpandedQueryString(String expandedQueryString) {
+        String result = expandedQueryString;
 
         boolean rebuildParser = false;
         QueryParser parser = queryTransformerFactory.parser(result);
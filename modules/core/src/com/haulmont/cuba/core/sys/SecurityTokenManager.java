@@ -36,8 +36,11 @@ import org.springframework.stereotype.Component;
 import javax.crypto.Cipher;
 import javax.crypto.spec.SecretKeySpec;
 import javax.inject.Inject;
+import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import static com.haulmont.cuba.core.entity.BaseEntityInternalAccess.*;
 import static org.apache.commons.lang3.StringUtils.rightPad;
@@ -60,6 +63,27 @@ public class SecurityTokenManager {
     protected static final String ENTITY_NAME_KEY = "__entityName";
     protected static final String ENTITY_ID_KEY = "__entityId";
 
+    /**
+     * First byte of a decrypted token in the binary format. Tokens in the JSON format start with '{'.
+     */
+    protected static final byte BINARY_FORMAT_VERSION = 1;
+
+    protected static final byte ID_NONE = 0;
+    protected static final byte ID_UUID = 1;
+    protected static final byte ID_LONG = 2;
+    protected static final byte ID_INTEGER = 3;
+    protected static final byte ID_STRING = 4;
+
+    protected static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    protected static final int MAX_POOLED_CIPHERS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * Idle ciphers. The pool is owned by the bean rather than by threads, so it does not outlive the application
+     * context when threads are reused by the servlet container.
+     */
+    protected final BlockingQueue<TokenCiphers> ciphersPool = new ArrayBlockingQueue<>(MAX_POOLED_CIPHERS);
+
     protected static final Set<String> SYSTEM_ATTRIBUTE_KEYS = new ImmutableSet.Builder<String>()
             .add(READ_ONLY_ATTRIBUTES_KEY)
             .add(REQUIRED_ATTRIBUTES_KEY)
@@ -74,45 +98,96 @@ public class SecurityTokenManager {
     public void writeSecurityToken(Entity entity) {
         SecurityState securityState = getOrCreateSecurityState(entity);
         if (securityState != null) {
-            JSONObject jsonObject = new JSONObject();
             Multimap<String, Object> filtered = getFilteredData(securityState);
             if (filtered != null) {
-                Set<Map.Entry<String, Collection<Object>>> entries = filtered.asMap().entrySet();
-                String[] filteredAttributes = new String[entries.size()];
-                int i = 0;
-                for (Map.Entry<String, Collection<Object>> entry : entries) {
-                    jsonObject.put(entry.getKey(), entry.getValue());
-                    filteredAttributes[i++] = entry.getKey();
-                }
-                setFilteredAttributes(securityState, filteredAttributes);
-            }
-            if (!securityState.getReadonlyAttributes().isEmpty()) {
-                jsonObject.put(READ_ONLY_ATTRIBUTES_KEY, securityState.getReadonlyAttributes());
-            }
-            if (!securityState.getHiddenAttributes().isEmpty()) {
-                jsonObject.put(HIDDEN_ATTRIBUTES_KEY, securityState.getHiddenAttributes());
-            }
-            if (!securityState.getRequiredAttributes().isEmpty()) {
-                jsonObject.put(REQUIRED_ATTRIBUTES_KEY, securityState.getRequiredAttributes());
-            }
-            MetaClass metaClass = entity.getMetaClass();
-            jsonObject.put(ENTITY_NAME_KEY, metaClass.getName());
-            if (!metadata.getTools().hasCompositePrimaryKey(metaClass)) {
-                jsonObject.put(ENTITY_ID_KEY, getEntityId(entity));
+                setFilteredAttributes(securityState, filtered.keySet().toArray(new String[0]));
             }
 
-            String json = jsonObject.toString();
+            TokenCiphers ciphers = borrowCiphers();
             byte[] encrypted;
-            Cipher cipher = getCipher(Cipher.ENCRYPT_MODE);
             try {
-                encrypted = cipher.doFinal(json.getBytes(StandardCharsets.UTF_8));
+                TokenBuffer buffer = ciphers.getBuffer();
+                if (!config.getSecurityTokenBinaryFormat() || !writeBinaryToken(entity, securityState, buffer)) {
+                    buffer.reset();
+                    buffer.write(createJsonToken(entity, securityState).getBytes(StandardCharsets.UTF_8));
+                }
+                encrypted = ciphers.encrypt.doFinal(buffer.array(), 0, buffer.size());
             } catch (Exception e) {
                 throw new RuntimeException("An error occurred while generating security token", e);
             }
+            releaseCiphers(ciphers);
             setSecurityToken(securityState, encrypted);
         }
     }
 
+    protected String createJsonToken(Entity entity, SecurityState securityState) {
+        JSONObject jsonObject = new JSONObject();
+        Multimap<String, Object> filtered = getFilteredData(securityState);
+        if (filtered != null) {
+            for (Map.Entry<String, Collection<Object>> entry : filtered.asMap().entrySet()) {
+                jsonObject.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (!securityState.getReadonlyAttributes().isEmpty()) {
+            jsonObject.put(READ_ONLY_ATTRIBUTES_KEY, securityState.getReadonlyAttributes());
+        }
+        if (!securityState.getHiddenAttributes().isEmpty()) {
+            jsonObject.put(HIDDEN_ATTRIBUTES_KEY, securityState.getHiddenAttributes());
+        }
+        if (!securityState.getRequiredAttributes().isEmpty()) {
+            jsonObject.put(REQUIRED_ATTRIBUTES_KEY, securityState.getRequiredAttributes());
+        }
+        MetaClass metaClass = entity.getMetaClass();
+        jsonObject.put(ENTITY_NAME_KEY, metaClass.getName());
+        if (!metadata.getTools().hasCompositePrimaryKey(metaClass)) {
+            jsonObject.put(ENTITY_ID_KEY, getEntityId(entity));
+        }
+        return jsonObject.toString();
+    }
+
+    /**
+     * Writes the token in the binary format: {@link #BINARY_FORMAT_VERSION}, entity name, entity id,
+     * filtered identifiers and read-only, hidden and required attributes.
+     *
+     * @return false if the token contains identifiers of types not supported by the binary format
+     */
+    protected boolean writeBinaryToken(Entity entity, SecurityState securityState, TokenBuffer buffer)
+            throws IOException {
+        buffer.reset();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeByte(BINARY_FORMAT_VERSION);
+
+        MetaClass metaClass = entity.getMetaClass();
+        writeString(out, metaClass.getName());
+        if (metadata.getTools().hasCompositePrimaryKey(metaClass)) {
+            out.writeByte(ID_NONE);
+        } else if (!writeId(out, getEntityId(entity))) {
+            return false;
+        }
+
+        Multimap<String, Object> filtered = getFilteredData(securityState);
+        if (filtered != null) {
+            Map<String, Collection<Object>> filteredMap = filtered.asMap();
+            out.writeInt(filteredMap.size());
+            for (Map.Entry<String, Collection<Object>> entry : filteredMap.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (Object id : entry.getValue()) {
+                    if (!writeId(out, id)) {
+                        return false;
+                    }
+                }
+            }
+        } else {
+            out.writeInt(0);
+        }
+
+        writeStrings(out, securityState.getReadonlyAttributes());
+        writeStrings(out, securityState.getHiddenAttributes());
+        writeStrings(out, securityState.getRequiredAttributes());
+        return true;
+    }
+
     /**
      * Decrypt security token and read filtered data
      */
@@ -123,60 +198,208 @@ public class SecurityTokenManager {
         }
         Multimap<String, Object> filteredData = ArrayListMultimap.create();
         BaseEntityInternalAccess.setFilteredData(securityState, filteredData);
-        Cipher cipher = getCipher(Cipher.DECRYPT_MODE);
+        byte[] decrypted;
+        TokenCiphers ciphers = borrowCiphers();
         try {
-            byte[] decrypted = cipher.doFinal(getSecurityToken(securityState));
-            String json = new String(decrypted, StandardCharsets.UTF_8);
-            JSONObject jsonObject = new JSONObject(json);
-            for (String key : jsonObject.keySet()) {
-                if (!SYSTEM_ATTRIBUTE_KEYS.contains(key)) {
-                    String elementName = String.valueOf(key);
-                    JSONArray jsonArray = jsonObject.getJSONArray(elementName);
-                    MetaProperty metaProperty = entity.getMetaClass().getPropertyNN(elementName);
-                    for (int i = 0; i < jsonArray.length(); i++) {
-                        Object id = jsonArray.get(i);
-                        filteredData.put(elementName, convertId(id, metaProperty.getRange().asClass(), true));
-                    }
+            decrypted = ciphers.decrypt.doFinal(getSecurityToken(securityState));
+        } catch (Exception e) {
+            throw new RuntimeException("An error occurred while reading security token", e);
+        }
+        releaseCiphers(ciphers);
+        try {
+            if (decrypted.length > 0 && decrypted[0] == BINARY_FORMAT_VERSION) {
+                readBinaryToken(entity, securityState, filteredData, decrypted);
+            } else {
+                readJsonToken(entity, securityState, filteredData, new String(decrypted, StandardCharsets.UTF_8));
+            }
+        } catch (SecurityTokenException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("An error occurred while reading security token", e);
+        }
+    }
+
+    protected void readJsonToken(Entity entity, SecurityState securityState, Multimap<String, Object> filteredData,
+                                 String json) {
+        JSONObject jsonObject = new JSONObject(json);
+        for (String key : jsonObject.keySet()) {
+            if (!SYSTEM_ATTRIBUTE_KEYS.contains(key)) {
+                String elementName = String.valueOf(key);
+                JSONArray jsonArray = jsonObject.getJSONArray(elementName);
+                MetaProperty metaProperty = entity.getMetaClass().getPropertyNN(elementName);
+                for (int i = 0; i < jsonArray.length(); i++) {
+                    Object id = jsonArray.get(i);
+                    filteredData.put(elementName, convertId(id, metaProperty.getRange().asClass(), true));
                 }
             }
-            if (jsonObject.has(READ_ONLY_ATTRIBUTES_KEY)) {
-                BaseEntityInternalAccess.setReadonlyAttributes(securityState, parseJsonArrayAsStrings(
-                        jsonObject.getJSONArray(READ_ONLY_ATTRIBUTES_KEY)));
+        }
+        if (jsonObject.has(READ_ONLY_ATTRIBUTES_KEY)) {
+            BaseEntityInternalAccess.setReadonlyAttributes(securityState, parseJsonArrayAsStrings(
+                    jsonObject.getJSONArray(READ_ONLY_ATTRIBUTES_KEY)));
+        }
+        if (jsonObject.has(HIDDEN_ATTRIBUTES_KEY)) {
+            BaseEntityInternalAccess.setHiddenAttributes(securityState, parseJsonArrayAsStrings(
+                    jsonObject.getJSONArray(HIDDEN_ATTRIBUTES_KEY)));
+        }
+        if (jsonObject.has(REQUIRED_ATTRIBUTES_KEY)) {
+            BaseEntityInternalAccess.setRequiredAttributes(securityState, parseJsonArrayAsStrings(
+                    jsonObject.getJSONArray(REQUIRED_ATTRIBUTES_KEY)));
+        }
+        MetaClass metaClass = entity.getMetaClass();
+        if (!metadata.getTools().hasCompositePrimaryKey(entity.getMetaClass())
+                && !(entity instanceof EmbeddableEntity)) {
+            if (!jsonObject.has(ENTITY_ID_KEY) || !jsonObject.has(ENTITY_NAME_KEY)) {
+                throw new SecurityTokenException("Invalid format for security token");
             }
-            if (jsonObject.has(HIDDEN_ATTRIBUTES_KEY)) {
-                BaseEntityInternalAccess.setHiddenAttributes(securityState, parseJsonArrayAsStrings(
-                        jsonObject.getJSONArray(HIDDEN_ATTRIBUTES_KEY)));
+            String entityName = jsonObject.getString(ENTITY_NAME_KEY);
+            if (!Objects.equals(entityName, metaClass.getName())) {
+                throw new SecurityTokenException("Invalid format for security token: incorrect entity type");
             }
-            if (jsonObject.has(REQUIRED_ATTRIBUTES_KEY)) {
-                BaseEntityInternalAccess.setRequiredAttributes(securityState, parseJsonArrayAsStrings(
-                        jsonObject.getJSONArray(REQUIRED_ATTRIBUTES_KEY)));
+            Object jsonEntityId = jsonObject.get(ENTITY_ID_KEY);
+            if (jsonEntityId == null) {
+                throw new SecurityTokenException("Invalid format for security token: incorrect entity id");
             }
-            MetaClass metaClass = entity.getMetaClass();
-            if (!metadata.getTools().hasCompositePrimaryKey(entity.getMetaClass())
-                    && !(entity instanceof EmbeddableEntity)) {
-                if (!jsonObject.has(ENTITY_ID_KEY) || !jsonObject.has(ENTITY_NAME_KEY)) {
-                    throw new SecurityTokenException("Invalid format for security token");
-                }
-                String entityName = jsonObject.getString(ENTITY_NAME_KEY);
-                if (!Objects.equals(entityName, metaClass.getName())) {
-                    throw new SecurityTokenException("Invalid format for security token: incorrect entity type");
-                }
-                Object jsonEntityId = jsonObject.get(ENTITY_ID_KEY);
-                if (jsonEntityId == null) {
-                    throw new SecurityTokenException("Invalid format for security token: incorrect entity id");
-                }
-                Object entityId = getEntityId(entity);
-                if (entityId != null && !Objects.equals(entityId, convertId(jsonEntityId, metaClass, false))) {
-                    throw new SecurityTokenException("Invalid format for security token: incorrect entity id");
-                }
+            Object entityId = getEntityId(entity);
+            if (entityId != null && !Objects.equals(entityId, convertId(jsonEntityId, metaClass, false))) {
+                throw new SecurityTokenException("Invalid format for security token: incorrect entity id");
             }
-        } catch (SecurityTokenException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new RuntimeException("An error occurred while reading security token", e);
         }
     }
 
+    protected void readBinaryToken(Entity entity, SecurityState securityState, Multimap<String, Object> filteredData,
+                                   byte[] token) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(token, 1, token.length - 1));
+        MetaClass metaClass = entity.getMetaClass();
+        String entityName = readString(in);
+        byte idType = in.readByte();
+        Object tokenEntityId = idType != ID_NONE ? readId(in, idType) : null;
+
+        int filteredCount = in.readInt();
+        for (int i = 0; i < filteredCount; i++) {
+            String elementName = readString(in);
+            int idCount = in.readInt();
+            for (int j = 0; j < idCount; j++) {
+                filteredData.put(elementName, readId(in, in.readByte()));
+            }
+        }
+
+        String[] readonlyAttributes = readStrings(in);
+        if (readonlyAttributes.length > 0) {
+            BaseEntityInternalAccess.setReadonlyAttributes(securityState, readonlyAttributes);
+        }
+        String[] hiddenAttributes = readStrings(in);
+        if (hiddenAttributes.length > 0) {
+            BaseEntityInternalAccess.setHiddenAttributes(securityState, hiddenAttributes);
+        }
+        String[] requiredAttributes = readStrings(in);
+        if (requiredAttributes.length > 0) {
+            BaseEntityInternalAccess.setRequiredAttributes(securityState, requiredAttributes);
+        }
+
+        if (!metadata.getTools().hasCompositePrimaryKey(metaClass) && !(entity instanceof EmbeddableEntity)) {
+            if (!Objects.equals(entityName, metaClass.getName())) {
+                throw new SecurityTokenException("Invalid format for security token: incorrect entity type");
+            }
+            if (tokenEntityId == null) {
+                throw new SecurityTokenException("Invalid format for security token: incorrect entity id");
+            }
+            Object entityId = getEntityId(entity);
+            if (entityId != null && !Objects.equals(entityId, tokenEntityId)) {
+                throw new SecurityTokenException("Invalid format for security token: incorrect entity id");
+            }
+        }
+    }
+
+    protected boolean writeId(DataOutput out, Object id) throws IOException {
+        if (id instanceof IdProxy) {
+            id = ((IdProxy) id).get();
+        }
+        if (id instanceof UUID) {
+            out.writeByte(ID_UUID);
+            out.writeLong(((UUID) id).getMostSignificantBits());
+            out.writeLong(((UUID) id).getLeastSignificantBits());
+        } else if (id instanceof Long) {
+            out.writeByte(ID_LONG);
+            out.writeLong((Long) id);
+        } else if (id instanceof Integer) {
+            out.writeByte(ID_INTEGER);
+            out.writeInt((Integer) id);
+        } else if (id instanceof String) {
+            out.writeByte(ID_STRING);
+            writeString(out, (String) id);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    protected Object readId(DataInput in, byte type) throws IOException {
+        switch (type) {
+            case ID_UUID:
+                return new UUID(in.readLong(), in.readLong());
+            case ID_LONG:
+                return in.readLong();
+            case ID_INTEGER:
+                return in.readInt();
+            case ID_STRING:
+                return readString(in);
+            default:
+                throw new SecurityTokenException("Invalid format for security token: unknown id type " + type);
+        }
+    }
+
+    protected void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    protected String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    protected void writeStrings(DataOutput out, Collection<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    protected String[] readStrings(DataInput in) throws IOException {
+        String[] values = new String[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readString(in);
+        }
+        return values;
+    }
+
+    /**
+     * Takes idle ciphers from the pool or creates new ones. Ciphers initialized with a previous encryption key
+     * are discarded.
+     *
+     * @return ciphers initialized with the current encryption key
+     */
+    protected TokenCiphers borrowCiphers() {
+        String key = config.getKeyForSecurityTokenEncryption();
+        TokenCiphers tokenCiphers;
+        while ((tokenCiphers = ciphersPool.poll()) != null) {
+            if (tokenCiphers.key.equals(key)) {
+                return tokenCiphers;
+            }
+        }
+        return new TokenCiphers(key, getCipher(Cipher.ENCRYPT_MODE), getCipher(Cipher.DECRYPT_MODE));
+    }
+
+    /**
+     * Returns ciphers taken by {@link #borrowCiphers()} to the pool. Ciphers that failed are not returned, so
+     * a cipher left in an inconsistent state is never reused. If the pool is full, the ciphers are dropped.
+     */
+    protected void releaseCiphers(TokenCiphers tokenCiphers) {
+        ciphersPool.offer(tokenCiphers);
+    }
+
     protected Cipher getCipher(int mode) {
         try {
             Cipher cipher = Cipher.getInstance("AES");
@@ -266,4 +489,43 @@ public class SecurityTokenManager {
                     "=================================================================");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Ciphers and the token buffer kept in the pool. {@link Cipher} instances are not thread-safe, but can be
+     * reused after {@code doFinal()}.
+     */
+    protected static class TokenCiphers {
+
+        protected final String key;
+        protected final Cipher encrypt;
+        protected final Cipher decrypt;
+        protected TokenBuffer buffer;
+
+        public TokenCiphers(String key, Cipher encrypt, Cipher decrypt) {
+            this.key = key;
+            this.encrypt = encrypt;
+            this.decrypt = decrypt;
+        }
+
+        public TokenBuffer getBuffer() {
+            if (buffer == null || buffer.array().length > MAX_RETAINED_BUFFER_SIZE) {
+                buffer = new TokenBuffer();
+            }
+            return buffer;
+        }
+    }
+
+    /**
+     * Byte array output stream giving access to its internal buffer.
+     */
+    protected static class TokenBuffer extends ByteArrayOutputStream {
+
+        public TokenBuffer() {
+            super(256);
+        }
+
+        public byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.haulmont.cuba.core.app.ServerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * INTERNAL.
+ * Caches results of {@link QueryImpl#transformQueryString()}: the final JPQL string and the changes
+ * that must be applied to query parameters.
+ * <p>
+ * The result of the transformation depends only on the query string with expanded macros, on whether the query is
+ * paged and on the "shape" of each parameter (null, empty collection, case-insensitive string or other value),
+ * so these form the cache key.
+ */
+@Component(TransformedQueryCache.NAME)
+public class TransformedQueryCache {
+
+    public static final String NAME = "cuba_TransformedQueryCache";
+
+    private static final Logger log = LoggerFactory.getLogger(TransformedQueryCache.class);
+
+    protected final int maxSize;
+
+    @Nullable
+    protected final Cache<Key, TransformedQuery> cache;
+
+    @Inject
+    public TransformedQueryCache(ServerConfig serverConfig) {
+        maxSize = serverConfig.getTransformedQueryCacheMaxSize();
+        cache = maxSize > 0 ? CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().build() : null;
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Returns a cached transformation for the key or performs it with the supplied function and caches the result.
+     */
+    public TransformedQuery get(Key key, Supplier<TransformedQuery> transformation) {
+        if (cache == null) {
+            return transformation.get();
+        }
+        TransformedQuery result = cache.getIfPresent(key);
+        if (result == null) {
+            result = transformation.get();
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    public void invalidateAll() {
+        if (cache != null) {
+            log.debug("Invalidate transformed query cache");
+            cache.invalidateAll();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long size() {
+        return cache != null ? cache.size() : 0;
+    }
+
+    public long getHitCount() {
+        return cache != null ? cache.stats().hitCount() : 0;
+    }
+
+    public long getMissCount() {
+        return cache != null ? cache.stats().missCount() : 0;
+    }
+
+    /**
+     * Kind of a query parameter value which affects the query transformation.
+     */
+    public enum ParamShape {
+        VALUE,
+        NULL,
+        EMPTY_COLLECTION,
+        CASE_INSENSITIVE
+    }
+
+    /**
+     * Cache key of a query transformation.
+     */
+    public static class Key {
+
+        protected final String queryString;
+        protected final boolean paged;
+        protected final Map<Object, ParamShape> paramShapes;
+        protected final int hashCode;
+
+        public Key(String queryString, boolean paged, Map<Object, ParamShape> paramShapes) {
+            this.queryString = queryString;
+            this.paged = paged;
+            this.paramShapes = paramShapes;
+            this.hashCode = Objects.hash(queryString, paged, paramShapes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return hashCode == key.hashCode
+                    && paged == key.paged
+                    && queryString.equals(key.queryString)
+                    && paramShapes.equals(key.paramShapes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return "Key{" +
+                    "queryString='" + queryString + '\'' +
+                    ", paged=" + paged +
+                    ", paramShapes=" + paramShapes +
+                    '}';
+        }
+    }
+
+    /**
+     * Result of a query transformation: the final query string and the parameter rewrite plan.
+     */
+    public static class TransformedQuery {
+
+        protected final String queryString;
+        protected final Set<Object> removedParams;
+        protected final Set<Object> caseInsensitiveParams;
+
+        public TransformedQuery(String queryString, Set<Object> removedParams, Set<Object> caseInsensitiveParams) {
+            this.queryString = queryString;
+            this.removedParams = ImmutableSet.copyOf(removedParams);
+            this.caseInsensitiveParams = ImmutableSet.copyOf(caseInsensitiveParams);
+        }
+
+        public String getQueryString() {
+            return queryString;
+        }
+
+        /**
+         * @return names of parameters that are not used in the transformed query and must be removed
+         */
+        public Set<Object> getRemovedParams() {
+            return removedParams;
+        }
+
+        /**
+         * @return names of parameters whose {@code (?i)} prefixed values must be converted to lower case
+         */
+        public Set<Object> getCaseInsensitiveParams() {
+            return caseInsensitiveParams;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.entitycache;
+
+import com.haulmont.cuba.core.sys.entitycache.EntityCacheConnection.BatchMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * INTERNAL.
+ * Collects entity cache coordination commands and sends them in {@link BatchMessage}s when the batch interval
+ * elapses or the batch reaches its maximum size.
+ * <p>
+ * Messages are passed to the sender in the order the commands were added: taking a batch and sending it is done
+ * under a single lock, and {@link #sendNow(Serializable)} sends the pending batch before the message.
+ */
+public class EntityCacheBatchSender {
+
+    private static final Logger log = LoggerFactory.getLogger(EntityCacheBatchSender.class);
+
+    protected final Consumer<Serializable> sender;
+    protected final ScheduledExecutorService executor;
+    protected final long interval;
+    protected final int maxSize;
+
+    // always acquired before batchLock
+    protected final Object sendLock = new Object();
+    protected final Object batchLock = new Object();
+
+    protected List<Object> commands = new ArrayList<>();
+    protected Set<String> typeNames = new HashSet<>();
+
+    public EntityCacheBatchSender(Consumer<Serializable> sender, ScheduledExecutorService executor,
+                                  long interval, int maxSize) {
+        this.sender = sender;
+        this.executor = executor;
+        this.interval = interval;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Adds the command to the current batch. Schedules sending of the batch if it is the first command,
+     * or sends the batch if it is full.
+     */
+    public void add(Object command, @Nullable Set<String> commandTypeNames) {
+        boolean full;
+        synchronized (batchLock) {
+            if (commands.isEmpty()) {
+                executor.schedule(this::flushSafely, interval, TimeUnit.MILLISECONDS);
+            }
+            commands.add(command);
+            if (commandTypeNames != null) {
+                typeNames.addAll(commandTypeNames);
+            }
+            full = commands.size() >= maxSize;
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends the pending batch and then the given message, so the message does not overtake earlier commands.
+     */
+    public void sendNow(Serializable message) {
+        synchronized (sendLock) {
+            BatchMessage batch = takeBatch();
+            if (batch != null) {
+                sender.accept(batch);
+            }
+            sender.accept(message);
+        }
+    }
+
+    /**
+     * Sends the commands collected so far.
+     */
+    public void flush() {
+        synchronized (sendLock) {
+            BatchMessage batch = takeBatch();
+            if (batch != null) {
+                sender.accept(batch);
+            }
+        }
+    }
+
+    protected void flushSafely() {
+        try {
+            flush();
+        } catch (Throwable e) {
+            log.error("Error sending entity cache changes to the cluster", e);
+        }
+    }
+
+    @Nullable
+    protected BatchMessage takeBatch() {
+        synchronized (batchLock) {
+            if (commands.isEmpty()) {
+                return null;
+            }
+            BatchMessage batch = new BatchMessage(commands, typeNames);
+            commands = new ArrayList<>();
+            typeNames = new HashSet<>();
+            return batch;
+        }
+    }
+}
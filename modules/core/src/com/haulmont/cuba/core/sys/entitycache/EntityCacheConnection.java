@@ -17,10 +17,13 @@
 
 package com.haulmont.cuba.core.sys.entitycache;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.haulmont.bali.util.ReflectionHelper;
 import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.cuba.core.app.ClusterConfig;
 import com.haulmont.cuba.core.app.ClusterListenerAdapter;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.cuba.core.config.Configuration;
 import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.core.global.Metadata;
 import org.eclipse.persistence.internal.helper.Helper;
@@ -28,22 +31,44 @@ import org.eclipse.persistence.internal.sessions.UnitOfWorkChangeSet;
 import org.eclipse.persistence.internal.sessions.coordination.broadcast.BroadcastRemoteConnection;
 import org.eclipse.persistence.sessions.coordination.MergeChangeSetCommand;
 import org.eclipse.persistence.sessions.coordination.RemoteCommandManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.Serializable;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
+/**
+ * Transfers EclipseLink cache coordination commands between cluster nodes using {@link ClusterManagerAPI}.
+ * <p>
+ * If {@link ClusterConfig#getEntityCacheBatchInterval()} is greater than zero, commands are collected during the
+ * interval and sent in a single {@link BatchMessage}, so a receiving node invalidates the query cache once per batch.
+ */
 public class EntityCacheConnection extends BroadcastRemoteConnection {
 
+    private static final Logger log = LoggerFactory.getLogger(EntityCacheConnection.class);
+
     protected Metadata metadata;
     protected QueryCacheManager queryCacheManager;
     protected ClusterManagerAPI clusterManager;
 
+    protected long batchInterval;
+    protected int batchMaxSize;
+    protected ScheduledExecutorService batchExecutor;
+    protected EntityCacheBatchSender batchSender;
+
     public EntityCacheConnection(RemoteCommandManager rcm, ClusterManagerAPI clusterManager) {
         super(rcm);
         this.metadata = AppBeans.get(Metadata.NAME);
         this.queryCacheManager = AppBeans.get(QueryCacheManager.NAME);
         this.clusterManager = clusterManager;
+
+        ClusterConfig clusterConfig = AppBeans.get(Configuration.class).getConfig(ClusterConfig.class);
+        this.batchInterval = clusterConfig.getEntityCacheBatchInterval();
+        this.batchMaxSize = clusterConfig.getEntityCacheBatchMaxSize();
+
         rcm.logDebug("creating_broadcast_connection", getInfo());
         try {
             this.clusterManager.addListener(Message.class, new ClusterListenerAdapter<Message>() {
@@ -52,6 +77,20 @@ public class EntityCacheConnection extends BroadcastRemoteConnection {
                     onMessage(message);
                 }
             });
+            this.clusterManager.addListener(BatchMessage.class, new ClusterListenerAdapter<BatchMessage>() {
+                @Override
+                public void receive(BatchMessage message) {
+                    onBatchMessage(message);
+                }
+            });
+            if (batchInterval > 0) {
+                batchExecutor = Executors.newSingleThreadScheduledExecutor(
+                        new ThreadFactoryBuilder()
+                                .setNameFormat("EntityCacheBatchSender-%d")
+                                .setDaemon(true)
+                                .build());
+                batchSender = new EntityCacheBatchSender(clusterManager::send, batchExecutor, batchInterval, batchMaxSize);
+            }
             rcm.logDebug("broadcast_connection_created", getInfo());
         } catch (RuntimeException ex) {
             rcm.logDebug("failed_to_create_broadcast_connection", getInfo());
@@ -70,17 +109,28 @@ public class EntityCacheConnection extends BroadcastRemoteConnection {
 
     @Override
     protected Object executeCommandInternal(Object command) {
-        Message message = new Message(command);
-
         Object[] debugInfo = null;
         if (this.rcm.shouldLogDebugMessage()) {
             debugInfo = logDebugBeforePublish(null);
         }
 
-        if (queryCacheManager.isEnabled()) {
-            invalidateQueryCache(command);
+        if (batchSender != null && !clusterManager.getSyncSendingForCurrentThread()) {
+            Set<String> typeNames = getAffectedTypeNames(command);
+            if (typeNames != null && queryCacheManager.isEnabled()) {
+                queryCacheManager.invalidate(typeNames, false);
+            }
+            batchSender.add(command, typeNames);
+        } else {
+            if (queryCacheManager.isEnabled()) {
+                invalidateQueryCache(command);
+            }
+            if (batchSender != null) {
+                // receivers must not apply a pending older change set after this one
+                batchSender.sendNow(new Message(command));
+            } else {
+                this.clusterManager.send(new Message(command));
+            }
         }
-        this.clusterManager.send(message);
 
         if (debugInfo != null) {
             logDebugAfterPublish(debugInfo, null);
@@ -102,6 +152,18 @@ public class EntityCacheConnection extends BroadcastRemoteConnection {
         }
     }
 
+    public void onBatchMessage(BatchMessage message) {
+        if (rcm.shouldLogDebugMessage()) {
+            logDebugOnReceiveMessage(null);
+        }
+        if (queryCacheManager.isEnabled() && !message.getTypeNames().isEmpty()) {
+            queryCacheManager.invalidate(message.getTypeNames(), false);
+        }
+        for (Object command : message.getCommands()) {
+            processReceivedObject(command, "");
+        }
+    }
+
     @Override
     protected boolean areAllResourcesFreedOnClose() {
         return !isLocal();
@@ -109,6 +171,14 @@ public class EntityCacheConnection extends BroadcastRemoteConnection {
 
     @Override
     protected void closeInternal() {
+        if (batchExecutor != null) {
+            batchExecutor.shutdownNow();
+            try {
+                batchSender.flush();
+            } catch (RuntimeException e) {
+                log.error("Error sending entity cache changes to the cluster", e);
+            }
+        }
     }
 
     @Override
@@ -122,6 +192,17 @@ public class EntityCacheConnection extends BroadcastRemoteConnection {
     }
 
     protected void invalidateQueryCache(Object command) {
+        Set<String> typeNames = getAffectedTypeNames(command);
+        if (typeNames != null) {
+            queryCacheManager.invalidate(typeNames, false);
+        }
+    }
+
+    /**
+     * @return names of entities changed by the command or null if the command does not contain a change set
+     */
+    @Nullable
+    protected Set<String> getAffectedTypeNames(Object command) {
         if (command instanceof MergeChangeSetCommand) {
             MergeChangeSetCommand changeSetCommand = (MergeChangeSetCommand) command;
             UnitOfWorkChangeSet changeSet = changeSetCommand.getChangeSet(null);
@@ -134,9 +215,10 @@ public class EntityCacheConnection extends BroadcastRemoteConnection {
                         typeNames.add(metaClass.getName());
                     }
                 });
-                queryCacheManager.invalidate(typeNames, false);
+                return typeNames;
             }
         }
+        return null;
     }
 
     public static class Message implements Serializable {
@@ -156,4 +238,32 @@ public class EntityCacheConnection extends BroadcastRemoteConnection {
             return String.format("Message{object=%s}", object);
         }
     }
+
+    /**
+     * Several cache coordination commands collected during the batch interval together with names of all entities
+     * changed by these commands.
+     */
+    public static class BatchMessage implements Serializable {
+
+        private List<Object> commands;
+        private Set<String> typeNames;
+
+        public BatchMessage(List<Object> commands, Set<String> typeNames) {
+            this.commands = commands;
+            this.typeNames = typeNames;
+        }
+
+        public List<Object> getCommands() {
+            return commands;
+        }
+
+        public Set<String> getTypeNames() {
+            return typeNames;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("BatchMessage{commands=%d, typeNames=%s}", commands.size(), typeNames);
+        }
+    }
 }
\ No newline at end of file
@@ -18,8 +18,8 @@ package com.haulmont.cuba.core.sys.entitycache;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -29,17 +29,33 @@ import javax.inject.Inject;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Query cache based on a concurrent Guava cache.
+ * <p>
+ * Cached entries are additionally indexed by query identifier and by related entity types, so that invalidation
+ * does not have to scan the whole cache. Index entries are removed by the cache removal listener, whatever the
+ * reason of removal is. Query identifiers rather than keys are stored in the type index, because different
+ * {@link QueryKey} instances of the same query are equal but have different identifiers.
+ * <p>
+ * An invalidation running concurrently with {@link #put(QueryKey, QueryResult)} can scan the index before the new
+ * entry is indexed, or invalidate the key before the entry is stored. To avoid keeping such an entry, invalidations
+ * are counted in {@link #runningInvalidations} and increment {@link #invalidationGeneration}, and {@code put()}
+ * removes the entry it has stored if an invalidation was running when {@code put()} started or has started since.
+ * A result loaded before an invalidation that completed before {@code put()} started is not detected, so callers
+ * must not cache results loaded before a change of related entities.
+ */
 @Component(QueryCache.NAME)
 public class StandardQueryCache implements QueryCache {
 
-    protected Cache<QueryKey, QueryResult> data;
-    protected ConcurrentMap<String, CopyOnWriteArrayList<QueryKey>> typeIndex = new ConcurrentHashMap<>();
-    protected ReadWriteLock lock = new ReentrantReadWriteLock();
+    protected Cache<QueryKey, CacheEntry> data;
+    protected ConcurrentMap<UUID, QueryKey> idIndex = new ConcurrentHashMap<>();
+    protected ConcurrentMap<String, Set<UUID>> typeIndex = new ConcurrentHashMap<>();
+
+    protected final AtomicLong invalidationGeneration = new AtomicLong();
+    protected final AtomicInteger runningInvalidations = new AtomicInteger();
 
     @Inject
     protected QueryCacheConfig queryCacheConfig;
@@ -48,117 +64,104 @@ public class StandardQueryCache implements QueryCache {
 
     @PostConstruct
     protected void init() {
-        data = CacheBuilder.newBuilder().maximumSize(queryCacheConfig.getQueryCacheMaxSize()).build();
+        data = CacheBuilder.newBuilder()
+                .maximumSize(queryCacheConfig.getQueryCacheMaxSize())
+                .removalListener(this::onRemoval)
+                .build();
     }
 
     @Override
     public QueryResult get(QueryKey queryKey) {
-        return data.getIfPresent(queryKey);
+        CacheEntry entry = data.getIfPresent(queryKey);
+        return entry != null ? entry.result : null;
     }
 
     @Override
     public void put(QueryKey queryKey, QueryResult queryResult) {
-        Lock readLock = lock.readLock();
-        readLock.lock();
-        try {
-            data.put(queryKey, queryResult);
-
-            for (String type : queryResult.getRelatedTypes()) {
-                CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(type);
-                if (keys == null) {
-                    typeIndex.putIfAbsent(type, new CopyOnWriteArrayList<>());
-                    keys = typeIndex.get(type);
+        long generation = invalidationGeneration.get();
+        boolean invalidating = runningInvalidations.get() > 0;
+        // index the key before it becomes visible in the cache, so that an invalidation of a related type
+        // started after this point finds it
+        UUID id = queryKey.getId();
+        idIndex.put(id, queryKey);
+        for (String type : queryResult.getRelatedTypes()) {
+            typeIndex.compute(type, (t, ids) -> {
+                if (ids == null) {
+                    ids = ConcurrentHashMap.newKeySet();
                 }
-                keys.add(queryKey);
-            }
-        } finally {
-            readLock.unlock();
+                ids.add(id);
+                return ids;
+            });
+        }
+        CacheEntry entry = new CacheEntry(queryKey, queryResult);
+        data.put(queryKey, entry);
+
+        if (invalidating || runningInvalidations.get() > 0 || invalidationGeneration.get() != generation) {
+            // the entry could be missed by a concurrent invalidation
+            log.debug("Query cache invalidated concurrently, discarding {}", queryKey.printDescription());
+            data.asMap().remove(queryKey, entry);
         }
     }
 
     @Override
     public QueryKey findQueryKeyById(UUID queryId) {
-        Set<QueryKey> keys = Sets.newHashSet(data.asMap().keySet());
-        for (QueryKey key : keys) {
-            if (Objects.equals(queryId, key.getId())) {
-                return key;
-            }
-        }
-        return null;
+        return idIndex.get(queryId);
     }
 
     @Override
     public void invalidate(QueryKey queryKey) {
-        Lock readLock = lock.readLock();
-        readLock.lock();
+        log.debug("Invalidate query by key {}", queryKey.printDescription());
+        beginInvalidation();
         try {
-            log.debug("Invalidate query by key {}", queryKey.printDescription());
             data.invalidate(queryKey);
         } finally {
-            readLock.unlock();
+            endInvalidation();
         }
     }
 
     @Override
     public void invalidate(String typeName) {
-        Lock readLock = lock.readLock();
-        readLock.lock();
+        beginInvalidation();
         try {
-            CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(typeName);
-            if (keys == null) return;
+            Set<UUID> ids = typeIndex.get(typeName);
+            if (ids == null) return;
             log.debug("Invalidate cache for type {}", typeName);
-            Arrays.stream(keys.toArray()).forEach(it -> data.invalidate(it));
+            invalidateByIds(ids);
         } finally {
-            readLock.unlock();
+            endInvalidation();
         }
     }
 
     @Override
     public void invalidate(Set<String> typeNames) {
-        Lock readLock = lock.readLock();
-        readLock.lock();
-        try {
-            typeNames.forEach(typeName -> {
-                        CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(typeName);
-                        if (keys == null) return;
-                        log.debug("Invalidate cache for type {}", typeName);
-                        Arrays.stream(keys.toArray()).forEach(it -> data.invalidate(it));
-                    }
-            );
-        } finally {
-            readLock.unlock();
+        for (String typeName : typeNames) {
+            invalidate(typeName);
         }
     }
 
     @Override
     public QueryKey invalidate(UUID queryId) {
-        Lock readLock = lock.readLock();
-        readLock.lock();
-        try {
-            Set<QueryKey> keys = Sets.newHashSet(data.asMap().keySet());
-            for (QueryKey key : keys) {
-                if (Objects.equals(queryId, key.getId())) {
-                    log.debug("Invalidate query by identifier {}", queryId);
-                    data.invalidate(key);
-                    return key;
-                }
+        QueryKey key = idIndex.get(queryId);
+        if (key != null) {
+            log.debug("Invalidate query by identifier {}", queryId);
+            beginInvalidation();
+            try {
+                data.invalidate(key);
+            } finally {
+                endInvalidation();
             }
-        } finally {
-            readLock.unlock();
         }
-        return null;
+        return key;
     }
 
     @Override
     public void invalidateAll() {
-        Lock writeLock = lock.writeLock();
-        writeLock.lock();
+        log.debug("Invalidate all cache");
+        beginInvalidation();
         try {
-            log.debug("Invalidate all cache");
             data.invalidateAll();
-            typeIndex.clear();
         } finally {
-            writeLock.unlock();
+            endInvalidation();
         }
     }
 
@@ -174,6 +177,60 @@ public class StandardQueryCache implements QueryCache {
 
     @Override
     public Map<QueryKey, QueryResult> asMap() {
-        return Maps.newHashMap(data.asMap());
+        Map<QueryKey, QueryResult> result = new HashMap<>();
+        for (CacheEntry entry : data.asMap().values()) {
+            result.put(entry.key, entry.result);
+        }
+        return result;
+    }
+
+    protected void beginInvalidation() {
+        runningInvalidations.incrementAndGet();
+        invalidationGeneration.incrementAndGet();
+    }
+
+    protected void endInvalidation() {
+        runningInvalidations.decrementAndGet();
+    }
+
+    protected void invalidateByIds(Set<UUID> ids) {
+        // the set is modified by the removal listener, so iterate over a snapshot
+        for (UUID id : ids.toArray(new UUID[0])) {
+            QueryKey key = idIndex.get(id);
+            if (key != null) {
+                data.invalidate(key);
+            }
+        }
+    }
+
+    protected void onRemoval(RemovalNotification<QueryKey, CacheEntry> notification) {
+        CacheEntry entry = notification.getValue();
+        if (entry == null) {
+            return;
+        }
+        UUID id = entry.key.getId();
+        idIndex.remove(id, entry.key);
+        for (String type : entry.result.getRelatedTypes()) {
+            typeIndex.computeIfPresent(type, (t, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+        if (notification.getCause() == RemovalCause.SIZE && log.isTraceEnabled()) {
+            log.trace("Query evicted from cache {}", entry.key.printDescription());
+        }
+    }
+
+    /**
+     * Cached query result together with the key instance it was put with.
+     */
+    protected static class CacheEntry {
+        protected final QueryKey key;
+        protected final QueryResult result;
+
+        protected CacheEntry(QueryKey key, QueryResult result) {
+            this.key = key;
+            this.result = result;
+        }
     }
 }
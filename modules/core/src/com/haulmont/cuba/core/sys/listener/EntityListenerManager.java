@@ -272,6 +272,13 @@ public class EntityListenerManager {
         }
     }
 
+    /**
+     * @return true if listeners of the given type are registered for the entity class and will be fired
+     */
+    public boolean hasListeners(Class<? extends Entity> entityClass, EntityListenerType type) {
+        return enabled && !getListener(entityClass, type).isEmpty();
+    }
+
     public void enable(boolean enable) {
         this.enabled = enable;
     }
@@ -110,4 +110,12 @@ public interface DbmsFeatures {
     default Integer getMaxIdsBatchSize() {
         return null;
     }
+
+    /**
+     * @return true if the DBMS supports {@code INSERT ... SELECT} statements selecting from a derived table which
+     * can refer to the target table. Disabled by default, enabled for the DBMS where the statement has been verified.
+     */
+    default boolean supportsInsertFromSelect() {
+        return false;
+    }
 }
@@ -77,4 +77,9 @@ public class HsqlDbmsFeatures implements DbmsFeatures {
     public boolean supportsLobSortingAndFiltering() {
         return true;
     }
+
+    @Override
+    public boolean supportsInsertFromSelect() {
+        return true;
+    }
 }
\ No newline at end of file
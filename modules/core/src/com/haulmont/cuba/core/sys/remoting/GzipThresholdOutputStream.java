@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Output stream of a remote invocation result that is compressed only if its size exceeds the threshold.
+ * <p>
+ * Data is buffered until the threshold is reached. After that the {@code Content-Encoding} header is set and
+ * the buffered and all subsequent data are written through a gzip stream. If the stream is closed before reaching
+ * the threshold, the buffered data are written uncompressed.
+ */
+public class GzipThresholdOutputStream extends OutputStream {
+
+    protected final HttpServletResponse response;
+    protected final OutputStream target;
+    protected final int threshold;
+
+    protected ByteArrayOutputStream buffer;
+    protected OutputStream gzip;
+
+    public GzipThresholdOutputStream(HttpServletResponse response, OutputStream target, int threshold) {
+        this.response = response;
+        this.target = target;
+        this.threshold = threshold;
+        this.buffer = new ByteArrayOutputStream(Math.min(threshold, 8192));
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (gzip != null) {
+            gzip.write(b);
+        } else {
+            buffer.write(b);
+            checkThreshold();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (gzip != null) {
+            gzip.write(b, off, len);
+        } else {
+            buffer.write(b, off, len);
+            checkThreshold();
+        }
+    }
+
+    protected void checkThreshold() throws IOException {
+        if (buffer.size() > threshold) {
+            response.setHeader("Content-Encoding", "gzip");
+            gzip = new GZIPOutputStream(target, 8192) {
+                {
+                    def.setLevel(Deflater.BEST_SPEED);
+                }
+            };
+            buffer.writeTo(gzip);
+            buffer = null;
+        }
+    }
+
+    /**
+     * @return true if the data are being compressed
+     */
+    public boolean isCompressed() {
+        return gzip != null;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (gzip != null) {
+            gzip.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (gzip != null) {
+            gzip.close();
+        } else if (buffer != null) {
+            response.setContentLength(buffer.size());
+            buffer.writeTo(target);
+            buffer = null;
+            target.close();
+        }
+    }
+}
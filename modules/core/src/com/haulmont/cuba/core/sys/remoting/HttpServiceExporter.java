@@ -18,6 +18,7 @@
 package com.haulmont.cuba.core.sys.remoting;
 
 import com.google.common.base.Joiner;
+import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.serialization.SerializationException;
 import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
 import org.springframework.beans.factory.BeanNameAware;
@@ -30,19 +31,32 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OptionalDataException;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Exports a middleware service bean as an HTTP invoker service endpoint.
+ * <p>
+ * Accepts gzip-compressed requests and compresses results exceeding the {@code cuba.remoting.compressionThreshold}
+ * application property if the client accepts gzip encoding.
  */
 public class HttpServiceExporter extends HttpInvokerServiceExporter implements BeanNameAware {
 
+    protected static final String ENCODING_GZIP = "gzip";
+
+    protected int compressionThreshold;
+
     public HttpServiceExporter() {
         super();
         setRegisterTraceInterceptor(false);
         setRemoteInvocationExecutor(new CubaRemoteInvocationExecutor());
+
+        String compressionThresholdProp = AppContext.getProperty("cuba.remoting.compressionThreshold");
+        compressionThreshold = compressionThresholdProp == null ? 0 : Integer.parseInt(compressionThresholdProp);
     }
 
     @Override
@@ -105,6 +119,27 @@ public class HttpServiceExporter extends HttpInvokerServiceExporter implements B
         }
     }
 
+    @Override
+    protected InputStream decorateInputStream(HttpServletRequest request, InputStream is) throws IOException {
+        String encoding = request.getHeader("Content-Encoding");
+        if (encoding != null && ENCODING_GZIP.equalsIgnoreCase(encoding)) {
+            return new GZIPInputStream(is, 8192);
+        }
+        return is;
+    }
+
+    @Override
+    protected OutputStream decorateOutputStream(HttpServletRequest request, HttpServletResponse response,
+                                                OutputStream os) throws IOException {
+        if (compressionThreshold > 0) {
+            String acceptEncoding = request.getHeader("Accept-Encoding");
+            if (acceptEncoding != null && acceptEncoding.toLowerCase().contains(ENCODING_GZIP)) {
+                return new GzipThresholdOutputStream(response, os, compressionThreshold);
+            }
+        }
+        return os;
+    }
+
     @Override
     protected void doWriteRemoteInvocationResult(RemoteInvocationResult result, ObjectOutputStream oos) throws IOException {
         SerializationSupport.serialize(result, oos);
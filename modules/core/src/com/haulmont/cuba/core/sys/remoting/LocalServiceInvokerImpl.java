@@ -95,6 +95,8 @@ public class LocalServiceInvokerImpl implements LocalServiceInvoker {
 
             if (invocation.canResultBypassSerialization()) {
                 result.setNotSerializableData(data);
+            } else if (invocation.isCopyData()) {
+                result.setNotSerializableData(SerializationSupport.copy(data));
             } else {
                 result.setData(SerializationSupport.serialize(data));
             }
@@ -31,6 +31,8 @@ import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.AuditInfoProvider;
 import com.haulmont.cuba.core.sys.EntityManagerContext;
+import com.haulmont.cuba.core.sys.listener.EntityListenerManager;
+import com.haulmont.cuba.core.sys.listener.EntityListenerType;
 import com.haulmont.cuba.security.entity.*;
 import org.apache.commons.lang3.BooleanUtils;
 import org.eclipse.persistence.descriptors.changetracking.ChangeTracker;
@@ -79,6 +81,12 @@ public class EntityLog implements EntityLogAPI {
     protected DataManager dataManager;
     @Inject
     protected ServerConfig serverConfig;
+    @Inject
+    protected EntityLogWriter entityLogWriter;
+    @Inject
+    protected EntityListenerManager entityListenerManager;
+    @Inject
+    protected UserSessionSource userSessionSource;
 
     protected volatile boolean loaded;
     protected EntityLogConfig config;
@@ -113,20 +121,55 @@ public class EntityLog implements EntityLogAPI {
         if (items == null || items.isEmpty())
             return;
 
-        Set<EntityLogItem> saved = new LinkedHashSet<>();
+        if (entityLogWriter.isAsync() && canInsertWithJdbc()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    enqueueItems(mergeItems(items));
+                }
+            });
+            return;
+        }
+
+        saveItems(mergeItems(items));
+    }
+
+    /**
+     * Merges the items registered for the same entity instance into one item.
+     */
+    protected List<EntityLogItem> mergeItems(List<EntityLogItem> items) {
+        Map<Object, List<EntityLogItem>> itemsByEntity = new LinkedHashMap<>();
         for (EntityLogItem item : items) {
-            List<EntityLogItem> sameEntityList = items.stream()
-                    .filter(entityLogItem -> entityLogItem.getDbGeneratedIdEntity() != null ?
-                            entityLogItem.getDbGeneratedIdEntity().equals(item.getDbGeneratedIdEntity()) :
-                            entityLogItem.getObjectEntityId().equals(item.getObjectEntityId()))
-                    .collect(Collectors.toList());
+            itemsByEntity.computeIfAbsent(getEntityKey(item), key -> new ArrayList<>()).add(item);
+        }
+
+        List<EntityLogItem> itemsToSave = new ArrayList<>(itemsByEntity.size());
+        for (List<EntityLogItem> sameEntityList : itemsByEntity.values()) {
             EntityLogItem itemToSave = sameEntityList.get(0);
-            if (!saved.contains(itemToSave)) {
-                computeChanges(itemToSave, sameEntityList);
-                saved.add(itemToSave);
-                saveItem(itemToSave);
+            computeChanges(itemToSave, sameEntityList);
+            itemsToSave.add(itemToSave);
+        }
+        return itemsToSave;
+    }
+
+    /**
+     * Passes the items to the asynchronous writer. Invoked after commit of the transaction that changed the entities.
+     */
+    protected void enqueueItems(List<EntityLogItem> items) {
+        for (EntityLogItem item : items) {
+            if (item.getDbGeneratedIdEntity() != null) {
+                Number id = item.getDbGeneratedIdEntity().getId().getNN();
+                item.setObjectEntityId(id);
             }
         }
+        entityLogWriter.enqueue(createRows(items));
+    }
+
+    /**
+     * @return key identifying the logged entity instance, the items having equal keys are merged into one
+     */
+    protected Object getEntityKey(EntityLogItem item) {
+        return item.getDbGeneratedIdEntity() != null ? item.getDbGeneratedIdEntity() : item.getObjectEntityId();
     }
 
     protected void computeChanges(EntityLogItem itemToSave, List<EntityLogItem> sameEntityList) {
@@ -219,28 +262,43 @@ public class EntityLog implements EntityLogAPI {
     }
 
     protected void saveItem(EntityLogItem item) {
-        String storeName = metadataTools.getStoreName(metadata.getClassNN(item.getEntity()));
-        if (item.getDbGeneratedIdEntity() == null) {
-            if (Stores.isMain(storeName)) {
-                EntityManager em = persistence.getEntityManager();
-                em.persist(item);
+        saveItems(Collections.singletonList(item));
+    }
+
+    protected void saveItems(List<EntityLogItem> items) {
+        List<EntityLogItem> mainStoreItems = new ArrayList<>();
+        List<EntityLogItem> additionalStoreItems = new ArrayList<>();
+        List<EntityLogItem> dbGeneratedIdItems = new ArrayList<>();
+        for (EntityLogItem item : items) {
+            if (item.getDbGeneratedIdEntity() != null) {
+                dbGeneratedIdItems.add(item);
+            } else if (Stores.isMain(metadataTools.getStoreName(metadata.getClassNN(item.getEntity())))) {
+                mainStoreItems.add(item);
             } else {
-                // Create a new transaction in main DB if we are saving an entity from additional data store
-                try (Transaction tx = persistence.createTransaction()) {
-                    EntityManager em = persistence.getEntityManager();
-                    em.persist(item);
-                    tx.commit();
-                }
+                additionalStoreItems.add(item);
             }
-        } else {
+        }
+
+        if (!mainStoreItems.isEmpty()) {
+            insertItems(persistence.getEntityManager(), mainStoreItems);
+        }
+        if (!additionalStoreItems.isEmpty()) {
+            // Create a new transaction in main DB if we are saving entities from additional data store
+            try (Transaction tx = persistence.createTransaction()) {
+                insertItems(persistence.getEntityManager(), additionalStoreItems);
+                tx.commit();
+            }
+        }
+        if (!dbGeneratedIdItems.isEmpty()) {
             TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
                 @Override
                 public void afterCommit() {
-                    Number id = item.getDbGeneratedIdEntity().getId().getNN();
-                    item.setObjectEntityId(id);
+                    for (EntityLogItem item : dbGeneratedIdItems) {
+                        Number id = item.getDbGeneratedIdEntity().getId().getNN();
+                        item.setObjectEntityId(id);
+                    }
                     try (Transaction tx = persistence.createTransaction()) {
-                        EntityManager em = persistence.getEntityManager();
-                        em.persist(item);
+                        insertItems(persistence.getEntityManager(), dbGeneratedIdItems);
                         tx.commit();
                     }
                 }
@@ -248,6 +306,75 @@ public class EntityLog implements EntityLogAPI {
         }
     }
 
+    /**
+     * Inserts the items using JDBC batches. If {@link EntityLogItem} is extended in the application,
+     * the items are persisted by the entity manager because the extended entity can contain additional columns.
+     */
+    protected void insertItems(EntityManager em, List<EntityLogItem> items) {
+        if (!canInsertWithJdbc()) {
+            for (EntityLogItem item : items) {
+                em.persist(item);
+            }
+            return;
+        }
+        entityLogWriter.insert(em.getConnection(), createRows(items));
+    }
+
+    /**
+     * Items can be inserted by JDBC bypassing the entity manager if {@link EntityLogItem} is not extended and has
+     * no insert entity listeners, because the insert statement contains only the columns of {@link EntityLogItem}
+     * and sets only the attributes assigned in {@link #createRows(List)}.
+     */
+    protected boolean canInsertWithJdbc() {
+        MetaClass metaClass = metadata.getClassNN(EntityLogItem.class);
+        return metadata.getExtendedEntities().getExtendedClass(metaClass) == null
+                && !entityListenerManager.hasListeners(EntityLogItem.class, EntityListenerType.BEFORE_INSERT)
+                && !entityListenerManager.hasListeners(EntityLogItem.class, EntityListenerType.AFTER_INSERT);
+    }
+
+    /**
+     * Sets the attributes assigned by the ORM on persist, i.e. creation timestamp, creator and tenant,
+     * and converts the items to rows of the JDBC insert.
+     */
+    protected List<EntityLogWriter.Row> createRows(List<EntityLogItem> items) {
+        Date ts = timeSource.currentTimestamp();
+        String login = auditInfoProvider.getCurrentUserLogin();
+        String tenantId = userSessionSource.checkCurrentUserSession()
+                ? userSessionSource.getUserSession().getUser().getSysTenantId()
+                : null;
+
+        List<EntityLogWriter.Row> rows = new ArrayList<>(items.size());
+        for (EntityLogItem item : items) {
+            item.setCreateTs(ts);
+            item.setCreatedBy(login);
+            if (item.getSysTenantId() == null) {
+                item.setSysTenantId(tenantId);
+            }
+            rows.add(createRow(item));
+        }
+        return rows;
+    }
+
+    protected EntityLogWriter.Row createRow(EntityLogItem item) {
+        ReferenceToEntity entityRef = item.getEntityRef();
+        return new EntityLogWriter.Row(
+                item.getId(),
+                item.getCreateTs(),
+                item.getCreatedBy(),
+                item.getSysTenantId(),
+                item.getEventTs(),
+                item.getUser() != null ? item.getUser().getId() : null,
+                item.getType() != null ? item.getType().getId() : null,
+                item.getEntity(),
+                item.getEntityInstanceName(),
+                entityRef.getEntityId(),
+                entityRef.getStringEntityId(),
+                entityRef.getIntEntityId(),
+                entityRef.getLongEntityId(),
+                item.getChanges()
+        );
+    }
+
     @Override
     public synchronized boolean isEnabled() {
         return config.getEnabled() && isLoggingForCurrentThread();
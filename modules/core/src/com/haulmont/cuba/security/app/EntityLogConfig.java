@@ -21,6 +21,8 @@ import com.haulmont.cuba.core.config.Property;
 import com.haulmont.cuba.core.config.Source;
 import com.haulmont.cuba.core.config.SourceType;
 import com.haulmont.cuba.core.config.defaults.DefaultBoolean;
+import com.haulmont.cuba.core.config.defaults.DefaultInt;
+import com.haulmont.cuba.core.config.defaults.DefaultLong;
 
 /**
  * {@link com.haulmont.cuba.security.app.EntityLog} configuration parameters
@@ -35,4 +37,38 @@ public interface EntityLogConfig extends Config {
     @DefaultBoolean(true)
     boolean getEnabled();
     void setEnabled(boolean value);
-}
\ No newline at end of file
+
+    /**
+     * @return Whether the entity log records are written to the database asynchronously after commit by a
+     * background thread instead of being inserted in the transaction that changes the entities
+     */
+    @Source(type = SourceType.APP)
+    @Property("cuba.entityLog.async")
+    @DefaultBoolean(false)
+    boolean getAsync();
+
+    /**
+     * @return Maximum number of records waiting in the asynchronous writer queue
+     */
+    @Source(type = SourceType.APP)
+    @Property("cuba.entityLog.asyncQueueCapacity")
+    @DefaultInt(10000)
+    int getAsyncQueueCapacity();
+
+    /**
+     * @return Maximum number of records inserted by the asynchronous writer in one transaction
+     */
+    @Source(type = SourceType.APP)
+    @Property("cuba.entityLog.asyncBatchSize")
+    @DefaultInt(500)
+    int getAsyncBatchSize();
+
+    /**
+     * @return Time in milliseconds a committing thread waits for free space in the full asynchronous writer queue
+     * before the records are written to the spool file
+     */
+    @Source(type = SourceType.APP)
+    @Property("cuba.entityLog.asyncOfferTimeout")
+    @DefaultLong(100)
+    long getAsyncOfferTimeout();
+}
@@ -0,0 +1,694 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.security.app;
+
+import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.core.global.GlobalConfig;
+import com.haulmont.cuba.core.global.UuidProvider;
+import com.haulmont.cuba.core.sys.events.AppContextStartedEvent;
+import com.haulmont.cuba.core.sys.events.AppContextStoppedEvent;
+import com.haulmont.cuba.core.sys.persistence.DbTypeConverter;
+import com.haulmont.cuba.core.sys.persistence.DbmsType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * INTERNAL.
+ * Writes entity log records to the database.
+ * <p>
+ * By default the records are inserted synchronously in the transaction that changed the entities. If
+ * {@link EntityLogConfig#getAsync()} is set, the records are passed after commit to a bounded in-memory queue and
+ * inserted in batches by a background thread. Before queuing, the records are appended to a journal file in the
+ * data directory, which is truncated whenever all journaled records have been saved, so the records lost from the
+ * queue by a crash are recovered from the journal on the next start. The records that cannot be queued in
+ * {@link EntityLogConfig#getAsyncOfferTimeout()} or inserted because of a database error, as well as the records
+ * remaining in the queue on shutdown, are appended to a spool file in the data directory and inserted later,
+ * including after restart.
+ */
+@Component(EntityLogWriter.NAME)
+public class EntityLogWriter {
+
+    public static final String NAME = "cuba_EntityLogWriter";
+
+    private static final Logger log = LoggerFactory.getLogger(EntityLogWriter.class);
+
+    protected static final int INSERT_BATCH_SIZE = 100;
+
+    protected static final String INSERT_SQL = "insert into SEC_ENTITY_LOG (ID, CREATE_TS, CREATED_BY, " +
+            "SYS_TENANT_ID, EVENT_TS, USER_ID, CHANGE_TYPE, ENTITY, ENTITY_INSTANCE_NAME, " +
+            "ENTITY_ID, STRING_ENTITY_ID, INT_ENTITY_ID, LONG_ENTITY_ID, CHANGES) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    protected static final String SPOOL_FILE_NAME = "entity-log-spool.dat";
+
+    protected static final String JOURNAL_FILE_NAME = "entity-log-journal.dat";
+
+    protected static final long SPOOL_REPLAY_INTERVAL = 10_000;
+
+    @Inject
+    protected Persistence persistence;
+
+    protected EntityLogConfig config;
+    protected GlobalConfig globalConfig;
+
+    protected BlockingQueue<Row> queue;
+    protected volatile Thread writerThread;
+    protected volatile boolean running;
+
+    protected final Object spoolLock = new Object();
+    protected long nextSpoolReplayTs;
+
+    protected final Object journalLock = new Object();
+    protected FileOutputStream journalStream;
+    protected long journalPendingCount;
+
+    protected final LongAdder writtenCount = new LongAdder();
+    protected final LongAdder spooledCount = new LongAdder();
+    protected final LongAdder droppedCount = new LongAdder();
+    protected volatile long lastBatchLag;
+
+    @Inject
+    public EntityLogWriter(Configuration configuration) {
+        config = configuration.getConfig(EntityLogConfig.class);
+        globalConfig = configuration.getConfig(GlobalConfig.class);
+    }
+
+    @EventListener(AppContextStartedEvent.class)
+    protected void applicationStarted() {
+        if (config.getAsync()) {
+            start();
+        }
+    }
+
+    @EventListener(AppContextStoppedEvent.class)
+    protected void applicationStopped() {
+        stop();
+    }
+
+    /**
+     * @return true if the records are written asynchronously by the background thread
+     */
+    public boolean isAsync() {
+        return running;
+    }
+
+    /**
+     * Inserts the records in JDBC batches using the given connection.
+     */
+    public void insert(Connection connection, List<Row> rows) {
+        DbTypeConverter converter = persistence.getDbTypeConverter();
+        int uuidType = converter.getSqlType(UUID.class);
+        int dateType = converter.getSqlType(Date.class);
+        int[] paramTypes = new int[]{uuidType, dateType, Types.VARCHAR, Types.VARCHAR, dateType, uuidType,
+                Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, uuidType, Types.VARCHAR, Types.INTEGER, Types.BIGINT,
+                getChangesSqlType()};
+
+        QueryRunner runner = new QueryRunner();
+        try {
+            for (int i = 0; i < rows.size(); i += INSERT_BATCH_SIZE) {
+                List<Row> batch = rows.subList(i, Math.min(i + INSERT_BATCH_SIZE, rows.size()));
+                Object[][] params = new Object[batch.size()][];
+                for (int j = 0; j < batch.size(); j++) {
+                    params[j] = batch.get(j).getParams(converter);
+                }
+                runner.batch(connection, INSERT_SQL, params, paramTypes);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error saving entity log items", e);
+        }
+    }
+
+    /**
+     * @return JDBC type used to bind the CHANGES column, which is a character LOB of unlimited length
+     */
+    protected int getChangesSqlType() {
+        switch (DbmsType.getType()) {
+            case "oracle":
+                return Types.CLOB;
+            case "mssql":
+                return Types.LONGNVARCHAR;
+            case "hsql":
+                return Types.LONGVARCHAR;
+            default:
+                return Types.VARCHAR;
+        }
+    }
+
+    /**
+     * Passes the records to the background writer. Blocks up to {@link EntityLogConfig#getAsyncOfferTimeout()}
+     * if the queue is full, then spools the rest of the records to the local file.
+     */
+    public void enqueue(List<Row> rows) {
+        journal(rows);
+        long timeout = config.getAsyncOfferTimeout();
+        for (int i = 0; i < rows.size(); i++) {
+            Row row = rows.get(i);
+            boolean queued;
+            try {
+                queued = running && queue.offer(row, timeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queued = false;
+            }
+            if (!queued) {
+                List<Row> rest = rows.subList(i, rows.size());
+                log.debug("Entity log queue is full, spooling {} records", rest.size());
+                spool(rest);
+                journalSaved(rest);
+                return;
+            }
+        }
+    }
+
+    protected void start() {
+        recoverJournal();
+        openJournal();
+        queue = new ArrayBlockingQueue<>(config.getAsyncQueueCapacity());
+        running = true;
+        Thread thread = new Thread(this::processQueue, "EntityLogWriter");
+        thread.setDaemon(true);
+        thread.start();
+        writerThread = thread;
+        log.info("Started asynchronous entity log writer");
+    }
+
+    protected void stop() {
+        Thread thread = writerThread;
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writerThread = null;
+
+        List<Row> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            log.info("Spooling {} entity log records remaining in the queue", rest.size());
+            spool(rest);
+            journalSaved(rest);
+        }
+        closeJournal();
+    }
+
+    protected void processQueue() {
+        int batchSize = config.getAsyncBatchSize();
+        while (running) {
+            try {
+                Row row = queue.poll(1, TimeUnit.SECONDS);
+                if (row == null) {
+                    replaySpool();
+                    continue;
+                }
+                List<Row> batch = new ArrayList<>(batchSize);
+                batch.add(row);
+                queue.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                break;
+            } catch (Throwable e) {
+                log.error("Error in entity log writer", e);
+            }
+        }
+    }
+
+    protected void writeBatch(List<Row> batch) {
+        try {
+            write(batch);
+            lastBatchLag = System.currentTimeMillis() - batch.get(0).capturedAt;
+        } catch (RuntimeException e) {
+            log.error("Error saving {} entity log records, spooling them", batch.size(), e);
+            spool(batch);
+        }
+        journalSaved(batch);
+    }
+
+    protected void write(List<Row> rows) {
+        try (Transaction tx = persistence.createTransaction()) {
+            insert(persistence.getEntityManager().getConnection(), rows);
+            tx.commit();
+        }
+        writtenCount.add(rows.size());
+    }
+
+    /**
+     * Inserts the records skipping the ones already saved, e.g. by a previous replay of the spool file that could
+     * not be deleted afterwards.
+     */
+    protected void writeSpooled(List<Row> rows) {
+        List<Row> newRows;
+        try (Transaction tx = persistence.createTransaction()) {
+            Connection connection = persistence.getEntityManager().getConnection();
+            newRows = excludeSaved(connection, rows);
+            insert(connection, newRows);
+            tx.commit();
+        }
+        writtenCount.add(newRows.size());
+        if (newRows.size() < rows.size()) {
+            log.info("Skipped {} spooled entity log records saved earlier", rows.size() - newRows.size());
+        }
+    }
+
+    protected List<Row> excludeSaved(Connection connection, List<Row> rows) {
+        DbTypeConverter converter = persistence.getDbTypeConverter();
+        Set<UUID> savedIds = new HashSet<>();
+        QueryRunner runner = new QueryRunner();
+        try {
+            for (int i = 0; i < rows.size(); i += INSERT_BATCH_SIZE) {
+                List<Row> batch = rows.subList(i, Math.min(i + INSERT_BATCH_SIZE, rows.size()));
+                String sql = "select ID from SEC_ENTITY_LOG where ID in ("
+                        + String.join(", ", Collections.nCopies(batch.size(), "?")) + ")";
+                Object[] params = batch.stream().map(row -> converter.getSqlObject(row.id)).toArray();
+                runner.query(connection, sql, params, rs -> {
+                    while (rs.next()) {
+                        Object id = converter.getJavaObject(rs, 1);
+                        savedIds.add(id instanceof UUID ? (UUID) id : UuidProvider.fromString(id.toString()));
+                    }
+                    return null;
+                });
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error checking saved entity log items", e);
+        }
+        if (savedIds.isEmpty()) {
+            return rows;
+        }
+        List<Row> result = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            if (!savedIds.contains(row.id)) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    protected File getSpoolFile() {
+        return new File(globalConfig.getDataDir(), SPOOL_FILE_NAME);
+    }
+
+    protected File getReplayFile() {
+        return new File(globalConfig.getDataDir(), SPOOL_FILE_NAME + ".replay");
+    }
+
+    protected File getJournalFile() {
+        return new File(globalConfig.getDataDir(), JOURNAL_FILE_NAME);
+    }
+
+    protected void openJournal() {
+        synchronized (journalLock) {
+            File file = getJournalFile();
+            try {
+                journalStream = new FileOutputStream(file, true);
+            } catch (IOException e) {
+                log.error("Unable to open entity log journal {}, queued records will be lost on crash",
+                        file.getAbsolutePath(), e);
+            }
+        }
+    }
+
+    /**
+     * Closes the journal and deletes it if all journaled records have been saved. Otherwise the journal is
+     * recovered on the next start.
+     */
+    protected void closeJournal() {
+        synchronized (journalLock) {
+            if (journalStream == null) {
+                return;
+            }
+            try {
+                journalStream.close();
+            } catch (IOException e) {
+                log.warn("Error closing entity log journal", e);
+            }
+            journalStream = null;
+            File file = getJournalFile();
+            if (journalPendingCount == 0 && !file.delete() && file.exists()) {
+                log.warn("Unable to delete entity log journal {}", file.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * Appends the records to the journal before they are passed to the queue.
+     */
+    protected void journal(List<Row> rows) {
+        synchronized (journalLock) {
+            if (journalStream == null) {
+                return;
+            }
+            try {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(journalStream));
+                for (Row row : rows) {
+                    row.write(out);
+                }
+                out.flush();
+                journalStream.getFD().sync();
+            } catch (IOException e) {
+                log.error("Unable to write {} entity log records to the journal", rows.size(), e);
+                return;
+            }
+            for (Row row : rows) {
+                row.journaled = true;
+            }
+            journalPendingCount += rows.size();
+        }
+    }
+
+    /**
+     * Called when the records are saved to the database or the spool file. Truncates the journal if no journaled
+     * records remain unsaved.
+     */
+    protected void journalSaved(List<Row> rows) {
+        synchronized (journalLock) {
+            for (Row row : rows) {
+                if (row.journaled) {
+                    row.journaled = false;
+                    journalPendingCount--;
+                }
+            }
+            if (journalPendingCount == 0 && journalStream != null) {
+                try {
+                    journalStream.getChannel().truncate(0);
+                } catch (IOException e) {
+                    log.warn("Unable to truncate entity log journal", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the records left in the journal by a crash to the spool file. Some of them can be saved already, they
+     * are skipped when the spool is replayed.
+     */
+    protected void recoverJournal() {
+        File file = getJournalFile();
+        if (!file.exists()) {
+            return;
+        }
+        List<Row> rows = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                Row row = Row.read(in);
+                if (row == null)
+                    break;
+                rows.add(row);
+            }
+        } catch (IOException e) {
+            log.warn("Error reading entity log journal {}, {} records read", file.getAbsolutePath(), rows.size(), e);
+        }
+        if (!rows.isEmpty()) {
+            log.info("Recovering {} entity log records from the journal", rows.size());
+            spool(rows);
+        }
+        if (!file.delete()) {
+            log.warn("Unable to delete entity log journal {}", file.getAbsolutePath());
+        }
+    }
+
+    protected void spool(List<Row> rows) {
+        synchronized (spoolLock) {
+            File file = getSpoolFile();
+            try (FileOutputStream fileStream = new FileOutputStream(file, true);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileStream))) {
+                for (Row row : rows) {
+                    row.write(out);
+                }
+                out.flush();
+                fileStream.getFD().sync();
+                spooledCount.add(rows.size());
+            } catch (IOException e) {
+                log.error("Unable to write {} entity log records to {}, the records are lost",
+                        rows.size(), file.getAbsolutePath(), e);
+                droppedCount.add(rows.size());
+            }
+        }
+    }
+
+    /**
+     * Inserts the records saved in the spool file in one transaction. If the insert fails, the file is kept and
+     * the attempt is repeated later. The records saved by a previous replay are skipped, so the replay can be
+     * repeated safely if the file could not be deleted.
+     */
+    protected void replaySpool() {
+        long now = System.currentTimeMillis();
+        if (now < nextSpoolReplayTs) {
+            return;
+        }
+        nextSpoolReplayTs = now + SPOOL_REPLAY_INTERVAL;
+
+        File replayFile = getReplayFile();
+        synchronized (spoolLock) {
+            File file = getSpoolFile();
+            if (!replayFile.exists()) {
+                if (!file.exists() || !file.renameTo(replayFile)) {
+                    return;
+                }
+            }
+        }
+
+        List<Row> rows = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(replayFile)))) {
+            while (true) {
+                Row row = Row.read(in);
+                if (row == null)
+                    break;
+                rows.add(row);
+            }
+        } catch (IOException e) {
+            log.error("Error reading entity log spool file {}, {} records read", replayFile.getAbsolutePath(),
+                    rows.size(), e);
+        }
+
+        if (!rows.isEmpty()) {
+            try {
+                writeSpooled(rows);
+            } catch (RuntimeException e) {
+                log.error("Error saving {} spooled entity log records", rows.size(), e);
+                return;
+            }
+            log.info("Saved {} spooled entity log records", rows.size());
+        }
+        if (!replayFile.delete()) {
+            log.warn("Unable to delete entity log spool file {}", replayFile.getAbsolutePath());
+        }
+    }
+
+    public int getQueueSize() {
+        return queue != null ? queue.size() : 0;
+    }
+
+    /**
+     * @return milliseconds elapsed since the oldest queued record was captured
+     */
+    public long getLag() {
+        Row row = queue != null ? queue.peek() : null;
+        return row != null ? System.currentTimeMillis() - row.capturedAt : 0;
+    }
+
+    /**
+     * @return milliseconds between capturing and saving the first record of the last saved batch
+     */
+    public long getLastBatchLag() {
+        return lastBatchLag;
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.sum();
+    }
+
+    public long getSpooledCount() {
+        return spooledCount.sum();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * Values of a SEC_ENTITY_LOG table row detached from the persistence context.
+     */
+    public static class Row {
+
+        protected UUID id;
+        protected Date createTs;
+        protected String createdBy;
+        protected String sysTenantId;
+        protected Date eventTs;
+        protected UUID userId;
+        protected String type;
+        protected String entity;
+        protected String entityInstanceName;
+        protected UUID entityId;
+        protected String stringEntityId;
+        protected Integer intEntityId;
+        protected Long longEntityId;
+        protected String changes;
+
+        protected long capturedAt = System.currentTimeMillis();
+
+        protected boolean journaled;
+
+        public Row(UUID id, Date createTs, @Nullable String createdBy, @Nullable String sysTenantId,
+                   @Nullable Date eventTs, @Nullable UUID userId, @Nullable String type, String entity,
+                   @Nullable String entityInstanceName, @Nullable UUID entityId, @Nullable String stringEntityId,
+                   @Nullable Integer intEntityId, @Nullable Long longEntityId, @Nullable String changes) {
+            this.id = id;
+            this.createTs = createTs;
+            this.createdBy = createdBy;
+            this.sysTenantId = sysTenantId;
+            this.eventTs = eventTs;
+            this.userId = userId;
+            this.type = type;
+            this.entity = entity;
+            this.entityInstanceName = entityInstanceName;
+            this.entityId = entityId;
+            this.stringEntityId = stringEntityId;
+            this.intEntityId = intEntityId;
+            this.longEntityId = longEntityId;
+            this.changes = changes;
+        }
+
+        protected Object[] getParams(DbTypeConverter converter) {
+            return new Object[]{
+                    converter.getSqlObject(id),
+                    converter.getSqlObject(createTs),
+                    createdBy,
+                    sysTenantId,
+                    eventTs != null ? converter.getSqlObject(eventTs) : null,
+                    userId != null ? converter.getSqlObject(userId) : null,
+                    type,
+                    entity,
+                    entityInstanceName,
+                    entityId != null ? converter.getSqlObject(entityId) : null,
+                    stringEntityId,
+                    intEntityId,
+                    longEntityId,
+                    changes
+            };
+        }
+
+        protected void write(DataOutput out) throws IOException {
+            out.writeBoolean(true);
+            writeUuid(out, id);
+            writeDate(out, createTs);
+            writeString(out, createdBy);
+            writeString(out, sysTenantId);
+            writeDate(out, eventTs);
+            writeUuid(out, userId);
+            writeString(out, type);
+            writeString(out, entity);
+            writeString(out, entityInstanceName);
+            writeUuid(out, entityId);
+            writeString(out, stringEntityId);
+            out.writeBoolean(intEntityId != null);
+            if (intEntityId != null)
+                out.writeInt(intEntityId);
+            out.writeBoolean(longEntityId != null);
+            if (longEntityId != null)
+                out.writeLong(longEntityId);
+            writeString(out, changes);
+            out.writeLong(capturedAt);
+        }
+
+        /**
+         * @return the next row or null if the end of the stream is reached
+         */
+        @Nullable
+        protected static Row read(DataInput in) throws IOException {
+            try {
+                if (!in.readBoolean())
+                    return null;
+            } catch (EOFException e) {
+                return null;
+            }
+            Row row = new Row(readUuid(in), readDate(in), readString(in), readString(in), readDate(in),
+                    readUuid(in), readString(in), readString(in), readString(in), readUuid(in), readString(in),
+                    in.readBoolean() ? in.readInt() : null,
+                    in.readBoolean() ? in.readLong() : null,
+                    readString(in));
+            row.capturedAt = in.readLong();
+            return row;
+        }
+
+        private static void writeString(DataOutput out, @Nullable String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        @Nullable
+        private static String readString(DataInput in) throws IOException {
+            int length = in.readInt();
+            if (length < 0)
+                return null;
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private static void writeUuid(DataOutput out, @Nullable UUID value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeLong(value.getMostSignificantBits());
+                out.writeLong(value.getLeastSignificantBits());
+            }
+        }
+
+        @Nullable
+        private static UUID readUuid(DataInput in) throws IOException {
+            return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+        }
+
+        private static void writeDate(DataOutput out, @Nullable Date value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null)
+                out.writeLong(value.getTime());
+        }
+
+        @Nullable
+        private static Date readDate(DataInput in) throws IOException {
+            return in.readBoolean() ? new Date(in.readLong()) : null;
+        }
+    }
+}
@@ -17,7 +17,9 @@ package com.haulmont.cuba.security.app;
 
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.cuba.core.app.ClusterListener;
+import com.haulmont.cuba.core.app.ClusterListenerAdapter;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.cuba.core.app.ClusterMessageCodec;
 import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.global.Configuration;
 import com.haulmont.cuba.core.global.Metadata;
@@ -84,10 +86,95 @@ public class UserSessions implements UserSessionsAPI {
         }
     }
 
+    /**
+     * Last used timestamps of sessions refreshed on a cluster node. Sent instead of full {@link UserSessionInfo}
+     * when a session is just pinged.
+     */
+    public static class TouchMessage implements Serializable {
+        private static final long serialVersionUID = 3498127845160290562L;
+
+        public final Map<UUID, Long> lastUsedTs;
+
+        public TouchMessage(Map<UUID, Long> lastUsedTs) {
+            this.lastUsedTs = lastUsedTs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("TouchMessage{sessions=%s}", lastUsedTs.size());
+        }
+    }
+
+    protected static class TouchMessageCodec implements ClusterMessageCodec<TouchMessage> {
+
+        @Override
+        public void encode(TouchMessage message, DataOutput out) throws IOException {
+            out.writeInt(message.lastUsedTs.size());
+            for (Map.Entry<UUID, Long> entry : message.lastUsedTs.entrySet()) {
+                out.writeLong(entry.getKey().getMostSignificantBits());
+                out.writeLong(entry.getKey().getLeastSignificantBits());
+                out.writeLong(entry.getValue());
+            }
+        }
+
+        @Override
+        public TouchMessage decode(DataInput in) throws IOException {
+            int size = in.readInt();
+            Map<UUID, Long> lastUsedTs = new HashMap<>(size * 4 / 3 + 1);
+            for (int i = 0; i < size; i++) {
+                lastUsedTs.put(new UUID(in.readLong(), in.readLong()), in.readLong());
+            }
+            return new TouchMessage(lastUsedTs);
+        }
+    }
+
+    /**
+     * Identifiers of sessions that a cluster node received in {@link TouchMessage} but does not have, e.g. because
+     * it missed the message about session creation. Nodes having the sessions reply with full {@link UserSessionInfo}.
+     */
+    public static class SessionRequestMessage implements Serializable {
+        private static final long serialVersionUID = -2310771503316455318L;
+
+        public final Set<UUID> ids;
+
+        public SessionRequestMessage(Set<UUID> ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("SessionRequestMessage{sessions=%s}", ids.size());
+        }
+    }
+
+    protected static class SessionRequestMessageCodec implements ClusterMessageCodec<SessionRequestMessage> {
+
+        @Override
+        public void encode(SessionRequestMessage message, DataOutput out) throws IOException {
+            out.writeInt(message.ids.size());
+            for (UUID id : message.ids) {
+                out.writeLong(id.getMostSignificantBits());
+                out.writeLong(id.getLeastSignificantBits());
+            }
+        }
+
+        @Override
+        public SessionRequestMessage decode(DataInput in) throws IOException {
+            int size = in.readInt();
+            Set<UUID> ids = new HashSet<>(size * 4 / 3 + 1);
+            for (int i = 0; i < size; i++) {
+                ids.add(new UUID(in.readLong(), in.readLong()));
+            }
+            return new SessionRequestMessage(ids);
+        }
+    }
+
     private static final Logger log = LoggerFactory.getLogger(UserSessions.class);
 
     protected Map<UUID, UserSessionInfo> cache = new ConcurrentHashMap<>();
 
+    protected Map<UUID, Long> pendingTouches = new ConcurrentHashMap<>();
+
     protected volatile int expirationTimeout = 1800;
 
     protected volatile int sendTimeout = 10;
@@ -151,8 +238,40 @@ public class UserSessions implements UserSessionsAPI {
                     public void setState(byte[] state) {
                         receiveClusterState(state);
                     }
+
+                    @Override
+                    public void getState(OutputStream output) throws IOException {
+                        sendClusterState(output);
+                    }
+
+                    @Override
+                    public void setState(InputStream input) throws IOException {
+                        receiveClusterState(input);
+                    }
                 }
         );
+        this.clusterManager.addListener(
+                TouchMessage.class,
+                new ClusterListenerAdapter<TouchMessage>() {
+                    @Override
+                    public void receive(TouchMessage message) {
+                        receiveTouchMessage(message);
+                    }
+                }
+        );
+        this.clusterManager.addListener(
+                SessionRequestMessage.class,
+                new ClusterListenerAdapter<SessionRequestMessage>() {
+                    @Override
+                    public void receive(SessionRequestMessage message) {
+                        receiveSessionRequestMessage(message);
+                    }
+                }
+        );
+        this.clusterManager.registerCodec(ClusterManagerAPI.USER_SESSIONS_TOUCH_CODEC_ID,
+                TouchMessage.class, new TouchMessageCodec());
+        this.clusterManager.registerCodec(ClusterManagerAPI.USER_SESSIONS_REQUEST_CODEC_ID,
+                SessionRequestMessage.class, new SessionRequestMessageCodec());
     }
 
     protected void receiveClusterMessage(UserSessionInfo message) {
@@ -168,44 +287,90 @@ public class UserSessions implements UserSessionsAPI {
         }
     }
 
+    protected void receiveTouchMessage(TouchMessage message) {
+        Set<UUID> unknownIds = new HashSet<>();
+        for (Map.Entry<UUID, Long> entry : message.lastUsedTs.entrySet()) {
+            UserSessionInfo usi = getSessionInfo(entry.getKey());
+            if (usi == null) {
+                unknownIds.add(entry.getKey());
+            } else if (usi.lastUsedTs < entry.getValue()) {
+                usi.lastUsedTs = entry.getValue();
+                putSessionInfo(entry.getKey(), usi);
+            }
+        }
+        if (!unknownIds.isEmpty()) {
+            log.debug("Requesting {} unknown touched sessions from cluster", unknownIds.size());
+            clusterManager.send(new SessionRequestMessage(unknownIds));
+        }
+    }
+
+    protected void receiveSessionRequestMessage(SessionRequestMessage message) {
+        for (UUID id : message.ids) {
+            UserSessionInfo usi = getSessionInfo(id);
+            if (usi != null && !usi.session.isSystem()) {
+                log.debug("Sending session requested by cluster: {}", usi);
+                clusterManager.send(usi);
+            }
+        }
+    }
+
     protected void receiveClusterState(byte[] state) {
         if (state == null || state.length == 0) {
             log.debug("Received empty user sessions cache");
             return;
         }
 
-        ByteArrayInputStream bis = new ByteArrayInputStream(state);
         try {
-            ObjectInputStream ois = new ObjectInputStream(bis);
+            receiveClusterState(new ByteArrayInputStream(state));
+        } catch (IOException e) {
+            log.error("Error receiving state", e);
+        }
+    }
+
+    protected void receiveClusterState(InputStream input) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(input);
+        int firstByte = in.read();
+        if (firstByte == -1) {
+            log.debug("Received empty user sessions cache");
+            return;
+        }
+        in.unread(firstByte);
+
+        try {
+            ObjectInputStream ois = new ObjectInputStream(in);
             int size = ois.readInt();
             for (int i = 0; i < size; i++) {
                 UserSessionInfo usi = (UserSessionInfo) ois.readObject();
                 receiveClusterMessage(usi);
             }
-            log.debug("Received user sessions cache: {} sessions, {} bytes. Cache now contains {} sessions", size, state.length, cache.size());
-        } catch (IOException | ClassNotFoundException e) {
+            log.debug("Received user sessions cache: {} sessions. Cache now contains {} sessions", size, cache.size());
+        } catch (ClassNotFoundException e) {
             log.error("Error receiving state", e);
         }
     }
 
     protected byte[] sendClusterState() {
-        List<UserSessionInfo> infoList = getSessionInfoStream().collect(Collectors.toList());
-        if (infoList.isEmpty())
-            return new byte[0];
-
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         try {
-            ObjectOutputStream oos = new ObjectOutputStream(bos);
-            oos.writeInt(infoList.size());
-            for (UserSessionInfo usi : infoList) {
-                oos.writeObject(usi);
-            }
+            sendClusterState(bos);
         } catch (IOException e) {
             throw new RuntimeException("Error sending state", e);
         }
-        byte[] bytes = bos.toByteArray();
-        log.debug("Sending user sessions cache to cluster: {} sessions, {} bytes", infoList.size(), bytes.length);
-        return bytes;
+        return bos.toByteArray();
+    }
+
+    protected void sendClusterState(OutputStream output) throws IOException {
+        List<UserSessionInfo> infoList = getSessionInfoStream().collect(Collectors.toList());
+        if (infoList.isEmpty())
+            return;
+
+        ObjectOutputStream oos = new ObjectOutputStream(output);
+        oos.writeInt(infoList.size());
+        for (UserSessionInfo usi : infoList) {
+            oos.writeObject(usi);
+        }
+        oos.flush();
+        log.debug("Sending user sessions cache to cluster: {} sessions", infoList.size());
     }
 
     @Override
@@ -225,6 +390,7 @@ public class UserSessions implements UserSessionsAPI {
         UserSessionInfo usi = removeSessionInfo(session.getId());
         if (usi != null) {
             log.debug("Removed session: {}", usi);
+            pendingTouches.remove(session.getId());
             if (!session.isSystem()) {
                 usi.lastUsedTs = 0;
                 clusterManager.send(usi);
@@ -292,7 +458,11 @@ public class UserSessions implements UserSessionsAPI {
                 if (propagate && !usi.session.isSystem()) {
                     if (now > (usi.lastSentTs + toMillis(sendTimeout))) {
                         usi.lastSentTs = now;
-                        clusterManager.send(usi);
+                        if (serverConfig.getUserSessionTouchMessages()) {
+                            pendingTouches.put(id, usi.lastUsedTs);
+                        } else {
+                            clusterManager.send(usi);
+                        }
                     }
                 }
             }
@@ -309,10 +479,29 @@ public class UserSessions implements UserSessionsAPI {
             usi.lastUsedTs = now;
             usi.lastSentTs = now;
             putSessionInfo(id, usi);
+            pendingTouches.remove(id);
             clusterManager.send(usi);
         }
     }
 
+    @Override
+    public void sendTouches() {
+        if (!AppContext.isStarted() || pendingTouches.isEmpty())
+            return;
+
+        Map<UUID, Long> touches = new HashMap<>();
+        for (UUID id : pendingTouches.keySet()) {
+            Long lastUsedTs = pendingTouches.remove(id);
+            if (lastUsedTs != null) {
+                touches.put(id, lastUsedTs);
+            }
+        }
+        if (!touches.isEmpty()) {
+            log.trace("Sending {} touched sessions to cluster", touches.size());
+            clusterManager.send(new TouchMessage(touches));
+        }
+    }
+
     @Override
     public int getExpirationTimeoutSec() {
         return expirationTimeout;
@@ -371,6 +560,7 @@ public class UserSessions implements UserSessionsAPI {
 
         if (usi != null) {
             log.debug("Killed session: {}", usi);
+            pendingTouches.remove(id);
 
             usi.lastUsedTs = 0;
             clusterManager.send(usi);
@@ -406,6 +596,7 @@ public class UserSessions implements UserSessionsAPI {
                     userSessionLog.updateSessionLogRecord(usi.getSession(), SessionAction.EXPIRATION);
 
                     removeSessionInfo(usi.session.getId());
+                    pendingTouches.remove(usi.session.getId());
 
                     usi.lastUsedTs = 0;
                     clusterManager.send(usi);
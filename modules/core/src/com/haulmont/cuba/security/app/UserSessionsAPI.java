@@ -184,4 +184,11 @@ public interface UserSessionsAPI extends UserSessionFinder {
      * Evict timed out sessions from the cache.
      */
     void processEviction();
+
+    /**
+     * INTERNAL.
+     *
+     * Send last used timestamps of sessions refreshed since the previous invocation to the cluster in a single message.
+     */
+    void sendTouches();
 }
\ No newline at end of file
@@ -36,4 +36,34 @@ public interface EntityLogMBean {
      * The configuration will be recreated from the database on next lifecycle event.
      */
     void invalidateCache();
+
+    /**
+     * @return number of records waiting in the asynchronous writer queue
+     */
+    int getAsyncQueueSize();
+
+    /**
+     * @return milliseconds elapsed since the oldest record in the asynchronous writer queue was captured
+     */
+    long getAsyncLag();
+
+    /**
+     * @return milliseconds between capturing and saving the first record of the last batch saved asynchronously
+     */
+    long getAsyncLastBatchLag();
+
+    /**
+     * @return number of records saved by the asynchronous writer
+     */
+    long getAsyncWrittenCount();
+
+    /**
+     * @return number of records written to the spool file because the queue was full or the database was unavailable
+     */
+    long getAsyncSpooledCount();
+
+    /**
+     * @return number of records lost because they could not be written to the spool file
+     */
+    long getAsyncDroppedCount();
 }
@@ -17,17 +17,27 @@
 package com.haulmont.cuba.core;
 
 import com.haulmont.chile.core.model.utils.InstanceUtils;
+import com.haulmont.cuba.core.global.MetadataTools;
 import com.haulmont.cuba.core.entity.Server;
 import com.haulmont.cuba.security.entity.Role;
 import com.haulmont.cuba.security.entity.User;
 import com.haulmont.cuba.testsupport.TestContainer;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @SuppressWarnings("IncorrectCreateEntity")
 public class NamePatternTest {
+
+    private static final Logger log = LoggerFactory.getLogger(NamePatternTest.class);
+
     @RegisterExtension
     public static TestContainer cont = TestContainer.Common.INSTANCE;
 
@@ -64,4 +74,32 @@ public class NamePatternTest {
         assertEquals("System Administrator [systemAdmin]", instanceName);
         assertEquals("System Administrator [systemAdmin]", InstanceUtils.getInstanceName(user));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void instanceNamesOfManyEntities() {
+        MetadataTools metadataTools = cont.metadata().getTools();
+        List<Role> roles = new ArrayList<>();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            Role role = new Role();
+            role.setLocName("Role " + i);
+            role.setName("role" + i);
+            roles.add(role);
+
+            User user = new User();
+            user.setName("User " + i);
+            user.setLogin("user" + i);
+            users.add(user);
+        }
+
+        metadataTools.clearInstanceNameRenderers();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < roles.size(); i++) {
+            assertEquals("Role " + i + " [role" + i + "]", metadataTools.getInstanceName(roles.get(i)));
+            assertEquals("User " + i + " [user" + i + "]", metadataTools.getInstanceName(users.get(i)));
+        }
+        log.info("Instance names of {} entities calculated in {} ms",
+                roles.size() + users.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+}
@@ -18,7 +18,9 @@ package com.haulmont.cuba.core;
 
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
+import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.TransformedQueryCache;
 import com.haulmont.cuba.security.ConstraintTest;
 import com.haulmont.cuba.security.entity.*;
 import com.haulmont.cuba.testsupport.TestContainer;
@@ -369,6 +371,29 @@ public class QueryTest {
 
     }
 
+    @Test
+    public void testCachedTransformation() throws Exception {
+        TransformedQueryCache transformedQueryCache = AppBeans.get(TransformedQueryCache.class);
+        long hitCount = transformedQueryCache.getHitCount();
+
+        for (int i = 0; i < 2; i++) {
+            try (Transaction tx = cont.persistence().createTransaction()) {
+                TypedQuery<User> query = cont.persistence().getEntityManager().createQuery(
+                        "select u from sec$User u where u.name like :name and (u.id in :ids or u.login = :login)", User.class);
+                query.setParameter("name", "(?i)%USER%");
+                query.setParameter("ids", Collections.emptyList());
+                query.setParameter("login", "testLogin2");
+                List<User> list = query.getResultList();
+                tx.commit();
+
+                assertEquals(1, list.size());
+                assertEquals(user2Id, list.get(0).getId());
+            }
+        }
+
+        assertTrue(transformedQueryCache.getHitCount() > hitCount);
+    }
+
     @Test
     public void testListParameter() throws Exception {
         try (Transaction tx = cont.persistence().createTransaction()) {
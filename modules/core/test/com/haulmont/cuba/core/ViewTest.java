@@ -22,6 +22,9 @@ import com.haulmont.bali.db.QueryRunner;
 import com.haulmont.bali.db.ResultSetHandler;
 import com.haulmont.cuba.core.entity.EntitySnapshot;
 import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.sys.AbstractViewRepository;
+import com.haulmont.cuba.core.sys.FetchGroupDescription;
+import com.haulmont.cuba.core.sys.FetchGroupManager;
 import com.haulmont.cuba.security.entity.*;
 import com.haulmont.cuba.testmodel.multiplelinks.LinkEntity;
 import com.haulmont.cuba.testmodel.multiplelinks.MultiLinkEntity;
@@ -302,7 +305,7 @@ public class ViewTest {
             long ts = timeSource.currentTimeMillis();
             Thread.sleep(1000);
 
-            View minimalView = cont.metadata().getViewRepository().getView(User.class, View.MINIMAL);
+            View minimalView = cont.metadata().getViewRepository().getView(User.class, View.MINIMAL).mutable();
             minimalView.setLoadPartialEntities(true);
 
             EntityManager em = cont.persistence().getEntityManager();
@@ -452,7 +455,7 @@ public class ViewTest {
     @Test
     public void testViewCopy() throws Exception {
         ViewRepository viewRepository = cont.metadata().getViewRepository();
-        View view = viewRepository.getView(User.class, View.LOCAL);
+        View view = viewRepository.getView(User.class, View.LOCAL).mutable();
         view.addProperty("group", viewRepository.getView(Group.class, View.MINIMAL));
 
         assertNotNull(view.getProperty("group"));
@@ -555,4 +558,80 @@ public class ViewTest {
             tx.end();
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFetchGroupCache() throws Exception {
+        FetchGroupManager fetchGroupManager = AppBeans.get(FetchGroupManager.class);
+        fetchGroupManager.invalidateCache();
+        long hitCount = fetchGroupManager.getCacheStats().hitCount();
+        String queryString = "select u from sec$User u where u.id = :id";
+
+        FetchGroupDescription description1 = fetchGroupManager.getFetchGroup(queryString,
+                metadata.getViewRepository().getView(User.class, "user.edit"), true, true);
+        FetchGroupDescription description2 = fetchGroupManager.getFetchGroup(queryString,
+                metadata.getViewRepository().getView(User.class, "user.edit"), true, true);
+
+        assertSame(description1, description2);
+        assertEquals(hitCount + 1, fetchGroupManager.getCacheStats().hitCount());
+
+        View view = new View(User.class)
+                .addProperty("login")
+                .addProperty("group", new View(Group.class).addProperty("name"), FetchMode.BATCH);
+        View sameView = new View(User.class)
+                .addProperty("login")
+                .addProperty("group", new View(Group.class).addProperty("name"), FetchMode.BATCH);
+        View joinView = new View(User.class)
+                .addProperty("login")
+                .addProperty("group", new View(Group.class).addProperty("name"), FetchMode.JOIN);
+
+        assertSame(fetchGroupManager.getFetchGroup(queryString, view, false, true),
+                fetchGroupManager.getFetchGroup(queryString, sameView, false, true));
+        assertNotSame(fetchGroupManager.getFetchGroup(queryString, view, false, true),
+                fetchGroupManager.getFetchGroup(queryString, joinView, false, true));
+        assertNotSame(fetchGroupManager.getFetchGroup(queryString, view, false, true),
+                fetchGroupManager.getFetchGroup(queryString, view, true, true));
+        assertEquals(fetchGroupManager.calculateFetchGroup(queryString, joinView, false, true).getHints(),
+                fetchGroupManager.getFetchGroup(queryString, joinView, false, true).getHints());
+
+        // lookup doesn't freeze the passed view, and the stored key is not affected by its later modification
+        assertFalse(view.isFrozen());
+        FetchGroupDescription description3 = fetchGroupManager.getFetchGroup(queryString, view, false, true);
+        view.addProperty("name");
+        assertNotSame(description3, fetchGroupManager.getFetchGroup(queryString, view, false, true));
+        assertSame(description3, fetchGroupManager.getFetchGroup(queryString, sameView, false, true));
+
+        ((AbstractViewRepository) metadata.getViewRepository()).reset();
+        assertEquals(0, fetchGroupManager.getCacheSize());
+    }
+
+    @Test
+    public void testFrozenView() throws Exception {
+        ViewRepository viewRepository = cont.metadata().getViewRepository();
+        View view = viewRepository.getView(User.class, "user.edit");
+
+        assertSame(view, viewRepository.getView(User.class, "user.edit"));
+        assertTrue(view.isFrozen());
+        assertTrue(view.getProperty("group").getView().isFrozen());
+        assertFail(() -> view.addProperty("name"));
+        assertFail(() -> view.setLoadPartialEntities(true));
+
+        View copy = view.mutable();
+        assertNotSame(view, copy);
+        assertTrue(copy.contentEquals(view));
+        assertEquals(view.getContentHash(), copy.getContentHash());
+
+        copy.setLoadPartialEntities(true);
+        assertFalse(view.loadPartialEntities());
+        assertFalse(copy.contentEquals(view));
+        assertSame(view.getProperty("group").getView(), copy.getProperty("group").getView());
+
+        View deserialized = reserialize(view);
+        assertFalse(deserialized.isFrozen());
+        assertTrue(deserialized.contentEquals(view));
+        deserialized.addProperty("name");
+
+        View sameContent = View.copy(view);
+        assertTrue(sameContent.contentEquals(view));
+        assertEquals(view.getContentHash(), sameContent.freeze().getContentHash());
+    }
+}
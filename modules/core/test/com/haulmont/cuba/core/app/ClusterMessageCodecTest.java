@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClusterMessageCodecTest {
+
+    @RegisterExtension
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    @Test
+    public void testEncodeDecode() throws Exception {
+        ClusterManager clusterManager = createClusterManager(true);
+        clusterManager.registerCodec(1000, TestMessage.class, new TestMessageCodec());
+
+        TestMessage message = new TestMessage(UUID.randomUUID(), 42);
+        byte[] bytes = clusterManager.encode(message);
+
+        TestMessage decoded = (TestMessage) clusterManager.decode(bytes);
+        assertEquals(message.id, decoded.id);
+        assertEquals(message.value, decoded.value);
+
+        ClusterManager standardManager = createClusterManager(true);
+        assertTrue(bytes.length < standardManager.encode(message).length);
+    }
+
+    @Test
+    public void testMessageWithoutCodec() throws Exception {
+        ClusterManager clusterManager = createClusterManager(true);
+        clusterManager.registerCodec(1000, TestMessage.class, new TestMessageCodec());
+
+        Serializable decoded = clusterManager.decode(clusterManager.encode("test"));
+        assertEquals("test", decoded);
+    }
+
+    @Test
+    public void testCodecsDisabled() throws Exception {
+        ClusterManager clusterManager = createClusterManager(false);
+        clusterManager.registerCodec(1000, TestMessage.class, new TestMessageCodec());
+
+        TestMessage message = new TestMessage(UUID.randomUUID(), 42);
+        byte[] bytes = clusterManager.encode(message);
+
+        // readable by a node without the codec
+        TestMessage decoded = (TestMessage) createClusterManager(false).decode(bytes);
+        assertEquals(message.id, decoded.id);
+        assertEquals(message.value, decoded.value);
+    }
+
+    @Test
+    public void testDuplicateTypeId() {
+        ClusterManager clusterManager = createClusterManager(true);
+        clusterManager.registerCodec(1000, TestMessage.class, new TestMessageCodec());
+
+        assertThrows(IllegalStateException.class, () ->
+                clusterManager.registerCodec(1000, String.class, ClusterMessageCodec.empty(String::new)));
+    }
+
+    private ClusterManager createClusterManager(boolean codecs) {
+        ClusterManager clusterManager = new ClusterManager();
+        clusterManager.clusterConfig = (ClusterConfig) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{ClusterConfig.class},
+                (proxy, method, args) -> "getMessageCodecs".equals(method.getName()) ? codecs : null);
+        return clusterManager;
+    }
+
+    @Test
+    public void testSavedBytesStat() {
+        ClusterManager.MessageStat stat = new ClusterManager.MessageStat();
+        for (int i = 0; i < 1000; i++) {
+            if (stat.isSavedBytesSampleRequired()) {
+                stat.updateSavedBytes(100);
+            }
+        }
+        assertEquals(100 * 1000, stat.getSavedBytes());
+    }
+
+    public static class TestMessage implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final UUID id;
+        private final int value;
+
+        public TestMessage(UUID id, int value) {
+            this.id = id;
+            this.value = value;
+        }
+    }
+
+    public static class TestMessageCodec implements ClusterMessageCodec<TestMessage> {
+
+        @Override
+        public void encode(TestMessage message, DataOutput out) throws IOException {
+            out.writeLong(message.id.getMostSignificantBits());
+            out.writeLong(message.id.getLeastSignificantBits());
+            out.writeInt(message.value);
+        }
+
+        @Override
+        public TestMessage decode(DataInput in) throws IOException {
+            return new TestMessage(new UUID(in.readLong(), in.readLong()), in.readInt());
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.lang.reflect.Proxy;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClusterStateTransferTest {
+
+    @Test
+    public void testStreamingState() {
+        testStateTransfer(false);
+    }
+
+    @Test
+    public void testCompressedStreamingState() {
+        testStateTransfer(true);
+    }
+
+    @Test
+    public void testLegacyState() throws Exception {
+        byte[] state = createState(100_000);
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bos)) {
+            out.writeUTF(ClusterManager.STATE_MAGIC);
+            out.writeInt(1);
+            out.writeUTF("bytes");
+            out.writeInt(state.length);
+            out.write(state);
+        }
+
+        ClusterManager receiver = createClusterManager(false);
+        BytesListener listener = new BytesListener(null);
+        receiver.listeners.put("bytes", listener);
+        receiver.new ClusterReceiver().setState(new ByteArrayInputStream(bos.toByteArray()));
+
+        assertArrayEquals(state, listener.received);
+    }
+
+    @Test
+    public void testLegacyStateSentIfStreamingDisabled() throws Exception {
+        byte[] state = createState(100_000);
+
+        ClusterManager sender = createClusterManager(false, false);
+        sender.listeners.put("bytes", new BytesListener(state));
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        sender.new ClusterReceiver().getState(bos);
+
+        assertEquals(ClusterManager.STATE_MAGIC,
+                new DataInputStream(new ByteArrayInputStream(bos.toByteArray())).readUTF());
+
+        ClusterManager receiver = createClusterManager(false);
+        BytesListener listener = new BytesListener(null);
+        receiver.listeners.put("bytes", listener);
+        receiver.new ClusterReceiver().setState(new ByteArrayInputStream(bos.toByteArray()));
+
+        assertArrayEquals(state, listener.received);
+    }
+
+    @Test
+    public void testEmptyState() {
+        ClusterManager receiver = createClusterManager(false);
+        BytesListener listener = new BytesListener(null);
+        receiver.listeners.put("bytes", listener);
+        receiver.new ClusterReceiver().setState(new ByteArrayInputStream(new byte[0]));
+
+        assertNull(listener.received);
+    }
+
+    private void testStateTransfer(boolean compress) {
+        byte[] bytesState = createState(100_000);
+        byte[] streamState = createState(1_000_000);
+
+        ClusterManager sender = createClusterManager(compress);
+        sender.listeners.put("bytes", new BytesListener(bytesState));
+        sender.listeners.put("empty", new BytesListener(new byte[0]));
+        sender.listeners.put("stream", new StreamListener(streamState));
+        sender.listeners.put("failing", new StreamListener(null));
+        sender.listeners.put("ioFailing", new IoFailingListener());
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        sender.new ClusterReceiver().getState(bos);
+
+        ClusterManager receiver = createClusterManager(false);
+        BytesListener bytesListener = new BytesListener(null);
+        BytesListener emptyListener = new BytesListener(null);
+        StreamListener streamListener = new StreamListener(null);
+        receiver.listeners.put("bytes", bytesListener);
+        receiver.listeners.put("empty", emptyListener);
+        receiver.listeners.put("stream", streamListener);
+        receiver.new ClusterReceiver().setState(new ByteArrayInputStream(bos.toByteArray()));
+
+        assertArrayEquals(bytesState, bytesListener.received);
+        assertNull(emptyListener.received);
+        assertArrayEquals(streamState, streamListener.received);
+    }
+
+    private ClusterManager createClusterManager(boolean compress) {
+        return createClusterManager(true, compress);
+    }
+
+    private ClusterManager createClusterManager(boolean streaming, boolean compress) {
+        ClusterManager clusterManager = new ClusterManager();
+        clusterManager.clusterConfig = (ClusterConfig) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{ClusterConfig.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getStateStreaming":
+                            return streaming;
+                        case "getStateCompression":
+                            return compress;
+                        default:
+                            return null;
+                    }
+                });
+        return clusterManager;
+    }
+
+    private byte[] createState(int size) {
+        byte[] state = new byte[size];
+        Random random = new Random(size);
+        // half random, half repeated to make compression noticeable
+        random.nextBytes(state);
+        for (int i = size / 2; i < size; i++) {
+            state[i] = (byte) (i % 16);
+        }
+        return state;
+    }
+
+    private static class BytesListener extends ClusterListenerAdapter<Serializable> {
+
+        private final byte[] state;
+        private byte[] received;
+
+        private BytesListener(byte[] state) {
+            this.state = state;
+        }
+
+        @Override
+        public void receive(Serializable message) {
+        }
+
+        @Override
+        public byte[] getState() {
+            return state;
+        }
+
+        @Override
+        public void setState(byte[] state) {
+            received = state;
+        }
+    }
+
+    private static class StreamListener extends BytesListener {
+
+        private final byte[] state;
+
+        private StreamListener(byte[] state) {
+            super(null);
+            this.state = state;
+        }
+
+        @Override
+        public void getState(OutputStream output) throws IOException {
+            if (state == null) {
+                output.write(new byte[100]);
+                throw new IllegalStateException("State is not available");
+            }
+            // write in small portions to check chunking
+            for (int i = 0; i < state.length; i += 1000) {
+                output.write(state, i, Math.min(1000, state.length - i));
+            }
+        }
+
+        @Override
+        public void setState(InputStream input) throws IOException {
+            DataInputStream in = new DataInputStream(input);
+            byte[] data = new byte[1_000_000];
+            in.readFully(data);
+            super.received = data;
+        }
+    }
+
+    private static class IoFailingListener extends BytesListener {
+
+        private IoFailingListener() {
+            super(null);
+        }
+
+        @Override
+        public void getState(OutputStream output) throws IOException {
+            output.write(new byte[10_000]);
+            throw new IOException("State is not available");
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.global;
+
+import com.haulmont.cuba.core.sys.jpql.DomainModel;
+import com.haulmont.cuba.core.sys.jpql.QueryTree;
+import com.haulmont.cuba.core.sys.jpql.TreeToQuery;
+import com.haulmont.cuba.core.sys.jpql.model.EntityBuilder;
+import com.haulmont.cuba.core.sys.jpql.model.JpqlEntityModel;
+import com.haulmont.cuba.core.sys.jpql.transform.QueryTransformerAstBased;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class QueryTreeCopyTest {
+
+    @Test
+    public void copyProducesSameQuery() {
+        DomainModel model = prepareDomainModel();
+        String query = "select p from Player p join p.team t where p.name = :name and t.name in (:teams) order by p.name";
+
+        QueryTree tree = new QueryTree(model, query);
+        QueryTree copy = tree.copy();
+
+        assertEquals(toQuery(tree), toQuery(copy));
+        assertEquals("p", copy.getVariableNameByEntity("Player"));
+    }
+
+    @Test
+    public void transformingCopyDoesNotChangeOriginal() {
+        DomainModel model = prepareDomainModel();
+        String query = "select p from Player p where p.name = :name";
+
+        QueryTree tree = new QueryTree(model, query);
+        String original = toQuery(tree);
+        QueryTree copy = tree.copy();
+
+        QueryTransformerAstBased transformer = new QueryTransformerAstBased(model, query) {
+            {
+                queryTree = copy;
+            }
+        };
+        transformer.addWhere("{E}.team.name = :teamName");
+
+        assertEquals("select p from Player p where (p.name = :name) and (p.team.name = :teamName)",
+                transformer.getResult());
+        assertEquals(original, toQuery(tree));
+    }
+
+    @Test
+    public void parserSelectedExpressionsDoNotChangeTree() {
+        DomainModel model = prepareDomainModel();
+        String query = "select p.name, p.team from Player p";
+
+        QueryTree tree = new QueryTree(model, query);
+        String original = toQuery(tree);
+
+        QueryParserAstBased parser = new QueryParserAstBased(model, query) {
+            {
+                queryTree = tree;
+            }
+        };
+        assertEquals(2, parser.getSelectedExpressionsList().size());
+        assertEquals(original, toQuery(tree));
+    }
+
+    private String toQuery(QueryTree tree) {
+        return tree.visit(new TreeToQuery()).getQueryString().trim();
+    }
+
+    private DomainModel prepareDomainModel() {
+        EntityBuilder builder = new EntityBuilder();
+        JpqlEntityModel teamEntity = builder.produceImmediately("Team", "name");
+        builder.startNewEntity("Player");
+        builder.addStringAttribute("name");
+        builder.addReferenceAttribute("team", "Team");
+        JpqlEntityModel playerEntity = builder.produce();
+        return new DomainModel(playerEntity, teamEntity);
+    }
+}
@@ -18,22 +18,43 @@
 package com.haulmont.cuba.core.sys;
 
 import com.haulmont.cuba.core.entity.BaseEntityInternalAccess;
+import com.haulmont.cuba.core.entity.SecurityState;
 import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.security.entity.User;
 import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.crypto.Cipher;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
 public class SecurityTokenManagerTest {
 
+    private static final Logger log = LoggerFactory.getLogger(SecurityTokenManagerTest.class);
+
     @RegisterExtension
     public static TestContainer testContainer = TestContainer.Common.INSTANCE;
 
+    @BeforeEach
+    public void setUp() {
+        AppContext.setProperty("cuba.securityToken.binaryFormat", "true");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        AppContext.setProperty("cuba.securityToken.binaryFormat", null);
+    }
+
     @Test
     @Disabled
     public void testSecurityToken() throws Exception {
@@ -58,4 +79,96 @@ public class SecurityTokenManagerTest {
         Assertions.assertEquals(id3, userRoles.get(2));
         Assertions.assertEquals(id4, userRoles.get(3));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testBinarySecurityToken() {
+        SecurityTokenManager securityTokenManager = AppBeans.get(SecurityTokenManager.class);
+        User user = createUserWithFilteredData(securityTokenManager);
+        List<Object> ids = new ArrayList<>(BaseEntityInternalAccess.getFilteredData(user).get("userRoles"));
+
+        securityTokenManager.writeSecurityToken(user);
+        byte[] token = BaseEntityInternalAccess.getSecurityToken(user);
+        BaseEntityInternalAccess.setFilteredData(BaseEntityInternalAccess.getSecurityState(user), null);
+
+        securityTokenManager.readSecurityToken(user);
+
+        Assertions.assertArrayEquals(token, BaseEntityInternalAccess.getSecurityToken(user));
+        Assertions.assertEquals(ids, new ArrayList<>(BaseEntityInternalAccess.getFilteredData(user).get("userRoles")));
+        Assertions.assertEquals(Arrays.asList("login", "name"),
+                BaseEntityInternalAccess.getSecurityState(user).getReadonlyAttributes());
+    }
+
+    @Test
+    public void testJsonSecurityTokenByDefault() throws Exception {
+        AppContext.setProperty("cuba.securityToken.binaryFormat", null);
+        SecurityTokenManager securityTokenManager = AppBeans.get(SecurityTokenManager.class);
+        User user = createUserWithFilteredData(securityTokenManager);
+        List<Object> ids = new ArrayList<>(BaseEntityInternalAccess.getFilteredData(user).get("userRoles"));
+
+        securityTokenManager.writeSecurityToken(user);
+        byte[] token = BaseEntityInternalAccess.getSecurityToken(user);
+        String json = new String(securityTokenManager.getCipher(Cipher.DECRYPT_MODE).doFinal(token), StandardCharsets.UTF_8);
+        Assertions.assertTrue(json.startsWith("{"));
+
+        BaseEntityInternalAccess.setFilteredData(BaseEntityInternalAccess.getSecurityState(user), null);
+        securityTokenManager.readSecurityToken(user);
+
+        Assertions.assertEquals(ids, new ArrayList<>(BaseEntityInternalAccess.getFilteredData(user).get("userRoles")));
+    }
+
+    @Test
+    public void testJsonSecurityTokenIsAccepted() throws Exception {
+        SecurityTokenManager securityTokenManager = AppBeans.get(SecurityTokenManager.class);
+        User user = createUserWithFilteredData(securityTokenManager);
+        SecurityState securityState = BaseEntityInternalAccess.getSecurityState(user);
+        List<Object> ids = new ArrayList<>(BaseEntityInternalAccess.getFilteredData(user).get("userRoles"));
+
+        byte[] json = securityTokenManager.createJsonToken(user, securityState).getBytes(StandardCharsets.UTF_8);
+        BaseEntityInternalAccess.setSecurityToken(securityState, securityTokenManager.getCipher(Cipher.ENCRYPT_MODE).doFinal(json));
+        BaseEntityInternalAccess.setFilteredData(securityState, null);
+
+        securityTokenManager.readSecurityToken(user);
+
+        Assertions.assertEquals(ids, new ArrayList<>(BaseEntityInternalAccess.getFilteredData(user).get("userRoles")));
+        Assertions.assertEquals(Arrays.asList("login", "name"), securityState.getReadonlyAttributes());
+    }
+
+    @Test
+    public void testSecurityTokenFormats() throws Exception {
+        SecurityTokenManager securityTokenManager = AppBeans.get(SecurityTokenManager.class);
+        User user = createUserWithFilteredData(securityTokenManager);
+        SecurityState securityState = BaseEntityInternalAccess.getSecurityState(user);
+        int count = 10_000;
+
+        long start = System.nanoTime();
+        byte[] jsonToken = null;
+        for (int i = 0; i < count; i++) {
+            byte[] json = securityTokenManager.createJsonToken(user, securityState).getBytes(StandardCharsets.UTF_8);
+            jsonToken = securityTokenManager.getCipher(Cipher.ENCRYPT_MODE).doFinal(json);
+        }
+        long jsonTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            securityTokenManager.writeSecurityToken(user);
+            securityTokenManager.readSecurityToken(user);
+        }
+        long binaryTime = System.nanoTime() - start;
+
+        byte[] binaryToken = BaseEntityInternalAccess.getSecurityToken(user);
+        log.info("{} tokens: JSON with new cipher {} ms, {} bytes; binary with cached cipher, written and read {} ms, {} bytes",
+                count, jsonTime / 1_000_000, jsonToken.length, binaryTime / 1_000_000, binaryToken.length);
+
+        Assertions.assertTrue(binaryToken.length < jsonToken.length);
+    }
+
+    private User createUserWithFilteredData(SecurityTokenManager securityTokenManager) {
+        User user = new User();
+        for (int i = 0; i < 4; i++) {
+            securityTokenManager.addFiltered(user, "userRoles", UUID.randomUUID());
+        }
+        BaseEntityInternalAccess.setReadonlyAttributes(BaseEntityInternalAccess.getSecurityState(user),
+                new String[]{"login", "name"});
+        return user;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.entitycache;
+
+import com.google.common.collect.ImmutableSet;
+import com.haulmont.cuba.core.sys.entitycache.EntityCacheConnection.BatchMessage;
+import com.haulmont.cuba.core.sys.entitycache.EntityCacheConnection.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityCacheBatchSenderTest {
+
+    private ScheduledExecutorService executor;
+
+    private List<Serializable> sent;
+
+    @BeforeEach
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        sent = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void commandsAreCoalesced() {
+        EntityCacheBatchSender sender = new EntityCacheBatchSender(sent::add, executor, 60_000, 100);
+
+        sender.add("c1", ImmutableSet.of("sec$User"));
+        sender.add("c2", ImmutableSet.of("sec$Group"));
+        sender.add("c3", null);
+        assertTrue(sent.isEmpty());
+
+        sender.flush();
+
+        assertEquals(1, sent.size());
+        BatchMessage batch = (BatchMessage) sent.get(0);
+        assertEquals(Arrays.asList("c1", "c2", "c3"), batch.getCommands());
+        assertEquals(ImmutableSet.of("sec$User", "sec$Group"), batch.getTypeNames());
+
+        sender.flush();
+        assertEquals(1, sent.size());
+    }
+
+    @Test
+    public void fullBatchIsSentImmediately() {
+        EntityCacheBatchSender sender = new EntityCacheBatchSender(sent::add, executor, 60_000, 2);
+
+        sender.add("c1", null);
+        assertTrue(sent.isEmpty());
+        sender.add("c2", null);
+        sender.add("c3", null);
+
+        assertEquals(1, sent.size());
+        assertEquals(Arrays.asList("c1", "c2"), ((BatchMessage) sent.get(0)).getCommands());
+
+        sender.flush();
+        assertEquals(2, sent.size());
+        assertEquals(Collections.singletonList("c3"), ((BatchMessage) sent.get(1)).getCommands());
+    }
+
+    @Test
+    public void batchIsSentByTimer() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        EntityCacheBatchSender sender = new EntityCacheBatchSender(message -> {
+            sent.add(message);
+            latch.countDown();
+        }, executor, 50, 100);
+
+        sender.add("c1", null);
+        sender.add("c2", null);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, sent.size());
+        assertEquals(Arrays.asList("c1", "c2"), ((BatchMessage) sent.get(0)).getCommands());
+    }
+
+    @Test
+    public void pendingBatchIsSentBeforeSyncMessage() {
+        EntityCacheBatchSender sender = new EntityCacheBatchSender(sent::add, executor, 60_000, 100);
+
+        sender.add("c1", null);
+        Message message = new Message("c2");
+        sender.sendNow(message);
+
+        assertEquals(2, sent.size());
+        assertEquals(Collections.singletonList("c1"), ((BatchMessage) sent.get(0)).getCommands());
+        assertSame(message, sent.get(1));
+
+        sender.sendNow(message);
+        assertEquals(3, sent.size());
+        assertSame(message, sent.get(2));
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.entitycache;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StandardQueryCacheTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StandardQueryCacheTest.class);
+
+    private StandardQueryCache queryCache;
+
+    @BeforeEach
+    public void setUp() {
+        queryCache = createCache(100);
+    }
+
+    @Test
+    public void testInvalidateById() {
+        QueryKey key = createKey("select u from sec$User u", 0);
+        queryCache.put(key, createResult("sec$User"));
+
+        assertSame(key, queryCache.findQueryKeyById(key.getId()));
+        assertEquals(key, queryCache.invalidate(key.getId()));
+        assertNull(queryCache.get(key));
+        assertNull(queryCache.findQueryKeyById(key.getId()));
+        assertTrue(queryCache.typeIndex.isEmpty());
+    }
+
+    @Test
+    public void testInvalidateByType() {
+        QueryKey userKey = createKey("select u from sec$User u", 0);
+        QueryKey groupKey = createKey("select g from sec$Group g", 0);
+        queryCache.put(userKey, createResult("sec$User", "sec$Group"));
+        queryCache.put(groupKey, createResult("sec$Group"));
+
+        queryCache.invalidate("sec$User");
+
+        assertNull(queryCache.get(userKey));
+        assertNotNull(queryCache.get(groupKey));
+        assertEquals(ImmutableSet.of("sec$Group"), queryCache.typeIndex.keySet());
+        assertEquals(1, queryCache.idIndex.size());
+
+        queryCache.invalidate(Collections.singleton("sec$Group"));
+
+        assertNull(queryCache.get(groupKey));
+        assertTrue(queryCache.typeIndex.isEmpty());
+        assertTrue(queryCache.idIndex.isEmpty());
+    }
+
+    @Test
+    public void testReplaceWithEqualKey() {
+        QueryKey key1 = createKey("select u from sec$User u", 0);
+        QueryKey key2 = createKey("select u from sec$User u", 0);
+        assertEquals(key1, key2);
+
+        queryCache.put(key1, createResult("sec$User"));
+        queryCache.put(key2, createResult("sec$User"));
+
+        assertNull(queryCache.findQueryKeyById(key1.getId()));
+        assertSame(key2, queryCache.findQueryKeyById(key2.getId()));
+        assertEquals(key2.getId(), queryCache.asMap().keySet().iterator().next().getId());
+
+        queryCache.invalidate("sec$User");
+
+        assertEquals(0, queryCache.size());
+        assertTrue(queryCache.idIndex.isEmpty());
+        assertTrue(queryCache.typeIndex.isEmpty());
+    }
+
+    @Test
+    public void testPutDuringInvalidation() {
+        QueryKey key = createKey("select u from sec$User u", 0);
+
+        // an invalidation that has scanned the index before the entry was indexed
+        queryCache.beginInvalidation();
+        queryCache.put(key, createResult("sec$User"));
+        queryCache.endInvalidation();
+
+        assertNull(queryCache.get(key));
+        assertTrue(queryCache.idIndex.isEmpty());
+        assertTrue(queryCache.typeIndex.isEmpty());
+
+        queryCache.put(key, createResult("sec$User"));
+        assertNotNull(queryCache.get(key));
+    }
+
+    @Test
+    public void testIndexesCleanedOnEviction() {
+        queryCache = createCache(10);
+        for (int i = 0; i < 1000; i++) {
+            queryCache.put(createKey("select u from sec$User u", i), createResult("sec$User", "sec$Group"));
+        }
+
+        assertTrue(queryCache.size() <= 10);
+        assertEquals(queryCache.size(), queryCache.idIndex.size());
+        assertEquals(queryCache.size(), queryCache.typeIndex.get("sec$User").size());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        int maxSize = 100_000;
+        int threads = 8;
+        int operations = 50_000;
+        queryCache = createCache(maxSize);
+
+        List<QueryKey> keys = new ArrayList<>(maxSize);
+        for (int i = 0; i < maxSize; i++) {
+            QueryKey key = createKey("select u from sec$User u", i);
+            keys.add(key);
+            queryCache.put(key, createResult("sec$User"));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    Random random = new Random(thread);
+                    for (int i = 0; i < operations; i++) {
+                        QueryKey key = keys.get(random.nextInt(maxSize));
+                        switch (i % 4) {
+                            case 0:
+                                queryCache.put(createKey("select u from sec$User u", maxSize + thread * operations + i),
+                                        createResult("sec$User", "sec$Group"));
+                                break;
+                            case 1:
+                                queryCache.invalidate(key.getId());
+                                break;
+                            default:
+                                queryCache.get(key);
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            long startTime = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+            log.info("{} put/get/invalidate operations on a cache of {} entries in {} threads took {} ms",
+                    threads * operations, maxSize, threads, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(queryCache.size(), queryCache.idIndex.size());
+
+        queryCache.invalidate("sec$User");
+        assertEquals(0, queryCache.size());
+        assertTrue(queryCache.idIndex.isEmpty());
+        assertTrue(queryCache.typeIndex.isEmpty());
+    }
+
+    private StandardQueryCache createCache(int maxSize) {
+        StandardQueryCache cache = new StandardQueryCache();
+        cache.queryCacheConfig = new QueryCacheConfig() {
+            @Override
+            public boolean getQueryCacheEnabled() {
+                return true;
+            }
+
+            @Override
+            public int getQueryCacheMaxSize() {
+                return maxSize;
+            }
+        };
+        cache.init();
+        return cache;
+    }
+
+    private QueryKey createKey(String query, int param) {
+        return new QueryKey(query, 0, Integer.MAX_VALUE, true, false,
+                Collections.singletonMap("param", param), null);
+    }
+
+    private QueryResult createResult(String type, String... relatedTypes) {
+        Set<String> types = new HashSet<>(Arrays.asList(relatedTypes));
+        types.add(type);
+        return new QueryResult(Collections.emptyList(), type, types);
+    }
+}
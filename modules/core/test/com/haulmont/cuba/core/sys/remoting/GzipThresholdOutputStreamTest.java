@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GzipThresholdOutputStreamTest {
+
+    @Test
+    public void testBelowThreshold() throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        byte[] data = createData(100);
+
+        try (GzipThresholdOutputStream os = new GzipThresholdOutputStream(createResponse(headers), target, 1000)) {
+            os.write(data);
+            assertFalse(os.isCompressed());
+        }
+
+        assertNull(headers.get("Content-Encoding"));
+        assertArrayEquals(data, target.toByteArray());
+    }
+
+    @Test
+    public void testAboveThreshold() throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        byte[] data = createData(100_000);
+
+        try (GzipThresholdOutputStream os = new GzipThresholdOutputStream(createResponse(headers), target, 1000)) {
+            os.write(data, 0, 500);
+            assertFalse(os.isCompressed());
+            os.write(data, 500, data.length - 500);
+            assertTrue(os.isCompressed());
+        }
+
+        assertEquals("gzip", headers.get("Content-Encoding"));
+        assertTrue(target.size() < data.length);
+
+        ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+        try (GZIPInputStream is = new GZIPInputStream(new ByteArrayInputStream(target.toByteArray()))) {
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = is.read(buf)) > 0) {
+                uncompressed.write(buf, 0, n);
+            }
+        }
+        assertArrayEquals(data, uncompressed.toByteArray());
+    }
+
+    private byte[] createData(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) ('a' + i % 13);
+        }
+        return data;
+    }
+
+    private HttpServletResponse createResponse(Map<String, String> headers) {
+        return (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{HttpServletResponse.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("setHeader")) {
+                        headers.put((String) args[0], (String) args[1]);
+                    }
+                    return null;
+                });
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.cuba.core.app.DataService;
+import com.haulmont.cuba.core.entity.BaseEntityInternalAccess;
+import com.haulmont.cuba.core.entity.Server;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.CommitContext;
+import com.haulmont.cuba.core.global.DataManager;
+import com.haulmont.cuba.core.global.LoadContext;
+import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalServiceInvokerTest {
+
+    @RegisterExtension
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private static final Logger log = LoggerFactory.getLogger(LocalServiceInvokerTest.class);
+
+    private static final int ENTITY_COUNT = 5000;
+
+    private LocalServiceInvoker invoker;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        QueryRunner runner = new QueryRunner(cont.persistence().getDataSource());
+        runner.update("delete from SYS_SERVER");
+
+        CommitContext commitContext = new CommitContext();
+        for (int i = 0; i < ENTITY_COUNT; i++) {
+            Server server = cont.metadata().create(Server.class);
+            server.setName("server-" + i);
+            server.setRunning(i % 2 == 0);
+            server.setData("data of server " + i);
+            commitContext.addInstanceToCommit(server);
+        }
+        AppBeans.get(DataManager.class).commit(commitContext);
+
+        invoker = new LocalServiceInvokerImpl(AppBeans.get(DataService.NAME));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        QueryRunner runner = new QueryRunner(cont.persistence().getDataSource());
+        runner.update("delete from SYS_SERVER");
+    }
+
+    @Test
+    public void testCopyData() {
+        LoadContext<Server> loadContext = createLoadContext();
+
+        List<Server> serialized = loadList(loadContext, false);
+        List<Server> copied = loadList(loadContext, true);
+
+        assertEquals(ENTITY_COUNT, serialized.size());
+        assertEquals(serialized.size(), copied.size());
+        for (int i = 0; i < serialized.size(); i++) {
+            Server server = copied.get(i);
+            assertEquals(serialized.get(i), server);
+            assertEquals(serialized.get(i).getName(), server.getName());
+            assertEquals(serialized.get(i).getData(), server.getData());
+            assertTrue(BaseEntityInternalAccess.isDetached(server));
+            assertFalse(BaseEntityInternalAccess.isManaged(server));
+        }
+    }
+
+    @Test
+    public void testPerformance() {
+        LoadContext<Server> loadContext = createLoadContext();
+        for (int i = 0; i < 5; i++) {
+            loadList(loadContext, false);
+            loadList(loadContext, true);
+        }
+
+        int iterations = 20;
+        long serializationTime = measure(loadContext, false, iterations);
+        long copyTime = measure(loadContext, true, iterations);
+
+        log.info("DataService.loadList() of {} entities, {} invocations: serialization {} ms, copy {} ms",
+                ENTITY_COUNT, iterations, serializationTime, copyTime);
+    }
+
+    private long measure(LoadContext<Server> loadContext, boolean copyData, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            assertEquals(ENTITY_COUNT, loadList(loadContext, copyData).size());
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private LoadContext<Server> createLoadContext() {
+        return LoadContext.create(Server.class)
+                .setQuery(LoadContext.createQuery("select s from sys$Server s order by s.name"))
+                .setView("_local");
+    }
+
+    /*
+     * Does the same as LocalServiceProxy of the client blocks
+     */
+    @SuppressWarnings("unchecked")
+    private List<Server> loadList(LoadContext<Server> loadContext, boolean copyData) {
+        byte[][] argumentsData = new byte[1][];
+        Object[] notSerializableArguments = new Object[1];
+        if (copyData) {
+            notSerializableArguments[0] = SerializationSupport.copy(loadContext);
+        } else {
+            argumentsData[0] = SerializationSupport.serialize(loadContext);
+        }
+
+        LocalServiceInvocation invocation = new LocalServiceInvocation("loadList",
+                new String[]{LoadContext.class.getName()}, argumentsData, notSerializableArguments, null);
+        invocation.setCopyData(copyData);
+
+        LocalServiceInvocationResult result = invoker.invoke(invocation);
+        if (result.getException() != null) {
+            throw new RuntimeException((Throwable) SerializationSupport.deserialize(result.getException()));
+        }
+        Object data = result.getNotSerializableData() != null
+                ? result.getNotSerializableData()
+                : SerializationSupport.deserialize(result.getData());
+        return new ArrayList<>((List<Server>) data);
+    }
+}
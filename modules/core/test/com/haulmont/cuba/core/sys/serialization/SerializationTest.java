@@ -28,9 +28,17 @@ import com.haulmont.cuba.testsupport.TestContainer;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.RegisterExtension;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -281,4 +289,59 @@ public class SerializationTest {
         assertTrue(clone.contains(RoleType.STANDARD));
         assertFalse(clone.contains(RoleType.SUPER));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPoolTypes() throws Exception {
+        View view = getView();
+        User user;
+        try (Transaction tx = cont.persistence().createTransaction()) {
+            user = cont.persistence().getEntityManager().find(User.class, userId, view);
+            assertNotNull(user);
+            tx.commit();
+        }
+
+        KryoSerialization genericPoolSerialization = new KryoSerialization();
+        KryoSerialization stripedPoolSerialization = new KryoSerialization() {
+            @Override
+            protected void initPool() {
+                super.initPool();
+                pool.close();
+                pool = new StripedKryoPool(this::newKryoContext, 8, 4);
+            }
+        };
+        try {
+            for (KryoSerialization serialization : new KryoSerialization[]{genericPoolSerialization, stripedPoolSerialization}) {
+                ExecutorService executor = Executors.newFixedThreadPool(16);
+                try {
+                    long start = System.nanoTime();
+                    List<Future<?>> futures = new ArrayList<>();
+                    for (int t = 0; t < 16; t++) {
+                        futures.add(executor.submit(() -> {
+                            for (int i = 0; i < 500; i++) {
+                                User restored = (User) serialization.deserialize(serialization.serialize(user));
+                                assertEquals(user.getLogin(), restored.getLogin());
+
+                                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                                serialization.serialize(user, bos);
+                                restored = (User) serialization.deserialize(new ByteArrayInputStream(bos.toByteArray()));
+                                assertEquals(user.getGroup(), restored.getGroup());
+                            }
+                            return null;
+                        }));
+                    }
+                    for (Future<?> future : futures) {
+                        future.get(1, TimeUnit.MINUTES);
+                    }
+                    System.out.printf("%s: time [%d], %s\n", serialization.pool.getClass().getSimpleName(),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), serialization.printPoolStatistics());
+                } finally {
+                    executor.shutdownNow();
+                }
+                assertEquals(16 * 500 * 4, serialization.pool.getHitCount() + serialization.pool.getMissCount());
+            }
+        } finally {
+            genericPoolSerialization.shutdown();
+            stripedPoolSerialization.shutdown();
+        }
+    }
+}
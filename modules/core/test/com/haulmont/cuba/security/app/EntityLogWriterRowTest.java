@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.security.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityLogWriterRowTest {
+
+    @Test
+    public void testSpoolFormat() throws IOException {
+        EntityLogWriter.Row row1 = new EntityLogWriter.Row(UUID.randomUUID(), new Date(), "admin", null,
+                new Date(1000), UUID.randomUUID(), "C", "sec$User", "Administrator [admin]", UUID.randomUUID(),
+                null, null, null, "name=admin\nlogin=admin");
+        EntityLogWriter.Row row2 = new EntityLogWriter.Row(UUID.randomUUID(), new Date(), null, "tenant",
+                null, null, "M", "test$IntEntity", null, null, "key", 10, 20L, null);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        row1.write(out);
+        row2.write(out);
+        out.flush();
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertRowEquals(row1, EntityLogWriter.Row.read(in));
+        assertRowEquals(row2, EntityLogWriter.Row.read(in));
+        assertNull(EntityLogWriter.Row.read(in));
+    }
+
+    private void assertRowEquals(EntityLogWriter.Row expected, EntityLogWriter.Row actual) {
+        assertNotNull(actual);
+        assertEquals(expected.id, actual.id);
+        assertEquals(expected.createTs, actual.createTs);
+        assertEquals(expected.createdBy, actual.createdBy);
+        assertEquals(expected.sysTenantId, actual.sysTenantId);
+        assertEquals(expected.eventTs, actual.eventTs);
+        assertEquals(expected.userId, actual.userId);
+        assertEquals(expected.type, actual.type);
+        assertEquals(expected.entity, actual.entity);
+        assertEquals(expected.entityInstanceName, actual.entityInstanceName);
+        assertEquals(expected.entityId, actual.entityId);
+        assertEquals(expected.stringEntityId, actual.stringEntityId);
+        assertEquals(expected.intEntityId, actual.intEntityId);
+        assertEquals(expected.longEntityId, actual.longEntityId);
+        assertEquals(expected.changes, actual.changes);
+        assertEquals(expected.capturedAt, actual.capturedAt);
+    }
+}
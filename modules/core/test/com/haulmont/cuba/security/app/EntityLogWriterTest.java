@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.security.app;
+
+import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityLogWriterTest {
+
+    @RegisterExtension
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private static final String ENTITY = "test$EntityLogWriterTest";
+
+    private static final UUID ADMIN_ID = UUID.fromString("60885987-1b61-4247-94c7-dff348347f93");
+
+    private File spoolDir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        spoolDir = Files.createTempDirectory("entity-log-spool").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(spoolDir);
+        new QueryRunner(cont.persistence().getDataSource())
+                .update("delete from SEC_ENTITY_LOG where ENTITY = ?", ENTITY);
+    }
+
+    @Test
+    public void testAsyncFlush() throws Exception {
+        TestEntityLogWriter writer = new TestEntityLogWriter(10, 5);
+        writer.start();
+        try {
+            writer.enqueue(createRows(7));
+
+            waitFor(() -> writer.getWrittenCount() == 7);
+            assertEquals(7, countSaved());
+            assertEquals(0, writer.getSpooledCount());
+            assertEquals(0, writer.getQueueSize());
+        } finally {
+            writer.stop();
+        }
+        assertFalse(writer.getJournalFile().exists());
+    }
+
+    @Test
+    public void testJournalRecovery() throws Exception {
+        TestEntityLogWriter crashed = new TestEntityLogWriter(10, 5);
+        crashed.queue = new ArrayBlockingQueue<>(10);
+        crashed.openJournal();
+        crashed.running = true;
+        List<EntityLogWriter.Row> rows = createRows(3);
+        crashed.enqueue(rows);
+
+        // the records are journaled, but the node stops before the writer saves them
+        assertEquals(3, crashed.getQueueSize());
+        assertEquals(ids(rows), ids(readRows(crashed.getJournalFile())));
+        crashed.closeJournal();
+        assertTrue(crashed.getJournalFile().exists());
+
+        TestEntityLogWriter writer = new TestEntityLogWriter(10, 5);
+        writer.start();
+        try {
+            waitFor(() -> writer.getWrittenCount() == 3);
+            assertEquals(3, countSaved());
+        } finally {
+            writer.stop();
+        }
+        assertFalse(writer.getJournalFile().exists());
+    }
+
+    @Test
+    public void testQueueBackpressure() throws Exception {
+        TestEntityLogWriter writer = new TestEntityLogWriter(2, 5);
+        writer.writeStarted = new CountDownLatch(1);
+        writer.writeAllowed = new CountDownLatch(1);
+        writer.start();
+        try {
+            writer.enqueue(createRows(1));
+            assertTrue(writer.writeStarted.await(10, TimeUnit.SECONDS));
+
+            // the writer is busy, two records fill the queue and the rest goes to the spool file
+            List<EntityLogWriter.Row> rows = createRows(4);
+            writer.enqueue(rows);
+
+            assertEquals(2, writer.getQueueSize());
+            assertEquals(2, writer.getSpooledCount());
+            assertEquals(ids(rows.subList(2, 4)), ids(readRows(writer.getSpoolFile())));
+        } finally {
+            writer.writeAllowed.countDown();
+            writer.stop();
+        }
+    }
+
+    @Test
+    public void testSpoolReplay() throws Exception {
+        TestEntityLogWriter writer = new TestEntityLogWriter(10, 5);
+        List<EntityLogWriter.Row> rows = createRows(3);
+        writer.spool(rows);
+
+        writer.replaySpool();
+
+        assertEquals(3, countSaved());
+        assertFalse(writer.getSpoolFile().exists());
+        assertFalse(writer.getReplayFile().exists());
+
+        // a replay file left after the records were saved is replayed without duplicates
+        writer.spool(rows);
+        assertTrue(writer.getSpoolFile().renameTo(writer.getReplayFile()));
+        writer.nextSpoolReplayTs = 0;
+
+        writer.replaySpool();
+
+        assertEquals(3, countSaved());
+        assertFalse(writer.getReplayFile().exists());
+        assertEquals(3, writer.getWrittenCount());
+    }
+
+    private List<EntityLogWriter.Row> createRows(int count) {
+        List<EntityLogWriter.Row> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(new EntityLogWriter.Row(UUID.randomUUID(), new Date(), "admin", null, new Date(), ADMIN_ID,
+                    "C", ENTITY, "instance " + i, UUID.randomUUID(), null, null, null, "name=" + i));
+        }
+        return rows;
+    }
+
+    private long countSaved() throws SQLException {
+        return new QueryRunner(cont.persistence().getDataSource()).query(
+                "select count(*) from SEC_ENTITY_LOG where ENTITY = ?", ENTITY,
+                rs -> rs.next() ? rs.getLong(1) : 0L);
+    }
+
+    private Set<UUID> ids(List<EntityLogWriter.Row> rows) {
+        return rows.stream().map(row -> row.id).collect(Collectors.toSet());
+    }
+
+    private List<EntityLogWriter.Row> readRows(File file) throws IOException {
+        List<EntityLogWriter.Row> rows = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            EntityLogWriter.Row row;
+            while ((row = EntityLogWriter.Row.read(in)) != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timeout waiting for the entity log writer");
+            Thread.sleep(50);
+        }
+    }
+
+    private class TestEntityLogWriter extends EntityLogWriter {
+
+        private CountDownLatch writeStarted;
+        private CountDownLatch writeAllowed;
+
+        TestEntityLogWriter(int queueCapacity, int batchSize) {
+            super(AppBeans.get(Configuration.class));
+            persistence = AppBeans.get(Persistence.class);
+            config = new TestEntityLogConfig(queueCapacity, batchSize);
+        }
+
+        @Override
+        protected void write(List<Row> rows) {
+            if (writeAllowed != null) {
+                writeStarted.countDown();
+                try {
+                    writeAllowed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            super.write(rows);
+        }
+
+        @Override
+        protected File getSpoolFile() {
+            return new File(spoolDir, SPOOL_FILE_NAME);
+        }
+
+        @Override
+        protected File getReplayFile() {
+            return new File(spoolDir, SPOOL_FILE_NAME + ".replay");
+        }
+
+        @Override
+        protected File getJournalFile() {
+            return new File(spoolDir, JOURNAL_FILE_NAME);
+        }
+    }
+
+    private static class TestEntityLogConfig implements EntityLogConfig {
+
+        private final int queueCapacity;
+        private final int batchSize;
+
+        TestEntityLogConfig(int queueCapacity, int batchSize) {
+            this.queueCapacity = queueCapacity;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public boolean getEnabled() {
+            return true;
+        }
+
+        @Override
+        public void setEnabled(boolean value) {
+        }
+
+        @Override
+        public boolean getAsync() {
+            return true;
+        }
+
+        @Override
+        public int getAsyncQueueCapacity() {
+            return queueCapacity;
+        }
+
+        @Override
+        public int getAsyncBatchSize() {
+            return batchSize;
+        }
+
+        @Override
+        public long getAsyncOfferTimeout() {
+            return 10;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.security.app;
+
+import com.haulmont.cuba.core.app.ClusterConfig;
+import com.haulmont.cuba.core.app.ClusterListener;
+import com.haulmont.cuba.core.app.ClusterManager;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.core.global.TimeSource;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.security.entity.User;
+import com.haulmont.cuba.security.global.UserSession;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserSessionsTest {
+
+    @RegisterExtension
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private static final int SEND_TIMEOUT_SEC = 10;
+    private static final int EXPIRATION_TIMEOUT_SEC = 60;
+
+    private TestTimeSource timeSource;
+    private TestClusterManager clusterManager1;
+    private TestClusterManager clusterManager2;
+    private UserSessions sessions1;
+    private UserSessions sessions2;
+
+    @BeforeEach
+    public void setUp() {
+        AppContext.setProperty("cuba.userSessionTouchMessages", "true");
+        timeSource = new TestTimeSource();
+        clusterManager1 = new TestClusterManager();
+        clusterManager2 = new TestClusterManager();
+        sessions1 = createUserSessions(clusterManager1);
+        sessions2 = createUserSessions(clusterManager2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        AppContext.setProperty("cuba.userSessionTouchMessages", null);
+    }
+
+    @Test
+    public void testWholeSessionIsSentWithoutTouchMessages() throws Exception {
+        AppContext.setProperty("cuba.userSessionTouchMessages", null);
+        UserSession session = createSession();
+        sessions1.add(session);
+        clusterManager1.deliverTo(clusterManager2);
+
+        timeSource.advance(SEND_TIMEOUT_SEC + 1);
+        sessions1.getAndRefresh(session.getId(), true);
+
+        assertEquals(1, clusterManager1.sent.size());
+        assertTrue(clusterManager1.sent.get(0) instanceof UserSessions.UserSessionInfo);
+
+        clusterManager1.deliverTo(clusterManager2);
+        assertEquals(timeSource.millis, sessions2.getSessionInfo(session.getId()).lastUsedTs);
+
+        sessions1.sendTouches();
+        assertTrue(clusterManager1.sent.isEmpty());
+    }
+
+    @Test
+    public void testTouchesAreBatched() throws Exception {
+        UserSession session1 = createSession();
+        UserSession session2 = createSession();
+        sessions1.add(session1);
+        sessions1.add(session2);
+        clusterManager1.deliverTo(clusterManager2);
+
+        timeSource.advance(SEND_TIMEOUT_SEC + 1);
+        sessions1.getAndRefresh(session1.getId(), true);
+        sessions1.getAndRefresh(session2.getId(), true);
+        timeSource.advance(1);
+        sessions1.getAndRefresh(session1.getId(), true);
+
+        assertTrue(clusterManager1.sent.isEmpty());
+
+        sessions1.sendTouches();
+
+        assertEquals(1, clusterManager1.sent.size());
+        UserSessions.TouchMessage message = (UserSessions.TouchMessage) clusterManager1.sent.get(0);
+        assertEquals(new HashSet<>(Arrays.asList(session1.getId(), session2.getId())), message.lastUsedTs.keySet());
+
+        clusterManager1.deliverTo(clusterManager2);
+
+        assertEquals(timeSource.millis - 1000, sessions2.getSessionInfo(session1.getId()).lastUsedTs);
+        assertEquals(timeSource.millis - 1000, sessions2.getSessionInfo(session2.getId()).lastUsedTs);
+        assertTrue(clusterManager2.sent.isEmpty());
+
+        sessions1.sendTouches();
+        assertTrue(clusterManager1.sent.isEmpty());
+    }
+
+    @Test
+    public void testExpirationPropagation() throws Exception {
+        UserSession session = createSession();
+        sessions1.add(session);
+        clusterManager1.deliverTo(clusterManager2);
+
+        // the session is used on the first node only, touches keep it alive on the second node
+        for (int i = 0; i < 3; i++) {
+            timeSource.advance(EXPIRATION_TIMEOUT_SEC / 2);
+            sessions1.getAndRefresh(session.getId(), true);
+            sessions1.sendTouches();
+            clusterManager1.deliverTo(clusterManager2);
+        }
+        sessions2.processEviction();
+        assertNotNull(sessions2.get(session.getId()));
+
+        timeSource.advance(EXPIRATION_TIMEOUT_SEC + 1);
+        sessions1.processEviction();
+        assertNull(sessions1.get(session.getId()));
+
+        clusterManager1.deliverTo(clusterManager2);
+        assertNull(sessions2.get(session.getId()));
+    }
+
+    @Test
+    public void testUnknownTouchedSessionIsRequested() throws Exception {
+        UserSession session = createSession();
+        sessions1.add(session);
+        // the second node misses the session creation
+        clusterManager1.sent.clear();
+
+        timeSource.advance(SEND_TIMEOUT_SEC + 1);
+        sessions1.getAndRefresh(session.getId(), true);
+        sessions1.sendTouches();
+        clusterManager1.deliverTo(clusterManager2);
+
+        assertNull(sessions2.get(session.getId()));
+        assertEquals(1, clusterManager2.sent.size());
+        assertTrue(clusterManager2.sent.get(0) instanceof UserSessions.SessionRequestMessage);
+
+        clusterManager2.deliverTo(clusterManager1);
+        clusterManager1.deliverTo(clusterManager2);
+
+        UserSession received = sessions2.get(session.getId());
+        assertNotNull(received);
+        assertEquals(session.getUser().getLogin(), received.getUser().getLogin());
+        assertEquals(timeSource.millis, sessions2.getSessionInfo(session.getId()).lastUsedTs);
+    }
+
+    private UserSessions createUserSessions(TestClusterManager clusterManager) {
+        UserSessions userSessions = new UserSessions();
+        userSessions.timeSource = timeSource;
+        userSessions.userSessionLog = AppBeans.get(UserSessionLog.class);
+        userSessions.setConfiguration(AppBeans.get(Configuration.class));
+        userSessions.setClusterManager(clusterManager);
+        userSessions.setSendTimeoutSec(SEND_TIMEOUT_SEC);
+        userSessions.setExpirationTimeoutSec(EXPIRATION_TIMEOUT_SEC);
+        return userSessions;
+    }
+
+    private UserSession createSession() {
+        User user = cont.metadata().create(User.class);
+        user.setLogin("user-" + user.getId());
+        return new UserSession(UUID.randomUUID(), user, Collections.emptyList(), Locale.ENGLISH, false);
+    }
+
+    private static class TestTimeSource implements TimeSource {
+
+        private long millis = System.currentTimeMillis();
+
+        private void advance(int seconds) {
+            millis += seconds * 1000L;
+        }
+
+        @Override
+        public Date currentTimestamp() {
+            return new Date(millis);
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return millis;
+        }
+
+        @Override
+        public ZonedDateTime now() {
+            return ZonedDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        }
+    }
+
+    /**
+     * Collects sent messages instead of sending them to the channel.
+     */
+    private static class TestClusterManager extends ClusterManager {
+
+        private final List<Serializable> sent = new ArrayList<>();
+
+        private TestClusterManager() {
+            clusterConfig = (ClusterConfig) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class[]{ClusterConfig.class},
+                    (proxy, method, args) -> "getMessageCodecs".equals(method.getName()) ? true : null);
+        }
+
+        @Override
+        public void send(Serializable message) {
+            sent.add(message);
+        }
+
+        @Override
+        public void sendSync(Serializable message) {
+            sent.add(message);
+        }
+
+        /**
+         * Passes the sent messages through encoding and decoding to the listeners of other node.
+         */
+        @SuppressWarnings("unchecked")
+        private void deliverTo(TestClusterManager target) throws IOException {
+            List<Serializable> messages = new ArrayList<>(sent);
+            sent.clear();
+            for (Serializable message : messages) {
+                Serializable received = target.decode(encode(message));
+                ClusterListener<Serializable> listener = target.listeners.get(received.getClass().getName());
+                listener.receive(received);
+            }
+        }
+    }
+}
@@ -32,6 +32,7 @@ import groovy.sql.Sql
 import org.junit.ClassRule
 import spock.lang.Shared
 import spock.lang.Specification
+import spock.lang.Unroll
 
 class DataManagerTest extends Specification {
 
@@ -409,6 +410,40 @@ class DataManagerTest extends Specification {
         users.isEmpty()
     }
 
+    @Unroll
+    def "load batch with #threads threads"() {
+        AppContext.setProperty('cuba.dataManager.batchLoadThreads', threads)
+
+        def usersQuery = LoadContext.createQuery('select u from sec$User u where u.group.id = :groupId')
+                .setParameter('groupId', TestSupport.COMPANY_GROUP_ID)
+
+        def contexts = [
+                LoadContext.create(User).setQuery(usersQuery).setView('user.browse'),
+                LoadContext.create(Group).setId(TestSupport.COMPANY_GROUP_ID),
+                LoadContext.create(Group).setId(UUID.randomUUID())
+        ]
+
+        when:
+
+        def results = dataManager.loadBatch(contexts)
+
+        then:
+
+        results.size() == 3
+        results[0] as Set == dataManager.loadList(contexts[0]) as Set
+        results[1].size() == 1
+        results[1][0].id == TestSupport.COMPANY_GROUP_ID
+        results[2].isEmpty()
+
+        cleanup:
+
+        AppContext.setProperty('cuba.dataManager.batchLoadThreads', null)
+
+        where:
+
+        threads << ['0', '4']
+    }
+
     def "remove"() {
         def product = new Product(name: 'p1', quantity: 100)
         def product1 = dataManager.commit(product)
@@ -22,7 +22,9 @@ import com.haulmont.cuba.core.PersistenceTools
 import com.haulmont.cuba.core.global.AppBeans
 import com.haulmont.cuba.core.global.DataManager
 import com.haulmont.cuba.core.global.MetadataTools
+import com.haulmont.cuba.core.global.UserSessionSource
 import com.haulmont.cuba.core.global.View
+import com.haulmont.cuba.security.entity.EntityLogItem
 import com.haulmont.cuba.security.entity.Group
 import com.haulmont.cuba.security.entity.User
 import com.haulmont.cuba.testmodel.entity_log.EntityLogA
@@ -33,6 +35,7 @@ class EntityLogTest extends AbstractEntityLogTest {
 
     private UUID user1Id, user2Id
     private UUID roleId
+    private List<UUID> userIds = []
 
 
     void setup() {
@@ -73,6 +76,10 @@ class EntityLogTest extends AbstractEntityLogTest {
 
         if (roleId != null)
             cont.deleteRecord("SEC_ROLE", roleId)
+
+        userIds.each {
+            cont.deleteRecord("SEC_USER", it)
+        }
     }
 
 
@@ -168,6 +175,41 @@ class EntityLogTest extends AbstractEntityLogTest {
         getLatestEntityLogItem('sec$User', user1Id).entityInstanceName == instanceName
     }
 
+    def "changes of many instances in one transaction are merged per instance"() {
+
+        given:
+
+        Group group = findCompanyGroup()
+        User currentUser = AppBeans.get(UserSessionSource).userSession.user
+
+        when: 'many users are created and then modified after an implicit flush in the same transaction'
+
+        withTransaction { EntityManager em ->
+            150.times {
+                userIds << createAndSaveUser(em, [login: "test$it", name: "name$it", email: "email$it"])
+            }
+
+            em.reload(group, View.BASE)
+
+            userIds.eachWithIndex { UUID id, int i ->
+                em.find(User, id).setEmail("changed$i")
+            }
+        }
+
+        then: 'there is a single creation item with the final values for each user'
+
+        userIds.eachWithIndex { UUID id, int i ->
+            def items = getEntityLogItems('sec$User', id)
+            assert items.size() == 1
+            assert items[0].type == EntityLogItem.Type.CREATE
+            assert loggedValueMatches(items[0], 'email', "changed$i")
+            assert loggedValueMatches(items[0], 'name', "name$i")
+            assert items[0].createTs != null
+            assert items[0].createdBy == currentUser.login
+            assert items[0].sysTenantId == currentUser.sysTenantId
+        }
+    }
+
     def "instance name with reference"() {
         when:
 
@@ -21,9 +21,11 @@ import com.haulmont.cuba.core.Persistence
 import com.haulmont.cuba.core.app.queryresults.QueryResultsManager
 import com.haulmont.cuba.core.entity.QueryResult
 import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.LoadContext
 import com.haulmont.cuba.core.global.Metadata
 import com.haulmont.cuba.core.global.UserSessionSource
 import com.haulmont.cuba.security.app.UserSessions
+import com.haulmont.cuba.security.entity.User
 import com.haulmont.cuba.security.global.UserSession
 import com.haulmont.cuba.testsupport.TestContainer
 import org.junit.ClassRule
@@ -98,4 +100,110 @@ class QueryResultsManagerTest extends Specification {
         userSessions.remove(session1)
         userSessions.remove(session2)
     }
+
+    def "previous query results are saved equally by INSERT ... SELECT and by loading identifiers"() {
+        def query = LoadContext.createQuery('select u from sec$User u where u.login like :login')
+                .setParameter('login', 'a%')
+
+        def context1 = LoadContext.create(User).setQueryKey(2001)
+        context1.prevQueries.add(query)
+        def context2 = LoadContext.create(User).setQueryKey(2002)
+        context2.prevQueries.add(query)
+
+        when:
+
+        queryResultsManager.insertFromSelect(context1, query, 2001)
+        queryResultsManager.loadAndInsert(context2, query, 2002)
+
+        then:
+
+        def expected = persistence.callInTransaction { em ->
+            em.createQuery('select u.id from sec$User u where u.login like :login', UUID)
+                    .setParameter('login', 'a%').resultList as Set
+        }
+        !expected.isEmpty()
+        loadSavedIds(2001) == expected
+        loadSavedIds(2002) == expected
+    }
+
+    def "refined query results replace previous results by INSERT ... SELECT"() {
+        def query1 = LoadContext.createQuery('select u from sec$User u where u.login like :login')
+                .setParameter('login', 'a%')
+        def query2 = LoadContext.createQuery('select u from sec$User u where u.login = :login2')
+                .setParameter('login2', 'admin')
+
+        def context = LoadContext.create(User).setQueryKey(2003)
+        context.prevQueries.add(query1)
+        queryResultsManager.insertFromSelect(context, query1, 2003)
+
+        when:
+
+        context.prevQueries.add(query2)
+        queryResultsManager.insertFromSelect(context, query2, 2003)
+
+        then:
+
+        def adminId = persistence.callInTransaction { em ->
+            em.createQuery('select u.id from sec$User u where u.login = :login', UUID)
+                    .setParameter('login', 'admin').singleResult
+        }
+        loadSavedIds(2003) == [adminId] as Set
+        countSavedRows(2003) == 1
+    }
+
+    def "refined query results with zero query key are saved by INSERT ... SELECT"() {
+        def query1 = LoadContext.createQuery('select u from sec$User u where u.login like :login')
+                .setParameter('login', 'a%')
+        def query2 = LoadContext.createQuery('select u from sec$User u where u.login = :login2')
+                .setParameter('login2', 'admin')
+
+        def context = LoadContext.create(User).setQueryKey(0)
+        context.prevQueries.add(query1)
+        queryResultsManager.insertFromSelect(context, query1, 0)
+
+        when:
+
+        context.prevQueries.add(query2)
+        queryResultsManager.insertFromSelect(context, query2, 0)
+
+        then:
+
+        loadSavedIds(0).size() == 1
+        countSavedRows(0) == 1
+
+        cleanup:
+
+        queryResultsManager.delete(0)
+    }
+
+    def "parameter values are bound in INSERT ... SELECT"() {
+        def query = LoadContext.createQuery('select u from sec$User u where u.login = :login or u.name = :name')
+                .setParameter('login', "x' or '1' = '1")
+                .setParameter('name', 'admin\\')
+
+        def context = LoadContext.create(User).setQueryKey(2004)
+        context.prevQueries.add(query)
+
+        when:
+
+        queryResultsManager.insertFromSelect(context, query, 2004)
+
+        then:
+
+        loadSavedIds(2004).isEmpty()
+    }
+
+    private long countSavedRows(int queryKey) {
+        persistence.callInTransaction { em ->
+            em.createQuery('select count(e) from sys$QueryResult e where e.queryKey = :queryKey', Long)
+                    .setParameter('queryKey', queryKey).singleResult
+        }
+    }
+
+    private Set<UUID> loadSavedIds(int queryKey) {
+        persistence.callInTransaction { em ->
+            em.createQuery('select e.entityId from sys$QueryResult e where e.queryKey = :queryKey', UUID)
+                    .setParameter('queryKey', queryKey).resultList as Set
+        }
+    }
 }
@@ -22,6 +22,8 @@ import java.util.Map;
 public abstract class AbstractTemporalDatatype<T extends Temporal> implements Datatype<T>, ParameterizedDatatype {
     protected String formatPattern;
 
+    protected final FormatterCache<DateTimeFormatter> formatters = FormatterCache.shared();
+
     public AbstractTemporalDatatype(Element element) {
         this.formatPattern = element.attributeValue("format");
     }
@@ -31,14 +33,8 @@ public abstract class AbstractTemporalDatatype<T extends Temporal> implements Da
         if (value == null) {
             return "";
         } else {
-            DateTimeFormatter formatter;
-            if (formatPattern != null) {
-                formatter = DateTimeFormatter.ofPattern(formatPattern);
-            } else {
-                formatter = getDateTimeFormatter();
-            }
             //noinspection unchecked
-            return formatter.format((T) value);
+            return getFormatter().format((T) value);
         }
     }
 
@@ -53,7 +49,7 @@ public abstract class AbstractTemporalDatatype<T extends Temporal> implements Da
             return format(value);
         }
 
-        DateTimeFormatter formatter = getDateTimeFormatter(formatStrings, locale);
+        DateTimeFormatter formatter = getFormatter(formatStrings, locale);
         //noinspection unchecked
         return formatter.format((TemporalAccessor) value);
     }
@@ -65,12 +61,7 @@ public abstract class AbstractTemporalDatatype<T extends Temporal> implements Da
             return null;
         }
 
-        DateTimeFormatter formatter;
-        if (formatPattern != null) {
-            formatter = DateTimeFormatter.ofPattern(formatPattern);
-        } else {
-            formatter = getDateTimeFormatter();
-        }
+        DateTimeFormatter formatter = getFormatter();
         try {
             return formatter.parse(value.trim(), newInstance());
         } catch (DateTimeParseException ex) {
@@ -90,7 +81,7 @@ public abstract class AbstractTemporalDatatype<T extends Temporal> implements Da
             return parse(value);
         }
 
-        DateTimeFormatter formatter = getDateTimeFormatter(formatStrings, locale);
+        DateTimeFormatter formatter = getFormatter(formatStrings, locale);
         try {
             return formatter.parse(value.trim(), newInstance());
         } catch (DateTimeParseException ex) {
@@ -108,6 +99,21 @@ public abstract class AbstractTemporalDatatype<T extends Temporal> implements Da
         return getClass().getSimpleName();
     }
 
+    /**
+     * @return cached non-localized formatter
+     */
+    protected DateTimeFormatter getFormatter() {
+        return formatters.get(null, FormatterCache.getDefaultLocale(), () ->
+                formatPattern != null ? DateTimeFormatter.ofPattern(formatPattern) : getDateTimeFormatter());
+    }
+
+    /**
+     * @return cached formatter for the given format strings and locale
+     */
+    protected DateTimeFormatter getFormatter(FormatStrings formatStrings, Locale locale) {
+        return formatters.get(formatStrings, locale, () -> getDateTimeFormatter(formatStrings, locale));
+    }
+
     protected abstract DateTimeFormatter getDateTimeFormatter();
 
     protected abstract DateTimeFormatter getDateTimeFormatter(FormatStrings formatStrings, Locale locale);
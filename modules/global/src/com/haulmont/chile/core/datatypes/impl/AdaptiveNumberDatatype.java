@@ -57,10 +57,14 @@ public class AdaptiveNumberDatatype extends NumberDatatype implements Datatype<N
     protected java.text.NumberFormat createLocalizedFormat(Locale locale) {
         FormatStrings formatStrings = AppBeans.get(FormatStringsRegistry.class).getFormatStrings(locale);
         if (formatStrings == null) {
-            return createFormat();
+            return getFormat();
         }
+        return getFormat(formatStrings);
+    }
 
-        DecimalFormatSymbols formatSymbols = formatStrings.getFormatSymbols();
+    @Override
+    protected java.text.NumberFormat createFormat(FormatStrings formatStrings) {
+        DecimalFormatSymbols formatSymbols = (DecimalFormatSymbols) formatStrings.getFormatSymbols().clone();
         if (!decimalSeparator.equals("")) {
             formatSymbols.setDecimalSeparator(decimalSeparator.charAt(0));
         }
@@ -87,7 +91,7 @@ public class AdaptiveNumberDatatype extends NumberDatatype implements Datatype<N
 
     @Override
     public String format(Object value) {
-        return value == null ? "" : createFormat().format(value);
+        return value == null ? "" : getFormat().format(value);
     }
 
     @Override
@@ -102,7 +106,7 @@ public class AdaptiveNumberDatatype extends NumberDatatype implements Datatype<N
             return null;
         }
 
-        Number number = parse(value, createFormat());
+        Number number = parse(value, getFormat());
         checkRange(value, number);
         return requestedType(number);
     }
@@ -27,7 +27,6 @@ import org.dom4j.Element;
 
 import java.math.BigDecimal;
 import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
 import java.text.ParseException;
 import java.util.Locale;
@@ -48,9 +47,16 @@ public class BigDecimalDatatype extends NumberDatatype implements Datatype<BigDe
         return format;
     }
 
+    @Override
+    protected NumberFormat createFormat(FormatStrings formatStrings) {
+        DecimalFormat format = new DecimalFormat(formatStrings.getDecimalFormat(), formatStrings.getFormatSymbols());
+        format.setParseBigDecimal(true);
+        return format;
+    }
+
     @Override
     public String format(Object value) {
-        return value == null ? "" : createFormat().format(value);
+        return value == null ? "" : getFormat().format(value);
     }
 
     @Override
@@ -64,9 +70,7 @@ public class BigDecimalDatatype extends NumberDatatype implements Datatype<BigDe
             return format(value);
         }
 
-        DecimalFormatSymbols formatSymbols = formatStrings.getFormatSymbols();
-        NumberFormat format = new DecimalFormat(formatStrings.getDecimalFormat(), formatSymbols);
-        return format.format(value);
+        return getFormat(formatStrings).format(value);
     }
 
     @Override
@@ -75,7 +79,7 @@ public class BigDecimalDatatype extends NumberDatatype implements Datatype<BigDe
             return null;
         }
 
-        return (BigDecimal) parse(value, createFormat());
+        return (BigDecimal) parse(value, getFormat());
     }
 
     @Override
@@ -89,10 +93,7 @@ public class BigDecimalDatatype extends NumberDatatype implements Datatype<BigDe
             return parse(value);
         }
 
-        DecimalFormatSymbols formatSymbols = formatStrings.getFormatSymbols();
-        DecimalFormat format = new DecimalFormat(formatStrings.getDecimalFormat(), formatSymbols);
-        format.setParseBigDecimal(true);
-        return (BigDecimal) parse(value, format);
+        return (BigDecimal) parse(value, getFormat(formatStrings));
     }
 
     @Override
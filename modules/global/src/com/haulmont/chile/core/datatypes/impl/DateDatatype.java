@@ -34,6 +34,7 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
 import java.util.Map;
+import java.util.TimeZone;
 
 /**
  * <code>DateDatatype</code> works with <code>java.<b>sql</b>.Date</code> but is parametrized with
@@ -44,6 +45,8 @@ public class DateDatatype implements Datatype<Date>, ParameterizedDatatype {
 
     protected String formatPattern;
 
+    protected final FormatterCache<DateFormat> formats = FormatterCache.cloning();
+
     public DateDatatype(Element element) {
         formatPattern = element.attributeValue("format");
     }
@@ -54,13 +57,7 @@ public class DateDatatype implements Datatype<Date>, ParameterizedDatatype {
             return "";
         }
 
-        DateFormat format;
-        if (formatPattern != null) {
-            format = new SimpleDateFormat(formatPattern);
-        } else {
-            format = DateFormat.getDateInstance();
-        }
-        return format.format((value));
+        return getFormat(true).format((value));
     }
 
     @Override
@@ -74,8 +71,7 @@ public class DateDatatype implements Datatype<Date>, ParameterizedDatatype {
             return format(value);
         }
 
-        DateFormat format = new SimpleDateFormat(formatStrings.getDateFormat());
-        return format.format(value);
+        return getFormat(formatStrings, true).format(value);
     }
 
     protected java.sql.Date normalize(java.util.Date dateTime) {
@@ -94,13 +90,7 @@ public class DateDatatype implements Datatype<Date>, ParameterizedDatatype {
             return null;
         }
 
-        DateFormat format;
-        if (formatPattern != null) {
-            format = new SimpleDateFormat(formatPattern);
-            format.setLenient(false);
-        } else {
-            format = DateFormat.getDateInstance();
-        }
+        DateFormat format = getFormat(formatPattern == null);
         return normalize(format.parse(value.trim()));
     }
 
@@ -115,12 +105,33 @@ public class DateDatatype implements Datatype<Date>, ParameterizedDatatype {
             return parse(value);
         }
 
-        DateFormat format = new SimpleDateFormat(formatStrings.getDateFormat());
-        format.setLenient(false);
+        DateFormat format = getFormat(formatStrings, false);
 
         return normalize(format.parse(value.trim()));
     }
 
+    /**
+     * @return non-localized format cloned from a cached prototype
+     */
+    protected DateFormat getFormat(boolean lenient) {
+        DateFormat format = formats.get(null, FormatterCache.getDefaultLocale(), () ->
+                formatPattern != null ? new SimpleDateFormat(formatPattern) : DateFormat.getDateInstance());
+        format.setLenient(lenient);
+        format.setTimeZone(TimeZone.getDefault());
+        return format;
+    }
+
+    /**
+     * @return format for the given format strings cloned from a cached prototype
+     */
+    protected DateFormat getFormat(FormatStrings formatStrings, boolean lenient) {
+        DateFormat format = formats.get(formatStrings, FormatterCache.getDefaultLocale(), () ->
+                new SimpleDateFormat(formatStrings.getDateFormat()));
+        format.setLenient(lenient);
+        format.setTimeZone(TimeZone.getDefault());
+        return format;
+    }
+
     @Override
     public Map<String, Object> getParameters() {
         return ParamsMap.of("format", formatPattern);
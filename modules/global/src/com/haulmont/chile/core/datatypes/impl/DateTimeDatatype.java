@@ -38,6 +38,8 @@ public class DateTimeDatatype implements Datatype<Date>, ParameterizedDatatype,
 
     private String formatPattern;
 
+    protected final FormatterCache<DateFormat> formats = FormatterCache.cloning();
+
     public DateTimeDatatype(Element element) {
         formatPattern = element.attributeValue("format");
     }
@@ -47,13 +49,7 @@ public class DateTimeDatatype implements Datatype<Date>, ParameterizedDatatype,
         if (value == null) {
             return "";
         } else {
-            DateFormat format;
-            if (formatPattern != null) {
-                format = new SimpleDateFormat(formatPattern);
-            } else {
-                format = DateFormat.getDateInstance();
-            }
-            return format.format((value));
+            return getFormat().format((value));
         }
     }
 
@@ -73,12 +69,7 @@ public class DateTimeDatatype implements Datatype<Date>, ParameterizedDatatype,
             return format(value);
         }
 
-        DateFormat format = new SimpleDateFormat(formatStrings.getDateTimeFormat());
-        if (timeZone != null) {
-            format.setTimeZone(timeZone);
-        }
-
-        return format.format(value);
+        return getFormat(formatStrings, timeZone).format(value);
     }
 
     @Override
@@ -87,13 +78,7 @@ public class DateTimeDatatype implements Datatype<Date>, ParameterizedDatatype,
             return null;
         }
 
-        DateFormat format;
-        if (formatPattern != null) {
-            format = new SimpleDateFormat(formatPattern);
-        } else {
-            format = DateFormat.getDateInstance();
-        }
-        return format.parse(value.trim());
+        return getFormat().parse(value.trim());
     }
 
     @Override
@@ -112,13 +97,27 @@ public class DateTimeDatatype implements Datatype<Date>, ParameterizedDatatype,
             return parse(value);
         }
 
-        DateFormat format = new SimpleDateFormat(formatStrings.getDateTimeFormat());
+        return getFormat(formatStrings, timeZone).parse(value.trim());
+    }
 
-        if (timeZone != null) {
-            format.setTimeZone(timeZone);
-        }
+    /**
+     * @return non-localized format cloned from a cached prototype
+     */
+    protected DateFormat getFormat() {
+        DateFormat format = formats.get(null, FormatterCache.getDefaultLocale(), () ->
+                formatPattern != null ? new SimpleDateFormat(formatPattern) : DateFormat.getDateInstance());
+        format.setTimeZone(TimeZone.getDefault());
+        return format;
+    }
 
-        return format.parse(value.trim());
+    /**
+     * @return format for the given format strings cloned from a cached prototype
+     */
+    protected DateFormat getFormat(FormatStrings formatStrings, @Nullable TimeZone timeZone) {
+        DateFormat format = formats.get(formatStrings, FormatterCache.getDefaultLocale(), () ->
+                new SimpleDateFormat(formatStrings.getDateTimeFormat()));
+        format.setTimeZone(timeZone != null ? timeZone : TimeZone.getDefault());
+        return format;
     }
 
     @Override
@@ -26,7 +26,6 @@ import org.apache.commons.lang3.StringUtils;
 import org.dom4j.Element;
 
 import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
 import java.text.ParseException;
 import java.util.Locale;
@@ -40,7 +39,7 @@ public class DoubleDatatype extends NumberDatatype implements Datatype<Double> {
 
     @Override
     public String format(Object value) {
-        return value == null ? "" : createFormat().format(value);
+        return value == null ? "" : getFormat().format(value);
     }
 
     @Override
@@ -58,9 +57,7 @@ public class DoubleDatatype extends NumberDatatype implements Datatype<Double> {
             return format(value);
         }
 
-        DecimalFormatSymbols formatSymbols = formatStrings.getFormatSymbols();
-        NumberFormat format = new DecimalFormat(formatStrings.getDoubleFormat(), formatSymbols);
-        return format.format(value);
+        return getFormat(formatStrings).format(value);
     }
 
     @Override
@@ -69,7 +66,7 @@ public class DoubleDatatype extends NumberDatatype implements Datatype<Double> {
             return null;
         }
 
-        return parse(value, createFormat()).doubleValue();
+        return parse(value, getFormat()).doubleValue();
     }
 
     @Override
@@ -83,9 +80,12 @@ public class DoubleDatatype extends NumberDatatype implements Datatype<Double> {
             return parse(value);
         }
 
-        DecimalFormatSymbols formatSymbols = formatStrings.getFormatSymbols();
-        NumberFormat format = new DecimalFormat(formatStrings.getDoubleFormat(), formatSymbols);
-        return parse(value, format).doubleValue();
+        return parse(value, getFormat(formatStrings)).doubleValue();
+    }
+
+    @Override
+    protected NumberFormat createFormat(FormatStrings formatStrings) {
+        return new DecimalFormat(formatStrings.getDoubleFormat(), formatStrings.getFormatSymbols());
     }
 
     @Override
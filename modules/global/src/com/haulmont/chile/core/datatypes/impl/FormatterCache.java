@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.chile.core.datatypes.impl;
+
+import com.haulmont.chile.core.datatypes.FormatStrings;
+
+import javax.annotation.Nullable;
+import java.text.Format;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * INTERNAL.
+ * Cache of formatters used by a datatype, keyed by {@link FormatStrings} and locale.
+ * <p>
+ * Immutable formatters like {@link java.time.format.DateTimeFormatter} are kept in a {@link #shared()} cache
+ * and returned as is. Legacy {@link java.text.Format} instances are not thread-safe, so a {@link #cloning()} cache
+ * keeps prototypes and returns a clone of the prototype on each call. The code using a cloned format must set all
+ * its mutable properties, e.g. time zone, before use.
+ */
+public class FormatterCache<F> {
+
+    protected static final int MAX_SIZE = 100;
+
+    protected final Map<Key, F> formatters = new ConcurrentHashMap<>();
+    protected final UnaryOperator<F> copier;
+
+    protected FormatterCache(UnaryOperator<F> copier) {
+        this.copier = copier;
+    }
+
+    /**
+     * @return cache of immutable formatters shared between threads
+     */
+    public static <F> FormatterCache<F> shared() {
+        return new FormatterCache<>(UnaryOperator.identity());
+    }
+
+    /**
+     * @return cache of mutable formats returning a new clone of the cached prototype on each call
+     */
+    @SuppressWarnings("unchecked")
+    public static <F extends Format> FormatterCache<F> cloning() {
+        return new FormatterCache<>(format -> (F) format.clone());
+    }
+
+    /**
+     * @return locale used by {@code java.text} formats created without an explicit locale
+     */
+    public static Locale getDefaultLocale() {
+        return Locale.getDefault(Locale.Category.FORMAT);
+    }
+
+    /**
+     * Returns a cached formatter or creates it with the supplied factory and caches the result.
+     *
+     * @param formatStrings format strings the formatter is created from, or null for a non-localized formatter
+     * @param locale        locale of the formatter
+     * @param factory       creates a new formatter
+     */
+    public F get(@Nullable FormatStrings formatStrings, Locale locale, Supplier<F> factory) {
+        Key key = new Key(formatStrings, locale);
+        F formatter = formatters.get(key);
+        if (formatter == null) {
+            if (formatters.size() >= MAX_SIZE) {
+                formatters.clear();
+            }
+            formatter = factory.get();
+            formatters.put(key, formatter);
+        }
+        return copier.apply(formatter);
+    }
+
+    protected static class Key {
+
+        // FormatStrings does not override equals(), instances are compared by identity
+        protected final FormatStrings formatStrings;
+        protected final Locale locale;
+
+        protected Key(@Nullable FormatStrings formatStrings, Locale locale) {
+            this.formatStrings = formatStrings;
+            this.locale = locale;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return formatStrings == key.formatStrings && locale.equals(key.locale);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(formatStrings) + locale.hashCode();
+        }
+    }
+}
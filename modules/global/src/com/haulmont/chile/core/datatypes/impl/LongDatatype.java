@@ -26,7 +26,6 @@ import org.apache.commons.lang3.StringUtils;
 import org.dom4j.Element;
 
 import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
 import java.text.ParseException;
 import java.util.Locale;
@@ -40,7 +39,7 @@ public class LongDatatype extends NumberDatatype implements Datatype<Long> {
 
     @Override
     public String format(Object value) {
-        return value == null ? "" : createFormat().format(value);
+        return value == null ? "" : getFormat().format(value);
     }
 
     @Override
@@ -54,9 +53,7 @@ public class LongDatatype extends NumberDatatype implements Datatype<Long> {
             return format(value);
         }
 
-        DecimalFormatSymbols formatSymbols = formatStrings.getFormatSymbols();
-        NumberFormat format = new DecimalFormat(formatStrings.getIntegerFormat(), formatSymbols);
-        return format.format(value);
+        return getFormat(formatStrings).format(value);
     }
 
     @Override
@@ -65,7 +62,7 @@ public class LongDatatype extends NumberDatatype implements Datatype<Long> {
             return null;
         }
 
-        return parse(value, createFormat()).longValue();
+        return parse(value, getFormat()).longValue();
     }
 
     @Override
@@ -79,10 +76,7 @@ public class LongDatatype extends NumberDatatype implements Datatype<Long> {
             return parse(value);
         }
 
-        DecimalFormatSymbols formatSymbols = formatStrings.getFormatSymbols();
-        NumberFormat format = new DecimalFormat(formatStrings.getIntegerFormat(), formatSymbols);
-
-        return parse(value, format).longValue();
+        return parse(value, getFormat(formatStrings)).longValue();
     }
 
     @Override
@@ -106,6 +100,11 @@ public class LongDatatype extends NumberDatatype implements Datatype<Long> {
         return true;
     }
 
+    @Override
+    protected NumberFormat createFormat(FormatStrings formatStrings) {
+        return new DecimalFormat(formatStrings.getIntegerFormat(), formatStrings.getFormatSymbols());
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName();
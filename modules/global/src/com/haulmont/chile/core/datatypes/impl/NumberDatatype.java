@@ -18,6 +18,7 @@
 package com.haulmont.chile.core.datatypes.impl;
 
 import com.haulmont.bali.util.ParamsMap;
+import com.haulmont.chile.core.datatypes.FormatStrings;
 import com.haulmont.chile.core.datatypes.ParameterizedDatatype;
 import org.apache.commons.lang3.StringUtils;
 import org.dom4j.Element;
@@ -31,6 +32,8 @@ public abstract class NumberDatatype implements ParameterizedDatatype {
     protected String decimalSeparator;
     protected String groupingSeparator;
 
+    protected final FormatterCache<NumberFormat> formats = FormatterCache.cloning();
+
     protected NumberDatatype(String formatPattern, String decimalSeparator, String groupingSeparator) {
         this.formatPattern = formatPattern;
         this.decimalSeparator = decimalSeparator;
@@ -70,6 +73,27 @@ public abstract class NumberDatatype implements ParameterizedDatatype {
         }
     }
 
+    /**
+     * Creates format for the given format strings. By default returns non-localized format.
+     */
+    protected NumberFormat createFormat(FormatStrings formatStrings) {
+        return createFormat();
+    }
+
+    /**
+     * @return non-localized format cloned from a cached prototype
+     */
+    protected NumberFormat getFormat() {
+        return formats.get(null, FormatterCache.getDefaultLocale(), this::createFormat);
+    }
+
+    /**
+     * @return format for the given format strings cloned from a cached prototype
+     */
+    protected NumberFormat getFormat(FormatStrings formatStrings) {
+        return formats.get(formatStrings, FormatterCache.getDefaultLocale(), () -> createFormat(formatStrings));
+    }
+
     protected Number parse(String value, NumberFormat format) throws ParseException {
         ParsePosition pos = new ParsePosition(0);
         Number res = format.parse(value.trim(), pos);
@@ -34,6 +34,7 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
 import java.util.Map;
+import java.util.TimeZone;
 
 /**
  * <code>TimeDatatype</code> works with <code>java.sql.Time</code> but is parametrized with <code>java.util.Date</code>
@@ -44,6 +45,8 @@ public class TimeDatatype implements Datatype<Date>, ParameterizedDatatype {
 
     private String formatPattern;
 
+    protected final FormatterCache<DateFormat> formats = FormatterCache.cloning();
+
     public TimeDatatype(Element element) {
         formatPattern = element.attributeValue("format");
     }
@@ -53,14 +56,7 @@ public class TimeDatatype implements Datatype<Date>, ParameterizedDatatype {
         if (value == null) {
             return "";
         } else {
-            DateFormat format;
-            if (formatPattern != null) {
-                format = new SimpleDateFormat(formatPattern);
-            } else {
-                format = DateFormat.getTimeInstance();
-            }
-            format.setLenient(false);
-            return format.format(value);
+            return getFormat(false).format(value);
         }
     }
 
@@ -75,10 +71,7 @@ public class TimeDatatype implements Datatype<Date>, ParameterizedDatatype {
             return format(value);
         }
 
-        DateFormat format = new SimpleDateFormat(formatStrings.getTimeFormat());
-        format.setLenient(false);
-
-        return format.format(value);
+        return getFormat(formatStrings, false).format(value);
     }
 
     @Override
@@ -86,14 +79,7 @@ public class TimeDatatype implements Datatype<Date>, ParameterizedDatatype {
         if (StringUtils.isBlank(value)) {
             return null;
         }
-        DateFormat format;
-        if (formatPattern != null) {
-            format = new SimpleDateFormat(formatPattern);
-        } else {
-            format = DateFormat.getTimeInstance();
-        }
-
-        return format.parse(value.trim());
+        return getFormat(true).parse(value.trim());
     }
 
     @Override
@@ -107,8 +93,29 @@ public class TimeDatatype implements Datatype<Date>, ParameterizedDatatype {
             return parse(value);
         }
 
-        DateFormat format = new SimpleDateFormat(formatStrings.getTimeFormat());
-        return format.parse(value.trim());
+        return getFormat(formatStrings, true).parse(value.trim());
+    }
+
+    /**
+     * @return non-localized format cloned from a cached prototype
+     */
+    protected DateFormat getFormat(boolean lenient) {
+        DateFormat format = formats.get(null, FormatterCache.getDefaultLocale(), () ->
+                formatPattern != null ? new SimpleDateFormat(formatPattern) : DateFormat.getTimeInstance());
+        format.setLenient(lenient);
+        format.setTimeZone(TimeZone.getDefault());
+        return format;
+    }
+
+    /**
+     * @return format for the given format strings cloned from a cached prototype
+     */
+    protected DateFormat getFormat(FormatStrings formatStrings, boolean lenient) {
+        DateFormat format = formats.get(formatStrings, FormatterCache.getDefaultLocale(), () ->
+                new SimpleDateFormat(formatStrings.getTimeFormat()));
+        format.setLenient(lenient);
+        format.setTimeZone(TimeZone.getDefault());
+        return format;
     }
 
     @Override
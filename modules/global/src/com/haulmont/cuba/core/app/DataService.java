@@ -72,6 +72,15 @@ public interface DataService {
     @CheckReturnValue
     long getCount(LoadContext<? extends Entity> context);
 
+    /**
+     * Loads entity instances for several independent load contexts in a single call.
+     * @param contexts  {@link LoadContext} objects, defining what and how to load
+     * @return          list of results in the order of the passed contexts
+     * @see com.haulmont.cuba.core.global.DataManager#loadBatch(java.util.Collection)
+     */
+    @CheckReturnValue
+    List<List<Entity>> loadBatch(List<LoadContext<?>> contexts);
+
     @CheckReturnValue
     List<KeyValueEntity> loadValues(ValueLoadContext context);
 }
\ No newline at end of file
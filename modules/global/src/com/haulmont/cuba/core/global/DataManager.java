@@ -26,6 +26,9 @@ import com.haulmont.cuba.core.entity.contracts.Id;
 
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -72,6 +75,30 @@ public interface DataManager {
     @CheckReturnValue
     long getCount(LoadContext<? extends Entity> context);
 
+    /**
+     * Loads entity instances for several independent load contexts at once.
+     * <p>When used on the client tier, all contexts are passed to the middleware in a single service call.
+     * On the middleware, the contexts can be executed in parallel if the {@code cuba.dataManager.batchLoadThreads}
+     * application property is set.</p>
+     * @param contexts  {@link LoadContext} objects, defining what and how to load
+     * @return          list of results in the order of the passed contexts. A result of a context with an entity id
+     *                  contains the loaded instance, or is empty if the instance is not found.
+     */
+    @CheckReturnValue
+    default List<List<Entity>> loadBatch(Collection<? extends LoadContext<?>> contexts) {
+        List<List<Entity>> result = new ArrayList<>(contexts.size());
+        for (LoadContext<?> context : contexts) {
+            if (context.getId() != null) {
+                Entity entity = load(context);
+                result.add(entity != null ? Collections.singletonList(entity) : Collections.emptyList());
+            } else {
+                //noinspection unchecked
+                result.add((List<Entity>) loadList(context));
+            }
+        }
+        return result;
+    }
+
     /**
      * Reloads the entity instance from data store with the view specified.
      * @param entity        reloading instance
@@ -181,10 +181,25 @@ public interface GlobalConfig extends Config {
     @DefaultInt(8)
     int getGroovyEvaluationPoolMaxIdle();
 
+    /**
+     * @return maximum number of parsed JPQL query trees kept in memory. 0 disables the cache.
+     */
+    @Property("cuba.queryTreeCache.maxSize")
+    @DefaultInt(1000)
+    int getQueryTreeCacheMaxSize();
+
     @Property("cuba.numberIdCacheSize")
     @DefaultInt(100)
     int getNumberIdCacheSize();
 
+    /**
+     * @return percent of a cached block of ids after which the next block is requested from the sequence
+     * in background. 0 disables prefetching.
+     */
+    @Property("cuba.numberIdCachePrefetchThreshold")
+    @DefaultInt(75)
+    int getNumberIdCachePrefetchThreshold();
+
     @Property("cuba.anonymousSessionId")
     @Factory(factory = UuidTypeFactory.class)
     @Nullable
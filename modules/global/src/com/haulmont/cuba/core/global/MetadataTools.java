@@ -18,6 +18,8 @@
 package com.haulmont.cuba.core.global;
 
 import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.haulmont.chile.core.annotations.NamePattern;
 import com.haulmont.chile.core.datatypes.Datatype;
@@ -41,9 +43,11 @@ import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.persistence.*;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.*;
 import java.util.regex.Pattern;
@@ -98,6 +102,10 @@ public class MetadataTools {
 
     protected volatile Collection<Class> enums;
 
+    protected final Cache<MetaClass, InstanceNameRenderer> instanceNameRenderers = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build();
+
     /**
      * Default constructor used by container at runtime and in server-side integration tests.
      */
@@ -193,31 +201,78 @@ public class MetadataTools {
 
         MetaClass metaClass = instance.getMetaClass();
 
+        InstanceNameRenderer renderer = instanceNameRenderers.getIfPresent(metaClass);
+        if (renderer == null) {
+            renderer = createInstanceNameRenderer(metaClass);
+            instanceNameRenderers.put(metaClass, renderer);
+        }
+        return renderer.render(instance);
+    }
+
+    /**
+     * Discards compiled name patterns. Invoked when metadata is initialized.
+     */
+    public void clearInstanceNameRenderers() {
+        instanceNameRenderers.invalidateAll();
+    }
+
+    protected InstanceNameRenderer createInstanceNameRenderer(MetaClass metaClass) {
         NamePatternRec rec = parseNamePattern(metaClass);
         if (rec == null) {
-            return instance.toString();
+            return new InstanceNameRenderer();
         }
 
         if (rec.methodName != null) {
             try {
-                Method method = instance.getClass().getMethod(rec.methodName);
-                Object result = method.invoke(instance);
-                return (String) result;
-            } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException e) {
+                Method method = metaClass.getJavaClass().getMethod(rec.methodName);
+                MethodHandle methodHandle = MethodHandles.publicLookup().unreflect(method)
+                        .asType(MethodType.methodType(Object.class, Object.class));
+                return new InstanceNameRenderer(methodHandle);
+            } catch (NoSuchMethodException | IllegalAccessException e) {
                 throw new RuntimeException("Error getting instance name", e);
             }
         }
 
-        Object[] values = new Object[rec.fields.length];
+        MetaProperty[] properties = new MetaProperty[rec.fields.length];
         for (int i = 0; i < rec.fields.length; i++) {
-            String fieldName = rec.fields[i];
-            MetaProperty property = metaClass.getPropertyNN(fieldName);
-
-            Object value = instance.getValue(fieldName);
-            values[i] = format(value, property);
+            properties[i] = metaClass.getPropertyNN(rec.fields[i]);
         }
+        return new InstanceNameRenderer(rec.format, rec.fields, properties);
+    }
 
-        return String.format(rec.format, values);
+    /**
+     * Splits a name pattern format by {@code %s} placeholders.
+     *
+     * @return parts of the format between placeholders, or null if the format contains other conversions
+     * and must be processed by {@link String#format}
+     */
+    @Nullable
+    protected String[] splitInstanceNameFormat(String format) {
+        List<String> parts = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < format.length(); i++) {
+            char c = format.charAt(i);
+            if (c != '%') {
+                sb.append(c);
+                continue;
+            }
+            if (++i == format.length()) {
+                return null;
+            }
+            char conversion = format.charAt(i);
+            if (conversion == 's') {
+                parts.add(sb.toString());
+                sb.setLength(0);
+            } else if (conversion == '%') {
+                sb.append('%');
+            } else if (conversion == 'n') {
+                sb.append(System.lineSeparator());
+            } else {
+                return null;
+            }
+        }
+        parts.add(sb.toString());
+        return parts.toArray(new String[0]);
     }
 
     /**
@@ -271,6 +326,75 @@ public class MetadataTools {
         }
     }
 
+    /**
+     * Name pattern of an entity compiled by {@link #createInstanceNameRenderer(MetaClass)}: properties are resolved,
+     * the naming method is bound to a {@link MethodHandle} and the format is split by placeholders.
+     */
+    protected class InstanceNameRenderer {
+
+        protected final MethodHandle method;
+        protected final String format;
+        protected final String[] formatParts;
+        protected final String[] fields;
+        protected final MetaProperty[] properties;
+
+        /**
+         * Creates a renderer for an entity without a name pattern.
+         */
+        protected InstanceNameRenderer() {
+            this(null, null, null, null, null);
+        }
+
+        protected InstanceNameRenderer(MethodHandle method) {
+            this(method, null, null, null, null);
+        }
+
+        protected InstanceNameRenderer(String format, String[] fields, MetaProperty[] properties) {
+            this(null, format, splitInstanceNameFormat(format), fields, properties);
+        }
+
+        protected InstanceNameRenderer(@Nullable MethodHandle method, @Nullable String format,
+                                       @Nullable String[] formatParts, @Nullable String[] fields,
+                                       @Nullable MetaProperty[] properties) {
+            this.method = method;
+            this.format = format;
+            // String.format() fails if there are fewer values than placeholders, let it report the error
+            this.formatParts = formatParts != null && properties != null && formatParts.length - 1 <= properties.length
+                    ? formatParts : null;
+            this.fields = fields;
+            this.properties = properties;
+        }
+
+        public String render(Instance instance) {
+            if (method != null) {
+                try {
+                    return (String) (Object) method.invokeExact((Object) instance);
+                } catch (Throwable e) {
+                    throw new RuntimeException("Error getting instance name", e);
+                }
+            }
+            if (properties == null) {
+                return instance.toString();
+            }
+            if (formatParts == null) {
+                Object[] values = new Object[properties.length];
+                for (int i = 0; i < properties.length; i++) {
+                    values[i] = formatValue(instance, i);
+                }
+                return String.format(format, values);
+            }
+            StringBuilder sb = new StringBuilder(formatParts[0]);
+            for (int i = 1; i < formatParts.length; i++) {
+                sb.append(formatValue(instance, i - 1)).append(formatParts[i]);
+            }
+            return sb.toString();
+        }
+
+        protected String formatValue(Instance instance, int index) {
+            return format(instance.getValue(fields[index]), properties[index]);
+        }
+    }
+
     /**
      * @return name of a data store of the given entity or null if the entity is not persistent and no data store is
      * defined for it
@@ -22,6 +22,7 @@ import com.haulmont.cuba.core.sys.jpql.model.JpqlEntityModel;
 import com.haulmont.cuba.core.sys.jpql.NodesFinder;
 import com.haulmont.cuba.core.sys.jpql.tree.IdentificationVariableNode;
 import com.haulmont.cuba.core.sys.jpql.tree.PathNode;
+import com.haulmont.cuba.core.sys.jpql.tree.SelectedItemNode;
 import com.haulmont.cuba.core.sys.jpql.tree.SimpleConditionNode;
 import org.antlr.runtime.tree.TreeVisitor;
 import org.apache.commons.lang3.StringUtils;
@@ -30,6 +31,7 @@ import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nullable;
+import javax.inject.Inject;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -43,6 +45,9 @@ public class QueryParserAstBased implements QueryParser {
     protected QueryTree queryTree;
     protected QueryTreeAnalyzer queryAnalyzer;
 
+    @Inject
+    protected QueryTreeCache queryTreeCache;
+
     protected static class EntityNameAndPath {
         String entityName;
         String entityPath;
@@ -66,19 +71,26 @@ public class QueryParserAstBased implements QueryParser {
 
     protected QueryTree getTree() {
         if (queryTree == null) {
-            try {
-                queryTree = new QueryTree(model, query);
-            } catch (JPA2RecognitionException e) {
-                throw new JpqlSyntaxException(format("Errors found for input JPQL:[%s]\n%s", StringUtils.strip(query), e.getMessage()));
-            }
-            List<ErrorRec> errors = new ArrayList<>(queryTree.getInvalidIdVarNodes());
-            if (!errors.isEmpty()) {
-                throw new JpqlSyntaxException(format("Errors found for input JPQL:[%s]", StringUtils.strip(query)), errors);
-            }
+            // the parser doesn't modify the tree, so the cached instance is used as is
+            queryTree = queryTreeCache != null ? queryTreeCache.get(model, query, this::parseTree) : parseTree();
         }
         return queryTree;
     }
 
+    protected QueryTree parseTree() {
+        QueryTree tree;
+        try {
+            tree = new QueryTree(model, query);
+        } catch (JPA2RecognitionException e) {
+            throw new JpqlSyntaxException(format("Errors found for input JPQL:[%s]\n%s", StringUtils.strip(query), e.getMessage()));
+        }
+        List<ErrorRec> errors = new ArrayList<>(tree.getInvalidIdVarNodes());
+        if (!errors.isEmpty()) {
+            throw new JpqlSyntaxException(format("Errors found for input JPQL:[%s]", StringUtils.strip(query)), errors);
+        }
+        return tree;
+    }
+
     protected QueryTreeAnalyzer getAnalyzer() {
         if (queryAnalyzer == null) {
             queryAnalyzer = new QueryTreeAnalyzer(getTree());
@@ -208,8 +220,12 @@ public class QueryParserAstBased implements QueryParser {
         return getTree().getAstSelectedNodes()
                 .map(node -> {
                     TreeToQuery toQuery = new TreeToQuery();
-                    node.setSkipSeparator(true);
-                    new TreeVisitor().visit(node, toQuery);
+                    // the tree can be shared through QueryTreeCache, so the separator flag is set on a detached copy
+                    SelectedItemNode nodeCopy = (SelectedItemNode) node.dupNode();
+                    nodeCopy.setParent(node.getParent());
+                    nodeCopy.setChildIndex(node.getChildIndex());
+                    nodeCopy.setSkipSeparator(true);
+                    new TreeVisitor().visit(nodeCopy, toQuery);
                     return toQuery.getQueryString();
                 })
                 .collect(Collectors.toList());
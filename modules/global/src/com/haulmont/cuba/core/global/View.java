@@ -104,6 +104,10 @@ public class View implements Serializable {
 
     private boolean loadPartialEntities;
 
+    private transient boolean frozen;
+
+    private transient int contentHash;
+
     public View(Class<? extends Entity> entityClass) {
         this(entityClass, "", true);
     }
@@ -166,9 +170,14 @@ public class View implements Serializable {
                 View sourcePropertyView = sourceProperty.getView();
 
                 if (sourcePropertyView != null && isNotEmpty(sourcePropertyView.getProperties())) {
-
-                    Map<String, ViewProperty> thisViewProperties = thisProperties.get(sourcePropertyName).getView().properties;
-                    putProperties(thisViewProperties, sourcePropertyView.getProperties());
+                    ViewProperty thisProperty = thisProperties.get(sourcePropertyName);
+                    View thisPropertyView = thisProperty.getView();
+                    if (thisPropertyView.isFrozen()) {
+                        thisPropertyView = thisPropertyView.mutable();
+                        thisProperties.put(sourcePropertyName,
+                                new ViewProperty(sourcePropertyName, thisPropertyView, thisProperty.getFetchMode()));
+                    }
+                    putProperties(thisPropertyView.properties, sourcePropertyView.getProperties());
                 }
 
             } else {
@@ -194,6 +203,108 @@ public class View implements Serializable {
         return copy;
     }
 
+    /**
+     * Makes this view and all its nested views unmodifiable. A frozen view can be safely shared between threads
+     * and callers, any attempt to change it throws {@link IllegalStateException}.
+     *
+     * @return this view instance for chaining
+     * @see #mutable()
+     */
+    public View freeze() {
+        if (!frozen) {
+            for (ViewProperty property : properties.values()) {
+                if (property.getView() != null) {
+                    property.getView().freeze();
+                }
+            }
+            contentHash = calculateContentHash();
+            frozen = true;
+        }
+        return this;
+    }
+
+    /**
+     * @return true if the view is unmodifiable
+     * @see #freeze()
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Returns a view that can be modified. If this view is not frozen, returns this instance, otherwise creates
+     * a copy of the top level of the view. Nested views of the copy are shared with this view and remain frozen.
+     *
+     * @return modifiable view with the same content
+     */
+    public View mutable() {
+        if (!frozen) {
+            return this;
+        }
+        View copy = new View(new ViewParams().entityClass(entityClass).name(name));
+        copy.properties.putAll(properties);
+        copy.loadPartialEntities = loadPartialEntities;
+        return copy;
+    }
+
+    /**
+     * Returns a hash code of the view content: entity class, properties with their fetch modes and nested views,
+     * and the {@link #loadPartialEntities()} flag. Unlike {@link #hashCode()}, the view name is not taken into
+     * account. The value is calculated once for a frozen view.
+     *
+     * @see #contentEquals(View)
+     */
+    public int getContentHash() {
+        return frozen ? contentHash : calculateContentHash();
+    }
+
+    protected int calculateContentHash() {
+        int result = entityClass != null ? entityClass.getName().hashCode() : 0;
+        result = 31 * result + (loadPartialEntities ? 1 : 0);
+        for (ViewProperty property : properties.values()) {
+            result = 31 * result + property.getName().hashCode();
+            result = 31 * result + property.getFetchMode().name().hashCode();
+            result = 31 * result + (property.getView() != null ? property.getView().getContentHash() : 0);
+        }
+        return result;
+    }
+
+    /**
+     * Compares the content of this view with another one, ignoring view names.
+     *
+     * @return true if both views define the same graph of properties
+     * @see #getContentHash()
+     */
+    public boolean contentEquals(@Nullable View other) {
+        if (this == other) return true;
+        if (other == null
+                || entityClass != other.entityClass
+                || loadPartialEntities != other.loadPartialEntities
+                || properties.size() != other.properties.size()
+                || (frozen && other.frozen && contentHash != other.contentHash)) {
+            return false;
+        }
+        Iterator<ViewProperty> otherIterator = other.properties.values().iterator();
+        for (ViewProperty property : properties.values()) {
+            ViewProperty otherProperty = otherIterator.next();
+            if (!property.getName().equals(otherProperty.getName())
+                    || property.getFetchMode() != otherProperty.getFetchMode()) {
+                return false;
+            }
+            View view = property.getView();
+            if (view == null ? otherProperty.getView() != null : !view.contentEquals(otherProperty.getView())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("View " + this + " is frozen and cannot be modified, use mutable() to get a modifiable copy");
+        }
+    }
+
     /**
      * @return entity class this view belongs to
      */
@@ -212,7 +323,7 @@ public class View implements Serializable {
      * @return collection of properties
      */
     public Collection<ViewProperty> getProperties() {
-        return properties.values();
+        return frozen ? Collections.unmodifiableCollection(properties.values()) : properties.values();
     }
 
     /**
@@ -223,12 +334,14 @@ public class View implements Serializable {
      * @return      this view instance for chaining
      */
     public View addProperty(String name, @Nullable View view, FetchMode fetchMode) {
+        checkNotFrozen();
         properties.put(name, new ViewProperty(name, view, fetchMode));
         return this;
     }
 
     @Deprecated
     public View addProperty(String name, @Nullable View view, boolean lazy) {
+        checkNotFrozen();
         properties.put(name, new ViewProperty(name, view, lazy));
         return this;
     }
@@ -240,6 +353,7 @@ public class View implements Serializable {
      * @return      this view instance for chaining
      */
     public View addProperty(String name, View view) {
+        checkNotFrozen();
         properties.put(name, new ViewProperty(name, view));
         return this;
     }
@@ -250,6 +364,7 @@ public class View implements Serializable {
      * @return      this view instance for chaining
      */
     public View addProperty(String name) {
+        checkNotFrozen();
         properties.put(name, new ViewProperty(name, null));
         return this;
     }
@@ -313,6 +428,7 @@ public class View implements Serializable {
      * @return this view instance for chaining
      */
     public View setLoadPartialEntities(boolean loadPartialEntities) {
+        checkNotFrozen();
         this.loadPartialEntities = loadPartialEntities;
         return this;
     }
@@ -59,6 +59,11 @@ public class AbstractViewRepository implements ViewRepository {
 
     protected Map<MetaClass, Map<String, View>> storage = new ConcurrentHashMap<>();
 
+    /**
+     * Frozen copies of stored views returned by {@link #findView(MetaClass, String)}, shared between callers.
+     */
+    protected Map<View, View> frozenViews = new ConcurrentHashMap<>();
+
     @Inject
     protected Metadata metadata;
 
@@ -93,6 +98,7 @@ public class AbstractViewRepository implements ViewRepository {
         StopWatch initTiming = new Slf4JStopWatch("ViewRepository.init." + getClass().getSimpleName());
 
         storage.clear();
+        frozenViews.clear();
         readFileNames.clear();
 
         String configName = AppContext.getProperty("cuba.viewsConfig");
@@ -191,7 +197,8 @@ public class AbstractViewRepository implements ViewRepository {
      *
      * @param metaClass entity class
      * @param name      view name
-     * @return view instance or null if no view found
+     * @return frozen view instance shared between callers, or null if no view found.
+     * Use {@link View#mutable()} to obtain a copy that can be modified.
      */
     @Override
     @Nullable
@@ -209,7 +216,7 @@ public class AbstractViewRepository implements ViewRepository {
             checkInitialized();
 
             View view = retrieveView(metaClass, name, new HashSet<>());
-            return copyView(view);
+            return view != null ? frozenViews.computeIfAbsent(view, v -> copyView(v).freeze()) : null;
         } finally {
             lock.readLock().unlock();
         }
@@ -481,6 +488,8 @@ public class AbstractViewRepository implements ViewRepository {
     protected void replaceOverridden(View replacementView) {
         StopWatch replaceTiming = new Slf4JStopWatch("ViewRepository.replaceOverridden");
 
+        frozenViews.clear();
+
         HashSet<View> checked = new HashSet<>();
 
         for (View view : getAllInitialized()) {
@@ -553,6 +562,7 @@ public class AbstractViewRepository implements ViewRepository {
 
         views.put(view.getName(), view);
         storage.put(metaClass, views);
+        frozenViews.clear();
     }
 
     protected List<View> getAllInitialized() {
@@ -112,6 +112,7 @@ public class MetadataImpl implements Metadata {
         rootPackages = metadataLoader.getRootPackages();
         session = new CachingMetadataSession(metadataLoader.getSession());
         SessionImpl.setSerializationSupportSession(session);
+        tools.clearInstanceNameRenderers();
 
         log.info("Metadata initialized in {} ms", System.currentTimeMillis() - startTime);
     }
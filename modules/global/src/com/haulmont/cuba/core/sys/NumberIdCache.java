@@ -17,37 +17,75 @@
 
 package com.haulmont.cuba.core.sys;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.cuba.core.entity.annotation.IdSequence;
 import com.haulmont.cuba.core.global.GlobalConfig;
 import com.haulmont.cuba.core.global.Metadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Intermediate cache for generated ids of entities with long/integer PK.
  * The cache size is determined by the {@code cuba.numberIdCacheSize} app property.
+ * <p>
+ * When the {@code cuba.numberIdCachePrefetchThreshold} percent of a cached block of ids is used, the next block is
+ * requested from the sequence in background, so threads do not wait for the database when the current block is over.
  */
 @Component(NumberIdCache.NAME)
 public class NumberIdCache {
 
     public static final String NAME = "cuba_NumberIdCache";
 
+    private static final Logger log = LoggerFactory.getLogger(NumberIdCache.class);
+
     @Inject
     protected Metadata metadata;
 
+    protected ExecutorService prefetchExecutor = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder()
+                    .setNameFormat("NumberIdCachePrefetch-%d")
+                    .setDaemon(true)
+                    .build());
+
+    /**
+     * Block of cached ids. Ids are taken from the block without locking.
+     */
+    protected static class Block {
+        protected final AtomicLong counter;
+        protected final long lastValue;
+        protected final long prefetchValue;
+
+        public Block(long sequenceValue, int size, int prefetchThreshold) {
+            this.counter = new AtomicLong(sequenceValue);
+            this.lastValue = sequenceValue + size;
+            long prefetchOffset = (long) size * prefetchThreshold / 100;
+            this.prefetchValue = prefetchOffset >= 1 && prefetchOffset < size ? sequenceValue + prefetchOffset : -1;
+        }
+    }
+
     protected class Generator {
-        protected long counter;
-        protected long sequenceValue;
+        protected volatile Block block;
+        protected Future<Long> prefetchedSequenceValue;
         protected String entityName;
         protected String sequenceName;
         protected boolean cached;
         protected NumberIdSequence numberIdSequence;
 
+        protected LongAdder refills = new LongAdder();
+        protected LongAdder prefetches = new LongAdder();
+        protected LongAdder stalls = new LongAdder();
+
         public Generator(String entityName,
                          String sequenceName,
                          boolean cached,
@@ -56,31 +94,90 @@ public class NumberIdCache {
             this.sequenceName = sequenceName;
             this.cached = cached;
             this.numberIdSequence = sequence;
-            if (useIdCache()) {
-                createCachedCounter();
-            }
         }
 
         protected boolean useIdCache() {
             return config.getNumberIdCacheSize() != 0 && cached;
         }
 
-        protected void createCachedCounter() {
-            sequenceValue = numberIdSequence.createCachedLongId(entityName, sequenceName);
-            counter = sequenceValue;
-        }
-
-        public synchronized long getNext() {
+        public long getNext() {
             if (!useIdCache()) {
                 return numberIdSequence.createLongId(entityName, sequenceName);
-            } else {
-                long next = ++counter;
-                if (next > sequenceValue + config.getNumberIdCacheSize()) {
-                    createCachedCounter();
-                    next = ++counter;
+            }
+            while (true) {
+                Block current = block;
+                if (current != null) {
+                    long next = current.counter.incrementAndGet();
+                    if (next <= current.lastValue) {
+                        if (next == current.prefetchValue) {
+                            startPrefetch(current);
+                        }
+                        return next;
+                    }
                 }
-                return next;
+                switchBlock(current);
+            }
+        }
+
+        protected synchronized void startPrefetch(Block current) {
+            if (block != current || prefetchedSequenceValue != null) {
+                return;
             }
+            SecurityContext securityContext = AppContext.getSecurityContext();
+            prefetchedSequenceValue = prefetchExecutor.submit(() -> {
+                SecurityContext previousContext = AppContext.getSecurityContext();
+                AppContext.setSecurityContext(securityContext);
+                try {
+                    return numberIdSequence.createCachedLongId(entityName, sequenceName);
+                } finally {
+                    AppContext.setSecurityContext(previousContext);
+                }
+            });
+            prefetches.increment();
+        }
+
+        protected synchronized void switchBlock(@Nullable Block exhausted) {
+            if (block != exhausted) {
+                // another thread has already switched the block
+                return;
+            }
+            Future<Long> prefetched = prefetchedSequenceValue;
+            prefetchedSequenceValue = null;
+
+            Long sequenceValue = null;
+            if (prefetched != null) {
+                if (!prefetched.isDone()) {
+                    stalls.increment();
+                }
+                try {
+                    sequenceValue = prefetched.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for the next block of ids", e);
+                } catch (ExecutionException e) {
+                    log.warn("Unable to prefetch the next block of ids for {}", entityName, e.getCause());
+                }
+            }
+            if (sequenceValue == null) {
+                if (exhausted != null) {
+                    stalls.increment();
+                }
+                sequenceValue = numberIdSequence.createCachedLongId(entityName, sequenceName);
+            }
+            block = new Block(sequenceValue, config.getNumberIdCacheSize(), config.getNumberIdCachePrefetchThreshold());
+            refills.increment();
+        }
+
+        public long getRefills() {
+            return refills.longValue();
+        }
+
+        public long getPrefetches() {
+            return prefetches.longValue();
+        }
+
+        public long getStalls() {
+            return stalls.longValue();
         }
     }
 
@@ -125,6 +222,25 @@ public class NumberIdCache {
         cache.clear();
     }
 
+    /**
+     * @return statistics of cached id blocks per entity or sequence: how many blocks were taken, how many of them
+     * were requested in background, and how many times threads had to wait for the sequence
+     */
+    public String printStatistics() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Generator> entry : new TreeMap<>(cache).entrySet()) {
+            Generator generator = entry.getValue();
+            sb.append(String.format("%s: refills: %s, prefetches: %s, stalls: %s\n",
+                    entry.getKey(), generator.getRefills(), generator.getPrefetches(), generator.getStalls()));
+        }
+        return sb.toString();
+    }
+
+    @PreDestroy
+    protected void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
     protected String getCacheKey(String entityName, String sequenceName) {
         return sequenceName == null ? entityName : sequenceName;
     }
@@ -52,6 +52,9 @@ public class DomainModelBuilder {
     @Inject
     protected ExtendedEntities extendedEntities;
 
+    @Inject
+    protected QueryTreeCache queryTreeCache;
+
     protected boolean loadCaptions;
 
     public DomainModel produce() {
@@ -71,6 +74,11 @@ public class DomainModelBuilder {
             JpqlEntityModel entity = builder.produce();
             result.add(entity);
         }
+
+        if (!loadCaptions) {
+            // trees parsed against the previous model are no longer valid
+            queryTreeCache.invalidateAll();
+        }
         return result;
     }
 
@@ -57,6 +57,23 @@ public class QueryTree {
         new TreeVisitor().visit(tree, idVarSelector);
     }
 
+    protected QueryTree(DomainModel model, String queryString, CommonTree tree) {
+        this.model = model;
+        this.queryString = queryString;
+        this.tree = tree;
+
+        this.idVarSelector = new IdVarSelector(model);
+        new TreeVisitor().visit(tree, idVarSelector);
+    }
+
+    /**
+     * Creates a deep copy of this tree without parsing the query string again.
+     * Used to modify trees obtained from {@link QueryTreeCache}, which must not be changed in place.
+     */
+    public QueryTree copy() {
+        return new QueryTree(model, queryString, (CommonTree) BaseCustomNode.dupTree(tree));
+    }
+
     public DomainModel getModel() {
         return model;
     }
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.jpql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.haulmont.cuba.core.config.Configuration;
+import com.haulmont.cuba.core.global.GlobalConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.util.function.Supplier;
+
+/**
+ * INTERNAL.
+ * Bounded cache of parsed JPQL query trees keyed by query string.
+ * <p>
+ * Cached trees are shared between threads and must not be modified. Code that transforms a query must work
+ * on a {@link QueryTree#copy()} of the cached tree.
+ */
+@Component(QueryTreeCache.NAME)
+public class QueryTreeCache {
+
+    public static final String NAME = "cuba_QueryTreeCache";
+
+    private static final Logger log = LoggerFactory.getLogger(QueryTreeCache.class);
+
+    protected final int maxSize;
+
+    @Nullable
+    protected final Cache<String, QueryTree> cache;
+
+    @Inject
+    public QueryTreeCache(Configuration configuration) {
+        maxSize = configuration.getConfig(GlobalConfig.class).getQueryTreeCacheMaxSize();
+        cache = maxSize > 0 ? CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().build() : null;
+    }
+
+    /**
+     * Returns a cached tree for the given query, or parses the query with the supplied parser and caches the result.
+     * The parser is expected to throw an exception for an invalid query, so invalid queries are never cached.
+     *
+     * @param model  domain model the tree must be built for
+     * @param query  JPQL query string
+     * @param parser creates a new tree if the cache does not contain a valid one
+     * @return shared immutable tree
+     */
+    public QueryTree get(DomainModel model, String query, Supplier<QueryTree> parser) {
+        if (cache == null) {
+            return parser.get();
+        }
+        QueryTree tree = cache.getIfPresent(query);
+        if (tree == null || tree.getModel() != model) {
+            tree = parser.get();
+            cache.put(query, tree);
+        }
+        return tree;
+    }
+
+    /**
+     * Discards all cached trees. Invoked when the domain model is rebuilt.
+     */
+    public void invalidateAll() {
+        if (cache != null) {
+            log.debug("Invalidate parsed query cache");
+            cache.invalidateAll();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long size() {
+        return cache != null ? cache.size() : 0;
+    }
+
+    public long getHitCount() {
+        return cache != null ? cache.stats().hitCount() : 0;
+    }
+
+    public long getMissCount() {
+        return cache != null ? cache.stats().missCount() : 0;
+    }
+
+    public long getEvictionCount() {
+        return cache != null ? cache.stats().evictionCount() : 0;
+    }
+
+    /**
+     * @return cache statistics or null if the cache is disabled
+     */
+    @Nullable
+    public CacheStats getStats() {
+        return cache != null ? cache.stats() : null;
+    }
+}
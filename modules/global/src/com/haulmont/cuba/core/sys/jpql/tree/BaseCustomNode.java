@@ -53,10 +53,25 @@ public class BaseCustomNode extends CommonTree implements TreeToQueryCapable {
     }
 
     protected void dupChildren(CommonTree result) {
+        if (children == null) {
+            return;
+        }
         for (Object child : children) {
-            CommonTree t = (CommonTree) child;
-            Tree copy = t.dupNode();
-            result.addChild(copy);
+            result.addChild(dupTree((Tree) child));
+        }
+    }
+
+    /**
+     * Creates a deep copy of the given subtree. Custom nodes copy their children in {@code dupNode()},
+     * plain ANTLR nodes are copied one level at a time.
+     */
+    public static Tree dupTree(Tree tree) {
+        Tree copy = tree.dupNode();
+        if (!(tree instanceof BaseCustomNode)) {
+            for (int i = 0; i < tree.getChildCount(); i++) {
+                copy.addChild(dupTree(tree.getChild(i)));
+            }
         }
+        return copy;
     }
 }
\ No newline at end of file
@@ -21,6 +21,19 @@ import com.google.common.io.CountingInputStream;
 import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.remoting.discovery.ServerSelector;
 import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.StatusLine;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.remoting.httpinvoker.HttpInvokerClientConfiguration;
@@ -32,20 +45,63 @@ import org.springframework.util.StopWatch;
 import javax.annotation.Nullable;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * HttpInvokerRequestExecutor that executes a request on a server which is selected according to the current cluster
  * topology, provided by {@link ServerSelector}.
+ * <p>
+ * By default, requests are sent through a pooled Apache HttpClient shared by all service proxies of the application,
+ * so connections to each server are kept alive and reused. The number of connections to a single server is limited
+ * by the {@code cuba.remoting.maxConnectionsPerServer} application property. Setting
+ * {@code cuba.remoting.pooledHttpClient} to false switches back to a new {@code HttpURLConnection} for each call.
+ * A call waits for a free connection in the pool no longer than {@code cuba.remoting.connectionRequestTimeout}
+ * milliseconds, which defaults to {@code cuba.connectionTimeout} or to 10 seconds if the connection timeout is not
+ * set. The pooled client takes proxy and SSL settings from the standard JVM system properties, as
+ * {@code HttpURLConnection} does.
+ * <p>
+ * If the {@code cuba.remoting.compressionThreshold} application property is greater than zero, request bodies
+ * exceeding this size are sent gzip-compressed. Responses are compressed by the server according to the same
+ * property set on the middleware, so the property must be set on both tiers.
  */
 public class ClusteredHttpInvokerRequestExecutor extends SimpleHttpInvokerRequestExecutor {
 
+    public static final String POOLED_TRANSPORT = "pooled";
+    public static final String URL_CONNECTION_TRANSPORT = "urlConnection";
+
+    protected static final String ENCODING_GZIP = "gzip";
+
+    protected static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT = 10_000;
+
+    private static volatile CloseableHttpClient pooledHttpClient;
+
+    private static final AppContext.Listener POOLED_HTTP_CLIENT_CLOSER = new AppContext.Listener() {
+        @Override
+        public void applicationStarted() {
+        }
+
+        @Override
+        public void applicationStopped() {
+            closePooledHttpClient();
+        }
+    };
+
     private ServerSelector serverSelector;
 
+    private boolean pooled;
+
+    private int compressionThreshold;
+
+    private RequestConfig requestConfig;
+
     private static final Logger log = LoggerFactory.getLogger(ClusteredHttpInvokerRequestExecutor.class);
 
     public ClusteredHttpInvokerRequestExecutor(ServerSelector serverSelector) {
@@ -56,6 +112,79 @@ public class ClusteredHttpInvokerRequestExecutor extends SimpleHttpInvokerReques
 
         String readTimeoutProp = AppContext.getProperty("cuba.connectionReadTimeout");
         setReadTimeout(readTimeoutProp == null ? -1 : Integer.parseInt(readTimeoutProp));
+
+        pooled = !Boolean.FALSE.toString().equals(AppContext.getProperty("cuba.remoting.pooledHttpClient"));
+
+        String compressionThresholdProp = AppContext.getProperty("cuba.remoting.compressionThreshold");
+        compressionThreshold = compressionThresholdProp == null ? 0 : Integer.parseInt(compressionThresholdProp);
+
+        int connectTimeout = connectTimeoutProp == null ? -1 : Integer.parseInt(connectTimeoutProp);
+        String connectionRequestTimeoutProp = AppContext.getProperty("cuba.remoting.connectionRequestTimeout");
+        int connectionRequestTimeout;
+        if (connectionRequestTimeoutProp != null) {
+            connectionRequestTimeout = Integer.parseInt(connectionRequestTimeoutProp);
+        } else {
+            connectionRequestTimeout = connectTimeout > 0 ? connectTimeout : DEFAULT_CONNECTION_REQUEST_TIMEOUT;
+        }
+
+        requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setConnectionRequestTimeout(connectionRequestTimeout)
+                .setSocketTimeout(readTimeoutProp == null ? -1 : Integer.parseInt(readTimeoutProp))
+                .build();
+    }
+
+    /**
+     * @return HTTP client shared by all executors, created on first use
+     */
+    protected static CloseableHttpClient getPooledHttpClient() {
+        CloseableHttpClient client = pooledHttpClient;
+        if (client == null) {
+            synchronized (ClusteredHttpInvokerRequestExecutor.class) {
+                client = pooledHttpClient;
+                if (client == null) {
+                    String maxPerServerProp = AppContext.getProperty("cuba.remoting.maxConnectionsPerServer");
+                    int maxPerServer = maxPerServerProp == null ? 50 : Integer.parseInt(maxPerServerProp);
+                    String maxTotalProp = AppContext.getProperty("cuba.remoting.maxConnections");
+                    int maxTotal = maxTotalProp == null ? 200 : Integer.parseInt(maxTotalProp);
+
+                    PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+                    connectionManager.setDefaultMaxPerRoute(maxPerServer);
+                    connectionManager.setMaxTotal(Math.max(maxTotal, maxPerServer));
+                    connectionManager.setValidateAfterInactivity(2000);
+
+                    client = HttpClients.custom()
+                            .useSystemProperties()
+                            .setConnectionManager(connectionManager)
+                            .disableContentCompression()
+                            .disableAutomaticRetries()
+                            .disableCookieManagement()
+                            .build();
+                    pooledHttpClient = client;
+                    AppContext.addListener(POOLED_HTTP_CLIENT_CLOSER);
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Closes the shared HTTP client and its connections. Invoked when the application context is stopped.
+     */
+    public static void closePooledHttpClient() {
+        CloseableHttpClient client;
+        synchronized (ClusteredHttpInvokerRequestExecutor.class) {
+            client = pooledHttpClient;
+            pooledHttpClient = null;
+        }
+        if (client != null) {
+            log.debug("Closing pooled HTTP client");
+            try {
+                client.close();
+            } catch (IOException e) {
+                log.warn("Error closing pooled HTTP client", e);
+            }
+        }
     }
 
     @Override
@@ -70,26 +199,11 @@ public class ClusteredHttpInvokerRequestExecutor extends SimpleHttpInvokerReques
             throw new IllegalStateException("Server URL list is empty");
 
         while (true) {
-            HttpURLConnection con = openConnection(url);
             try {
-                StopWatch sw = new StopWatch();
-                prepareConnection(con, baos.size());
-                writeRequestBody(config, con, baos);
-                sw.start("waiting time");
-                validateResponse(config, con);
-                CountingInputStream responseInputStream = new CountingInputStream(readResponseBody(config, con));
-                sw.stop();
-
-                serverSelector.success(context);
-
-                sw.start("reading time");
-                try (ObjectInputStream ois = createObjectInputStream(decorateInputStream(responseInputStream), config.getCodebaseUrl())) {
-                    result = doReadRemoteInvocationResult(ois);
-                }
-                sw.stop();
-                if (log.isDebugEnabled()) {
-                    log.debug(String.format("Receiving HTTP invoker response for service at [%s], with size %s, %s", config.getServiceUrl(),
-                            responseInputStream.getCount(), printStopWatch(sw)));
+                if (pooled) {
+                    result = executePooledRequest(url, context, config, baos);
+                } else {
+                    result = executeUrlConnectionRequest(url, context, config, baos);
                 }
                 break;
             } catch (IOException e) {
@@ -108,6 +222,117 @@ public class ClusteredHttpInvokerRequestExecutor extends SimpleHttpInvokerReques
         return result;
     }
 
+    protected RemoteInvocationResult executeUrlConnectionRequest(String url, Object context,
+                                                                 HttpInvokerClientConfiguration config,
+                                                                 ByteArrayOutputStream baos)
+            throws IOException, ClassNotFoundException {
+        long start = System.nanoTime();
+        RemoteInvocationResult result;
+
+        HttpURLConnection con = openConnection(url);
+        StopWatch sw = new StopWatch();
+        prepareConnection(con, baos.size());
+        writeRequestBody(config, con, baos);
+        sw.start("waiting time");
+        validateResponse(config, con);
+        CountingInputStream responseInputStream = new CountingInputStream(con.getInputStream());
+        InputStream responseBody = isGzipResponse(con) ? new GZIPInputStream(responseInputStream) : responseInputStream;
+        sw.stop();
+
+        serverSelector.success(context);
+
+        sw.start("reading time");
+        try (ObjectInputStream ois = createObjectInputStream(decorateInputStream(responseBody), config.getCodebaseUrl())) {
+            result = doReadRemoteInvocationResult(ois);
+        }
+        sw.stop();
+
+        registerCall(URL_CONNECTION_TRANSPORT, config, baos.size(), baos.size(), responseInputStream.getCount(),
+                System.nanoTime() - start, sw);
+        return result;
+    }
+
+    protected RemoteInvocationResult executePooledRequest(String url, Object context,
+                                                          HttpInvokerClientConfiguration config,
+                                                          ByteArrayOutputStream baos)
+            throws IOException, ClassNotFoundException {
+        long start = System.nanoTime();
+        RemoteInvocationResult result;
+
+        HttpPost post = new HttpPost(url);
+        post.setConfig(requestConfig);
+        post.setHeader(HttpHeaders.CONTENT_TYPE, getContentType());
+        if (isAcceptGzipEncoding()) {
+            post.setHeader(HttpHeaders.ACCEPT_ENCODING, ENCODING_GZIP);
+        }
+        ByteArrayEntity requestEntity;
+        if (compressionThreshold > 0 && baos.size() > compressionThreshold) {
+            requestEntity = new ByteArrayEntity(compress(baos));
+            post.setHeader(HttpHeaders.CONTENT_ENCODING, ENCODING_GZIP);
+        } else {
+            requestEntity = new ByteArrayEntity(baos.toByteArray());
+        }
+        post.setEntity(requestEntity);
+
+        StopWatch sw = new StopWatch();
+        sw.start("waiting time");
+        try (CloseableHttpResponse response = getPooledHttpClient().execute(post)) {
+            StatusLine status = response.getStatusLine();
+            if (status.getStatusCode() >= 300) {
+                throw new NoHttpResponseException(String.format(
+                        "Did not receive successful HTTP response: status code = %s, status message = [%s]",
+                        status.getStatusCode(), status.getReasonPhrase()));
+            }
+            HttpEntity responseEntity = response.getEntity();
+            if (responseEntity == null) {
+                throw new NoHttpResponseException("Empty HTTP response from " + url);
+            }
+            CountingInputStream responseInputStream = new CountingInputStream(responseEntity.getContent());
+            Header encoding = response.getFirstHeader(HttpHeaders.CONTENT_ENCODING);
+            InputStream responseBody = encoding != null && ENCODING_GZIP.equalsIgnoreCase(encoding.getValue())
+                    ? new GZIPInputStream(responseInputStream) : responseInputStream;
+            sw.stop();
+
+            serverSelector.success(context);
+
+            sw.start("reading time");
+            try (ObjectInputStream ois = createObjectInputStream(decorateInputStream(responseBody), config.getCodebaseUrl())) {
+                result = doReadRemoteInvocationResult(ois);
+                // read the rest of the body to return the connection to the pool
+                EntityUtils.consume(responseEntity);
+            }
+            sw.stop();
+
+            registerCall(POOLED_TRANSPORT, config, baos.size(), requestEntity.getContentLength(),
+                    responseInputStream.getCount(), System.nanoTime() - start, sw);
+        }
+        return result;
+    }
+
+    protected byte[] compress(ByteArrayOutputStream baos) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(baos.size() / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        }) {
+            baos.writeTo(gzip);
+        }
+        return compressed.toByteArray();
+    }
+
+    protected void registerCall(String transport, HttpInvokerClientConfiguration config, long requestBytes,
+                                long requestWireBytes, long responseWireBytes, long nanos, StopWatch sw) {
+        HttpInvokerStatistics.register(transport, config.getServiceUrl(), requestBytes, requestWireBytes,
+                responseWireBytes, nanos);
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("Receiving HTTP invoker response for service at [%s] via %s transport, " +
+                            "request size %s (%s sent), response size %s, total time %s, %s",
+                    config.getServiceUrl(), transport, requestBytes, requestWireBytes, responseWireBytes,
+                    nanos / 1_000_000, printStopWatch(sw)));
+        }
+    }
+
     @Nullable
     protected String currentServiceUrl(String url, HttpInvokerClientConfiguration config) {
         return url == null ? null :  url + "/" + config.getServiceUrl();
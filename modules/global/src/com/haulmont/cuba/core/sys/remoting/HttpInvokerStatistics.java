@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * INTERNAL.
+ * Aggregated statistics of middleware calls performed by {@link ClusteredHttpInvokerRequestExecutor}.
+ * Counters are kept per transport and service, so the pooled HTTP client and the {@code HttpURLConnection}
+ * transports can be compared on the same workload.
+ */
+public class HttpInvokerStatistics {
+
+    private static final ConcurrentMap<String, Stat> stats = new ConcurrentHashMap<>();
+
+    private HttpInvokerStatistics() {
+    }
+
+    /**
+     * Registers a completed call.
+     *
+     * @param transport         transport name
+     * @param serviceUrl        relative service URL
+     * @param requestBytes      size of the serialized invocation
+     * @param requestWireBytes  size of the request body sent over the network
+     * @param responseWireBytes size of the response body received from the network
+     * @param nanos             call duration including reading of the result
+     */
+    public static void register(String transport, String serviceUrl, long requestBytes, long requestWireBytes,
+                                long responseWireBytes, long nanos) {
+        Stat stat = stats.computeIfAbsent(transport + " " + serviceUrl, k -> new Stat());
+        stat.count.increment();
+        stat.requestBytes.add(requestBytes);
+        stat.requestWireBytes.add(requestWireBytes);
+        stat.responseWireBytes.add(responseWireBytes);
+        stat.nanos.add(nanos);
+    }
+
+    public static void reset() {
+        stats.clear();
+    }
+
+    public static String print() {
+        if (stats.isEmpty()) {
+            return "No calls registered";
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("transport service: calls, request bytes (on wire), response bytes on wire, avg ms\n");
+        for (Map.Entry<String, Stat> entry : new TreeMap<>(stats).entrySet()) {
+            Stat stat = entry.getValue();
+            long count = stat.count.sum();
+            sb.append(entry.getKey()).append(": ")
+                    .append(count).append(", ")
+                    .append(stat.requestBytes.sum()).append(" (").append(stat.requestWireBytes.sum()).append("), ")
+                    .append(stat.responseWireBytes.sum()).append(", ")
+                    .append(count > 0 ? TimeUnit.NANOSECONDS.toMillis(stat.nanos.sum() / count) : 0)
+                    .append("\n");
+        }
+        return sb.toString();
+    }
+
+    protected static class Stat {
+        protected final LongAdder count = new LongAdder();
+        protected final LongAdder requestBytes = new LongAdder();
+        protected final LongAdder requestWireBytes = new LongAdder();
+        protected final LongAdder responseWireBytes = new LongAdder();
+        protected final LongAdder nanos = new LongAdder();
+    }
+}
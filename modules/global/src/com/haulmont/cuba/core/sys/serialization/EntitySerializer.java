@@ -18,6 +18,8 @@ package com.haulmont.cuba.core.sys.serialization;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.cuba.core.entity.BaseEntityInternalAccess;
+import com.haulmont.cuba.core.entity.BaseGenericIdEntity;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.core.global.Metadata;
@@ -45,6 +47,17 @@ public class EntitySerializer<T extends Entity> extends KryoSerialization.CubaFi
         super.rebuildCachedFields();
     }
 
+    @Override
+    public T copy(Kryo kryo, T original) {
+        T copy = super.copy(kryo, original);
+        // the same as BaseGenericIdEntity.writeObject() does on Java serialization
+        if (copy instanceof BaseGenericIdEntity && BaseEntityInternalAccess.isManaged((BaseGenericIdEntity) copy)) {
+            BaseEntityInternalAccess.setManaged((BaseGenericIdEntity) copy, false);
+            BaseEntityInternalAccess.setDetached((BaseGenericIdEntity) copy, true);
+        }
+        return copy;
+    }
+
     @Override
     public int compare(CachedField o1, CachedField o2) {
         if (primaryKey != null) {
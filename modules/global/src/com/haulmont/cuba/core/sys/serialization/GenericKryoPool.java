@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.serialization;
+
+import org.apache.commons.pool2.PooledObjectFactory;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+
+/**
+ * Bounded {@link KryoPool} based on commons-pool2 {@link GenericObjectPool}. Threads wait for a free context
+ * if all contexts are in use.
+ */
+public class GenericKryoPool implements KryoPool {
+
+    protected final GenericObjectPool<KryoContext> pool;
+
+    public GenericKryoPool(PooledObjectFactory<KryoContext> factory, int poolSize, long maxBorrowWaitMillis,
+                           String jmxNamePrefix) {
+        GenericObjectPoolConfig<KryoContext> poolConfig = new GenericObjectPoolConfig<>();
+        poolConfig.setMaxIdle(poolSize);
+        poolConfig.setMaxTotal(poolSize);
+        poolConfig.setMaxWaitMillis(maxBorrowWaitMillis);
+        poolConfig.setJmxNamePrefix(jmxNamePrefix);
+
+        pool = new GenericObjectPool<>(factory, poolConfig);
+    }
+
+    @Override
+    public KryoContext borrow() {
+        try {
+            return pool.borrowObject();
+        } catch (Exception e) {
+            throw new SerializationException("Failed to borrow Kryo context from pool", e);
+        }
+    }
+
+    @Override
+    public void release(KryoContext context) {
+        context.reset();
+        pool.returnObject(context);
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    @Override
+    public long getHitCount() {
+        return pool.getBorrowedCount() - pool.getCreatedCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return pool.getCreatedCount();
+    }
+
+    @Override
+    public long getMeanWaitMillis() {
+        return pool.getMeanBorrowWaitTimeMillis();
+    }
+
+    @Override
+    public long getMaxWaitMillis() {
+        return pool.getMaxBorrowWaitTimeMillis();
+    }
+
+    @Override
+    public int getIdleCount() {
+        return pool.getNumIdle();
+    }
+}
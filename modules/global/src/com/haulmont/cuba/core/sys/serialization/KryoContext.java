@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.serialization;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Kryo instance with input and output buffers which are reused by subsequent operations of the pooled instance.
+ */
+public class KryoContext {
+
+    protected final Kryo kryo;
+    protected final int bufferSize;
+    protected final int maxReusableBufferSize;
+
+    protected Output output;
+    protected Input input;
+
+    /**
+     * @param kryo                  Kryo instance
+     * @param bufferSize            initial size of the output buffer and size of the input buffer
+     * @param maxReusableBufferSize the output buffer grown over this size is not kept after an operation
+     */
+    public KryoContext(Kryo kryo, int bufferSize, int maxReusableBufferSize) {
+        this.kryo = kryo;
+        this.bufferSize = bufferSize;
+        this.maxReusableBufferSize = maxReusableBufferSize;
+    }
+
+    public Kryo getKryo() {
+        return kryo;
+    }
+
+    /**
+     * @return growing output not bound to a stream
+     */
+    public Output getOutput() {
+        if (output == null) {
+            output = new Output(bufferSize, -1);
+        }
+        return output;
+    }
+
+    /**
+     * @return input not bound to a stream
+     */
+    public Input getInput() {
+        if (input == null) {
+            input = new Input(bufferSize);
+        }
+        return input;
+    }
+
+    /**
+     * Unbinds the buffers from streams and drops the output buffer if it has grown too large.
+     * Invoked when the context is returned to the pool.
+     */
+    public void reset() {
+        if (output != null) {
+            if (output.getBuffer().length > maxReusableBufferSize) {
+                output = null;
+            } else {
+                output.setOutputStream(null);
+            }
+        }
+        if (input != null) {
+            input.setInputStream(null);
+        }
+    }
+}
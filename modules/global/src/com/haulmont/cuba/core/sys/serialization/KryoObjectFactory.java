@@ -5,7 +5,6 @@
 
 package com.haulmont.cuba.core.sys.serialization;
 
-import com.esotericsoftware.kryo.Kryo;
 import org.apache.commons.pool2.BasePooledObjectFactory;
 import org.apache.commons.pool2.PooledObject;
 import org.apache.commons.pool2.impl.DefaultPooledObject;
@@ -13,7 +12,7 @@ import org.apache.commons.pool2.impl.DefaultPooledObject;
 /**
  * Object factory for kryo contexts object pool.
  */
-public class KryoObjectFactory extends BasePooledObjectFactory<Kryo> {
+public class KryoObjectFactory extends BasePooledObjectFactory<KryoContext> {
     private final KryoSerialization kryoSerialization;
 
     public KryoObjectFactory(KryoSerialization kryoSerialization) {
@@ -21,12 +20,12 @@ public class KryoObjectFactory extends BasePooledObjectFactory<Kryo> {
     }
 
     @Override
-    public Kryo create() {
-        return kryoSerialization.newKryoInstance();
+    public KryoContext create() {
+        return kryoSerialization.newKryoContext();
     }
 
     @Override
-    public PooledObject<Kryo> wrap(Kryo obj) {
+    public PooledObject<KryoContext> wrap(KryoContext obj) {
         return new DefaultPooledObject<>(obj);
     }
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.serialization;
+
+/**
+ * Pool of {@link KryoContext} instances used by {@link KryoSerialization}.
+ *
+ * @see KryoSerializationConfig#getPoolType()
+ */
+public interface KryoPool {
+
+    /**
+     * Takes a context from the pool or creates a new one.
+     *
+     * @throws SerializationException if a context cannot be obtained
+     */
+    KryoContext borrow();
+
+    /**
+     * Returns the context taken by {@link #borrow()}.
+     */
+    void release(KryoContext context);
+
+    /**
+     * Discards all pooled contexts.
+     */
+    void close();
+
+    /**
+     * @return number of borrowed contexts that were taken from the pool
+     */
+    long getHitCount();
+
+    /**
+     * @return number of borrowed contexts that were created because the pool had no idle ones
+     */
+    long getMissCount();
+
+    /**
+     * @return mean time in milliseconds that threads waited for a context
+     */
+    long getMeanWaitMillis();
+
+    /**
+     * @return maximum time in milliseconds that a thread waited for a context
+     */
+    long getMaxWaitMillis();
+
+    /**
+     * @return number of idle contexts in the pool
+     */
+    int getIdleCount();
+
+    default String printStatistics() {
+        return String.format("%s: hits=%d, misses=%d, meanWaitMillis=%d, maxWaitMillis=%d, idle=%d",
+                getClass().getSimpleName(), getHitCount(), getMissCount(), getMeanWaitMillis(), getMaxWaitMillis(),
+                getIdleCount());
+    }
+}
@@ -47,9 +47,6 @@ import de.javakaffee.kryoserializers.guava.ImmutableMapSerializer;
 import de.javakaffee.kryoserializers.guava.ImmutableMultimapSerializer;
 import de.javakaffee.kryoserializers.guava.ImmutableSetSerializer;
 import org.apache.commons.lang3.ClassUtils;
-import org.apache.commons.pool2.PooledObjectFactory;
-import org.apache.commons.pool2.impl.GenericObjectPool;
-import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.eclipse.persistence.indirection.IndirectCollection;
 import org.eclipse.persistence.indirection.IndirectContainer;
 import org.eclipse.persistence.internal.indirection.UnitOfWorkQueryValueHolder;
@@ -83,7 +80,7 @@ public class KryoSerialization implements Serialization {
 
     protected boolean onlySerializable;
     protected KryoSerializationConfig config;
-    protected GenericObjectPool<Kryo> pool;
+    protected KryoPool pool;
 
     public KryoSerialization() {
         this(true);
@@ -100,18 +97,20 @@ public class KryoSerialization implements Serialization {
         Configuration configuration = AppBeans.get(Configuration.NAME);
         config = configuration.getConfig(KryoSerializationConfig.class);
 
-        int poolSize = config.getMaxPoolSize();
-        GenericObjectPoolConfig<Kryo> poolConfig = new GenericObjectPoolConfig<>();
-        poolConfig.setMaxIdle(poolSize);
-        poolConfig.setMaxTotal(poolSize);
-        poolConfig.setMaxWaitMillis(config.getMaxBorrowWaitMillis());
-
-        String jmxName = "kryo-" + AppContext.getProperty("cuba.webContextName");
-        poolConfig.setJmxNamePrefix(jmxName);
+        if ("striped".equals(config.getPoolType())) {
+            int stripes = config.getPoolStripes() > 0
+                    ? config.getPoolStripes() : Runtime.getRuntime().availableProcessors() * 2;
+            pool = new StripedKryoPool(this::newKryoContext, stripes, config.getMaxIdlePerStripe());
+        } else {
+            String jmxName = "kryo-" + AppContext.getProperty("cuba.webContextName");
+            pool = new GenericKryoPool(new KryoObjectFactory(this), config.getMaxPoolSize(),
+                    config.getMaxBorrowWaitMillis(), jmxName);
+        }
+        log.debug("Kryo context pool created: {}", pool.getClass().getSimpleName());
+    }
 
-        PooledObjectFactory<Kryo> factory = new KryoObjectFactory(this);
-        pool = new GenericObjectPool<>(factory, poolConfig);
-        log.debug("Kryo context pool created");
+    protected KryoContext newKryoContext() {
+        return new KryoContext(newKryoInstance(), config.getBufferSize(), config.getMaxReusableBufferSize());
     }
 
     protected Kryo newKryoInstance() {
@@ -171,13 +170,13 @@ public class KryoSerialization implements Serialization {
 
     @Override
     public void serialize(Object object, OutputStream os) {
-        withKryoFromPool(kryo -> {
-            try (Output output = new CubaOutput(os)) {
-                if (object instanceof BaseGenericIdEntity
-                        && BaseEntityInternalAccess.isManaged((BaseGenericIdEntity) object)) {
-                    BaseEntityInternalAccess.setDetached((BaseGenericIdEntity) object, true);
-                }
-                kryo.writeClassAndObject(output, object);
+        withContextFromPool(context -> {
+            // the pooled output is not closed: the stream is closed only by the caller
+            Output output = context.getOutput();
+            output.setOutputStream(os);
+            try {
+                writeObject(context.getKryo(), output, object);
+                output.flush();
             } catch (Exception e) {
                 throw new SerializationException(e);
             }
@@ -187,9 +186,10 @@ public class KryoSerialization implements Serialization {
 
     @Override
     public Object deserialize(InputStream is) {
-        return withKryoFromPool(kryo -> {
-            try (Input input = new Input(is)) {
-                return kryo.readClassAndObject(input);
+        return withContextFromPool(context -> {
+            try (Input input = context.getInput()) {
+                input.setInputStream(is);
+                return context.getKryo().readClassAndObject(input);
             } catch (Exception e) {
                 throw new SerializationException(e);
             }
@@ -198,9 +198,16 @@ public class KryoSerialization implements Serialization {
 
     @Override
     public byte[] serialize(Object object) {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        serialize(object, bos);
-        return bos.toByteArray();
+        return withContextFromPool(context -> {
+            Output output = context.getOutput();
+            output.clear();
+            try {
+                writeObject(context.getKryo(), output, object);
+            } catch (Exception e) {
+                throw new SerializationException(e);
+            }
+            return output.toBytes();
+        });
     }
 
     @Override
@@ -209,9 +216,30 @@ public class KryoSerialization implements Serialization {
             return null;
         }
 
-        return deserialize(new ByteArrayInputStream(bytes));
+        return withContextFromPool(context -> {
+            try {
+                return context.getKryo().readClassAndObject(new Input(bytes));
+            } catch (Exception e) {
+                throw new SerializationException(e);
+            }
+        });
+    }
+
+    protected void writeObject(Kryo kryo, Output output, Object object) {
+        if (object instanceof BaseGenericIdEntity
+                && BaseEntityInternalAccess.isManaged((BaseGenericIdEntity) object)) {
+            BaseEntityInternalAccess.setDetached((BaseGenericIdEntity) object, true);
+        }
+        kryo.writeClassAndObject(output, object);
     }
 
+    /**
+     * Creates a deep copy of the object graph without converting it to bytes. The copy follows the rules of
+     * {@link #serialize(Object)}: transient fields are not copied, lazy EclipseLink collections and value holders
+     * that are not instantiated are replaced with unfetched ones, and managed entities become detached.
+     *
+     * @throws KryoException if the graph contains an object which serializer does not support copying
+     */
     public Object copy(Object object) {
         if (object == null) {
             return null;
@@ -223,19 +251,25 @@ public class KryoSerialization implements Serialization {
     }
 
     protected  <T> T withKryoFromPool(Function<Kryo, T> action) {
-        Kryo kryo;
-        try {
-            kryo = pool.borrowObject();
-        } catch (Exception e) {
-            throw new SerializationException("Failed to borrow Kryo context from pool", e);
-        }
+        return withContextFromPool(context -> action.apply(context.getKryo()));
+    }
+
+    protected <T> T withContextFromPool(Function<KryoContext, T> action) {
+        KryoContext context = pool.borrow();
         try {
-            return action.apply(kryo);
+            return action.apply(context);
         } finally {
-            pool.returnObject(kryo);
+            pool.release(context);
         }
     }
 
+    /**
+     * @return statistics of the Kryo instance pool
+     */
+    public String printPoolStatistics() {
+        return pool != null ? pool.printStatistics() : "Pool is shut down";
+    }
+
     /**
      * Shuts down the pool, unregisters JMX.
      */
@@ -269,6 +303,12 @@ public class KryoSerialization implements Serialization {
             checkIncorrectClass(type);
             return super.read(kryo, input, type);
         }
+
+        @Override
+        public Collection copy(Kryo kryo, Collection original) {
+            checkIncorrectObject(original);
+            return super.copy(kryo, original);
+        }
     }
 
     public static class IndirectContainerSerializer extends CollectionSerializer {
@@ -293,6 +333,16 @@ public class KryoSerialization implements Serialization {
                 return (Collection) indirectCollection;
             }
         }
+
+        @Override
+        public Collection copy(Kryo kryo, Collection original) {
+            if (original instanceof IndirectContainer && !((IndirectContainer) original).isInstantiated()) {
+                IndirectCollection indirectCollection = (IndirectCollection) kryo.newInstance(original.getClass());
+                indirectCollection.setValueHolder(new UnfetchedValueHolder());
+                return (Collection) indirectCollection;
+            }
+            return super.copy(kryo, original);
+        }
     }
 
     public static class CubaJavaSerializer extends JavaSerializer {
@@ -303,12 +353,7 @@ public class KryoSerialization implements Serialization {
                 ObjectMap graphContext = kryo.getGraphContext();
                 ObjectInputStream objectStream = (ObjectInputStream) graphContext.get(this);
                 if (objectStream == null) {
-                    objectStream = new ObjectInputStream(input) {
-                        @Override
-                        protected Class<?> resolveClass(ObjectStreamClass desc) throws ClassNotFoundException {
-                            return ClassUtils.getClass(KryoSerialization.class.getClassLoader(), desc.getName());
-                        }
-                    };
+                    objectStream = createObjectInputStream(input);
                     graphContext.put(this, objectStream);
                 }
                 return objectStream.readObject();
@@ -316,6 +361,30 @@ public class KryoSerialization implements Serialization {
                 throw new KryoException("Error during Java deserialization.", ex);
             }
         }
+
+        @Override
+        public Object copy(Kryo kryo, Object original) {
+            try {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+                    oos.writeObject(original);
+                }
+                try (ObjectInputStream ois = createObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+                    return ois.readObject();
+                }
+            } catch (Exception ex) {
+                throw new KryoException("Error during Java copy.", ex);
+            }
+        }
+
+        protected ObjectInputStream createObjectInputStream(InputStream input) throws IOException {
+            return new ObjectInputStream(input) {
+                @Override
+                protected Class<?> resolveClass(ObjectStreamClass desc) throws ClassNotFoundException {
+                    return ClassUtils.getClass(KryoSerialization.class.getClassLoader(), desc.getName());
+                }
+            };
+        }
     }
 
     public class UnitOfWorkQueryValueHolderSerializer extends KryoSerialization.CubaFieldSerializer {
@@ -354,6 +423,16 @@ public class KryoSerialization implements Serialization {
                 return new UnfetchedWeavedAttributeValueHolder();
             }
         }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object copy(Kryo kryo, Object original) {
+            if (original instanceof UnitOfWorkQueryValueHolder
+                    && !((UnitOfWorkQueryValueHolder) original).isInstantiated()) {
+                return new UnfetchedWeavedAttributeValueHolder();
+            }
+            return super.copy(kryo, original);
+        }
     }
 
     /**
@@ -418,10 +497,13 @@ public class KryoSerialization implements Serialization {
     public static class CubaFieldSerializer<T> extends FieldSerializer<T> {
         public CubaFieldSerializer(Kryo kryo, Class type) {
             super(kryo, type);
+            // copies must not contain state that is not serialized
+            setCopyTransient(false);
         }
 
         public CubaFieldSerializer(Kryo kryo, Class type, Class[] generics) {
             super(kryo, type, generics);
+            setCopyTransient(false);
         }
 
         @Override
@@ -441,6 +523,12 @@ public class KryoSerialization implements Serialization {
             checkIncorrectClass(type);
             return super.read(kryo, input, type);
         }
+
+        @Override
+        public T copy(Kryo kryo, T original) {
+            checkIncorrectObject(original);
+            return super.copy(kryo, original);
+        }
     }
 
     protected static void checkIncorrectClass(Class type) {
@@ -457,20 +545,4 @@ public class KryoSerialization implements Serialization {
                     className, className));
         }
     }
-
-    public static class CubaOutput extends Output {
-
-        public CubaOutput(OutputStream outputStream) {
-            super(outputStream);
-        }
-
-        @Override
-        public void close() {
-            //Prevent close stream. Stream closed only by:
-            //com.haulmont.cuba.core.sys.remoting.HttpServiceExporter,
-            //com.haulmont.cuba.core.sys.remoting.ClusteredHttpInvokerRequestExecutor()
-            //Only flush buffer to output stream
-            flush();
-        }
-    }
 }
\ No newline at end of file
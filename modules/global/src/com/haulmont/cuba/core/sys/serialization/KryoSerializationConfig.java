@@ -9,6 +9,7 @@ import com.haulmont.cuba.core.config.Config;
 import com.haulmont.cuba.core.config.Property;
 import com.haulmont.cuba.core.config.Source;
 import com.haulmont.cuba.core.config.SourceType;
+import com.haulmont.cuba.core.config.defaults.Default;
 import com.haulmont.cuba.core.config.defaults.DefaultInt;
 import com.haulmont.cuba.core.config.defaults.DefaultLong;
 
@@ -31,4 +32,40 @@ public interface KryoSerializationConfig extends Config {
     @DefaultLong(10000)
     @Property("cuba.kryo.maxBorrowWaitMillis")
     long getMaxBorrowWaitMillis();
+
+    /**
+     * @return type of the Kryo instance pool: {@code generic} for a bounded commons-pool2 object pool
+     * or {@code striped} for a non-blocking pool with per-thread stripes.
+     */
+    @Default("generic")
+    @Property("cuba.kryo.poolType")
+    String getPoolType();
+
+    /**
+     * @return number of stripes of the {@code striped} pool. If zero, twice the number of available processors.
+     */
+    @DefaultInt(0)
+    @Property("cuba.kryo.poolStripes")
+    int getPoolStripes();
+
+    /**
+     * @return maximum number of idle Kryo instances in a stripe of the {@code striped} pool.
+     */
+    @DefaultInt(4)
+    @Property("cuba.kryo.maxIdlePerStripe")
+    int getMaxIdlePerStripe();
+
+    /**
+     * @return initial size of the input and output buffers of a pooled Kryo instance.
+     */
+    @DefaultInt(4096)
+    @Property("cuba.kryo.bufferSize")
+    int getBufferSize();
+
+    /**
+     * @return maximum size of an output buffer that is kept by a pooled Kryo instance for reuse.
+     */
+    @DefaultInt(1024 * 1024)
+    @Property("cuba.kryo.maxReusableBufferSize")
+    int getMaxReusableBufferSize();
 }
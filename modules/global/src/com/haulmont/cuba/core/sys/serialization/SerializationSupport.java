@@ -17,9 +17,12 @@
 
 package com.haulmont.cuba.core.sys.serialization;
 
+import com.esotericsoftware.kryo.KryoException;
 import com.haulmont.bali.util.ReflectionHelper;
 import com.haulmont.cuba.core.sys.AppContext;
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -31,6 +34,8 @@ import static java.lang.String.format;
  * Static holder for serialization object
  */
 public class SerializationSupport {
+    private static final Logger log = LoggerFactory.getLogger(SerializationSupport.class);
+
     private final static Serialization serialization;
     private final static KryoSerialization kryoSerialization;
 
@@ -71,6 +76,20 @@ public class SerializationSupport {
         return serialization.deserialize(bytes);
     }
 
+    /**
+     * Creates a deep copy of the object graph using {@link KryoSerialization#copy(Object)}, without converting it
+     * to bytes. If some object of the graph cannot be copied by Kryo, the copy is created by serialization and
+     * deserialization.
+     */
+    public static Object copy(Object object) {
+        try {
+            return kryoSerialization.copy(object);
+        } catch (KryoException e) {
+            log.debug("Unable to copy {} by Kryo, using serialization: {}", object.getClass().getName(), e.toString());
+            return deserialize(serialize(object));
+        }
+    }
+
     public static KryoSerialization getKryoSerialization() {
         return kryoSerialization;
     }
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.serialization;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking {@link KryoPool} that spreads idle contexts over a number of stripes selected by the current thread.
+ * <p>
+ * A thread takes a context from its own stripe or from the next one. If both are empty, a new context is created,
+ * so threads never wait. A returned context is kept if its stripe has less than the maximum number of idle contexts,
+ * otherwise it is discarded. Unlike thread-local instances, the contexts are not bound to the threads of the
+ * application server, so they can be released on redeploy.
+ */
+public class StripedKryoPool implements KryoPool {
+
+    protected final Supplier<KryoContext> factory;
+    protected final Stripe[] stripes;
+    protected final int mask;
+    protected final int maxIdlePerStripe;
+
+    protected final LongAdder hitCount = new LongAdder();
+    protected final LongAdder missCount = new LongAdder();
+    protected final LongAdder discardedCount = new LongAdder();
+
+    /**
+     * @param factory          creates new contexts
+     * @param stripes          number of stripes, rounded up to a power of two
+     * @param maxIdlePerStripe maximum number of idle contexts kept in a stripe
+     */
+    public StripedKryoPool(Supplier<KryoContext> factory, int stripes, int maxIdlePerStripe) {
+        this.factory = factory;
+        this.maxIdlePerStripe = maxIdlePerStripe;
+
+        int size = Integer.highestOneBit(Math.max(stripes, 1) * 2 - 1);
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.mask = size - 1;
+    }
+
+    @Override
+    public KryoContext borrow() {
+        int index = stripeIndex();
+        KryoContext context = stripes[index].poll();
+        if (context == null) {
+            context = stripes[(index + 1) & mask].poll();
+        }
+        if (context != null) {
+            hitCount.increment();
+            return context;
+        }
+        missCount.increment();
+        return factory.get();
+    }
+
+    @Override
+    public void release(KryoContext context) {
+        context.reset();
+        int index = stripeIndex();
+        if (!stripes[index].offer(context, maxIdlePerStripe)
+                && !stripes[(index + 1) & mask].offer(context, maxIdlePerStripe)) {
+            discardedCount.increment();
+        }
+    }
+
+    protected int stripeIndex() {
+        long id = Thread.currentThread().getId();
+        return (int) (id ^ (id >>> 16)) & mask;
+    }
+
+    @Override
+    public void close() {
+        for (Stripe stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    @Override
+    public long getMeanWaitMillis() {
+        return 0;
+    }
+
+    @Override
+    public long getMaxWaitMillis() {
+        return 0;
+    }
+
+    @Override
+    public int getIdleCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            count += stripe.size.get();
+        }
+        return count;
+    }
+
+    /**
+     * @return number of returned contexts that were discarded because the stripes were full
+     */
+    public long getDiscardedCount() {
+        return discardedCount.sum();
+    }
+
+    @Override
+    public String printStatistics() {
+        return KryoPool.super.printStatistics() + ", discarded=" + getDiscardedCount() + ", stripes=" + stripes.length;
+    }
+
+    protected static class Stripe {
+        protected final Queue<KryoContext> queue = new ConcurrentLinkedQueue<>();
+        protected final AtomicInteger size = new AtomicInteger();
+
+        protected KryoContext poll() {
+            KryoContext context = queue.poll();
+            if (context != null) {
+                size.decrementAndGet();
+            }
+            return context;
+        }
+
+        protected boolean offer(KryoContext context, int maxSize) {
+            if (size.incrementAndGet() > maxSize) {
+                size.decrementAndGet();
+                return false;
+            }
+            queue.offer(context);
+            return true;
+        }
+
+        protected void clear() {
+            while (poll() != null) {
+                // discard
+            }
+        }
+    }
+}
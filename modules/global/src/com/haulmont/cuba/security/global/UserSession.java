@@ -59,6 +59,8 @@ public class UserSession implements Serializable {
 
     protected transient Map<String, Object> localAttributes;
 
+    protected transient volatile PermissionMatrix permissionMatrix;
+
     /**
      * INTERNAL
      * Used only for kryo serialization
@@ -112,6 +114,7 @@ public class UserSession implements Serializable {
         locale = src.locale;
         timeZone = src.timeZone;
         joinedRole = src.joinedRole;
+        permissionMatrix = src.permissionMatrix;
         accessConstraints = src.accessConstraints;
         attributes = src.attributes;
         localAttributes = src.localAttributes;
@@ -255,8 +258,21 @@ public class UserSession implements Serializable {
      * INTERNAL
      */
     public Integer getPermissionValue(PermissionType type, String target) {
-        return PermissionsUtils.getResultingPermissionValue(joinedRole, type, target,
-                permissionUndefinedAccessPolicy);
+        return getPermissionMatrix().getPermissionValue(type, target);
+    }
+
+    /**
+     * INTERNAL.
+     * Returns permissions of the joined role compiled for fast checks. The matrix is compiled on first access
+     * and shared with other sessions having the same permissions.
+     */
+    public PermissionMatrix getPermissionMatrix() {
+        PermissionMatrix matrix = permissionMatrix;
+        if (matrix == null) {
+            matrix = PermissionMatrix.compile(joinedRole, permissionUndefinedAccessPolicy);
+            permissionMatrix = matrix;
+        }
+        return matrix;
     }
 
     /**
@@ -278,16 +294,14 @@ public class UserSession implements Serializable {
      * Check user permission for the entity operation
      */
     public boolean isEntityOpPermitted(MetaClass metaClass, EntityOp entityOp) {
-        return isPermitted(PermissionType.ENTITY_OP, PermissionsUtils.getEntityOperationTarget(metaClass, entityOp));
+        return getPermissionMatrix().getEntityOpValue(metaClass.getName(), entityOp) >= 1;
     }
 
     /**
      * Check user permission for the entity attribute
      */
     public boolean isEntityAttrPermitted(MetaClass metaClass, String property, EntityAttrAccess access) {
-        return isPermitted(PermissionType.ENTITY_ATTR,
-                PermissionsUtils.getEntityAttributeTarget(metaClass, property),
-                access.getId());
+        return getPermissionMatrix().getEntityAttrValue(metaClass.getName(), property) >= access.getId();
     }
 
     /**
@@ -331,9 +345,7 @@ public class UserSession implements Serializable {
      * @return true if permitted, false otherwise
      */
     public boolean isPermitted(PermissionType type, String target, int value) {
-        Integer v = PermissionsUtils.getResultingPermissionValue(joinedRole, type, target,
-                permissionUndefinedAccessPolicy);
-        return (v != null && v >= value);
+        return getPermissionMatrix().getPermissionValue(type, target) >= value;
     }
 
     /**
@@ -463,10 +475,12 @@ public class UserSession implements Serializable {
     /**
      * Sets {@code joinedRole} to the UserSession. After that user will only have permissions defined in the specified role.
      * <p>
-     * Use {@code RoleDefinitionBuilder} to construct a suitable role.
+     * Use {@code RoleDefinitionBuilder} to construct a suitable role. The role must not be modified after
+     * it is set, because permission checks use its compiled copy.
      */
     public void setJoinedRole(RoleDefinition joinedRole) {
         this.joinedRole = joinedRole;
+        this.permissionMatrix = null;
     }
 
     /**
@@ -499,6 +513,7 @@ public class UserSession implements Serializable {
      */
     public void setPermissionUndefinedAccessPolicy(Access permissionUndefinedAccessPolicy) {
         this.permissionUndefinedAccessPolicy = permissionUndefinedAccessPolicy;
+        this.permissionMatrix = null;
     }
 
     @Override
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.security.role;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.haulmont.cuba.security.entity.Access;
+import com.haulmont.cuba.security.entity.EntityAttrAccess;
+import com.haulmont.cuba.security.entity.EntityOp;
+import com.haulmont.cuba.security.entity.Permission;
+import com.haulmont.cuba.security.entity.PermissionType;
+
+import java.util.*;
+
+/**
+ * INTERNAL.
+ * Permissions of a {@link RoleDefinition} compiled for fast checks. Wildcard permissions and the value of undefined
+ * permissions are resolved once, so checking an entity operation or attribute takes one or two hash lookups
+ * by names without building target strings.
+ * <p>
+ * Instances are immutable and interned: sessions with identical permissions share a single instance.
+ * The result of any check is the same as of {@link PermissionsUtils#getResultingPermissionValue}.
+ */
+public final class PermissionMatrix {
+
+    private static final Interner<PermissionMatrix> INTERNER = Interners.newWeakInterner();
+
+    private static final String WILDCARD = "*";
+
+    private final Access permissionUndefinedAccessPolicy;
+
+    private final Map<PermissionType, Map<String, Integer>> explicitPermissions = new EnumMap<>(PermissionType.class);
+
+    private final Map<PermissionType, Integer> defaultValues = new EnumMap<>(PermissionType.class);
+
+    private final Map<String, Integer> entityOpWildcards = new HashMap<>();
+
+    private final Map<String, int[]> entityOps = new HashMap<>();
+
+    private final int[] defaultEntityOps;
+
+    private final Map<String, EntityAttributes> entityAttributes = new HashMap<>();
+
+    private final int defaultEntityAttribute;
+
+    private final int hashCode;
+
+    private PermissionMatrix(RoleDefinition role, Access permissionUndefinedAccessPolicy) {
+        this.permissionUndefinedAccessPolicy = permissionUndefinedAccessPolicy;
+        for (PermissionType type : PermissionType.values()) {
+            Map<String, Integer> permissions = new HashMap<>(PermissionsUtils.getPermissionsByType(role, type).getExplicitPermissions());
+            permissions.values().removeIf(Objects::isNull);
+            explicitPermissions.put(type, permissions);
+        }
+
+        Map<String, Integer> screenPermissions = explicitPermissions.get(PermissionType.SCREEN);
+        defaultValues.put(PermissionType.SCREEN, screenPermissions.getOrDefault(WILDCARD, getUndefinedValue(PermissionType.SCREEN)));
+        Map<String, Integer> specificPermissions = explicitPermissions.get(PermissionType.SPECIFIC);
+        defaultValues.put(PermissionType.SPECIFIC, specificPermissions.getOrDefault(WILDCARD, getUndefinedValue(PermissionType.SPECIFIC)));
+        defaultValues.put(PermissionType.UI, getUndefinedValue(PermissionType.UI));
+        defaultValues.put(PermissionType.ENTITY_OP, getUndefinedValue(PermissionType.ENTITY_OP));
+        defaultValues.put(PermissionType.ENTITY_ATTR, getUndefinedValue(PermissionType.ENTITY_ATTR));
+
+        compileEntityOps();
+        defaultEntityOps = resolveEntityOps(Collections.emptyMap());
+
+        defaultEntityAttribute = explicitPermissions.get(PermissionType.ENTITY_ATTR)
+                .getOrDefault(WILDCARD + Permission.TARGET_PATH_DELIMETER + WILDCARD, defaultValues.get(PermissionType.ENTITY_ATTR));
+        compileEntityAttributes();
+
+        hashCode = Objects.hash(permissionUndefinedAccessPolicy, explicitPermissions);
+    }
+
+    /**
+     * Compiles permissions of the given role or returns an existing instance with the same permissions.
+     *
+     * @param role                            joined role of a user session
+     * @param permissionUndefinedAccessPolicy policy to resolve undefined permission values
+     */
+    public static PermissionMatrix compile(RoleDefinition role, Access permissionUndefinedAccessPolicy) {
+        return INTERNER.intern(new PermissionMatrix(role, permissionUndefinedAccessPolicy));
+    }
+
+    private void compileEntityOps() {
+        Map<String, Map<String, Integer>> valuesByEntity = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : explicitPermissions.get(PermissionType.ENTITY_OP).entrySet()) {
+            String target = entry.getKey();
+            int pos = getDelimiterPosition(target);
+            if (pos < 0) {
+                continue;
+            }
+            String entityName = target.substring(0, pos);
+            String operation = target.substring(pos + 1);
+            if (WILDCARD.equals(entityName)) {
+                entityOpWildcards.put(operation, entry.getValue());
+            }
+            valuesByEntity.computeIfAbsent(entityName, name -> new HashMap<>()).put(operation, entry.getValue());
+        }
+        for (Map.Entry<String, Map<String, Integer>> entry : valuesByEntity.entrySet()) {
+            entityOps.put(entry.getKey(), resolveEntityOps(entry.getValue()));
+        }
+    }
+
+    private int[] resolveEntityOps(Map<String, Integer> explicitValues) {
+        EntityOp[] operations = EntityOp.values();
+        int[] values = new int[operations.length];
+        for (EntityOp operation : operations) {
+            Integer value = explicitValues.get(operation.getId());
+            if (value == null) {
+                value = entityOpWildcards.get(operation.getId());
+            }
+            values[operation.ordinal()] = value != null ? value : defaultValues.get(PermissionType.ENTITY_OP);
+        }
+        return values;
+    }
+
+    private void compileEntityAttributes() {
+        Map<String, Integer> permissions = explicitPermissions.get(PermissionType.ENTITY_ATTR);
+        for (Map.Entry<String, Integer> entry : permissions.entrySet()) {
+            String target = entry.getKey();
+            int pos = getDelimiterPosition(target);
+            if (pos < 0) {
+                continue;
+            }
+            String entityName = target.substring(0, pos);
+            EntityAttributes attributes = entityAttributes.computeIfAbsent(entityName, name ->
+                    new EntityAttributes(permissions.getOrDefault(name + Permission.TARGET_PATH_DELIMETER + WILDCARD,
+                            defaultEntityAttribute)));
+            attributes.values.put(target.substring(pos + 1), entry.getValue());
+        }
+    }
+
+    /**
+     * @return position of the delimiter if the target consists of two non-empty parts, -1 otherwise
+     */
+    private int getDelimiterPosition(String target) {
+        int pos = target.indexOf(Permission.TARGET_PATH_DELIMETER);
+        if (pos < 0 || pos == target.length() - 1 || target.indexOf(Permission.TARGET_PATH_DELIMETER, pos + 1) >= 0) {
+            return -1;
+        }
+        return pos;
+    }
+
+    private int getUndefinedValue(PermissionType type) {
+        if (permissionUndefinedAccessPolicy == Access.DENY) {
+            return Access.DENY.getId();
+        }
+        return type == PermissionType.ENTITY_ATTR ? EntityAttrAccess.MODIFY.getId() : Access.ALLOW.getId();
+    }
+
+    /**
+     * @return resulting permission value for an arbitrary target
+     */
+    public int getPermissionValue(PermissionType type, String target) {
+        Integer value = explicitPermissions.get(type).get(target);
+        if (value != null) {
+            return value;
+        }
+        switch (type) {
+            case ENTITY_OP: {
+                int pos = getDelimiterPosition(target);
+                if (pos >= 0) {
+                    value = entityOpWildcards.get(target.substring(pos + 1));
+                }
+                break;
+            }
+            case ENTITY_ATTR: {
+                int pos = getDelimiterPosition(target);
+                if (pos >= 0) {
+                    EntityAttributes attributes = entityAttributes.get(target.substring(0, pos));
+                    return attributes != null ? attributes.defaultValue : defaultEntityAttribute;
+                }
+                break;
+            }
+            default:
+                break;
+        }
+        return value != null ? value : defaultValues.get(type);
+    }
+
+    /**
+     * @return resulting permission value for an operation on the entity
+     */
+    public int getEntityOpValue(String entityName, EntityOp entityOp) {
+        int[] values = entityOps.get(entityName);
+        return (values != null ? values : defaultEntityOps)[entityOp.ordinal()];
+    }
+
+    /**
+     * @return resulting permission value for the entity attribute
+     */
+    public int getEntityAttrValue(String entityName, String property) {
+        EntityAttributes attributes = entityAttributes.get(entityName);
+        if (attributes == null) {
+            return defaultEntityAttribute;
+        }
+        Integer value = attributes.values.get(property);
+        return value != null ? value : attributes.defaultValue;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PermissionMatrix that = (PermissionMatrix) o;
+        return hashCode == that.hashCode
+                && permissionUndefinedAccessPolicy == that.permissionUndefinedAccessPolicy
+                && explicitPermissions.equals(that.explicitPermissions);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    private static class EntityAttributes {
+        private final Map<String, Integer> values = new HashMap<>();
+        private final int defaultValue;
+
+        private EntityAttributes(int defaultValue) {
+            this.defaultValue = defaultValue;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.chile.core.datatypes.impl;
+
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FormatterCacheTest {
+
+    private static final Logger log = LoggerFactory.getLogger(FormatterCacheTest.class);
+
+    @Test
+    public void cloningCache() throws Exception {
+        FormatterCache<NumberFormat> cache = FormatterCache.cloning();
+
+        NumberFormat format = cache.get(null, Locale.ENGLISH, () -> new DecimalFormat("0.00"));
+        NumberFormat second = cache.get(null, Locale.ENGLISH, () -> {
+            throw new AssertionError("Prototype must be cached");
+        });
+        assertNotSame(format, second);
+        assertEquals(format, second);
+
+        format.setMaximumFractionDigits(5);
+        NumberFormat third = cache.get(null, Locale.ENGLISH, () -> new DecimalFormat("0.00"));
+        assertEquals(2, third.getMaximumFractionDigits());
+    }
+
+    @Test
+    public void sharedCache() throws Exception {
+        FormatterCache<Object> cache = FormatterCache.shared();
+
+        Object formatter = cache.get(null, Locale.ENGLISH, Object::new);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Object> future = executor.submit(() -> cache.get(null, Locale.ENGLISH, Object::new));
+            assertSame(formatter, future.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void concurrentFormatting() throws Exception {
+        DateTimeDatatype datatype = new DateTimeDatatype(createElement("dd/MM/yyyy HH:mm:ss"));
+        Date date = new Date(1_500_000_000_000L);
+        String expected = datatype.format(date);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] futures = new Future[4];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(() -> {
+                    for (int j = 0; j < 10_000; j++) {
+                        assertEquals(expected, datatype.format(date));
+                        assertEquals(date, datatype.parse(expected));
+                    }
+                    return null;
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void formatManyValues() throws ParseException {
+        int iterations = 1_000_000;
+
+        DoubleDatatype doubleDatatype = new DoubleDatatype(createElement("0.###"));
+        assertEquals(1.5, (double) doubleDatatype.parse(doubleDatatype.format(1.5)));
+        long doubleTime = measure(iterations, i -> doubleDatatype.format(i / 10.0));
+
+        DateTimeDatatype dateTimeDatatype = new DateTimeDatatype(createElement("dd/MM/yyyy HH:mm"));
+        long dateTimeTime = measure(iterations, i -> dateTimeDatatype.format(new Date(i * 60_000L)));
+
+        LocalDateDatatype localDateDatatype = new LocalDateDatatype(createElement("dd/MM/yyyy"));
+        LocalDate epoch = LocalDate.of(2000, 1, 1);
+        long localDateTime = measure(iterations, i -> localDateDatatype.format(epoch.plusDays(i % 10_000)));
+
+        log.info("{} values formatted: double {} ms, dateTime {} ms, localDate {} ms", iterations,
+                TimeUnit.NANOSECONDS.toMillis(doubleTime),
+                TimeUnit.NANOSECONDS.toMillis(dateTimeTime),
+                TimeUnit.NANOSECONDS.toMillis(localDateTime));
+    }
+
+    private long measure(int iterations, IntFunction<String> format) {
+        int length = 0;
+        // warm up
+        for (int i = 0; i < iterations / 10; i++) {
+            length += format.apply(i).length();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            length += format.apply(i).length();
+        }
+        long time = System.nanoTime() - start;
+        assertTrue(length > 0);
+        return time;
+    }
+
+    private Element createElement(String format) {
+        Element element = DocumentHelper.createElement("datatype");
+        element.addAttribute("format", format);
+        return element;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys;
+
+import com.haulmont.cuba.core.global.GlobalConfig;
+import com.haulmont.cuba.core.global.Metadata;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NumberIdCacheTest {
+
+    private static final Logger log = LoggerFactory.getLogger(NumberIdCacheTest.class);
+
+    private NumberIdCache numberIdCache;
+
+    @AfterEach
+    public void tearDown() {
+        if (numberIdCache != null) {
+            numberIdCache.shutdown();
+        }
+    }
+
+    @Test
+    public void testSequentialIds() {
+        numberIdCache = createCache(10, 75);
+        TestSequence sequence = new TestSequence(10, 0);
+
+        for (long i = 1; i <= 95; i++) {
+            assertEquals(i, (long) numberIdCache.createLongId("test$Entity", sequence));
+        }
+        assertTrue(sequence.cachedCalls.get() >= 10);
+        assertTrue(numberIdCache.printStatistics().startsWith("test$Entity: refills: 10"));
+    }
+
+    @Test
+    public void testNoPrefetchForSmallBlocks() {
+        numberIdCache = createCache(1, 75);
+        TestSequence sequence = new TestSequence(1, 0);
+
+        for (long i = 1; i <= 100; i++) {
+            assertEquals(i, (long) numberIdCache.createLongId("test$Entity", sequence));
+        }
+        assertEquals(100, sequence.cachedCalls.get());
+    }
+
+    @Test
+    public void testConcurrentPrefetch() throws Exception {
+        testConcurrentIds(75);
+    }
+
+    @Test
+    public void testConcurrentWithoutPrefetch() throws Exception {
+        testConcurrentIds(0);
+    }
+
+    private void testConcurrentIds(int prefetchThreshold) throws Exception {
+        int threads = 8;
+        int idsPerThread = 20_000;
+        numberIdCache = createCache(1000, prefetchThreshold);
+        TestSequence sequence = new TestSequence(1000, 5);
+
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < idsPerThread; i++) {
+                        ids.add(numberIdCache.createLongId("test$Entity", sequence));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+            log.info("{} ids with prefetch threshold {}% took {} ms\n{}",
+                    threads * idsPerThread, prefetchThreshold,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), numberIdCache.printStatistics());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads * idsPerThread, ids.size());
+    }
+
+    private NumberIdCache createCache(int cacheSize, int prefetchThreshold) {
+        NumberIdCache cache = new NumberIdCache();
+        cache.config = (GlobalConfig) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{GlobalConfig.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getNumberIdCacheSize":
+                            return cacheSize;
+                        case "getNumberIdCachePrefetchThreshold":
+                            return prefetchThreshold;
+                        default:
+                            return null;
+                    }
+                });
+        cache.metadata = (Metadata) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{Metadata.class},
+                (proxy, method, args) -> null);
+        return cache;
+    }
+
+    private static class TestSequence implements NumberIdSequence {
+
+        private final AtomicLong value = new AtomicLong();
+        private final AtomicInteger cachedCalls = new AtomicInteger();
+        private final int increment;
+        private final long delay;
+
+        private TestSequence(int increment, long delay) {
+            this.increment = increment;
+            this.delay = delay;
+        }
+
+        @Override
+        public Long createLongId(String entityName, String sequenceName) {
+            return value.incrementAndGet();
+        }
+
+        @Override
+        public Long createCachedLongId(String entityName, String sequenceName) {
+            cachedCalls.incrementAndGet();
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return value.getAndAdd(increment);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.security.role;
+
+import com.haulmont.cuba.security.entity.Access;
+import com.haulmont.cuba.security.entity.EntityAttrAccess;
+import com.haulmont.cuba.security.entity.EntityOp;
+import com.haulmont.cuba.security.entity.PermissionType;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PermissionMatrixTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PermissionMatrixTest.class);
+
+    private static final List<String> ENTITIES = Arrays.asList("sec$User", "sec$Group", "sec$Role", "test$Order");
+
+    private static final List<String> ATTRIBUTES = Arrays.asList("login", "name", "group", "*", "description");
+
+    @Test
+    public void testSameValuesAsPermissionsUtils() {
+        for (Access policy : Access.values()) {
+            RoleDefinition role = createRole();
+            PermissionMatrix matrix = PermissionMatrix.compile(role, policy);
+
+            for (String entity : ENTITIES) {
+                for (EntityOp op : EntityOp.values()) {
+                    String target = PermissionsUtils.getEntityOperationTarget(entity, op);
+                    int expected = PermissionsUtils.getResultingPermissionValue(role, PermissionType.ENTITY_OP, target, policy);
+                    assertEquals(expected, matrix.getEntityOpValue(entity, op), target);
+                    assertEquals(expected, matrix.getPermissionValue(PermissionType.ENTITY_OP, target), target);
+                }
+                for (String attribute : ATTRIBUTES) {
+                    String target = PermissionsUtils.getEntityAttributeTarget(entity, attribute);
+                    int expected = PermissionsUtils.getResultingPermissionValue(role, PermissionType.ENTITY_ATTR, target, policy);
+                    assertEquals(expected, matrix.getEntityAttrValue(entity, attribute), target);
+                    assertEquals(expected, matrix.getPermissionValue(PermissionType.ENTITY_ATTR, target), target);
+                }
+            }
+            for (String target : Arrays.asList("sec$User.browse", "sec$Role.browse", "cuba.gui.loginToClient", "", "a:b:c")) {
+                for (PermissionType type : PermissionType.values()) {
+                    assertEquals(PermissionsUtils.getResultingPermissionValue(role, type, target, policy).intValue(),
+                            matrix.getPermissionValue(type, target), type + " " + target);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSharedBetweenIdenticalRoles() {
+        PermissionMatrix matrix = PermissionMatrix.compile(createRole(), Access.DENY);
+
+        assertSame(matrix, PermissionMatrix.compile(createRole(), Access.DENY));
+        assertNotSame(matrix, PermissionMatrix.compile(createRole(), Access.ALLOW));
+
+        RoleDefinition changedRole = createRole();
+        changedRole.entityPermissions().getExplicitPermissions().put("sec$User:delete", Access.ALLOW.getId());
+        assertNotSame(matrix, PermissionMatrix.compile(changedRole, Access.DENY));
+    }
+
+    @Test
+    public void testCheckPerformance() {
+        RoleDefinition role = createRole();
+        PermissionMatrix matrix = PermissionMatrix.compile(role, Access.DENY);
+        int iterations = 1_000_000;
+
+        long utilsTime = measure(iterations, i -> PermissionsUtils.getResultingPermissionValue(role, PermissionType.ENTITY_ATTR,
+                PermissionsUtils.getEntityAttributeTarget(ENTITIES.get(i % ENTITIES.size()), ATTRIBUTES.get(i % ATTRIBUTES.size())),
+                Access.DENY));
+        long matrixTime = measure(iterations, i ->
+                matrix.getEntityAttrValue(ENTITIES.get(i % ENTITIES.size()), ATTRIBUTES.get(i % ATTRIBUTES.size())));
+
+        log.info("{} attribute permission checks: {} ms with PermissionsUtils, {} ms with PermissionMatrix",
+                iterations, TimeUnit.NANOSECONDS.toMillis(utilsTime), TimeUnit.NANOSECONDS.toMillis(matrixTime));
+    }
+
+    private long measure(int iterations, IntUnaryOperator check) {
+        int result = 0;
+        // warm up
+        for (int i = 0; i < iterations; i++) {
+            result += check.applyAsInt(i);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            result += check.applyAsInt(i);
+        }
+        long time = System.nanoTime() - start;
+        assertTrue(result >= 0);
+        return time;
+    }
+
+    private RoleDefinition createRole() {
+        RoleDefinition role = BasicRoleDefinition.builder().build();
+        role.entityPermissions().getExplicitPermissions().put("*:read", Access.ALLOW.getId());
+        role.entityPermissions().getExplicitPermissions().put("*:create", Access.DENY.getId());
+        role.entityPermissions().getExplicitPermissions().put("sec$User:create", Access.ALLOW.getId());
+        role.entityPermissions().getExplicitPermissions().put("sec$Group:read", Access.DENY.getId());
+        role.entityAttributePermissions().getExplicitPermissions().put("sec$User:*", EntityAttrAccess.VIEW.getId());
+        role.entityAttributePermissions().getExplicitPermissions().put("sec$User:login", EntityAttrAccess.MODIFY.getId());
+        role.entityAttributePermissions().getExplicitPermissions().put("sec$Group:name", EntityAttrAccess.DENY.getId());
+        role.entityAttributePermissions().getExplicitPermissions().put("*:*", EntityAttrAccess.MODIFY.getId());
+        role.screenPermissions().getExplicitPermissions().put("*", Access.ALLOW.getId());
+        role.screenPermissions().getExplicitPermissions().put("sec$Role.browse", Access.DENY.getId());
+        role.specificPermissions().getExplicitPermissions().put("cuba.gui.loginToClient", Access.ALLOW.getId());
+        return role;
+    }
+}
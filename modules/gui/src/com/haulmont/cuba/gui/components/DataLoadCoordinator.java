@@ -41,6 +41,18 @@ public interface DataLoadCoordinator extends Facet {
      */
     void setComponentPrefix(String value);
 
+    /**
+     * Sets whether loaders triggered by the same screen/fragment event are loaded together by a single
+     * {@code DataManager.loadBatch()} call. Affects triggers added after the call. False by default.
+     */
+    void setBatchLoad(boolean batchLoad);
+
+    /**
+     * @return whether loaders triggered by the same screen/fragment event are loaded in a batch
+     * @see #setBatchLoad(boolean)
+     */
+    boolean isBatchLoad();
+
     /**
      * Adds trigger on screen/fragment event.
      *  @param loader loader
@@ -29,6 +29,8 @@ import com.haulmont.cuba.gui.components.data.DataGridItems;
 import com.haulmont.cuba.gui.components.data.meta.ContainerDataUnit;
 import com.haulmont.cuba.gui.components.data.meta.EntityDataGridItems;
 import com.haulmont.cuba.gui.data.impl.AggregatableDelegate;
+import com.haulmont.cuba.gui.data.impl.DatabaseAggregatableDelegate;
+import com.haulmont.cuba.gui.model.CollectionChangeType;
 import com.haulmont.cuba.gui.model.CollectionContainer;
 import com.haulmont.cuba.gui.model.CollectionLoader;
 import com.haulmont.cuba.gui.model.HasLoader;
@@ -74,12 +76,20 @@ public class ContainerDataGridItems<E extends Entity>
         events.publish(DataGridItems.SelectedItemChangeEvent.class, new DataGridItems.SelectedItemChangeEvent<>(this, event.getItem()));
     }
 
-    protected void containerCollectionChanged(@SuppressWarnings("unused") CollectionContainer.CollectionChangeEvent<E> e) {
+    protected void containerCollectionChanged(CollectionContainer.CollectionChangeEvent<E> e) {
+        if (e.getChangeType() == CollectionChangeType.REFRESH) {
+            if (aggregatableDelegate instanceof DatabaseAggregatableDelegate) {
+                ((DatabaseAggregatableDelegate) aggregatableDelegate).itemsRefreshed();
+            }
+        } else {
+            invalidateDatabaseAggregation();
+        }
         events.publish(DataGridItems.ItemSetChangeEvent.class, new DataGridItems.ItemSetChangeEvent<>(this));
     }
 
     @SuppressWarnings("unchecked")
     protected void containerItemPropertyChanged(CollectionContainer.ItemPropertyChangeEvent<E> e) {
+        invalidateDatabaseAggregation();
         events.publish(DataGridItems.ValueChangeEvent.class, new DataGridItems.ValueChangeEvent(this,
                 e.getItem(), e.getProperty(), e.getPrevValue(), e.getValue()));
     }
@@ -232,8 +242,37 @@ public class ContainerDataGridItems<E extends Entity>
         return aggregatableDelegate.aggregateValues(aggregationInfos, itemIds);
     }
 
+    /**
+     * @return true if total aggregates are calculated by the database for all instances matching the loader query
+     * @see #setDatabaseAggregation(boolean)
+     */
+    public boolean isDatabaseAggregation() {
+        return aggregatableDelegate instanceof DatabaseAggregatableDelegate
+                && ((DatabaseAggregatableDelegate) aggregatableDelegate).isEnabled();
+    }
+
+    /**
+     * Sets whether total aggregates should be calculated by the database for all instances matching the query,
+     * condition and parameters of the container's loader instead of the loaded items only. Useful when the loader
+     * loads data by pages. Aggregations that cannot be performed by the database are still performed in memory.
+     *
+     * @param databaseAggregation whether to aggregate on the database side
+     */
+    public void setDatabaseAggregation(boolean databaseAggregation) {
+        if (!(aggregatableDelegate instanceof DatabaseAggregatableDelegate)) {
+            throw new IllegalStateException("Aggregatable delegate does not support database aggregation");
+        }
+        ((DatabaseAggregatableDelegate) aggregatableDelegate).setEnabled(databaseAggregation);
+    }
+
+    protected void invalidateDatabaseAggregation() {
+        if (aggregatableDelegate instanceof DatabaseAggregatableDelegate) {
+            ((DatabaseAggregatableDelegate) aggregatableDelegate).itemsChanged();
+        }
+    }
+
     protected AggregatableDelegate createAggregatableDelegate() {
-        return new AggregatableDelegate() {
+        return new DatabaseAggregatableDelegate(container) {
             @Override
             public Object getItem(Object itemId) {
                 return container.getItem(itemId);
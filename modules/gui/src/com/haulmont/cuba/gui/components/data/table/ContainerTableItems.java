@@ -29,6 +29,8 @@ import com.haulmont.cuba.gui.components.data.TableItems;
 import com.haulmont.cuba.gui.components.data.meta.ContainerDataUnit;
 import com.haulmont.cuba.gui.components.data.meta.EntityTableItems;
 import com.haulmont.cuba.gui.data.impl.AggregatableDelegate;
+import com.haulmont.cuba.gui.data.impl.DatabaseAggregatableDelegate;
+import com.haulmont.cuba.gui.model.CollectionChangeType;
 import com.haulmont.cuba.gui.model.CollectionContainer;
 import com.haulmont.cuba.gui.model.CollectionLoader;
 import com.haulmont.cuba.gui.model.HasLoader;
@@ -68,7 +70,7 @@ public class ContainerTableItems<E extends Entity> implements EntityTableItems<E
     }
 
     public AggregatableDelegate createAggregatableDelegate() {
-        return new AggregatableDelegate() {
+        return new DatabaseAggregatableDelegate(container) {
             @Override
             public Object getItem(Object itemId) {
                 return ContainerTableItems.this.getItem(itemId);
@@ -89,12 +91,20 @@ public class ContainerTableItems<E extends Entity> implements EntityTableItems<E
         events.publish(SelectedItemChangeEvent.class, new SelectedItemChangeEvent<>(this, event.getItem()));
     }
 
-    protected void containerCollectionChanged(@SuppressWarnings("unused") CollectionContainer.CollectionChangeEvent<E> e) {
+    protected void containerCollectionChanged(CollectionContainer.CollectionChangeEvent<E> e) {
+        if (e.getChangeType() == CollectionChangeType.REFRESH) {
+            if (aggregatableDelegate instanceof DatabaseAggregatableDelegate) {
+                ((DatabaseAggregatableDelegate) aggregatableDelegate).itemsRefreshed();
+            }
+        } else {
+            invalidateDatabaseAggregation();
+        }
         events.publish(ItemSetChangeEvent.class, new ItemSetChangeEvent<>(this));
     }
 
     @SuppressWarnings("unchecked")
     protected void containerItemPropertyChanged(CollectionContainer.ItemPropertyChangeEvent<E> e) {
+        invalidateDatabaseAggregation();
         events.publish(ValueChangeEvent.class, new ValueChangeEvent(this,
                 e.getItem(), e.getProperty(), e.getPrevValue(), e.getValue()));
     }
@@ -294,6 +304,35 @@ public class ContainerTableItems<E extends Entity> implements EntityTableItems<E
         return aggregatableDelegate.aggregateValues(aggregationInfos, itemIds);
     }
 
+    /**
+     * @return true if total aggregates are calculated by the database for all instances matching the loader query
+     * @see #setDatabaseAggregation(boolean)
+     */
+    public boolean isDatabaseAggregation() {
+        return aggregatableDelegate instanceof DatabaseAggregatableDelegate
+                && ((DatabaseAggregatableDelegate) aggregatableDelegate).isEnabled();
+    }
+
+    /**
+     * Sets whether total aggregates should be calculated by the database for all instances matching the query,
+     * condition and parameters of the container's loader instead of the loaded items only. Useful when the loader
+     * loads data by pages. Aggregations that cannot be performed by the database are still performed in memory.
+     *
+     * @param databaseAggregation whether to aggregate on the database side
+     */
+    public void setDatabaseAggregation(boolean databaseAggregation) {
+        if (!(aggregatableDelegate instanceof DatabaseAggregatableDelegate)) {
+            throw new IllegalStateException("Aggregatable delegate does not support database aggregation");
+        }
+        ((DatabaseAggregatableDelegate) aggregatableDelegate).setEnabled(databaseAggregation);
+    }
+
+    protected void invalidateDatabaseAggregation() {
+        if (aggregatableDelegate instanceof DatabaseAggregatableDelegate) {
+            ((DatabaseAggregatableDelegate) aggregatableDelegate).itemsChanged();
+        }
+    }
+
     @Override
     public void suppressSorting() {
         suppressSorting = true;
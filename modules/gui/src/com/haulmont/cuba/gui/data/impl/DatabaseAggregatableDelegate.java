@@ -0,0 +1,364 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.gui.data.impl;
+
+import com.google.common.base.Strings;
+import com.haulmont.chile.core.model.MetaProperty;
+import com.haulmont.chile.core.model.MetaPropertyPath;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.KeyValueEntity;
+import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.global.queryconditions.Condition;
+import com.haulmont.cuba.core.global.queryconditions.JpqlCondition;
+import com.haulmont.cuba.core.global.queryconditions.LogicalCondition;
+import com.haulmont.cuba.gui.components.AggregationInfo;
+import com.haulmont.cuba.gui.data.aggregation.Aggregation;
+import com.haulmont.cuba.gui.data.aggregation.Aggregations;
+import com.haulmont.cuba.gui.model.CollectionContainer;
+import com.haulmont.cuba.gui.model.CollectionLoader;
+import com.haulmont.cuba.gui.model.DataContext;
+import com.haulmont.cuba.gui.model.HasLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Aggregatable delegate that calculates total aggregates of a collection container on the database side.
+ * <p>
+ * When enabled, the query of the container's {@link CollectionLoader} together with its condition and parameters
+ * is turned into a {@link ValueLoadContext} selecting the aggregate expressions, so the results take into account
+ * all instances matching the query, not only the loaded page. The results are cached until the loader query,
+ * condition or parameters change, or until the items of the container are modified.
+ * <p>
+ * Aggregations that cannot be expressed in JPQL (custom strategies, non-persistent or collection properties),
+ * aggregations of a subset of items (e.g. groups), loaders with a load delegate and queries joining other entities,
+ * which could count an instance several times, are performed in memory. The aggregation is also performed in memory
+ * while the container has unsaved changes, i.e. modified, created or removed instances in the loader's
+ * {@link DataContext}, or any changes since the last load if the loader has no data context.
+ */
+public abstract class DatabaseAggregatableDelegate<K> extends AggregatableDelegate<K> {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseAggregatableDelegate.class);
+
+    protected static final Pattern ENTITY_SELECT_PATTERN =
+            Pattern.compile("^\\s*select\\s+([a-z_$][\\w$]*)\\s+(?=from\\s)", Pattern.CASE_INSENSITIVE);
+
+    protected static final Pattern FROM_CLAUSE_END_PATTERN =
+            Pattern.compile("\\b(where|group\\s+by|having|order\\s+by)\\b", Pattern.CASE_INSENSITIVE);
+
+    protected static final Pattern JOIN_PATTERN = Pattern.compile("\\bjoin\\b|,|\\bin\\s*\\(", Pattern.CASE_INSENSITIVE);
+
+    protected final CollectionContainer<? extends Entity> container;
+
+    protected boolean enabled;
+
+    protected List<Object> cacheKey;
+    protected Map<String, Object> cachedResults = new HashMap<>();
+
+    protected Map<AggregationInfo, Object> databaseResults;
+
+    protected boolean itemsChanged;
+
+    public DatabaseAggregatableDelegate(CollectionContainer<? extends Entity> container) {
+        this.container = container;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        invalidate();
+    }
+
+    /**
+     * Discards cached aggregation results, so they will be loaded from the database on next aggregation.
+     */
+    public void invalidate() {
+        cacheKey = null;
+        cachedResults.clear();
+    }
+
+    /**
+     * Invoked when items of the container are added, removed or modified. Discards cached aggregation results and,
+     * if the loader has no data context, switches to in-memory aggregation until the container is loaded again.
+     */
+    public void itemsChanged() {
+        invalidate();
+        itemsChanged = true;
+    }
+
+    /**
+     * Invoked when the container is loaded by its loader.
+     */
+    public void itemsRefreshed() {
+        itemsChanged = false;
+    }
+
+    @Override
+    public Map<AggregationInfo, String> aggregate(AggregationInfo[] aggregationInfos, Collection<K> itemIds) {
+        databaseResults = loadDatabaseResults(aggregationInfos, itemIds);
+        try {
+            return super.aggregate(aggregationInfos, itemIds);
+        } finally {
+            databaseResults = null;
+        }
+    }
+
+    @Override
+    public Map<AggregationInfo, Object> aggregateValues(AggregationInfo[] aggregationInfos, Collection<K> itemIds) {
+        databaseResults = loadDatabaseResults(aggregationInfos, itemIds);
+        try {
+            return super.aggregateValues(aggregationInfos, itemIds);
+        } finally {
+            databaseResults = null;
+        }
+    }
+
+    @Override
+    protected Object doPropertyAggregation(AggregationInfo aggregationInfo, Collection<K> itemIds) {
+        if (databaseResults != null && databaseResults.containsKey(aggregationInfo)) {
+            return databaseResults.get(aggregationInfo);
+        }
+        return super.doPropertyAggregation(aggregationInfo, itemIds);
+    }
+
+    @Nullable
+    protected Map<AggregationInfo, Object> loadDatabaseResults(AggregationInfo[] aggregationInfos,
+                                                               Collection<K> itemIds) {
+        if (!enabled || aggregationInfos == null
+                || itemIds.size() != container.getItems().size()) {
+            return null;
+        }
+
+        CollectionLoader<?> loader = getLoader();
+        if (loader == null || loader.getQuery() == null || loader.getLoadDelegate() != null
+                || hasUnsavedChanges(loader)) {
+            return null;
+        }
+
+        LoadContext<?> loadContext = loader.createLoadContext();
+        if (!loadContext.getPrevQueries().isEmpty()) {
+            // results are restricted by previous queries, they cannot be reproduced by a single query
+            return null;
+        }
+        LoadContext.Query contextQuery = loadContext.getQuery();
+
+        String alias = getEntityAlias(contextQuery.getQueryString());
+        if (alias == null || hasJoins(contextQuery.getQueryString(), contextQuery.getCondition())) {
+            return null;
+        }
+
+        Map<AggregationInfo, String> expressions = new LinkedHashMap<>();
+        for (AggregationInfo aggregationInfo : aggregationInfos) {
+            String expression = getAggregateExpression(aggregationInfo, alias);
+            if (expression != null) {
+                expressions.put(aggregationInfo, expression);
+            }
+        }
+        if (expressions.isEmpty()) {
+            return null;
+        }
+
+        List<Object> key = Arrays.asList(contextQuery.getQueryString(),
+                new HashMap<>(contextQuery.getParameters()), contextQuery.getCondition(), loadContext.isSoftDeletion());
+        if (!key.equals(cacheKey)) {
+            cacheKey = key;
+            cachedResults.clear();
+        }
+
+        Set<String> missing = new LinkedHashSet<>(expressions.values());
+        missing.removeAll(cachedResults.keySet());
+        if (!missing.isEmpty()) {
+            cachedResults.putAll(loadAggregates(loadContext, new ArrayList<>(missing)));
+        }
+
+        Map<AggregationInfo, Object> results = new HashMap<>();
+        for (Map.Entry<AggregationInfo, String> entry : expressions.entrySet()) {
+            results.put(entry.getKey(), convertResult(entry.getKey(), cachedResults.get(entry.getValue())));
+        }
+        return results;
+    }
+
+    protected Map<String, Object> loadAggregates(LoadContext<?> loadContext, List<String> expressions) {
+        LoadContext.Query contextQuery = loadContext.getQuery();
+
+        QueryTransformer transformer = QueryTransformerFactory.createTransformer(contextQuery.getQueryString());
+        transformer.removeOrderBy();
+        Matcher matcher = ENTITY_SELECT_PATTERN.matcher(transformer.getResult());
+        if (!matcher.find()) {
+            throw new IllegalStateException("Unable to create aggregation query for " + contextQuery.getQueryString());
+        }
+        String queryString = "select " + String.join(", ", expressions) + " "
+                + transformer.getResult().substring(matcher.end());
+
+        MetadataTools metadataTools = AppBeans.get(MetadataTools.NAME);
+        ValueLoadContext valueLoadContext = ValueLoadContext.create()
+                .setStoreName(metadataTools.getStoreName(container.getEntityMetaClass()))
+                .setSoftDeletion(loadContext.isSoftDeletion());
+        valueLoadContext.setQueryString(queryString)
+                .setParameters(new HashMap<>(contextQuery.getParameters()))
+                .setCondition(contextQuery.getCondition());
+
+        List<String> properties = new ArrayList<>(expressions.size());
+        for (int i = 0; i < expressions.size(); i++) {
+            properties.add("aggregate" + i);
+        }
+        valueLoadContext.setProperties(properties);
+
+        log.debug("Loading aggregates: {}", queryString);
+
+        DataManager dataManager = AppBeans.get(DataManager.NAME);
+        List<KeyValueEntity> list = dataManager.loadValues(valueLoadContext);
+
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < expressions.size(); i++) {
+            values.put(expressions.get(i), list.isEmpty() ? null : list.get(0).getValue(properties.get(i)));
+        }
+        return values;
+    }
+
+    @Nullable
+    protected CollectionLoader<?> getLoader() {
+        if (container instanceof HasLoader && ((HasLoader) container).getLoader() instanceof CollectionLoader) {
+            return (CollectionLoader<?>) ((HasLoader) container).getLoader();
+        }
+        return null;
+    }
+
+    @Nullable
+    protected String getEntityAlias(String queryString) {
+        Matcher matcher = ENTITY_SELECT_PATTERN.matcher(queryString);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * @return true if the database does not contain the current state of the container items
+     */
+    protected boolean hasUnsavedChanges(CollectionLoader<?> loader) {
+        DataContext dataContext = loader.getDataContext();
+        if (dataContext == null) {
+            return itemsChanged;
+        }
+        for (Entity item : container.getItems()) {
+            if (dataContext.isModified(item)) {
+                return true;
+            }
+        }
+        Class<?> javaClass = container.getEntityMetaClass().getJavaClass();
+        for (Entity entity : dataContext.getRemoved()) {
+            if (javaClass.isInstance(entity)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the query or condition joins other entities, so an aggregate of the query rows could include
+     * an instance several times
+     */
+    protected boolean hasJoins(String queryString, @Nullable Condition condition) {
+        Matcher matcher = ENTITY_SELECT_PATTERN.matcher(queryString);
+        if (!matcher.find()) {
+            return true;
+        }
+        String fromClause = queryString.substring(matcher.end());
+        Matcher endMatcher = FROM_CLAUSE_END_PATTERN.matcher(fromClause);
+        if (endMatcher.find()) {
+            fromClause = fromClause.substring(0, endMatcher.start());
+        }
+        return JOIN_PATTERN.matcher(fromClause).find() || hasJoins(condition);
+    }
+
+    protected boolean hasJoins(@Nullable Condition condition) {
+        if (condition instanceof JpqlCondition) {
+            return !Strings.isNullOrEmpty(((JpqlCondition) condition).getValue("join"));
+        }
+        if (condition instanceof LogicalCondition) {
+            for (Condition nested : ((LogicalCondition) condition).getConditions()) {
+                if (hasJoins(nested)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return JPQL aggregate expression or null if the aggregation must be performed in memory
+     */
+    @Nullable
+    protected String getAggregateExpression(AggregationInfo aggregationInfo, String alias) {
+        MetaPropertyPath propertyPath = aggregationInfo.getPropertyPath();
+        if (aggregationInfo.getStrategy() != null
+                || aggregationInfo.getType() == AggregationInfo.Type.CUSTOM
+                || propertyPath == null
+                || !propertyPath.getRange().isDatatype()) {
+            return null;
+        }
+
+        MetadataTools metadataTools = AppBeans.get(MetadataTools.NAME);
+        if (!metadataTools.isPersistent(propertyPath)) {
+            return null;
+        }
+        for (MetaProperty metaProperty : propertyPath.getMetaProperties()) {
+            if (metaProperty.getRange().getCardinality().isMany()) {
+                return null;
+            }
+        }
+
+        Aggregation aggregation = Aggregations.get(propertyPath.getRangeJavaClass());
+        if (aggregation == null || !aggregation.getSupportedAggregationTypes().contains(aggregationInfo.getType())) {
+            return null;
+        }
+
+        return aggregationInfo.getType().name().toLowerCase() + "(" + alias + "." + propertyPath.toPathString() + ")";
+    }
+
+    /**
+     * Converts a value returned by the database to the type the in-memory aggregation would return.
+     */
+    @Nullable
+    protected Object convertResult(AggregationInfo aggregationInfo, @Nullable Object value) {
+        if (aggregationInfo.getType() == AggregationInfo.Type.COUNT) {
+            return value == null ? 0 : ((Number) value).intValue();
+        }
+        if (!(value instanceof Number)) {
+            return value;
+        }
+
+        Number number = (Number) value;
+        Class resultClass = Aggregations.get(aggregationInfo.getPropertyPath().getRangeJavaClass()).getResultClass();
+        if (resultClass == Long.class) {
+            return number.longValue();
+        } else if (resultClass == Integer.class) {
+            return number.intValue();
+        } else if (resultClass == Double.class) {
+            return number.doubleValue();
+        } else if (resultClass == BigDecimal.class && !(number instanceof BigDecimal)) {
+            return new BigDecimal(number.toString());
+        }
+        return number;
+    }
+}
@@ -19,6 +19,7 @@ package com.haulmont.cuba.gui.export;
 import com.haulmont.chile.core.datatypes.Datatype;
 import com.haulmont.chile.core.datatypes.Datatypes;
 import com.haulmont.chile.core.model.Instance;
+import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.chile.core.model.MetaPropertyPath;
 import com.haulmont.chile.core.model.Range;
@@ -28,31 +29,47 @@ import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.entity.IdProxy;
 import com.haulmont.cuba.core.entity.annotation.IgnoreUserTimeZone;
 import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.global.queryconditions.Condition;
+import com.haulmont.cuba.core.global.queryconditions.JpqlCondition;
+import com.haulmont.cuba.core.global.queryconditions.LogicalCondition;
+import com.haulmont.cuba.gui.ComponentsHelper;
+import com.haulmont.cuba.gui.backgroundwork.BackgroundWorkProgressWindow;
 import com.haulmont.cuba.gui.components.Table;
 import com.haulmont.cuba.gui.components.*;
 import com.haulmont.cuba.gui.components.data.GroupTableItems;
 import com.haulmont.cuba.gui.components.data.TableItems;
 import com.haulmont.cuba.gui.components.data.TreeDataGridItems;
 import com.haulmont.cuba.gui.components.data.TreeTableItems;
+import com.haulmont.cuba.gui.components.data.meta.ContainerDataUnit;
 import com.haulmont.cuba.gui.components.data.meta.EntityDataGridItems;
 import com.haulmont.cuba.gui.components.data.meta.EntityTableItems;
 import com.haulmont.cuba.gui.data.GroupInfo;
+import com.haulmont.cuba.gui.executors.BackgroundTask;
+import com.haulmont.cuba.gui.executors.TaskLifeCycle;
 import com.haulmont.cuba.gui.export.helper.ExcelExportHelper;
+import com.haulmont.cuba.gui.export.helper.SxssfExportHelper;
 import com.haulmont.cuba.gui.export.helper.XlsExportHelper;
 import com.haulmont.cuba.gui.export.helper.XlsxExportHelper;
+import com.haulmont.cuba.gui.model.CollectionContainer;
+import com.haulmont.cuba.gui.model.CollectionLoader;
+import com.haulmont.cuba.gui.model.HasLoader;
 import com.haulmont.cuba.gui.model.InstanceContainer;
+import com.haulmont.cuba.gui.screen.Screen;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.util.LocaleUtil;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.dom4j.Element;
 
 import javax.annotation.Nullable;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.io.*;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -67,6 +84,13 @@ public class ExcelExporter {
 
     public static final int MAX_ROW_COUNT = 65535;
 
+    /**
+     * Query parameter holding the id of the last instance of the previous batch in the export from database.
+     */
+    public static final String EXPORT_LAST_ID_PARAM = "excelExportLastId";
+
+    protected static final Pattern ORDER_BY_PATTERN = Pattern.compile("\\border\\s+by\\b", Pattern.CASE_INSENSITIVE);
+
     protected Workbook wb;
 
     protected Font boldFont;
@@ -95,6 +119,9 @@ public class ExcelExporter {
     protected ExcelExportHelper excelExportHelper;
     protected ExcelOptions excelOptions;
 
+    protected int exportBatchSize = 1000;
+    protected long exportTimeoutSeconds = TimeUnit.HOURS.toSeconds(1);
+
     public enum ExportMode {
         SELECTED_ROWS,
         ALL_ROWS
@@ -172,54 +199,9 @@ public class ExcelExporter {
         createFonts();
         createFormats();
 
-        int r = 0;
-        if (filterDescription != null) {
-            for (r = 0; r < filterDescription.size(); r++) {
-                String line = filterDescription.get(r);
-                Row row = sheet.createRow(r);
-                if (r == 0) {
-                    RichTextString richTextFilterName = excelExportHelper.createRichTextString(line);
-                    richTextFilterName.applyFont(boldFont);
-                    row.createCell(0).setCellValue(richTextFilterName);
-                } else {
-                    row.createCell(0).setCellValue(line);
-                }
-            }
-            r++;
-        }
-        Row row = sheet.createRow(r);
-        createAutoColumnSizers(columns.size());
-
-        float maxHeight = sheet.getDefaultRowHeightInPoints();
-
-        CellStyle headerCellStyle = wb.createCellStyle();
-        headerCellStyle.setVerticalAlignment(VerticalAlignment.CENTER);
-        for (Table.Column column : columns) {
-            String caption = column.getCaption();
-
-            int countOfReturnSymbols = StringUtils.countMatches(caption, "\n");
-            if (countOfReturnSymbols > 0) {
-                maxHeight = Math.max(maxHeight, (countOfReturnSymbols + 1) * sheet.getDefaultRowHeightInPoints());
-                headerCellStyle.setWrapText(true);
-            }
-        }
-        row.setHeightInPoints(maxHeight);
-
-        for (int c = 0; c < columns.size(); c++) {
-            Table.Column column = columns.get(c);
-            String caption = column.getCaption();
-
-            Cell cell = row.createCell(c);
-            RichTextString richTextString = excelExportHelper.createRichTextString(caption);
-            richTextString.applyFont(boldFont);
-            cell.setCellValue(richTextString);
-
-            ExcelAutoColumnSizer sizer = new ExcelAutoColumnSizer();
-            sizer.notifyCellValue(caption, boldFont);
-            sizers[c] = sizer;
-
-            cell.setCellStyle(headerCellStyle);
-        }
+        int r = createHeader(filterDescription, columns.stream()
+                .map(Table.Column::getCaption)
+                .collect(Collectors.toList()));
 
         TableItems<Entity> tableItems = table.getItems();
 
@@ -328,54 +310,9 @@ public class ExcelExporter {
         createFonts();
         createFormats();
 
-        int r = 0;
-        if (filterDescription != null) {
-            for (r = 0; r < filterDescription.size(); r++) {
-                String line = filterDescription.get(r);
-                Row row = sheet.createRow(r);
-                if (r == 0) {
-                    RichTextString richTextFilterName = excelExportHelper.createRichTextString(line);
-                    richTextFilterName.applyFont(boldFont);
-                    row.createCell(0).setCellValue(richTextFilterName);
-                } else {
-                    row.createCell(0).setCellValue(line);
-                }
-            }
-            r++;
-        }
-        Row row = sheet.createRow(r);
-        createAutoColumnSizers(columns.size());
-
-        float maxHeight = sheet.getDefaultRowHeightInPoints();
-
-        CellStyle headerCellStyle = wb.createCellStyle();
-        headerCellStyle.setVerticalAlignment(VerticalAlignment.CENTER);
-        for (DataGrid.Column column : columns) {
-            String caption = column.getCaption();
-
-            int countOfReturnSymbols = StringUtils.countMatches(caption, "\n");
-            if (countOfReturnSymbols > 0) {
-                maxHeight = Math.max(maxHeight, (countOfReturnSymbols + 1) * sheet.getDefaultRowHeightInPoints());
-                headerCellStyle.setWrapText(true);
-            }
-        }
-        row.setHeightInPoints(maxHeight);
-
-        for (int c = 0; c < columns.size(); c++) {
-            DataGrid.Column column = columns.get(c);
-            String caption = column.getCaption();
-
-            Cell cell = row.createCell(c);
-            RichTextString richTextString = excelExportHelper.createRichTextString(caption);
-            richTextString.applyFont(boldFont);
-            cell.setCellValue(richTextString);
-
-            ExcelAutoColumnSizer sizer = new ExcelAutoColumnSizer();
-            sizer.notifyCellValue(caption, boldFont);
-            sizers[c] = sizer;
-
-            cell.setCellStyle(headerCellStyle);
-        }
+        int r = createHeader(filterDescription, columns.stream()
+                .map(DataGrid.Column::getCaption)
+                .collect(Collectors.toList()));
 
         EntityDataGridItems<Entity> dataGridSource = (EntityDataGridItems) dataGrid.getItems();
         if (dataGridSource == null) {
@@ -433,6 +370,421 @@ public class ExcelExporter {
         display.show(new ByteArrayDataProvider(out.toByteArray()), fileName + excelOptions.getExtension(), excelOptions.getExportFormat());
     }
 
+    /**
+     * Exports all instances matching the query of the table's loader, not only the loaded ones. The instances are
+     * loaded by batches and written to a streaming XLSX workbook in a background task, with a progress window
+     * allowing to cancel the export.
+     * Rows are ordered by the entity primary key, see {@link #writeRowsFromDatabase}.
+     *
+     * @param table             table bound to a collection container with a {@link CollectionLoader}
+     * @param columns           exported columns
+     * @param display           export display showing the result
+     * @param filterDescription lines describing the applied filter
+     * @param fileName          file name without extension
+     */
+    public void exportTableFromDatabase(Table<Entity> table, List<Table.Column> columns, ExportDisplay display,
+                                        @Nullable List<String> filterDescription, @Nullable String fileName) {
+        BackgroundTask<Integer, File> task = createTableExportTask(table, columns, display, filterDescription, fileName);
+        showExportProgress(task, getLoader(table.getItems()).createLoadContext());
+    }
+
+    /**
+     * Creates a background task exporting all instances matching the query of the table's loader.
+     *
+     * @see #exportTableFromDatabase(Table, List, ExportDisplay, List, String)
+     */
+    public BackgroundTask<Integer, File> createTableExportTask(Table<Entity> table, List<Table.Column> columns,
+                                                                ExportDisplay display,
+                                                                @Nullable List<String> filterDescription,
+                                                                @Nullable String fileName) {
+        CollectionLoader<Entity> loader = getLoader(table.getItems());
+        if (fileName == null) {
+            fileName = messages.getTools().getEntityCaption(((EntityTableItems) table.getItems()).getEntityMetaClass());
+        }
+        List<String> captions = new ArrayList<>(columns.size());
+        List<MetaPropertyPath> propertyPaths = new ArrayList<>(columns.size());
+        List<Function<Entity, Object>> valueProviders = new ArrayList<>(columns.size());
+        // the component is accessed only here, in the UI thread, the task uses the captured columns state
+        for (Table.Column column : columns) {
+            captions.add(column.getCaption());
+            propertyPaths.add(column.getId() instanceof MetaPropertyPath ? (MetaPropertyPath) column.getId() : null);
+            valueProviders.add(createColumnValueProvider(table, column));
+        }
+
+        return createExportTask(ComponentsHelper.getWindowNN(table).getFrameOwner(), loader.createLoadContext(),
+                filterDescription, captions, fileName, display,
+                (rowNumber, instance) -> createRow(propertyPaths, valueProviders, rowNumber, instance));
+    }
+
+    /**
+     * Exports all instances matching the query of the data grid's loader, not only the loaded ones. The instances
+     * are loaded by batches and written to a streaming XLSX workbook in a background task, with a progress window
+     * allowing to cancel the export.
+     * Rows are ordered by the entity primary key, see {@link #writeRowsFromDatabase}.
+     *
+     * @param dataGrid          data grid bound to a collection container with a {@link CollectionLoader}
+     * @param columns           exported columns
+     * @param display           export display showing the result
+     * @param filterDescription lines describing the applied filter
+     * @param fileName          file name without extension
+     */
+    public void exportDataGridFromDatabase(DataGrid<Entity> dataGrid, List<DataGrid.Column> columns,
+                                           ExportDisplay display, @Nullable List<String> filterDescription,
+                                           @Nullable String fileName) {
+        BackgroundTask<Integer, File> task = createDataGridExportTask(dataGrid, columns, display,
+                filterDescription, fileName);
+        showExportProgress(task, getLoader(dataGrid.getItems()).createLoadContext());
+    }
+
+    /**
+     * Creates a background task exporting all instances matching the query of the data grid's loader.
+     *
+     * @see #exportDataGridFromDatabase(DataGrid, List, ExportDisplay, List, String)
+     */
+    public BackgroundTask<Integer, File> createDataGridExportTask(DataGrid<Entity> dataGrid,
+                                                                   List<DataGrid.Column> columns,
+                                                                   ExportDisplay display,
+                                                                   @Nullable List<String> filterDescription,
+                                                                   @Nullable String fileName) {
+        CollectionLoader<Entity> loader = getLoader(dataGrid.getItems());
+        if (fileName == null) {
+            fileName = messages.getTools().getEntityCaption(((EntityDataGridItems) dataGrid.getItems()).getEntityMetaClass());
+        }
+        List<String> captions = new ArrayList<>(columns.size());
+        List<MetaPropertyPath> propertyPaths = new ArrayList<>(columns.size());
+        List<Function<Entity, Object>> valueProviders = new ArrayList<>(columns.size());
+        // the component is accessed only here, in the UI thread, the task uses the captured columns state
+        for (DataGrid.Column column : columns) {
+            captions.add(column.getCaption());
+            propertyPaths.add(column.getPropertyPath());
+            valueProviders.add(createColumnValueProvider(dataGrid, column));
+        }
+
+        return createExportTask(ComponentsHelper.getWindowNN(dataGrid).getFrameOwner(), loader.createLoadContext(),
+                filterDescription, captions, fileName, display,
+                (rowNumber, item) -> createRow(propertyPaths, valueProviders, rowNumber, item));
+    }
+
+    /**
+     * Creates a function returning the cell value of the table column for an instance. Column printables,
+     * formatters and value providers are obtained from the table when the function is created.
+     */
+    @SuppressWarnings("unchecked")
+    protected Function<Entity, Object> createColumnValueProvider(Table table, Table.Column column) {
+        Table.Printable printable = table.getPrintable(column);
+        if (printable != null) {
+            return printable::getValue;
+        }
+        if (column.getId() instanceof MetaPropertyPath) {
+            Function<Entity, Object> valueProvider;
+            Element xmlDescriptor = column.getXmlDescriptor();
+            if (xmlDescriptor != null && StringUtils.isNotEmpty(xmlDescriptor.attributeValue("captionProperty"))) {
+                String captionProperty = xmlDescriptor.attributeValue("captionProperty");
+                valueProvider = instance -> InstanceUtils.getValueEx(instance, captionProperty);
+            } else {
+                String[] path = ((MetaPropertyPath) column.getId()).getPath();
+                valueProvider = instance -> InstanceUtils.getValueEx(instance, path);
+            }
+            Function<Object, Object> formatter = column.getFormatter();
+            return formatter != null ? valueProvider.andThen(formatter) : valueProvider;
+        }
+        Function<Entity, Object> valueProvider = column.getValueProvider();
+        return valueProvider != null ? valueProvider : instance -> null;
+    }
+
+    /**
+     * Creates a function returning the cell value of the data grid column for an instance. Column formatters and
+     * generators are obtained from the data grid when the function is created.
+     */
+    @SuppressWarnings("unchecked")
+    protected Function<Entity, Object> createColumnValueProvider(DataGrid dataGrid, DataGrid.Column column) {
+        if (column.getPropertyPath() != null) {
+            String[] path = column.getPropertyPath().getPath();
+            Function<Entity, Object> valueProvider = item -> InstanceUtils.getValueEx(item, path);
+            Function<Object, Object> formatter = column.getFormatter();
+            return formatter != null ? valueProvider.andThen(formatter) : valueProvider;
+        }
+        DataGrid.ColumnGenerator generator = dataGrid.getColumnGenerator(column.getId());
+        if (generator != null) {
+            String columnId = column.getId();
+            boolean booleanType = Boolean.class.equals(generator.getType());
+            return item -> {
+                DataGrid.ColumnGeneratorEvent<Entity> event = new DataGrid.ColumnGeneratorEvent<>(dataGrid, item,
+                        columnId, createInstanceContainerProvider(dataGrid, item));
+                Object value = generator.getValue(event);
+                return value == null && booleanType ? false : value;
+            };
+        }
+        return item -> null;
+    }
+
+    /**
+     * Writes a row of the export from database using the column values captured in the UI thread.
+     */
+    protected void createRow(List<MetaPropertyPath> propertyPaths, List<Function<Entity, Object>> valueProviders,
+                             int rowNumber, Entity instance) {
+        Row row = sheet.createRow(rowNumber);
+        for (int c = 0; c < valueProviders.size(); c++) {
+            Cell cell = row.createCell(c);
+            Object cellValue = valueProviders.get(c).apply(instance);
+            formatValueCell(cell, cellValue, propertyPaths.get(c), c, rowNumber, 0, null);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    protected CollectionLoader<Entity> getLoader(@Nullable Object items) {
+        if (items instanceof ContainerDataUnit) {
+            CollectionContainer container = ((ContainerDataUnit) items).getContainer();
+            if (container instanceof HasLoader && ((HasLoader) container).getLoader() instanceof CollectionLoader) {
+                CollectionLoader<Entity> loader = (CollectionLoader<Entity>) ((HasLoader) container).getLoader();
+                if (loader.getQuery() != null && loader.getLoadDelegate() == null) {
+                    return loader;
+                }
+            }
+        }
+        throw new IllegalStateException("Component must be bound to a container with a collection loader " +
+                "that loads data by query");
+    }
+
+    protected BackgroundTask<Integer, File> createExportTask(Screen owner, LoadContext<Entity> loadContext,
+                                                             @Nullable List<String> filterDescription,
+                                                             List<String> captions, String fileName,
+                                                             ExportDisplay display,
+                                                             BiConsumer<Integer, Entity> rowWriter) {
+        if (display == null) {
+            throw new IllegalArgumentException("ExportDisplay is null");
+        }
+
+        return new BackgroundTask<Integer, File>(exportTimeoutSeconds, owner) {
+            @Override
+            public File run(TaskLifeCycle<Integer> taskLifeCycle) throws Exception {
+                return writeRowsFromDatabase(loadContext, filterDescription, captions, rowWriter, taskLifeCycle);
+            }
+
+            @Override
+            public void done(File file) {
+                if (file != null) {
+                    display.show(new TempFileDataProvider(file),
+                            fileName + excelOptions.getExtension(), excelOptions.getExportFormat());
+                }
+            }
+        };
+    }
+
+    protected void showExportProgress(BackgroundTask<Integer, File> task, LoadContext<Entity> loadContext) {
+        loadContext.getQuery()
+                .setFirstResult(0)
+                .setMaxResults(0);
+        DataManager dataManager = AppBeans.get(DataManager.NAME);
+        long total = dataManager.getCount(loadContext);
+
+        BackgroundWorkProgressWindow.show(task,
+                messages.getMainMessage("excelExporter.progressTitle"),
+                messages.getMainMessage("excelExporter.progressMessage"),
+                total, true);
+    }
+
+    /**
+     * Loads instances by batches of {@link #getExportBatchSize()} and writes them to a streaming workbook.
+     * <p>
+     * Instances are ordered by primary key and each batch is selected by a condition on the last key of the previous
+     * batch, so the export doesn't depend on the query order and doesn't skip or repeat rows. Entities with
+     * a composite key are loaded page by page in the query order. When a sheet reaches the format row limit,
+     * the export continues on a new sheet with the same column captions.
+     *
+     * @return temporary file with the document or null if the export was cancelled
+     */
+    @Nullable
+    protected File writeRowsFromDatabase(LoadContext<Entity> loadContext, @Nullable List<String> filterDescription,
+                                         List<String> captions, BiConsumer<Integer, Entity> rowWriter,
+                                         TaskLifeCycle<Integer> taskLifeCycle) throws Exception {
+        excelExportHelper = createStreamingExportHelper();
+        excelOptions = excelExportHelper.getExcelOptions();
+
+        createWorkbookWithSheet();
+        try {
+            createFonts();
+            createFormats();
+
+            int r = createHeader(filterDescription, captions);
+
+            LoadContext.Query query = loadContext.getQuery();
+            boolean keysetPaging = applyKeysetPaging(loadContext);
+
+            DataManager dataManager = AppBeans.get(DataManager.NAME);
+            int exported = 0;
+            while (true) {
+                if (taskLifeCycle.isCancelled() || taskLifeCycle.isInterrupted()) {
+                    return null;
+                }
+
+                query.setFirstResult(keysetPaging ? 0 : exported)
+                        .setMaxResults(exportBatchSize);
+                List<Entity> batch = dataManager.loadList(loadContext);
+
+                for (Entity instance : batch) {
+                    if (r + 1 >= excelOptions.getMaxRowCount()) {
+                        setColumnWidths(captions.size());
+                        sheet = wb.createSheet();
+                        r = createHeader(null, captions);
+                    }
+                    rowWriter.accept(++r, instance);
+                }
+                exported += batch.size();
+                taskLifeCycle.publish(exported);
+
+                if (batch.size() < exportBatchSize) {
+                    break;
+                }
+                if (keysetPaging) {
+                    query.setParameter(EXPORT_LAST_ID_PARAM, batch.get(batch.size() - 1).getId());
+                }
+            }
+
+            setColumnWidths(captions.size());
+
+            GlobalConfig globalConfig = AppBeans.get(Configuration.class).getConfig(GlobalConfig.class);
+            File file = new File(globalConfig.getTempDir(), UuidProvider.createUuid() + excelOptions.getExtension());
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+                wb.write(out);
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to write document", e);
+            }
+            return file;
+        } finally {
+            if (wb instanceof SXSSFWorkbook) {
+                ((SXSSFWorkbook) wb).dispose();
+            }
+        }
+    }
+
+    /**
+     * Orders the query by primary key and adds the condition selecting instances after the last exported one,
+     * see {@link #EXPORT_LAST_ID_PARAM}. The condition is skipped until the parameter is set.
+     * <p>
+     * If the query is sorted, the sort is kept and the instances are loaded by offset paging. The primary key is
+     * added to the end of the sort to keep the order of instances with equal sort values stable between pages.
+     *
+     * @return false if the query is sorted or the entity has a composite key and the keyset paging cannot be applied
+     */
+    protected boolean applyKeysetPaging(LoadContext<Entity> loadContext) {
+        Metadata metadata = AppBeans.get(Metadata.NAME);
+        MetaClass metaClass = metadata.getClassNN(loadContext.getMetaClass());
+        String primaryKeyName = metadataTools.getPrimaryKeyName(metaClass);
+        if (primaryKeyName == null || !metaClass.getPropertyNN(primaryKeyName).getRange().isDatatype()) {
+            return false;
+        }
+
+        LoadContext.Query query = loadContext.getQuery();
+        Sort sort = query.getSort();
+        if (sort != null && !sort.getOrders().isEmpty()) {
+            if (sort.getOrders().stream().noneMatch(order -> primaryKeyName.equals(order.getProperty()))) {
+                List<Sort.Order> orders = new ArrayList<>(sort.getOrders());
+                orders.add(Sort.Order.asc(primaryKeyName));
+                query.setSort(Sort.by(orders));
+            }
+            return false;
+        }
+        if (ORDER_BY_PATTERN.matcher(query.getQueryString()).find()) {
+            return false;
+        }
+
+        Condition keysetCondition = JpqlCondition.where(
+                "{E}." + primaryKeyName + " > :" + EXPORT_LAST_ID_PARAM);
+        query.setCondition(query.getCondition() == null
+                ? keysetCondition
+                : LogicalCondition.and().add(query.getCondition()).add(keysetCondition));
+        query.setSort(Sort.by(primaryKeyName));
+        query.getParameters().remove(EXPORT_LAST_ID_PARAM);
+        return true;
+    }
+
+    protected void setColumnWidths(int count) {
+        for (int c = 0; c < count; c++) {
+            sheet.setColumnWidth(c, sizers[c].getWidth() * excelOptions.getColWidthMagic());
+        }
+    }
+
+    protected ExcelExportHelper createStreamingExportHelper() {
+        return new SxssfExportHelper();
+    }
+
+    /**
+     * @return number of instances loaded at once by the export from database
+     */
+    public int getExportBatchSize() {
+        return exportBatchSize;
+    }
+
+    public void setExportBatchSize(int exportBatchSize) {
+        this.exportBatchSize = exportBatchSize;
+    }
+
+    /**
+     * @return timeout of the background task exporting from database
+     */
+    public long getExportTimeoutSeconds() {
+        return exportTimeoutSeconds;
+    }
+
+    public void setExportTimeoutSeconds(long exportTimeoutSeconds) {
+        this.exportTimeoutSeconds = exportTimeoutSeconds;
+    }
+
+    /**
+     * Creates the filter description rows and the row of column captions.
+     *
+     * @return number of the caption row
+     */
+    protected int createHeader(@Nullable List<String> filterDescription, List<String> captions) {
+        int r = 0;
+        if (filterDescription != null) {
+            for (r = 0; r < filterDescription.size(); r++) {
+                String line = filterDescription.get(r);
+                Row row = sheet.createRow(r);
+                if (r == 0) {
+                    RichTextString richTextFilterName = excelExportHelper.createRichTextString(line);
+                    richTextFilterName.applyFont(boldFont);
+                    row.createCell(0).setCellValue(richTextFilterName);
+                } else {
+                    row.createCell(0).setCellValue(line);
+                }
+            }
+            r++;
+        }
+        Row row = sheet.createRow(r);
+        createAutoColumnSizers(captions.size());
+
+        float maxHeight = sheet.getDefaultRowHeightInPoints();
+
+        CellStyle headerCellStyle = wb.createCellStyle();
+        headerCellStyle.setVerticalAlignment(VerticalAlignment.CENTER);
+        for (String caption : captions) {
+            int countOfReturnSymbols = StringUtils.countMatches(caption, "\n");
+            if (countOfReturnSymbols > 0) {
+                maxHeight = Math.max(maxHeight, (countOfReturnSymbols + 1) * sheet.getDefaultRowHeightInPoints());
+                headerCellStyle.setWrapText(true);
+            }
+        }
+        row.setHeightInPoints(maxHeight);
+
+        for (int c = 0; c < captions.size(); c++) {
+            String caption = captions.get(c);
+
+            Cell cell = row.createCell(c);
+            RichTextString richTextString = excelExportHelper.createRichTextString(caption);
+            richTextString.applyFont(boldFont);
+            cell.setCellValue(richTextString);
+
+            ExcelAutoColumnSizer sizer = new ExcelAutoColumnSizer();
+            sizer.notifyCellValue(caption, boldFont);
+            sizers[c] = sizer;
+
+            cell.setCellStyle(headerCellStyle);
+        }
+        return r;
+    }
+
     protected void createFormats() {
         timeFormatCellStyle = wb.createCellStyle();
         String timeFormat = messages.getMainMessage("excelExporter.timeFormat");
@@ -605,7 +957,6 @@ public class ExcelExporter {
             return;
         }
 
-        Row row = sheet.createRow(rowNumber);
         Entity instance = (Entity) table.getItems().getItem(itemId);
 
         int level = 0;
@@ -613,6 +964,13 @@ public class ExcelExporter {
             level = ((TreeTable) table).getLevel(itemId);
         }
 
+        createRow(table, columns, startColumn, rowNumber, instance, level);
+    }
+
+    protected void createRow(Table table, List<Table.Column> columns, int startColumn, int rowNumber,
+                             Entity instance, int level) {
+        Row row = sheet.createRow(rowNumber);
+
         for (int c = startColumn; c < columns.size(); c++) {
             Cell cell = row.createCell(c);
 
@@ -670,13 +1028,18 @@ public class ExcelExporter {
         if (startColumn >= columns.size()) {
             return;
         }
-        Row row = sheet.createRow(rowNumber);
         Entity item = (Entity) dataGrid.getItems().getItem(itemId);
 
         int level = 0;
         if (dataGrid instanceof TreeDataGrid) {
             level = ((TreeDataGrid) dataGrid).getLevel(item);
         }
+        createDataGridRow(dataGrid, columns, startColumn, rowNumber, item, level);
+    }
+
+    protected void createDataGridRow(DataGrid dataGrid, List<DataGrid.Column> columns,
+                                     int startColumn, int rowNumber, Entity item, int level) {
+        Row row = sheet.createRow(rowNumber);
         for (int c = startColumn; c < columns.size(); c++) {
             Cell cell = row.createCell(c);
 
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.gui.export;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+
+/**
+ * Data provider for a temporary file in the local file system, e.g. a document created by a streaming export.
+ * <p>
+ * The file can be read any number of times and is deleted by {@link #close()}. The web export display closes
+ * such providers when the UI is detached, i.e. closed or expired together with the HTTP session.
+ */
+public class TempFileDataProvider implements ExportDataProvider, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(TempFileDataProvider.class);
+
+    protected File file;
+
+    public TempFileDataProvider(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public InputStream provide() {
+        try {
+            return new FileInputStream(file);
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException("Unable to read temp file " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Deletes the file.
+     */
+    @Override
+    public void close() {
+        if (file.exists() && !file.delete()) {
+            log.warn("Unable to delete temp file {}", file.getAbsolutePath());
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.gui.export.helper;
+
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+/**
+ * Helper class for streaming export to XLSX file.
+ * <p>
+ * Only the last {@link #getRowAccessWindowSize()} rows of a sheet are kept in memory, the rest are flushed
+ * to a temporary file, so the memory consumption does not depend on the number of exported rows.
+ */
+public class SxssfExportHelper extends XlsxExportHelper {
+
+    public static final int DEFAULT_ROW_ACCESS_WINDOW_SIZE = 100;
+
+    protected int rowAccessWindowSize;
+
+    public SxssfExportHelper() {
+        this(DEFAULT_ROW_ACCESS_WINDOW_SIZE);
+    }
+
+    public SxssfExportHelper(int rowAccessWindowSize) {
+        this.rowAccessWindowSize = rowAccessWindowSize;
+    }
+
+    /**
+     * @return new instance of {@link org.apache.poi.xssf.streaming.SXSSFWorkbook} with compressed temporary files
+     */
+    @Override
+    public Workbook createWorkbook() {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowAccessWindowSize);
+        workbook.setCompressTempFiles(true);
+        return workbook;
+    }
+
+    public int getRowAccessWindowSize() {
+        return rowAccessWindowSize;
+    }
+}
@@ -17,9 +17,17 @@
 package com.haulmont.cuba.gui.model;
 
 import com.google.common.base.Strings;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.DataManager;
+import com.haulmont.cuba.core.global.LoadContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -29,6 +37,8 @@ import java.util.regex.Pattern;
  */
 public class DataLoadersHelper {
 
+    private static final Logger log = LoggerFactory.getLogger(DataLoadersHelper.class);
+
     public static final Pattern PARAM_PATTERN = Pattern.compile(":([\\w$]+)");
 
     /**
@@ -75,4 +85,105 @@ public class DataLoadersHelper {
         }
         return true;
     }
+
+    /**
+     * Loads the given loaders in their iteration order. Consecutive loaders supporting batch loading are loaded by
+     * a single {@link DataManager#loadBatch(Collection)} call, other loaders are loaded one by one between the batches.
+     * <p>
+     * {@code PreLoadEvent}s of all loaders of a batch are sent before the batch is executed, and {@code PostLoadEvent}s
+     * are sent after it in the loaders order. If a {@code PostLoadEvent} listener changes the query, condition,
+     * parameters or entity id of a subsequent loader of the same batch, the batch result of that loader is discarded
+     * and the loader is loaded again by its {@link DataLoader#load()} method.
+     * <p>
+     * An exception thrown when completing a loader, e.g. {@code EntityAccessException} for a not found instance,
+     * does not prevent loading of other loaders: the first exception is rethrown when all loaders are processed.
+     * If the batch call itself fails, the loaders of the batch are loaded one by one by their
+     * {@link DataLoader#load()} methods.
+     */
+    public static void loadBatch(Collection<? extends DataLoader> loaders, DataManager dataManager) {
+        List<DataLoader> batch = new ArrayList<>(loaders.size());
+        RuntimeException exception = null;
+        for (DataLoader loader : loaders) {
+            if (loader instanceof LoaderSupportsBatchLoad
+                    && ((LoaderSupportsBatchLoad) loader).isBatchLoadSupported()) {
+                batch.add(loader);
+            } else {
+                exception = executeBatch(batch, dataManager, exception);
+                batch.clear();
+                try {
+                    loader.load();
+                } catch (RuntimeException e) {
+                    exception = addException(exception, e);
+                }
+            }
+        }
+        exception = executeBatch(batch, dataManager, exception);
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    @Nullable
+    private static RuntimeException executeBatch(List<DataLoader> batch, DataManager dataManager,
+                                                   @Nullable RuntimeException exception) {
+        List<DataLoader> preparedLoaders = new ArrayList<>(batch.size());
+        List<List<Object>> preparedStates = new ArrayList<>(batch.size());
+        List<LoadContext<?>> contexts = new ArrayList<>(batch.size());
+        for (DataLoader loader : batch) {
+            LoadContext<?> loadContext = ((LoaderSupportsBatchLoad) loader).prepareBatchLoad();
+            if (loadContext != null) {
+                preparedLoaders.add(loader);
+                preparedStates.add(getLoadState(loader));
+                contexts.add(loadContext);
+            }
+        }
+        if (contexts.isEmpty()) {
+            return exception;
+        }
+
+        List<List<Entity>> results;
+        try {
+            results = dataManager.loadBatch(contexts);
+        } catch (RuntimeException e) {
+            log.warn("Error loading batch of {} loaders, loading them one by one", contexts.size(), e);
+            for (DataLoader loader : preparedLoaders) {
+                try {
+                    loader.load();
+                } catch (RuntimeException loadException) {
+                    exception = addException(exception, loadException);
+                }
+            }
+            return exception;
+        }
+        for (int i = 0; i < preparedLoaders.size(); i++) {
+            DataLoader loader = preparedLoaders.get(i);
+            try {
+                if (i > 0 && !preparedStates.get(i).equals(getLoadState(loader))) {
+                    // changed by a PostLoadEvent listener of a previous loader
+                    loader.load();
+                } else {
+                    ((LoaderSupportsBatchLoad) loader).completeBatchLoad(results.get(i));
+                }
+            } catch (RuntimeException e) {
+                exception = addException(exception, e);
+            }
+        }
+        return exception;
+    }
+
+    private static List<Object> getLoadState(DataLoader loader) {
+        return Arrays.asList(
+                loader.getQuery(),
+                loader.getCondition(),
+                new HashMap<>(loader.getParameters()),
+                loader instanceof InstanceLoader ? ((InstanceLoader) loader).getEntityId() : null);
+    }
+
+    private static RuntimeException addException(@Nullable RuntimeException exception, RuntimeException e) {
+        if (exception == null) {
+            return e;
+        }
+        exception.addSuppressed(e);
+        return exception;
+    }
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.gui.model;
+
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.LoadContext;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Interface implemented by data loaders that can be loaded together with other loaders by a single
+ * {@code DataManager.loadBatch()} call.
+ *
+ * @see DataLoadersHelper#loadBatch(java.util.Collection, com.haulmont.cuba.core.global.DataManager)
+ */
+public interface LoaderSupportsBatchLoad {
+
+    /**
+     * @return true if the loader in its current state can be loaded in a batch, e.g. it has no load delegate
+     */
+    boolean isBatchLoadSupported();
+
+    /**
+     * Creates the load context and sends {@code PreLoadEvent}.
+     *
+     * @return load context to be executed, or null if loading is not needed or prevented by an event listener
+     */
+    @Nullable
+    LoadContext<?> prepareBatchLoad();
+
+    /**
+     * Sets the entities loaded by the context returned from {@link #prepareBatchLoad()} to the container
+     * and sends {@code PostLoadEvent}.
+     */
+    void completeBatchLoad(List<? extends Entity> entities);
+}
@@ -25,14 +25,25 @@ import com.haulmont.cuba.gui.model.CollectionContainer;
 import com.haulmont.cuba.gui.model.Sorter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * Base implementation of sorting collection containers.
+ * <p>
+ * In-memory sorting uses the decorate-sort-undecorate approach: values of all sort properties are extracted
+ * from each entity only once, then the extracted keys are sorted and the container items are rebuilt
+ * in the resulting order. Large collections are sorted in parallel.
  */
 public abstract class BaseContainerSorter implements Sorter {
 
+    /**
+     * Minimal number of items sorted by {@link Arrays#parallelSort(Object[], Comparator)}.
+     */
+    public static final int PARALLEL_SORT_THRESHOLD = 10_000;
+
     private final CollectionContainer container;
 
     public BaseContainerSorter(CollectionContainer container) {
@@ -53,29 +64,106 @@ public abstract class BaseContainerSorter implements Sorter {
         if (sort.getOrders().isEmpty() || container.getItems().isEmpty()) {
             return;
         }
-        List list = new ArrayList(container.getItems());
-        list.sort(createComparator(sort, container.getEntityMetaClass()));
+        List<Entity> items = container.getItems();
+        List<Function<Entity, Object>> extractors = createKeyExtractors(sort, container.getEntityMetaClass());
+
+        SortKey[] keys = new SortKey[items.size()];
+        int i = 0;
+        for (Entity item : items) {
+            Object[] values = new Object[extractors.size()];
+            for (int j = 0; j < values.length; j++) {
+                values[j] = extractors.get(j).apply(item);
+            }
+            keys[i++] = new SortKey(item, values);
+        }
+
+        Comparator<SortKey> comparator = createKeyComparator(sort);
+        if (isParallelSort(keys.length)) {
+            Arrays.parallelSort(keys, comparator);
+        } else {
+            Arrays.sort(keys, comparator);
+        }
+
+        List list = new ArrayList(keys.length);
+        for (SortKey key : keys) {
+            list.add(key.item);
+        }
         setItemsToContainer(list);
     }
 
     protected abstract void setItemsToContainer(List list);
 
+    /**
+     * @return whether a collection of the given size should be sorted in parallel
+     */
+    protected boolean isParallelSort(int size) {
+        return size >= PARALLEL_SORT_THRESHOLD;
+    }
+
     protected Comparator<? extends Entity> createComparator(Sort sort, MetaClass metaClass) {
-        if (sort.getOrders().size() > 1) {
-            throw new UnsupportedOperationException("Sort by multiple properties is not supported");
+        List<Function<Entity, Object>> extractors = createKeyExtractors(sort, metaClass);
+
+        Comparator<Entity> comparator = null;
+        for (int i = 0; i < extractors.size(); i++) {
+            boolean asc = sort.getOrders().get(i).getDirection() == Sort.Direction.ASC;
+            Comparator<Entity> orderComparator = Comparator.comparing(extractors.get(i), EntityValuesComparator.asc(asc));
+            comparator = comparator == null ? orderComparator : comparator.thenComparing(orderComparator);
         }
+        return comparator;
+    }
+
+    /**
+     * Creates functions extracting values of sort properties from an entity, one function per sort order.
+     * Property paths are resolved once here, not on each extraction.
+     */
+    protected List<Function<Entity, Object>> createKeyExtractors(Sort sort, MetaClass metaClass) {
+        List<Function<Entity, Object>> extractors = new ArrayList<>(sort.getOrders().size());
+        for (Sort.Order order : sort.getOrders()) {
+            String propertyName = order.getProperty();
 
-        String propertyName = sort.getOrders().get(0).getProperty();
-        boolean asc = sort.getOrders().get(0).getDirection() == Sort.Direction.ASC;
+            if (DynamicAttributesUtils.isDynamicAttribute(propertyName)) {
+                extractors.add(e -> e.getValueEx(propertyName));
+                continue;
+            }
 
-        if (DynamicAttributesUtils.isDynamicAttribute(propertyName)) {
-            return Comparator.comparing(e -> e.getValueEx(propertyName), EntityValuesComparator.asc(asc));
+            MetaPropertyPath propertyPath = metaClass.getPropertyPath(propertyName);
+            if (propertyPath == null) {
+                throw new IllegalArgumentException("Property " + propertyName + " is invalid");
+            }
+            extractors.add(e -> e.getValueEx(propertyPath));
         }
+        return extractors;
+    }
+
+    protected Comparator<SortKey> createKeyComparator(Sort sort) {
+        List<Sort.Order> orders = sort.getOrders();
+        Comparator[] comparators = new Comparator[orders.size()];
+        for (int i = 0; i < comparators.length; i++) {
+            comparators[i] = EntityValuesComparator.asc(orders.get(i).getDirection() == Sort.Direction.ASC);
+        }
+        return (k1, k2) -> {
+            for (int i = 0; i < comparators.length; i++) {
+                @SuppressWarnings("unchecked")
+                int c = comparators[i].compare(k1.values[i], k2.values[i]);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return 0;
+        };
+    }
+
+    /**
+     * Entity decorated with the values of sort properties.
+     */
+    protected static class SortKey {
+
+        protected final Entity item;
+        protected final Object[] values;
 
-        MetaPropertyPath propertyPath = metaClass.getPropertyPath(propertyName);
-        if (propertyPath == null) {
-            throw new IllegalArgumentException("Property " + propertyName + " is invalid");
+        protected SortKey(Entity item, Object[] values) {
+            this.item = item;
+            this.values = values;
         }
-        return Comparator.comparing(e -> e.getValueEx(propertyPath), EntityValuesComparator.asc(asc));
     }
 }
@@ -32,7 +32,8 @@ import java.util.function.Function;
 /**
  *
  */
-public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<E>, LoaderSupportsApplyToSelected {
+public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<E>, LoaderSupportsApplyToSelected,
+        LoaderSupportsBatchLoad {
 
     private ApplicationContext applicationContext;
 
@@ -89,6 +90,29 @@ public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<
 
     @Override
     public void load() {
+        LoadContext<E> loadContext = prepareBatchLoad();
+        if (loadContext == null) {
+            return;
+        }
+
+        List<E> list;
+        if (delegate == null) {
+            list = getDataManager().loadList(loadContext);
+        } else {
+            list = delegate.apply(loadContext);
+        }
+
+        setLoadedItems(list);
+    }
+
+    @Override
+    public boolean isBatchLoadSupported() {
+        return delegate == null;
+    }
+
+    @Nullable
+    @Override
+    public LoadContext<E> prepareBatchLoad() {
         if (container == null)
             throw new IllegalStateException("container is null");
         if (query == null && delegate == null)
@@ -97,18 +121,20 @@ public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<
         LoadContext<E> loadContext = createLoadContext();
 
         if (!sendPreLoadEvent(loadContext)) {
-            return;
+            return null;
         }
 
         lastQuery = loadContext.getQuery();
+        return loadContext;
+    }
 
-        List<E> list;
-        if (delegate == null) {
-            list = getDataManager().loadList(loadContext);
-        } else {
-            list = delegate.apply(loadContext);
-        }
+    @SuppressWarnings("unchecked")
+    @Override
+    public void completeBatchLoad(List<? extends Entity> entities) {
+        setLoadedItems((List<E>) entities);
+    }
 
+    protected void setLoadedItems(List<E> list) {
         if (dataContext != null) {
             List<E> mergedList = new ArrayList<>(list.size());
             for (E entity : list) {
@@ -16,6 +16,7 @@
 
 package com.haulmont.cuba.gui.model.impl;
 
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.Sets;
 import com.haulmont.bali.events.EventHub;
 import com.haulmont.bali.events.Subscription;
@@ -27,6 +28,7 @@ import com.haulmont.cuba.core.entity.*;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.EntityReferencesNormalizer;
 import com.haulmont.cuba.core.sys.persistence.FetchGroupUtils;
+import com.haulmont.cuba.gui.model.CollectionChangeType;
 import com.haulmont.cuba.gui.model.DataContext;
 import com.haulmont.cuba.gui.model.MergeOptions;
 import org.apache.commons.lang3.StringUtils;
@@ -75,6 +77,28 @@ public class DataContextImpl implements DataContext {
 
     protected Map<Entity, Map<String, EmbeddedPropertyChangeListener>> embeddedPropertyListeners = new WeakHashMap<>();
 
+    /**
+     * Reverse index: instance -> collection properties of managed instances that may contain it.
+     */
+    protected Map<Entity, Set<CollectionRef>> collectionRefs = new HashMap<>();
+
+    /**
+     * Forward part of the reverse index: owner -> instances indexed with the owner's collection properties.
+     * Used to prune {@link #collectionRefs} when the owner leaves the context.
+     */
+    protected Map<Entity, Set<Entity>> indexedItems = new IdentityHashMap<>();
+
+    /**
+     * Collection properties assigned with collections created outside of the context. Changes of such collections
+     * are not observed, so they are checked on each removal.
+     */
+    protected Set<CollectionRef> untrackedCollectionRefs = new HashSet<>();
+
+    /**
+     * Observable collections created by this context.
+     */
+    protected Set<Collection> trackedCollections = Collections.newSetFromMap(new MapMaker().weakKeys().makeMap());
+
     public DataContextImpl(ApplicationContext applicationContext) {
         this.applicationContext = applicationContext;
     }
@@ -405,13 +429,14 @@ public class DataContextImpl implements DataContext {
                 Entity managedRef = internalMerge(entity, mergedSet, false, options);
                 managedRefs.add(managedRef);
             }
-            List<Entity> dstList = createObservableList(managedRefs, managedEntity);
+            List<Entity> dstList = createObservableList(managedRefs, managedEntity, property.getName());
             setPropertyValue(managedEntity, property, dstList);
+            indexCollection(managedEntity, property.getName(), dstList);
 
         } else {
             List<Entity> dstList = managedEntity.getValue(property.getName());
             if (dstList == null) {
-                dstList = createObservableList(managedEntity);
+                dstList = createObservableList(new ArrayList<>(), managedEntity, property.getName());
                 setPropertyValue(managedEntity, property, dstList);
             }
             if (dstList.size() == 0) {
@@ -426,6 +451,7 @@ public class DataContextImpl implements DataContext {
                     }
                 }
             }
+            indexCollection(managedEntity, property.getName(), dstList);
         }
     }
 
@@ -437,13 +463,14 @@ public class DataContextImpl implements DataContext {
                 Entity managedRef = internalMerge(entity, mergedSet, false, options);
                 managedRefs.add(managedRef);
             }
-            Set<Entity> dstList = createObservableSet(managedRefs, managedEntity);
+            Set<Entity> dstList = createObservableSet(managedRefs, managedEntity, property.getName());
             setPropertyValue(managedEntity, property, dstList);
+            indexCollection(managedEntity, property.getName(), dstList);
 
         } else {
             Set<Entity> dstSet = managedEntity.getValue(property.getName());
             if (dstSet == null) {
-                dstSet = createObservableSet(managedEntity);
+                dstSet = createObservableSet(new LinkedHashSet<>(), managedEntity, property.getName());
                 setPropertyValue(managedEntity, property, dstSet);
             }
             if (dstSet.size() == 0) {
@@ -456,6 +483,7 @@ public class DataContextImpl implements DataContext {
                     dstSet.add(managedRef);
                 }
             }
+            indexCollection(managedEntity, property.getName(), dstSet);
         }
     }
 
@@ -475,6 +503,109 @@ public class DataContextImpl implements DataContext {
         return new ObservableSet<>(set, (changeType, changes) -> modified(notifiedEntity));
     }
 
+    protected List<Entity> createObservableList(List<Entity> list, Entity notifiedEntity, String propertyName) {
+        ObservableList<Entity> observableList = new ObservableList<>(list, (changeType, changes) -> {
+            collectionChanged(notifiedEntity, propertyName, changeType, changes);
+            modified(notifiedEntity);
+        });
+        trackedCollections.add(observableList);
+        return observableList;
+    }
+
+    protected ObservableSet<Entity> createObservableSet(Set<Entity> set, Entity notifiedEntity, String propertyName) {
+        ObservableSet<Entity> observableSet = new ObservableSet<>(set, (changeType, changes) -> {
+            collectionChanged(notifiedEntity, propertyName, changeType, changes);
+            modified(notifiedEntity);
+        });
+        trackedCollections.add(observableSet);
+        return observableSet;
+    }
+
+    protected void collectionChanged(Entity owner, String propertyName, CollectionChangeType changeType,
+                                     Collection<? extends Entity> changes) {
+        if (changeType == CollectionChangeType.ADD_ITEMS || changeType == CollectionChangeType.SET_ITEM) {
+            indexCollection(owner, propertyName, changes);
+        } else if (changeType == CollectionChangeType.REFRESH) {
+            indexCollection(owner, propertyName, owner.getValue(propertyName));
+        }
+    }
+
+    protected void collectionAssigned(Entity owner, String propertyName, @Nullable Object value) {
+        CollectionRef ref = new CollectionRef(owner, propertyName);
+        if (value instanceof Collection && !trackedCollections.contains(value)) {
+            untrackedCollectionRefs.add(ref);
+        } else {
+            untrackedCollectionRefs.remove(ref);
+        }
+        if (value instanceof Collection) {
+            indexCollection(owner, propertyName, (Collection<?>) value);
+        }
+    }
+
+    /**
+     * Registers the collection property of the owner in the reverse index of all instances of the collection.
+     */
+    protected void indexCollection(Entity owner, String propertyName, @Nullable Collection<?> collection) {
+        if (collection == null || collection.isEmpty()) {
+            return;
+        }
+        CollectionRef ref = new CollectionRef(owner, propertyName);
+        Set<Entity> items = null;
+        for (Object item : collection) {
+            if (item instanceof Entity) {
+                collectionRefs.computeIfAbsent((Entity) item, e -> new HashSet<>(2)).add(ref);
+                if (items == null) {
+                    items = indexedItems.computeIfAbsent(owner, e -> Collections.newSetFromMap(new IdentityHashMap<>()));
+                }
+                items.add((Entity) item);
+            }
+        }
+    }
+
+    /**
+     * Removes the instance from the reverse index.
+     *
+     * @return collection properties that may contain the instance
+     */
+    @Nullable
+    protected Set<CollectionRef> unindexItem(Entity item) {
+        Set<CollectionRef> refs = collectionRefs.remove(item);
+        if (refs != null) {
+            for (CollectionRef ref : refs) {
+                Set<Entity> items = indexedItems.get(ref.owner);
+                if (items != null) {
+                    items.remove(item);
+                    if (items.isEmpty()) {
+                        indexedItems.remove(ref.owner);
+                    }
+                }
+            }
+        }
+        return refs;
+    }
+
+    /**
+     * Removes collection properties of the owner from the reverse index, so the index does not keep references
+     * to instances that left the context.
+     */
+    protected void unindexOwner(Entity owner) {
+        Set<Entity> items = indexedItems.remove(owner);
+        if (items != null) {
+            for (Entity item : items) {
+                Set<CollectionRef> refs = collectionRefs.get(item);
+                if (refs != null) {
+                    refs.removeIf(ref -> ref.owner == owner);
+                    if (refs.isEmpty()) {
+                        collectionRefs.remove(item);
+                    }
+                }
+            }
+        }
+        if (!untrackedCollectionRefs.isEmpty()) {
+            untrackedCollectionRefs.removeIf(ref -> ref.owner == owner);
+        }
+    }
+
     @Override
     public void remove(Entity entity) {
         checkNotNullArgument(entity, "entity is null");
@@ -492,6 +623,7 @@ public class DataContextImpl implements DataContext {
             if (mergedEntity != null) {
                 entityMap.remove(entity.getId());
                 removeFromCollections(mergedEntity);
+                unindexOwner(mergedEntity);
             }
         }
 
@@ -499,25 +631,29 @@ public class DataContextImpl implements DataContext {
     }
 
     protected void removeFromCollections(Entity entityToRemove) {
-        for (Map.Entry<Class<?>, Map<Object, Entity>> entry : content.entrySet()) {
-            Class<?> entityClass = entry.getKey();
-
-            MetaClass metaClass = getMetadata().getClassNN(entityClass);
-            for (MetaProperty metaProperty : metaClass.getProperties()) {
-                if (metaProperty.getRange().isClass()
-                        && metaProperty.getRange().getCardinality().isMany()
-                        && metaProperty.getRange().asClass().getJavaClass().isAssignableFrom(entityToRemove.getClass())) {
-
-                    Map<Object, Entity> entityMap = entry.getValue();
-                    for (Entity entity : entityMap.values()) {
-                        if (getEntityStates().isLoaded(entity, metaProperty.getName())) {
-                            Collection collection = entity.getValue(metaProperty.getName());
-                            if (collection != null) {
-                                collection.remove(entityToRemove);
-                            }
-                        }
-                    }
-                }
+        Set<CollectionRef> refs = unindexItem(entityToRemove);
+        if (refs != null) {
+            for (CollectionRef ref : refs) {
+                removeFromCollection(ref, entityToRemove);
+            }
+        }
+        if (!untrackedCollectionRefs.isEmpty()) {
+            for (CollectionRef ref : new ArrayList<>(untrackedCollectionRefs)) {
+                removeFromCollection(ref, entityToRemove);
+            }
+        }
+    }
+
+    protected void removeFromCollection(CollectionRef ref, Entity entityToRemove) {
+        // the owner could be removed or evicted after the collection was indexed
+        Map<Object, Entity> entityMap = content.get(ref.owner.getClass());
+        if (entityMap == null || entityMap.get(ref.owner.getId()) != ref.owner) {
+            return;
+        }
+        if (getEntityStates().isLoaded(ref.owner, ref.propertyName)) {
+            Collection collection = ref.owner.getValue(ref.propertyName);
+            if (collection != null) {
+                collection.remove(entityToRemove);
             }
         }
     }
@@ -532,6 +668,8 @@ public class DataContextImpl implements DataContext {
             if (mergedEntity != null) {
                 entityMap.remove(entity.getId());
                 removeListeners(entity);
+                unindexItem(mergedEntity);
+                unindexOwner(mergedEntity);
             }
             modifiedInstances.remove(entity);
             removedInstances.remove(entity);
@@ -556,6 +694,9 @@ public class DataContextImpl implements DataContext {
         for (Entity entity : getAll()) {
             evict(entity);
         }
+        collectionRefs.clear();
+        indexedItems.clear();
+        untrackedCollectionRefs.clear();
     }
 
     @Override
@@ -805,9 +946,39 @@ public class DataContextImpl implements DataContext {
         return "{" + object.getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(object)) + "}";
     }
 
+    /**
+     * Collection property of a managed instance.
+     */
+    protected static class CollectionRef {
+
+        protected final Entity owner;
+        protected final String propertyName;
+
+        public CollectionRef(Entity owner, String propertyName) {
+            this.owner = owner;
+            this.propertyName = propertyName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            CollectionRef that = (CollectionRef) o;
+            return owner == that.owner && propertyName.equals(that.propertyName);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(owner) + propertyName.hashCode();
+        }
+    }
+
     protected class PropertyChangeListener implements Instance.PropertyChangeListener {
         @Override
         public void propertyChanged(Instance.PropertyChangeEvent e) {
+            if (e.getValue() instanceof Collection || e.getPrevValue() instanceof Collection) {
+                collectionAssigned((Entity) e.getItem(), e.getProperty(), e.getValue());
+            }
             if (!disableListeners) {
                 // if id has been changed, update put the entity to the content with the new id
                 MetaProperty primaryKeyProperty = getMetadataTools().getPrimaryKeyProperty(e.getItem().getClass());
@@ -817,6 +988,8 @@ public class DataContextImpl implements DataContext {
                         entityMap.remove(e.getPrevValue());
                         entityMap.put(e.getValue(), (Entity) e.getItem());
                     }
+                    // rehash the index keys
+                    collectionRefs = new HashMap<>(collectionRefs);
                 }
 
                 modifiedInstances.add((Entity) e.getItem());
@@ -28,6 +28,7 @@ import org.springframework.context.ApplicationContext;
 import javax.annotation.Nullable;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -35,7 +36,7 @@ import java.util.function.Function;
 /**
  *
  */
-public class InstanceLoaderImpl<E extends Entity> implements InstanceLoader<E> {
+public class InstanceLoaderImpl<E extends Entity> implements InstanceLoader<E>, LoaderSupportsBatchLoad {
 
     private final ApplicationContext applicationContext;
 
@@ -108,6 +109,37 @@ public class InstanceLoaderImpl<E extends Entity> implements InstanceLoader<E> {
             entity = delegate.apply(createLoadContext());
         }
 
+        setLoadedItem(entity);
+    }
+
+    @Override
+    public boolean isBatchLoadSupported() {
+        return delegate == null && entityId != null;
+    }
+
+    @Nullable
+    @Override
+    public LoadContext<E> prepareBatchLoad() {
+        if (container == null)
+            throw new IllegalStateException("container is null");
+
+        if (!needLoad())
+            return null;
+
+        LoadContext<E> loadContext = createLoadContext();
+        return sendPreLoadEvent(loadContext) ? loadContext : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void completeBatchLoad(List<? extends Entity> entities) {
+        if (entities.isEmpty()) {
+            throw new EntityAccessException(container.getEntityMetaClass(), entityId);
+        }
+        setLoadedItem((E) entities.get(0));
+    }
+
+    protected void setLoadedItem(E entity) {
         if (dataContext != null) {
             entity = dataContext.merge(entity, new MergeOptions().setFresh(true));
         }
@@ -112,6 +112,8 @@ public class LocalServiceProxy extends RemoteAccessor implements FactoryBean<Obj
                 parameterTypeNames[i] = parameterTypes[i].getName();
             }
 
+            boolean copyData = canCopyData(invoker);
+
             byte[][] argumentsData;
             Object[] notSerializableArguments;
             if (args == null) {
@@ -126,6 +128,9 @@ public class LocalServiceProxy extends RemoteAccessor implements FactoryBean<Obj
                     if (canBypassSerialization(parameter)) {
                         notSerializableArguments[i] = args[i];
                         argumentsData[i] = null;
+                    } else if (arg != null && copyData) {
+                        notSerializableArguments[i] = SerializationSupport.copy(arg);
+                        argumentsData[i] = null;
                     } else if (arg != null) {
                         argumentsData[i] = SerializationSupport.serialize(arg);
                     } else {
@@ -151,6 +156,7 @@ public class LocalServiceProxy extends RemoteAccessor implements FactoryBean<Obj
                 }
             }
             invocation.setResultBypassSerialization(canMethodResultBypassSerialization(method));
+            invocation.setCopyData(copyData);
 
             LocalServiceInvocationResult result = invoker.invoke(invocation);
             AppContext.setSecurityContext(AppContext.getSecurityContext());// to reset application name in LogMDC for the current thread
@@ -175,6 +181,15 @@ public class LocalServiceProxy extends RemoteAccessor implements FactoryBean<Obj
             }
         }
 
+        /*
+         * Objects can be passed by copying only if the client and the middleware are loaded by the same class loader,
+         * i.e. in a single WAR deployment.
+         */
+        private boolean canCopyData(LocalServiceInvoker invoker) {
+            return Boolean.parseBoolean(AppContext.getProperty("cuba.localServiceInvocationCopy"))
+                    && invoker.getClass().getClassLoader() == LocalServiceProxy.class.getClassLoader();
+        }
+
         private boolean canBypassSerialization(Parameter parameter) {
             return parameter.getAnnotation(BypassSerialization.class) != null;
         }
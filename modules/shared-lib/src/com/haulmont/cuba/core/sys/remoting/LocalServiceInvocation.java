@@ -38,6 +38,7 @@ public class LocalServiceInvocation {
     private String address;
     private String clientInfo;
     private boolean resultBypassSerialization;
+    private boolean copyData;
 
     public LocalServiceInvocation(String methodName, String[] parameterTypeNames,
                                   byte[][] argumentsData, Object[] notSerializableArguments, UUID sessionId) {
@@ -107,4 +108,16 @@ public class LocalServiceInvocation {
     public void setResultBypassSerialization(boolean resultBypassSerialization) {
         this.resultBypassSerialization = resultBypassSerialization;
     }
+
+    /**
+     * @return true if the client and the middleware share the same classes, arguments are passed as copies created
+     * by the client and the result must be copied instead of serialization
+     */
+    public boolean isCopyData() {
+        return copyData;
+    }
+
+    public void setCopyData(boolean copyData) {
+        this.copyData = copyData;
+    }
 }
\ No newline at end of file
@@ -24,6 +24,7 @@ import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.web.testsupport.TestContainer;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -118,6 +119,15 @@ public class DataServiceProxy implements DataService {
         return 0;
     }
 
+    @Override
+    public List<List<Entity>> loadBatch(List<LoadContext<?>> contexts) {
+        List<List<Entity>> result = new ArrayList<>(contexts.size());
+        for (int i = 0; i < contexts.size(); i++) {
+            result.add(Collections.emptyList());
+        }
+        return result;
+    }
+
     @Override
     public List<KeyValueEntity> loadValues(ValueLoadContext context) {
         return Collections.emptyList();
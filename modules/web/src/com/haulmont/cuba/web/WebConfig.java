@@ -47,6 +47,15 @@ public interface WebConfig extends Config {
     @DefaultBoolean(true)
     boolean getUseLocalServiceInvocation();
 
+    /**
+     * @return Whether to pass arguments and results of local service invocations as deep copies of object graphs
+     * instead of serializing them to bytes. Takes effect only if the WEB and CORE applications are deployed in
+     * a single WAR.
+     */
+    @Property("cuba.localServiceInvocationCopy")
+    @DefaultBoolean(false)
+    boolean getLocalServiceInvocationCopy();
+
     /**
      * @return Default user login to set in the login dialog.
      */
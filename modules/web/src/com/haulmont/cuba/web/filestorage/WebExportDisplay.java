@@ -35,6 +35,7 @@ import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.PrintWriter;
 
@@ -84,7 +85,8 @@ public class WebExportDisplay implements ExportDisplay {
     }
 
     /**
-     * Show/Download resource at client side
+     * Show/Download resource at client side. A data provider implementing {@link Closeable} is closed when
+     * the UI is detached.
      *
      * @param dataProvider ExportDataProvider
      * @param resourceName ResourceName for client side
@@ -117,7 +119,13 @@ public class WebExportDisplay implements ExportDisplay {
             }
         }
 
-        CubaFileDownloader fileDownloader = AppUI.getCurrent().getFileDownloader();
+        AppUI ui = AppUI.getCurrent();
+        if (dataProvider instanceof Closeable) {
+            // the resource can be downloaded while the UI exists
+            ui.addDetachListener(event -> closeDataProvider((Closeable) dataProvider));
+        }
+
+        CubaFileDownloader fileDownloader = ui.getFileDownloader();
         fileDownloader.setFileNotFoundExceptionListener(this::handleFileNotFoundException);
 
         StreamResource resource = new StreamResource(dataProvider::provide, resourceName);
@@ -135,6 +143,14 @@ public class WebExportDisplay implements ExportDisplay {
         }
     }
 
+    protected void closeDataProvider(Closeable dataProvider) {
+        try {
+            dataProvider.close();
+        } catch (IOException e) {
+            log.warn("Unable to close export data provider", e);
+        }
+    }
+
     /**
      * Show/Download resource at client side
      *
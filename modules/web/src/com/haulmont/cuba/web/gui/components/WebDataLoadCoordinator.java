@@ -17,6 +17,7 @@
 package com.haulmont.cuba.web.gui.components;
 
 import com.google.common.base.Strings;
+import com.haulmont.cuba.core.global.DataManager;
 import com.haulmont.cuba.core.global.DevelopmentException;
 import com.haulmont.cuba.core.global.queryconditions.Condition;
 import com.haulmont.cuba.core.global.queryconditions.JpqlCondition;
@@ -34,6 +35,7 @@ import com.haulmont.cuba.gui.screen.ScreenFragment;
 import com.haulmont.cuba.gui.screen.UiControllerUtils;
 import com.haulmont.cuba.gui.sys.UiControllerReflectionInspector;
 import com.haulmont.cuba.web.gui.WebAbstractFacet;
+import com.haulmont.cuba.web.gui.components.dataloadcoordinator.FrameOwnerEventLoadBatch;
 import com.haulmont.cuba.web.gui.components.dataloadcoordinator.OnComponentValueChangedLoadTrigger;
 import com.haulmont.cuba.web.gui.components.dataloadcoordinator.OnContainerItemChangedLoadTrigger;
 import com.haulmont.cuba.web.gui.components.dataloadcoordinator.OnFrameOwnerEventLoadTrigger;
@@ -41,7 +43,9 @@ import com.haulmont.cuba.web.gui.components.dataloadcoordinator.OnFrameOwnerEven
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
@@ -55,12 +59,27 @@ public class WebDataLoadCoordinator extends WebAbstractFacet implements DataLoad
 
     private UiControllerReflectionInspector reflectionInspector;
 
+    private DataManager dataManager;
+
+    private boolean batchLoad;
+
+    private Map<Class, FrameOwnerEventLoadBatch> frameOwnerEventBatches = new HashMap<>();
+
     private static final Pattern LIKE_PATTERN = Pattern.compile("\\s+like\\s+:([\\w$]+)");
 
     public WebDataLoadCoordinator(UiControllerReflectionInspector reflectionInspector) {
         this.reflectionInspector = reflectionInspector;
     }
 
+    /**
+     * @param dataManager used to load all loaders triggered by the same frame owner event in a single batch
+     * @see #setBatchLoad(boolean)
+     */
+    public WebDataLoadCoordinator(UiControllerReflectionInspector reflectionInspector, DataManager dataManager) {
+        this.reflectionInspector = reflectionInspector;
+        this.dataManager = dataManager;
+    }
+
     @Override
     public void setOwner(@Nullable Frame owner) {
         super.setOwner(owner);
@@ -80,6 +99,16 @@ public class WebDataLoadCoordinator extends WebAbstractFacet implements DataLoad
         componentPrefix = value;
     }
 
+    @Override
+    public void setBatchLoad(boolean batchLoad) {
+        this.batchLoad = batchLoad;
+    }
+
+    @Override
+    public boolean isBatchLoad() {
+        return batchLoad;
+    }
+
     @Override
     public List<Trigger> getTriggers() {
         return Collections.unmodifiableList(triggers);
@@ -87,7 +116,11 @@ public class WebDataLoadCoordinator extends WebAbstractFacet implements DataLoad
 
     @Override
     public void addOnFrameOwnerEventLoadTrigger(DataLoader loader, Class eventClass) {
-        OnFrameOwnerEventLoadTrigger loadTrigger = new OnFrameOwnerEventLoadTrigger(getFrameOwner(), reflectionInspector, loader, eventClass);
+        FrameOwnerEventLoadBatch batch = batchLoad && dataManager != null
+                ? frameOwnerEventBatches.computeIfAbsent(eventClass, aClass -> new FrameOwnerEventLoadBatch(dataManager))
+                : null;
+        OnFrameOwnerEventLoadTrigger loadTrigger = new OnFrameOwnerEventLoadTrigger(
+                getFrameOwner(), reflectionInspector, loader, eventClass, batch);
         triggers.add(loadTrigger);
     }
 
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.web.gui.components.dataloadcoordinator;
+
+import com.haulmont.cuba.core.global.DataManager;
+import com.haulmont.cuba.gui.model.DataLoader;
+import com.haulmont.cuba.gui.model.DataLoadersHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Group of loaders triggered by the same frame owner event. The first trigger receiving an event loads all loaders
+ * of the group by a single {@link DataManager#loadBatch(java.util.Collection)} call, other triggers ignore it.
+ */
+public class FrameOwnerEventLoadBatch {
+
+    private final DataManager dataManager;
+
+    private final List<DataLoader> loaders = new ArrayList<>();
+
+    private Object lastEvent;
+
+    public FrameOwnerEventLoadBatch(DataManager dataManager) {
+        this.dataManager = dataManager;
+    }
+
+    public void addLoader(DataLoader loader) {
+        loaders.add(loader);
+    }
+
+    public void load(Object event) {
+        if (event == lastEvent) {
+            return;
+        }
+        lastEvent = event;
+        DataLoadersHelper.loadBatch(loaders, dataManager);
+    }
+}
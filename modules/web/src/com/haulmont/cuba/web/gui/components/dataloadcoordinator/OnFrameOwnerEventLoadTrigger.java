@@ -21,6 +21,7 @@ import com.haulmont.cuba.gui.model.DataLoader;
 import com.haulmont.cuba.gui.screen.FrameOwner;
 import com.haulmont.cuba.gui.sys.UiControllerReflectionInspector;
 
+import javax.annotation.Nullable;
 import java.lang.invoke.MethodHandle;
 import java.util.function.Consumer;
 
@@ -28,15 +29,26 @@ public class OnFrameOwnerEventLoadTrigger implements DataLoadCoordinator.Trigger
 
     private final DataLoader loader;
 
+    private final FrameOwnerEventLoadBatch batch;
+
     public OnFrameOwnerEventLoadTrigger(FrameOwner frameOwner, UiControllerReflectionInspector reflectionInspector,
                                         DataLoader loader, Class eventClass) {
+        this(frameOwner, reflectionInspector, loader, eventClass, null);
+    }
+
+    public OnFrameOwnerEventLoadTrigger(FrameOwner frameOwner, UiControllerReflectionInspector reflectionInspector,
+                                        DataLoader loader, Class eventClass, @Nullable FrameOwnerEventLoadBatch batch) {
         this.loader = loader;
+        this.batch = batch;
+        if (batch != null) {
+            batch.addLoader(loader);
+        }
         MethodHandle addListenerMethod = reflectionInspector.getAddListenerMethod(frameOwner.getClass(), eventClass);
         if (addListenerMethod == null) {
             throw new IllegalStateException("Cannot find addListener method for " + eventClass);
         }
         try {
-            addListenerMethod.invoke(frameOwner, (Consumer) event -> load());
+            addListenerMethod.invoke(frameOwner, (Consumer) this::load);
         } catch (Error e) {
             throw e;
         } catch (Throwable e) {
@@ -44,8 +56,12 @@ public class OnFrameOwnerEventLoadTrigger implements DataLoadCoordinator.Trigger
         }
     }
 
-    private void load() {
-        loader.load();
+    private void load(Object event) {
+        if (batch != null) {
+            batch.load(event);
+        } else {
+            loader.load();
+        }
     }
 
     @Override
@@ -17,6 +17,7 @@
 package com.haulmont.cuba.web.gui.facets;
 
 import com.google.common.base.Preconditions;
+import com.haulmont.cuba.core.global.DataManager;
 import com.haulmont.cuba.gui.GuiDevelopmentException;
 import com.haulmont.cuba.gui.components.DataLoadCoordinator;
 import com.haulmont.cuba.gui.components.Frame;
@@ -41,11 +42,18 @@ public class DataLoadCoordinatorFacetProvider implements FacetProvider<DataLoadC
 
     private UiControllerReflectionInspector reflectionInspector;
 
+    private DataManager dataManager;
+
     @Inject
     public void setReflectionInspector(UiControllerReflectionInspector reflectionInspector) {
         this.reflectionInspector = reflectionInspector;
     }
 
+    @Inject
+    public void setDataManager(DataManager dataManager) {
+        this.dataManager = dataManager;
+    }
+
     @Override
     public Class<DataLoadCoordinator> getFacetClass() {
         return DataLoadCoordinator.class;
@@ -53,7 +61,7 @@ public class DataLoadCoordinatorFacetProvider implements FacetProvider<DataLoadC
 
     @Override
     public DataLoadCoordinator create() {
-        return new WebDataLoadCoordinator(reflectionInspector);
+        return new WebDataLoadCoordinator(reflectionInspector, dataManager);
     }
 
     @Override
@@ -78,6 +86,10 @@ public class DataLoadCoordinatorFacetProvider implements FacetProvider<DataLoadC
         if (componentPrefix != null) {
             facet.setComponentPrefix(componentPrefix);
         }
+        String batchLoad = element.attributeValue("batchLoad");
+        if (batchLoad != null) {
+            facet.setBatchLoad(Boolean.parseBoolean(batchLoad));
+        }
 
         for (Element loaderEl : element.elements("refresh")) {
             String loaderId = loaderEl.attributeValue("loader");
@@ -17,6 +17,7 @@
 
 package com.haulmont.cuba.web.jmx;
 
+import org.springframework.jmx.export.annotation.ManagedOperation;
 import org.springframework.jmx.export.annotation.ManagedResource;
 
 @SuppressWarnings("unused")
@@ -44,4 +45,10 @@ public interface StatisticsCounterMBean {
     double getAvgProcessCpuLoad();
 
     double getAvgThreadCount();
+
+    @ManagedOperation(description = "Prints statistics of middleware calls by transport and service")
+    String printHttpInvokerStatistics();
+
+    @ManagedOperation(description = "Resets statistics of middleware calls")
+    void resetHttpInvokerStatistics();
 }
\ No newline at end of file
@@ -116,6 +116,8 @@ public class LocalServiceProxy extends RemoteAccessor implements FactoryBean<Obj
                 parameterTypeNames[i] = parameterTypes[i].getName();
             }
 
+            boolean copyData = canCopyData(invoker);
+
             byte[][] argumentsData;
             Object[] notSerializableArguments;
             if (args == null) {
@@ -130,6 +132,9 @@ public class LocalServiceProxy extends RemoteAccessor implements FactoryBean<Obj
                     if (canBypassSerialization(parameter)) {
                         notSerializableArguments[i] = args[i];
                         argumentsData[i] = null;
+                    } else if (arg != null && copyData) {
+                        notSerializableArguments[i] = SerializationSupport.copy(arg);
+                        argumentsData[i] = null;
                     } else if (arg != null) {
                         argumentsData[i] = SerializationSupport.serialize(arg);
                     } else {
@@ -155,6 +160,7 @@ public class LocalServiceProxy extends RemoteAccessor implements FactoryBean<Obj
                 }
             }
             invocation.setResultBypassSerialization(canMethodResultBypassSerialization(method));
+            invocation.setCopyData(copyData);
 
             LocalServiceInvocationResult result = invoker.invoke(invocation);
             AppContext.setSecurityContext(AppContext.getSecurityContext()); // to reset application name in LogMDC for the current thread
@@ -213,6 +219,15 @@ public class LocalServiceProxy extends RemoteAccessor implements FactoryBean<Obj
             }
         }
 
+        /*
+         * Objects can be passed by copying only if the client and the middleware are loaded by the same class loader,
+         * i.e. in a single WAR deployment.
+         */
+        private boolean canCopyData(LocalServiceInvoker invoker) {
+            return Boolean.parseBoolean(AppContext.getProperty("cuba.localServiceInvocationCopy"))
+                    && invoker.getClass().getClassLoader() == LocalServiceProxy.class.getClassLoader();
+        }
+
         private boolean canBypassSerialization(Parameter parameter) {
             return parameter.getAnnotation(BypassSerialization.class) != null;
         }
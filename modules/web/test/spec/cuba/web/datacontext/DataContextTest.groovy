@@ -22,9 +22,11 @@ import com.haulmont.cuba.core.entity.Entity
 import com.haulmont.cuba.core.global.CommitContext
 import com.haulmont.cuba.core.global.EntityStates
 import com.haulmont.cuba.core.global.Metadata
+import com.haulmont.cuba.core.sys.AppContext
 import com.haulmont.cuba.core.sys.persistence.CubaEntityFetchGroup
 import com.haulmont.cuba.gui.model.DataComponents
 import com.haulmont.cuba.gui.model.DataContext
+import com.haulmont.cuba.gui.model.impl.DataContextImpl
 import com.haulmont.cuba.gui.model.impl.NoopDataContext
 import com.haulmont.cuba.security.entity.Role
 import com.haulmont.cuba.security.entity.User
@@ -36,6 +38,7 @@ import com.haulmont.cuba.web.testsupport.proxy.TestServiceProxy
 import org.eclipse.persistence.internal.queries.EntityFetchGroup
 import org.eclipse.persistence.queries.FetchGroupTracker
 import org.junit.ClassRule
+import org.springframework.context.ApplicationContext
 import spock.lang.Shared
 import spock.lang.Specification
 
@@ -493,6 +496,116 @@ class DataContextTest extends Specification {
         !order1_1.orderLines.contains(orderLine12_1)
     }
 
+    def "removed object is removed from collections created outside of the context"() {
+
+        def dataContext = factory.createDataContext()
+
+        Order order = dataContext.create(Order)
+        OrderLine orderLine1 = dataContext.create(OrderLine)
+        OrderLine orderLine2 = dataContext.create(OrderLine)
+
+        when:
+
+        order.orderLines = []
+        order.orderLines.add(orderLine1)
+        order.orderLines.add(orderLine2)
+
+        dataContext.remove(orderLine1)
+
+        then:
+
+        order.orderLines == [orderLine2]
+
+        when:
+
+        dataContext.evict(order)
+        order.orderLines = [orderLine2]
+        dataContext.remove(orderLine2)
+
+        then: "evicted instance is not changed"
+
+        order.orderLines == [orderLine2]
+    }
+
+    def "removed and evicted owners are dropped from the reverse index"() {
+
+        DataContextImpl dataContext = factory.createDataContext() as DataContextImpl
+
+        Order order1 = makeSaved(new Order(number: "111", orderLines: []))
+        OrderLine orderLine11 = makeSaved(new OrderLine(quantity: 10))
+        orderLine11.order = order1
+        order1.orderLines.add(orderLine11)
+
+        Order order2 = makeSaved(new Order(number: "222", orderLines: []))
+        OrderLine orderLine21 = makeSaved(new OrderLine(quantity: 20))
+        orderLine21.order = order2
+        order2.orderLines.add(orderLine21)
+
+        Order order1_1 = dataContext.merge(order1)
+        Order order2_1 = dataContext.merge(order2)
+        OrderLine orderLine11_1 = order1_1.orderLines[0]
+        OrderLine orderLine21_1 = order2_1.orderLines[0]
+
+        when:
+
+        dataContext.remove(order1_1)
+
+        then:
+
+        !dataContext.collectionRefs.containsKey(orderLine11_1)
+        !dataContext.indexedItems.containsKey(order1_1)
+
+        when:
+
+        dataContext.evict(order2_1)
+
+        then:
+
+        !dataContext.collectionRefs.containsKey(orderLine21_1)
+        dataContext.indexedItems.isEmpty()
+    }
+
+    def "remove from a context with many instances"() {
+
+        int ordersCount = 300
+        int linesCount = 20
+
+        def indexedContext = factory.createDataContext()
+        def fullScanContext = new FullScanDataContext(AppContext.getApplicationContext())
+
+        List<Order> orders = (1..ordersCount).collect { i ->
+            Order order = new Order(number: "$i", orderLines: [])
+            (1..linesCount).each { j ->
+                OrderLine line = new OrderLine(order: order, quantity: j)
+                makeDetached(line)
+                order.orderLines.add(line)
+            }
+            makeDetached(order)
+            order
+        }
+
+        when:
+
+        Map<String, Long> times = [:]
+        Map<String, List<Order>> results = [:]
+        [indexed: indexedContext, fullScan: fullScanContext].each { name, context ->
+            List<Order> mergedOrders = context.merge(orders).toList()
+            List<OrderLine> linesToRemove = mergedOrders.collectMany { it.orderLines.findAll { it.quantity % 2 == 0 } }
+
+            long start = System.nanoTime()
+            linesToRemove.each { context.remove(it) }
+            times[name] = (System.nanoTime() - start).intdiv(1_000_000)
+            results[name] = mergedOrders
+        }
+        println "Remove of ${ordersCount * linesCount.intdiv(2)} instances from a context of ${ordersCount * (linesCount + 1)} instances: $times ms"
+
+        then:
+
+        results.values().every { mergedOrders ->
+            mergedOrders.every { it.orderLines.size() == linesCount.intdiv(2) && it.orderLines.every { it.quantity % 2 == 1 } }
+        }
+    }
+
     def "system fields are preserved on merge"() {
 
         def dataContext = factory.createDataContext()
@@ -758,4 +871,32 @@ class DataContextTest extends Specification {
     private static <T> T makeSaved(T entity) {
         TestServiceProxy.getDefault(DataService).commit(new CommitContext().addInstanceToCommit(entity))[0] as T
     }
+
+    /**
+     * Removes instances from collections by scanning the whole content, as the context did before the reverse index.
+     */
+    static class FullScanDataContext extends DataContextImpl {
+
+        FullScanDataContext(ApplicationContext applicationContext) {
+            super(applicationContext)
+        }
+
+        @Override
+        protected void removeFromCollections(Entity entityToRemove) {
+            content.each { entityClass, entityMap ->
+                getMetadata().getClassNN(entityClass).properties.each { metaProperty ->
+                    if (metaProperty.range.isClass()
+                            && metaProperty.range.cardinality.isMany()
+                            && metaProperty.range.asClass().javaClass.isAssignableFrom(entityToRemove.class)) {
+                        entityMap.values().each { entity ->
+                            if (getEntityStates().isLoaded(entity, metaProperty.name)) {
+                                Collection collection = entity.getValue(metaProperty.name)
+                                collection?.remove(entityToRemove)
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.web.datacontext
+
+import com.haulmont.chile.core.model.MetaPropertyPath
+import com.haulmont.cuba.core.app.DataService
+import com.haulmont.cuba.core.entity.KeyValueEntity
+import com.haulmont.cuba.core.global.ValueLoadContext
+import com.haulmont.cuba.core.global.queryconditions.JpqlCondition
+import com.haulmont.cuba.gui.components.AggregationInfo
+import com.haulmont.cuba.gui.components.data.table.ContainerTableItems
+import com.haulmont.cuba.gui.model.CollectionContainer
+import com.haulmont.cuba.gui.model.CollectionLoader
+import com.haulmont.cuba.web.testmodel.sales.Product
+import com.haulmont.cuba.web.testsupport.proxy.TestServiceProxy
+import spec.cuba.web.WebSpec
+
+class DatabaseAggregationTest extends WebSpec {
+
+    private CollectionContainer<Product> container
+    private CollectionLoader<Product> loader
+    private ContainerTableItems<Product> tableItems
+    private AggregationInfo sumInfo
+    private AggregationInfo countInfo
+
+    @Override
+    void setup() {
+        container = dataComponents.createCollectionContainer(Product)
+        loader = dataComponents.createCollectionLoader()
+        loader.setContainer(container)
+        loader.setQuery('select p from test$Product p where p.name like :name order by p.name')
+        loader.setParameter('name', 'p%')
+        loader.setMaxResults(2)
+
+        tableItems = new ContainerTableItems<>(container)
+
+        MetaPropertyPath pricePath = metadata.getClassNN(Product).getPropertyPath('price')
+        sumInfo = new AggregationInfo(propertyPath: pricePath, type: AggregationInfo.Type.SUM)
+        countInfo = new AggregationInfo(propertyPath: pricePath, type: AggregationInfo.Type.COUNT)
+    }
+
+    @Override
+    void cleanup() {
+        TestServiceProxy.clear()
+    }
+
+    def "aggregation is performed in memory by default"() {
+        def dataService = Mock(DataService)
+        TestServiceProxy.mock(DataService, dataService)
+
+        when:
+
+        loader.load()
+        def results = tableItems.aggregateValues([sumInfo, countInfo] as AggregationInfo[], tableItems.getItemIds())
+
+        then:
+
+        1 * dataService.loadList(_) >> [new Product(name: 'p1', price: 10), new Product(name: 'p2', price: 20)]
+        0 * dataService.loadValues(_)
+        results[sumInfo] == 30
+        results[countInfo] == 2
+    }
+
+    def "aggregation is performed by database for all instances matching the loader query"() {
+        def dataService = Mock(DataService)
+        TestServiceProxy.mock(DataService, dataService)
+        tableItems.setDatabaseAggregation(true)
+        ValueLoadContext valueLoadContext = null
+
+        when:
+
+        loader.load()
+        def results = tableItems.aggregateValues([sumInfo, countInfo] as AggregationInfo[], tableItems.getItemIds())
+
+        then:
+
+        1 * dataService.loadList(_) >> [new Product(name: 'p1', price: 10), new Product(name: 'p2', price: 20)]
+        1 * dataService.loadValues(_) >> { ValueLoadContext context ->
+            valueLoadContext = context
+            [createResult(context, 100, 4)]
+        }
+        valueLoadContext.query.queryString == 'select sum(p.price), count(p.price) from test$Product p where p.name like :name'
+        valueLoadContext.query.parameters == [name: 'p%']
+        results[sumInfo] == 100
+        results[countInfo] == 4
+
+        when: "next page is loaded"
+
+        loader.setFirstResult(2)
+        loader.load()
+        results = tableItems.aggregateValues([sumInfo, countInfo] as AggregationInfo[], tableItems.getItemIds())
+
+        then: "cached results are used"
+
+        1 * dataService.loadList(_) >> [new Product(name: 'p3', price: 30), new Product(name: 'p4', price: 40)]
+        0 * dataService.loadValues(_)
+        results[sumInfo] == 100
+
+        when: "loader parameters are changed"
+
+        loader.setParameter('name', 'p1%')
+        loader.setFirstResult(0)
+        loader.load()
+        results = tableItems.aggregateValues([sumInfo, countInfo] as AggregationInfo[], tableItems.getItemIds())
+
+        then: "aggregates are loaded again"
+
+        1 * dataService.loadList(_) >> [new Product(name: 'p1', price: 10)]
+        1 * dataService.loadValues(_) >> { ValueLoadContext context -> [createResult(context, 10, 1)] }
+        results[sumInfo] == 10
+        results[countInfo] == 1
+    }
+
+    def "aggregation of a subset of items is performed in memory"() {
+        def dataService = Mock(DataService)
+        TestServiceProxy.mock(DataService, dataService)
+        tableItems.setDatabaseAggregation(true)
+
+        when:
+
+        loader.load()
+        def results = tableItems.aggregateValues([sumInfo] as AggregationInfo[], [container.items[0].id])
+
+        then:
+
+        1 * dataService.loadList(_) >> [new Product(name: 'p1', price: 10), new Product(name: 'p2', price: 20)]
+        0 * dataService.loadValues(_)
+        results[sumInfo] == 10
+    }
+
+    def "aggregation is performed in memory for queries joining other entities"() {
+        def dataService = Mock(DataService)
+        TestServiceProxy.mock(DataService, dataService)
+        tableItems.setDatabaseAggregation(true)
+
+        when:
+
+        loader.setQuery(query)
+        loader.setCondition(condition)
+        loader.load()
+        def results = tableItems.aggregateValues([sumInfo] as AggregationInfo[], tableItems.getItemIds())
+
+        then:
+
+        1 * dataService.loadList(_) >> [new Product(name: 'p1', price: 10), new Product(name: 'p2', price: 20)]
+        0 * dataService.loadValues(_)
+        results[sumInfo] == 30
+
+        where:
+
+        query                                                                  | condition
+        'select p from test$Product p join p.tags t where t.name like :name'   | null
+        'select p from test$Product p, test$OrderLine l where l.product = p'   | null
+        'select p from test$Product p where p.name like :name'                 | JpqlCondition.where('join {E}.tags t', 't.name = :name')
+    }
+
+    def "aggregation is performed in memory while items are changed after load"() {
+        def dataService = Mock(DataService)
+        TestServiceProxy.mock(DataService, dataService)
+        tableItems.setDatabaseAggregation(true)
+
+        when:
+
+        loader.load()
+        container.items[0].price = 15
+        def results = tableItems.aggregateValues([sumInfo] as AggregationInfo[], tableItems.getItemIds())
+
+        then:
+
+        1 * dataService.loadList(_) >> [new Product(name: 'p1', price: 10), new Product(name: 'p2', price: 20)]
+        0 * dataService.loadValues(_)
+        results[sumInfo] == 35
+
+        when: "container is loaded again"
+
+        loader.load()
+        results = tableItems.aggregateValues([sumInfo, countInfo] as AggregationInfo[], tableItems.getItemIds())
+
+        then:
+
+        1 * dataService.loadList(_) >> [new Product(name: 'p1', price: 15), new Product(name: 'p2', price: 20)]
+        1 * dataService.loadValues(_) >> { ValueLoadContext context -> [createResult(context, 105, 4)] }
+        results[sumInfo] == 105
+    }
+
+    def "aggregation is performed in memory while data context has unsaved changes"() {
+        def dataService = Mock(DataService)
+        TestServiceProxy.mock(DataService, dataService)
+        def dataContext = dataComponents.createDataContext()
+        loader.setDataContext(dataContext)
+        tableItems.setDatabaseAggregation(true)
+
+        when:
+
+        loader.load()
+        container.items[0].price = 15
+        def results = tableItems.aggregateValues([sumInfo] as AggregationInfo[], tableItems.getItemIds())
+
+        then:
+
+        1 * dataService.loadList(_) >> [new Product(name: 'p1', price: 10), new Product(name: 'p2', price: 20)]
+        0 * dataService.loadValues(_)
+        dataContext.hasChanges()
+        results[sumInfo] == 35
+
+        when: "changes are committed"
+
+        dataContext.setModified(container.items[0], false)
+        results = tableItems.aggregateValues([sumInfo, countInfo] as AggregationInfo[], tableItems.getItemIds())
+
+        then:
+
+        1 * dataService.loadValues(_) >> { ValueLoadContext context -> [createResult(context, 105, 4)] }
+        results[sumInfo] == 105
+    }
+
+    private static KeyValueEntity createResult(ValueLoadContext context, def sum, def count) {
+        def entity = new KeyValueEntity()
+        entity.setValue(context.properties[0], new BigDecimal(sum))
+        entity.setValue(context.properties[1], count as Long)
+        return entity
+    }
+}
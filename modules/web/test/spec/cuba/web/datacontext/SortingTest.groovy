@@ -101,4 +101,53 @@ class SortingTest extends WebSpec {
         1 * dataService.loadList(_) >> products.sort { it.name }.reverse()
         container.items[0].name == 'p3'
     }
+
+    def "sort in memory by multiple properties"() {
+        def products = [
+                new Product(name: 'p1', price: 10),
+                new Product(name: 'p2', price: 20),
+                new Product(name: 'p3', price: 10),
+                new Product(name: 'p4', price: 30)
+        ]
+        container.setItems(products)
+
+        when:
+
+        container.getSorter().sort(Sort.by(Sort.Order.desc('price'), Sort.Order.asc('name')))
+
+        then:
+
+        container.items.collect { it.name } == ['p4', 'p2', 'p1', 'p3']
+
+        when:
+
+        container.getSorter().sort(Sort.by(Sort.Order.asc('price'), Sort.Order.desc('name')))
+
+        then:
+
+        container.items.collect { it.name } == ['p3', 'p1', 'p2', 'p4']
+    }
+
+    def "sort large collection in memory"() {
+        def random = new Random(0)
+        def products = (1..50_000).collect {
+            new Product(name: 'p' + random.nextInt(1000), price: random.nextInt(100))
+        }
+        container.setItems(products)
+
+        when:
+
+        long start = System.currentTimeMillis()
+        container.getSorter().sort(Sort.by(Sort.Order.asc('price'), Sort.Order.desc('name')))
+        println "Sorting of ${products.size()} items by 2 properties took ${System.currentTimeMillis() - start} ms"
+
+        then:
+
+        container.items.size() == products.size()
+        (1..<container.items.size()).every {
+            def prev = container.items[it - 1]
+            def next = container.items[it]
+            prev.price < next.price || prev.price == next.price && prev.name.compareToIgnoreCase(next.name) >= 0
+        }
+    }
 }
@@ -16,12 +16,17 @@
 
 package spec.cuba.web.dataloadcoordinator
 
+import com.haulmont.cuba.core.app.DataService
+import com.haulmont.cuba.core.global.EntityAccessException
+import com.haulmont.cuba.core.global.LoadContext
 import com.haulmont.cuba.gui.components.DataLoadCoordinator
 import com.haulmont.cuba.gui.screen.OpenMode
 import com.haulmont.cuba.web.app.main.MainScreen
 import com.haulmont.cuba.web.testmodel.petclinic.Address
 import com.haulmont.cuba.web.testmodel.petclinic.Owner
 import com.haulmont.cuba.web.testmodel.petclinic.OwnerCategory
+import com.haulmont.cuba.web.testmodel.petclinic.Pet
+import com.haulmont.cuba.web.testsupport.proxy.TestServiceProxy
 import spec.cuba.web.UiScreenSpec
 import spec.cuba.web.dataloadcoordinator.screens.*
 import spock.lang.Unroll
@@ -187,4 +192,129 @@ class DataLoadCoordinatorFacetTest extends UiScreenSpec {
         screenFragment.events[0].loadContext.query.parameters['container_countriesDc'] == screenFragment.countriesDc.getItem()
     }
 
-}
\ No newline at end of file
+    def "batch loading of loaders triggered by the same screen event"() {
+        def screens = vaadinUi.screens
+        screens.create(MainScreen, OpenMode.ROOT).show()
+
+        def owner = new Owner(name: 'Joe')
+        List<List<LoadContext>> batches = []
+        List<LoadContext> loadedLists = []
+        TestServiceProxy.mock(DataService, Mock(DataService) {
+            loadBatch(_) >> { List<LoadContext> contexts ->
+                batches << contexts
+                contexts.collect { loadContext -> loadResult(loadContext, owner) }
+            }
+            loadList(_) >> { LoadContext loadContext ->
+                loadedLists << loadContext
+                loadResult(loadContext, owner)
+            }
+        })
+
+        when: "show screen"
+
+        def screen = screens.create(DlcBatchScreen)
+        screen.ownerDl.setEntityId(owner.id)
+        screen.show()
+
+        then: "batch loading is enabled by the descriptor"
+
+        screen.dlc.batchLoad
+
+        and: "loaders supporting batch loading are loaded by a single call"
+
+        batches.size() == 1
+        batches[0].size() == 3
+        batches[0][0].id == owner.id
+        batches[0][1].query.queryString == 'select e from pc_Owner e'
+        batches[0][2].query.parameters['name'] == 'initial'
+
+        and: "events are sent in the loaders order, the loader with parameter changed by a previous loader is reloaded"
+
+        screen.events == ['pre:ownerDl', 'pre:ownersDl', 'pre:petsDl',
+                          'post:ownerDl', 'post:ownersDl', 'pre:petsDl', 'post:petsDl',
+                          'delegate:categoriesDl']
+        loadedLists.size() == 1
+        loadedLists[0].query.parameters['name'] == 'changed'
+
+        screen.ownerDc.item == owner
+        screen.ownersDc.items == [owner]
+        screen.petsDc.items.size() == 1
+    }
+
+    def "batch loading continues if an instance is not found"() {
+        def screens = vaadinUi.screens
+        screens.create(MainScreen, OpenMode.ROOT).show()
+
+        def owner = new Owner(name: 'Joe')
+        TestServiceProxy.mock(DataService, Mock(DataService) {
+            loadBatch(_) >> { List<LoadContext> contexts ->
+                contexts.collect { loadContext -> loadContext.id != null ? [] : loadResult(loadContext, owner) }
+            }
+            loadList(_) >> { LoadContext loadContext -> loadResult(loadContext, owner) }
+        })
+
+        when: "show screen with not existing instance id"
+
+        def screen = screens.create(DlcBatchScreen)
+        screen.ownerDl.setEntityId(UUID.randomUUID())
+        screen.show()
+
+        then: "exception is thrown after all loaders are loaded"
+
+        thrown(EntityAccessException)
+
+        screen.events == ['pre:ownerDl', 'pre:ownersDl', 'pre:petsDl',
+                          'post:ownersDl', 'pre:petsDl', 'post:petsDl',
+                          'delegate:categoriesDl']
+        screen.ownerDc.itemOrNull == null
+        screen.ownersDc.items == [owner]
+        screen.petsDc.items.size() == 1
+    }
+
+    def "loaders are loaded one by one if the batch call fails"() {
+        def screens = vaadinUi.screens
+        screens.create(MainScreen, OpenMode.ROOT).show()
+
+        def owner = new Owner(name: 'Joe')
+        List<LoadContext> loaded = []
+        TestServiceProxy.mock(DataService, Mock(DataService) {
+            loadBatch(_) >> { throw new RuntimeException('batch failed') }
+            load(_) >> { LoadContext loadContext ->
+                loaded << loadContext
+                owner
+            }
+            loadList(_) >> { LoadContext loadContext ->
+                loaded << loadContext
+                loadResult(loadContext, owner)
+            }
+        })
+
+        when: "show screen"
+
+        def screen = screens.create(DlcBatchScreen)
+        screen.ownerDl.setEntityId(owner.id)
+        screen.show()
+
+        then: "each loader of the batch is loaded by its own call"
+
+        noExceptionThrown()
+        loaded.size() == 3
+        loaded[0].id == owner.id
+        loaded[1].query.queryString == 'select e from pc_Owner e'
+        loaded[2].query.parameters['name'] == 'changed'
+
+        screen.events == ['pre:ownerDl', 'pre:ownersDl', 'pre:petsDl',
+                          'pre:ownerDl', 'post:ownerDl', 'pre:ownersDl', 'post:ownersDl', 'pre:petsDl', 'post:petsDl',
+                          'delegate:categoriesDl']
+        screen.ownerDc.item == owner
+        screen.ownersDc.items == [owner]
+        screen.petsDc.items.size() == 1
+    }
+
+    protected static List loadResult(LoadContext loadContext, Owner owner) {
+        if (loadContext.metaClass == 'pc_Pet') {
+            return [new Pet(name: 'Misty')]
+        }
+        return [owner]
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package spec.cuba.web.dataloadcoordinator.screens;
+
+import com.haulmont.cuba.core.global.LoadContext;
+import com.haulmont.cuba.gui.components.DataLoadCoordinator;
+import com.haulmont.cuba.gui.model.*;
+import com.haulmont.cuba.gui.screen.*;
+import com.haulmont.cuba.web.testmodel.petclinic.Owner;
+import com.haulmont.cuba.web.testmodel.petclinic.OwnerCategory;
+import com.haulmont.cuba.web.testmodel.petclinic.Pet;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@UiController("dlc-batch")
+@UiDescriptor("dlc-batch.xml")
+public class DlcBatchScreen extends Screen {
+
+    public List<String> events = new ArrayList<>();
+
+    @Inject
+    public DataLoadCoordinator dlc;
+
+    @Inject
+    public CollectionLoader<Owner> ownersDl;
+
+    @Inject
+    public CollectionLoader<Pet> petsDl;
+
+    @Inject
+    public CollectionContainer<Owner> ownersDc;
+
+    @Inject
+    public CollectionContainer<Pet> petsDc;
+
+    @Inject
+    public InstanceLoader<Owner> ownerDl;
+
+    @Inject
+    public InstanceContainer<Owner> ownerDc;
+
+    @Subscribe
+    private void onInit(InitEvent event) {
+        petsDl.setParameter("name", "initial");
+    }
+
+    @Subscribe(id = "ownersDl", target = Target.DATA_LOADER)
+    private void onOwnersDlPreLoad(CollectionLoader.PreLoadEvent<Owner> event) {
+        events.add("pre:ownersDl");
+    }
+
+    @Subscribe(id = "ownersDl", target = Target.DATA_LOADER)
+    private void onOwnersDlPostLoad(CollectionLoader.PostLoadEvent<Owner> event) {
+        events.add("post:ownersDl");
+        petsDl.setParameter("name", "changed");
+    }
+
+    @Subscribe(id = "petsDl", target = Target.DATA_LOADER)
+    private void onPetsDlPreLoad(CollectionLoader.PreLoadEvent<Pet> event) {
+        events.add("pre:petsDl");
+    }
+
+    @Subscribe(id = "petsDl", target = Target.DATA_LOADER)
+    private void onPetsDlPostLoad(CollectionLoader.PostLoadEvent<Pet> event) {
+        events.add("post:petsDl");
+    }
+
+    @Install(to = "categoriesDl", target = Target.DATA_LOADER)
+    private List<OwnerCategory> categoriesDlLoadDelegate(LoadContext<OwnerCategory> loadContext) {
+        events.add("delegate:categoriesDl");
+        return Collections.emptyList();
+    }
+
+    @Subscribe(id = "ownerDl", target = Target.DATA_LOADER)
+    private void onOwnerDlPreLoad(InstanceLoader.PreLoadEvent<Owner> event) {
+        events.add("pre:ownerDl");
+    }
+
+    @Subscribe(id = "ownerDl", target = Target.DATA_LOADER)
+    private void onOwnerDlPostLoad(InstanceLoader.PostLoadEvent<Owner> event) {
+        events.add("post:ownerDl");
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.web.export
+
+import com.haulmont.cuba.core.app.DataService
+import com.haulmont.cuba.core.entity.Entity
+import com.haulmont.cuba.core.global.LoadContext
+import com.haulmont.cuba.core.global.Sort
+import com.haulmont.cuba.gui.executors.TaskLifeCycle
+import com.haulmont.cuba.gui.export.ExcelExporter
+import com.haulmont.cuba.gui.export.ExcelOptions
+import com.haulmont.cuba.gui.export.ExportFormat
+import com.haulmont.cuba.gui.export.TempFileDataProvider
+import com.haulmont.cuba.gui.export.helper.ExcelExportHelper
+import com.haulmont.cuba.gui.export.helper.SxssfExportHelper
+import com.haulmont.cuba.web.testmodel.petclinic.Owner
+import com.haulmont.cuba.web.testsupport.proxy.TestServiceProxy
+import org.apache.poi.xssf.usermodel.XSSFWorkbook
+import spec.cuba.web.WebSpec
+
+import java.util.function.Function
+
+@SuppressWarnings(["GroovyAccessibility", "GroovyAssignabilityCheck"])
+class ExcelExporterFromDatabaseTest extends WebSpec {
+
+    List<Owner> owners
+    List<List> loadedPages
+
+    void setup() {
+        owners = (1..5).collect { new Owner(name: "owner$it") }.sort { it.id }
+        loadedPages = []
+
+        TestServiceProxy.mock(DataService, Mock(DataService) {
+            loadList(_) >> { LoadContext loadContext ->
+                def query = loadContext.query
+                def lastId = query.parameters[ExcelExporter.EXPORT_LAST_ID_PARAM]
+                List<Sort.Order> orders = query.sort?.orders ?: []
+                loadedPages << [query.firstResult, lastId, orders*.property]
+                owners.findAll { lastId == null || it.id > lastId }
+                        .toSorted { a, b -> compare(a, b, orders) }
+                        .drop(query.firstResult)
+                        .take(query.maxResults)
+            }
+        })
+    }
+
+    void cleanup() {
+        TestServiceProxy.clear()
+    }
+
+    def "instances are loaded by keyset paging ordered by id"() {
+        def exporter = new ExcelExporter()
+        exporter.exportBatchSize = 2
+
+        when:
+
+        def file = export(exporter)
+        def workbook = new XSSFWorkbook(file)
+
+        then: "each page starts after the last id of the previous one"
+
+        loadedPages == [[0, null, ['id']],
+                        [0, owners[1].id, ['id']],
+                        [0, owners[3].id, ['id']]]
+
+        and: "all instances are exported once"
+
+        workbook.numberOfSheets == 1
+        (1..5).collect { workbook.getSheetAt(0).getRow(it).getCell(0).stringCellValue } == owners*.name
+
+        cleanup:
+
+        workbook?.close()
+        file?.delete()
+    }
+
+    def "sorted query keeps its order and is loaded by offset paging"() {
+        def exporter = new ExcelExporter()
+        exporter.exportBatchSize = 2
+
+        when:
+
+        def file = export(exporter, Sort.by(Sort.Direction.DESC, 'name'))
+        def workbook = new XSSFWorkbook(file)
+
+        then: "pages are ordered by the requested sort and the id"
+
+        loadedPages == [[0, null, ['name', 'id']],
+                        [2, null, ['name', 'id']],
+                        [4, null, ['name', 'id']]]
+
+        and: "all instances are exported once in the requested order"
+
+        (1..5).collect { workbook.getSheetAt(0).getRow(it).getCell(0).stringCellValue } == owners*.name.sort().reverse()
+
+        cleanup:
+
+        workbook?.close()
+        file?.delete()
+    }
+
+    def "query ordered in JPQL is loaded by offset paging"() {
+        def exporter = new ExcelExporter()
+        def loadContext = LoadContext.create(Owner)
+                .setQuery(LoadContext.createQuery('select e from pc_Owner e order by e.name'))
+
+        when:
+
+        def keysetPaging = exporter.applyKeysetPaging(loadContext)
+
+        then:
+
+        !keysetPaging
+        loadContext.query.condition == null
+        loadContext.query.sort == null
+    }
+
+    def "export continues on a new sheet when the row limit is reached"() {
+        def exporter = new ExcelExporter() {
+            @Override
+            protected ExcelExportHelper createStreamingExportHelper() {
+                return new SxssfExportHelper() {
+                    @Override
+                    ExcelOptions getExcelOptions() {
+                        return new ExcelOptions(4, ExportFormat.XLSX, ".xlsx", 50)
+                    }
+                }
+            }
+        }
+
+        when:
+
+        def file = export(exporter)
+        def workbook = new XSSFWorkbook(file)
+
+        then: "the second sheet has the header and the rest of rows"
+
+        workbook.numberOfSheets == 2
+        workbook.getSheetAt(0).lastRowNum == 3
+        workbook.getSheetAt(1).lastRowNum == 2
+        workbook.getSheetAt(1).getRow(0).getCell(0).stringCellValue == 'Name'
+        workbook.getSheetAt(1).getRow(2).getCell(0).stringCellValue == owners[4].name
+
+        cleanup:
+
+        workbook?.close()
+        file?.delete()
+    }
+
+    def "temp file can be read several times and is deleted on close"() {
+        def file = File.createTempFile("export", ".xlsx")
+        file.text = 'content'
+        def dataProvider = new TempFileDataProvider(file)
+
+        expect:
+
+        dataProvider.provide().withCloseable { it.text } == 'content'
+        dataProvider.provide().withCloseable { it.text } == 'content'
+
+        when:
+
+        dataProvider.close()
+
+        then:
+
+        !file.exists()
+    }
+
+    protected File export(ExcelExporter exporter, Sort sort = null) {
+        def loadContext = LoadContext.create(Owner)
+                .setQuery(LoadContext.createQuery('select e from pc_Owner e').setSort(sort))
+        Function<Entity, Object> nameProvider = { Entity entity -> entity.getValue('name') } as Function
+
+        exporter.writeRowsFromDatabase(loadContext, null, ['Name'],
+                { Integer rowNumber, Entity instance -> exporter.createRow([null], [nameProvider], rowNumber, instance) },
+                Stub(TaskLifeCycle))
+    }
+
+    protected static int compare(Owner a, Owner b, List<Sort.Order> orders) {
+        for (Sort.Order order : orders) {
+            int result = (a.getValue(order.property) as Comparable) <=> (b.getValue(order.property) as Comparable)
+            if (result != 0) {
+                return order.direction == Sort.Direction.DESC ? -result : result
+            }
+        }
+        return 0
+    }
+}